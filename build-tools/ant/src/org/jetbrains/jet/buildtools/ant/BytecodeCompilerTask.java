@@ -20,9 +20,17 @@ import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.Reference;
 import org.jetbrains.jet.buildtools.core.BytecodeCompiler;
+import org.jetbrains.jet.cli.common.daemon.CompileDaemonClient;
+import org.jetbrains.jet.cli.jvm.K2JVMCompiler;
 import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentException;
+import org.jetbrains.jet.utils.PathUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.jetbrains.jet.buildtools.core.Util.getPath;
 
@@ -44,6 +52,7 @@ public class BytecodeCompilerTask extends Task {
     private File module;
     private Path compileClasspath;
     private boolean includeRuntime = true;
+    private boolean daemon = false;
 
     public void setOutput(File output) {
         this.output = output;
@@ -69,6 +78,13 @@ public class BytecodeCompilerTask extends Task {
         this.includeRuntime = includeRuntime;
     }
 
+    /**
+     * Compile in a long-running compiler process shared by all the builds, instead of the JVM running Ant.
+     */
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
 
     /**
      * Set the classpath to be used for this compilation.
@@ -110,6 +126,10 @@ public class BytecodeCompilerTask extends Task {
 
     @Override
     public void execute() {
+        if (this.daemon) {
+            executeInDaemon();
+            return;
+        }
 
         final BytecodeCompiler compiler = new BytecodeCompiler();
         final String stdlibPath = (this.stdlib != null ? getPath(this.stdlib) : null);
@@ -151,4 +171,72 @@ public class BytecodeCompilerTask extends Task {
             throw new CompileEnvironmentException("\"src\" or \"module\" should be specified");
         }
     }
+
+    private void executeInDaemon() {
+        List<String> arguments = new ArrayList<String>();
+        String source;
+        if (this.src != null) {
+            if ((this.output == null) && (this.jar == null)) {
+                throw new CompileEnvironmentException("\"output\" or \"jar\" should be specified");
+            }
+            source = getPath(this.src);
+            Collections.addAll(arguments, "-src", source);
+        }
+        else if (this.module != null) {
+            if (this.output != null) {
+                throw new CompileEnvironmentException("Module compilation is only supported for jar destination");
+            }
+            source = getPath(this.module);
+            Collections.addAll(arguments, "-module", source);
+        }
+        else {
+            throw new CompileEnvironmentException("\"src\" or \"module\" should be specified");
+        }
+
+        if (this.output != null) {
+            Collections.addAll(arguments, "-output", getPath(this.output));
+        }
+        if (this.jar != null) {
+            Collections.addAll(arguments, "-jar", getPath(this.jar));
+        }
+        if (this.includeRuntime && this.output == null) {
+            arguments.add("-includeRuntime");
+        }
+
+        List<String> classpath = new ArrayList<String>();
+        if (this.stdlib != null) {
+            arguments.add("-noStdlib");
+            classpath.add(getPath(this.stdlib));
+        }
+        if (this.compileClasspath != null) {
+            classpath.addAll(Arrays.asList(this.compileClasspath.list()));
+        }
+        if (!classpath.isEmpty()) {
+            StringBuilder classpathString = new StringBuilder();
+            for (String path : classpath) {
+                if (classpathString.length() > 0) {
+                    classpathString.append(File.pathSeparator);
+                }
+                classpathString.append(path);
+            }
+            Collections.addAll(arguments, "-classpath", classpathString.toString());
+        }
+
+        log(String.format("Compiling [%s] in compile daemon", source));
+
+        CompileDaemonClient client = new CompileDaemonClient(
+                CompileDaemonClient.getJavaExecutable(System.getProperty("java.home")),
+                Collections.singletonList(PathUtil.getJarPathForClass(K2JVMCompiler.class)),
+                Collections.singletonList("-Djava.awt.headless=true"));
+        int exitCode;
+        try {
+            exitCode = client.compile(arguments.toArray(new String[arguments.size()]), System.err);
+        }
+        catch (IOException e) {
+            throw new CompileEnvironmentException(String.format("[%s] compilation in compile daemon failed", source), e);
+        }
+        if (exitCode != 0) {
+            throw new CompileEnvironmentException(String.format("[%s] compilation failed, exit code %d", source, exitCode));
+        }
+    }
 }
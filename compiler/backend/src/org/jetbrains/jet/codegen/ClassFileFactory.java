@@ -18,9 +18,11 @@ package org.jetbrains.jet.codegen;
 
 import com.google.common.collect.Lists;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.asm4.Type;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.*;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.GenerationStateAware;
 import org.jetbrains.jet.codegen.state.JetTypeMapperMode;
@@ -38,7 +40,10 @@ public final class ClassFileFactory extends GenerationStateAware {
     @NotNull private ClassBuilderFactory builderFactory;
 
     private final Map<FqName, NamespaceCodegen> ns2codegen = new HashMap<FqName, NamespaceCodegen>();
+    // In the streaming mode, the builders of the classes which were already written to the sink are replaced with null
     private final Map<String, ClassBuilder> generators = new LinkedHashMap<String, ClassBuilder>();
+    private final ThreadLocal<List<String>> outputsOfCurrentThread = new ThreadLocal<List<String>>();
+    @Nullable private ClassFileSink sink;
     private boolean isDone = false;
 
     public ClassFileFactory(@NotNull GenerationState state) {
@@ -51,18 +56,100 @@ public final class ClassFileFactory extends GenerationStateAware {
         this.builderFactory = builderFactory;
     }
 
+    /**
+     * Enables the streaming mode: every class is serialized and passed to the sink as soon as it is done, and its builder is released.
+     * Bytes and text of such classes are not available from this factory afterwards. Classes of namespaces are finished in {@link #done()}.
+     */
+    public void setSink(@NotNull ClassFileSink sink) {
+        synchronized (generators) {
+            assert generators.isEmpty() : "Sink should be set before the generation starts";
+            this.sink = sink;
+        }
+    }
+
     ClassBuilder newVisitor(String outputFilePath, PsiFile sourceFile) {
         return newVisitor(outputFilePath, Collections.singletonList(sourceFile));
     }
+
+    /**
+     * Same as {@link #newVisitor(String, PsiFile)}, but returns null if this class has already been created,
+     * e.g. for another copy of code that is generated several times, like a finally block
+     */
+    @Nullable
+    ClassBuilder newVisitorIfAbsent(String outputFilePath, PsiFile sourceFile) {
+        synchronized (generators) {
+            if (generators.containsKey(outputFilePath)) return null;
+            return newVisitor(outputFilePath, sourceFile);
+        }
+    }
     
     private ClassBuilder newVisitor(String outputFilePath, Collection<? extends PsiFile> sourceFiles) {
-        state.getProgress().reportOutput(toIoFilesIgnoringNonPhysical(sourceFiles), new File(outputFilePath));
-        final ClassBuilder answer = builderFactory.newClassBuilder();
-        generators.put(outputFilePath, answer);
+        ClassBuilder answer = builderFactory.newClassBuilder();
+        synchronized (generators) {
+            state.getProgress().reportOutput(toIoFilesIgnoringNonPhysical(sourceFiles), new File(outputFilePath));
+            generators.put(outputFilePath, answer);
+            if (sink != null) {
+                answer = new StreamingClassBuilder(outputFilePath, answer);
+            }
+        }
+        List<String> outputs = outputsOfCurrentThread.get();
+        if (outputs != null) {
+            outputs.add(outputFilePath);
+        }
         return answer;
     }
 
-    private void done() {
+    /**
+     * Runs {@code generation} on the current thread and returns the paths of all the classes it has created
+     */
+    @NotNull
+    List<String> collectOutputs(@NotNull Runnable generation) {
+        List<String> outputs = new ArrayList<String>();
+        outputsOfCurrentThread.set(outputs);
+        try {
+            generation.run();
+        }
+        finally {
+            outputsOfCurrentThread.remove();
+        }
+        return outputs;
+    }
+
+    /**
+     * Reorders generated classes so that {@link #files()} is the same as if the given groups were generated one after another
+     */
+    void restoreOutputOrder(@NotNull List<List<String>> outputGroups) {
+        synchronized (generators) {
+            Map<String, ClassBuilder> reordered = new LinkedHashMap<String, ClassBuilder>();
+            Set<String> grouped = new HashSet<String>();
+            for (List<String> group : outputGroups) {
+                grouped.addAll(group);
+            }
+            for (Map.Entry<String, ClassBuilder> entry : generators.entrySet()) {
+                if (!grouped.contains(entry.getKey())) {
+                    reordered.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (List<String> group : outputGroups) {
+                for (String path : group) {
+                    reordered.put(path, generators.get(path));
+                }
+            }
+            generators.clear();
+            generators.putAll(reordered);
+        }
+    }
+
+    private void writeToSink(@NotNull String outputFilePath, @NotNull ClassBuilder builder) {
+        assert sink != null;
+        byte[] bytes = builderFactory.asBytes(builder);
+        synchronized (generators) {
+            generators.put(outputFilePath, null);
+        }
+        sink.write(outputFilePath, bytes);
+    }
+
+    public synchronized void done() {
         if (!isDone) {
             isDone = true;
             for (NamespaceCodegen codegen : ns2codegen.values()) {
@@ -73,12 +160,23 @@ public final class ClassFileFactory extends GenerationStateAware {
 
     public String asText(String file) {
         done();
-        return builderFactory.asText(generators.get(file));
+        return builderFactory.asText(getNotWrittenBuilder(file));
     }
 
     public byte[] asBytes(String file) {
         done();
-        return builderFactory.asBytes(generators.get(file));
+        return builderFactory.asBytes(getNotWrittenBuilder(file));
+    }
+
+    @Nullable
+    private ClassBuilder getNotWrittenBuilder(@NotNull String file) {
+        synchronized (generators) {
+            ClassBuilder builder = generators.get(file);
+            if (builder == null && generators.containsKey(file)) {
+                throw new IllegalStateException(file + " has already been written to the sink");
+            }
+            return builder;
+        }
     }
 
     public List<String> files() {
@@ -100,7 +198,7 @@ public final class ClassFileFactory extends GenerationStateAware {
         return answer.toString();
     }
 
-    public NamespaceCodegen forNamespace(final FqName fqName, final Collection<JetFile> files) {
+    public synchronized NamespaceCodegen forNamespace(final FqName fqName, final Collection<JetFile> files) {
         assert !isDone : "Already done!";
         NamespaceCodegen codegen = ns2codegen.get(fqName);
         if (codegen == null) {
@@ -152,4 +250,84 @@ public final class ClassFileFactory extends GenerationStateAware {
         return result;
     }
 
+    /**
+     * Passes the class to the sink once it is done
+     */
+    private class StreamingClassBuilder extends ClassBuilder {
+        private final String outputFilePath;
+        private final ClassBuilder delegate;
+
+        private StreamingClassBuilder(@NotNull String outputFilePath, @NotNull ClassBuilder delegate) {
+            this.outputFilePath = outputFilePath;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClassVisitor getVisitor() {
+            return delegate.getVisitor();
+        }
+
+        @Override
+        public FieldVisitor newField(
+                @Nullable PsiElement origin,
+                int access,
+                String name,
+                String desc,
+                @Nullable String signature,
+                @Nullable Object value
+        ) {
+            return delegate.newField(origin, access, name, desc, signature, value);
+        }
+
+        @Override
+        public MethodVisitor newMethod(
+                @Nullable PsiElement origin,
+                int access,
+                String name,
+                String desc,
+                @Nullable String signature,
+                @Nullable String[] exceptions
+        ) {
+            return delegate.newMethod(origin, access, name, desc, signature, exceptions);
+        }
+
+        @Override
+        public AnnotationVisitor newAnnotation(String desc, boolean visible) {
+            return delegate.newAnnotation(desc, visible);
+        }
+
+        @Override
+        public void defineClass(
+                PsiElement origin,
+                int version,
+                int access,
+                String name,
+                @Nullable String signature,
+                String superName,
+                String[] interfaces
+        ) {
+            delegate.defineClass(origin, version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitSource(String name, @Nullable String debug) {
+            delegate.visitSource(name, debug);
+        }
+
+        @Override
+        public void visitOuterClass(String owner, @Nullable String name, @Nullable String desc) {
+            delegate.visitOuterClass(owner, name, desc);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            delegate.visitInnerClass(name, outerName, innerName, access);
+        }
+
+        @Override
+        public void done() {
+            delegate.done();
+            writeToSink(outputFilePath, delegate);
+        }
+    }
 }
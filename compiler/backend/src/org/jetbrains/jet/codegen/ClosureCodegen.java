@@ -96,6 +96,7 @@ public class ClosureCodegen extends GenerationStateAware {
 
 
         generateBridge(name.getInternalName(), funDescriptor, fun, cv);
+        generateSpecializedInvoke(name.getInternalName(), funDescriptor, fun, cv);
         generateBody(funDescriptor, cv, (JetDeclarationWithBody) fun, context, expressionCodegen);
 
         constructor = generateConstructor(funClass, fun, cv, closure);
@@ -191,6 +192,43 @@ public class ClosureCodegen extends GenerationStateAware {
         }
     }
 
+    private void generateSpecializedInvoke(
+            String className,
+            FunctionDescriptor funDescriptor,
+            JetExpression fun,
+            ClassBuilder cv
+    ) {
+        final Method delegate = typeMapper.invokeSignature(funDescriptor).getAsmMethod();
+        final Method specialized = FunctionInvokeSpecialization.getSpecializedInvoke(delegate.getArgumentTypes(), delegate.getReturnType());
+        if (specialized == null) {
+            return;
+        }
+
+        final MethodVisitor mv = cv.newMethod(fun, ACC_PUBLIC | ACC_FINAL, specialized.getName(), specialized.getDescriptor(), null,
+                                              new String[0]);
+        if (state.getClassBuilderMode() == ClassBuilderMode.STUBS) {
+            genStubCode(mv);
+        }
+        if (state.getClassBuilderMode() == ClassBuilderMode.FULL) {
+            mv.visitCode();
+
+            InstructionAdapter iv = new InstructionAdapter(mv);
+
+            iv.load(0, Type.getObjectType(className));
+
+            int count = 1;
+            for (Type argumentType : specialized.getArgumentTypes()) {
+                iv.load(count, argumentType);
+                count += argumentType.getSize();
+            }
+
+            iv.invokevirtual(className, "invoke", delegate.getDescriptor());
+            iv.areturn(specialized.getReturnType());
+
+            FunctionCodegen.endVisit(mv, "specialized invoke", fun);
+        }
+    }
+
     private Method generateConstructor(
             JvmClassName funClass,
             JetExpression fun,
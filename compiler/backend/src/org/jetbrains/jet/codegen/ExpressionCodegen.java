@@ -23,6 +23,7 @@ import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Function;
 import com.intellij.util.containers.Stack;
 import org.jetbrains.annotations.NotNull;
@@ -51,6 +52,7 @@ import org.jetbrains.jet.lang.resolve.calls.autocasts.AutoCastReceiver;
 import org.jetbrains.jet.lang.resolve.calls.model.*;
 import org.jetbrains.jet.lang.resolve.calls.util.CallMaker;
 import org.jetbrains.jet.lang.resolve.calls.util.ExpressionAsFunctionDescriptor;
+import org.jetbrains.jet.lang.resolve.calls.util.InlineUtil;
 import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
 import org.jetbrains.jet.lang.resolve.java.AsmTypeConstants;
 import org.jetbrains.jet.lang.resolve.java.JvmAbi;
@@ -79,6 +81,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
     private static final String CLASS_NO_PATTERN_MATCHED_EXCEPTION = "jet/NoPatternMatchedException";
     private static final String CLASS_TYPE_CAST_EXCEPTION = "jet/TypeCastException";
+    private static final String WHEN_MAPPING_FIELD_NAME = "$EnumSwitchMapping";
     public static final Set<DeclarationDescriptor> INTEGRAL_RANGES = KotlinBuiltIns.getInstance().getIntegralRanges();
 
     private int myLastLineNumber = -1;
@@ -97,6 +100,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
     private final Stack<BlockStackElement> blockStackElements = new Stack<BlockStackElement>();
     private final Collection<String> localVariableNames = new HashSet<String>();
 
+    private final Stack<InlineFrame> inlineFrames = new Stack<InlineFrame>();
+    // Line numbers of an inlined body refer to another place or even another file
+    private boolean generatingInlinedBody = false;
+
     /*
      * When we create a temporary variable to hold some value not to compute it many times
      * we put it into this map to emit access to that variable instead of evaluating the whole expression
@@ -158,6 +165,38 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    /**
+     * The body of an inline function being generated in place of a call
+     */
+    private static class InlineFrame {
+        final JetNamedFunction function;
+        final FunctionDescriptor descriptor;
+        final Map<ValueParameterDescriptor, JetFunctionLiteralExpression> functionLiterals;
+        final StackValue receiver;
+        final Type returnType;
+        final int resultIndex;
+        final int blockStackDepth;
+        final Label end = new Label();
+
+        InlineFrame(
+                JetNamedFunction function,
+                FunctionDescriptor descriptor,
+                Map<ValueParameterDescriptor, JetFunctionLiteralExpression> functionLiterals,
+                StackValue receiver,
+                Type returnType,
+                int resultIndex,
+                int blockStackDepth
+        ) {
+            this.function = function;
+            this.descriptor = descriptor;
+            this.functionLiterals = functionLiterals;
+            this.receiver = receiver;
+            this.returnType = returnType;
+            this.resultIndex = resultIndex;
+            this.blockStackDepth = blockStackDepth;
+        }
+    }
+
 
     public ExpressionCodegen(
             MethodVisitor v,
@@ -466,11 +505,34 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
             CallableDescriptor rangeTo = resolvedCall.getResultingDescriptor();
             if (RangeCodegenUtil.isOptimizableRangeTo(rangeTo)) {
-                generateForLoop(new ForInRangeLiteralLoopGenerator(forExpression, binaryCall));
+                generateForLoop(new ForInRangeLiteralLoopGenerator(forExpression, binaryCall, 1));
+                return StackValue.none();
+            }
+            if (RangeCodegenUtil.isOptimizableDownTo(rangeTo)) {
+                generateForLoop(new ForInRangeLiteralLoopGenerator(forExpression, binaryCall, -1));
                 return StackValue.none();
             }
         }
 
+        // Is it an "array.indices" or "collection.indices"
+        JetSimpleNameExpression indicesReference = RangeCodegenUtil.getIndicesPropertyReference(forExpression);
+        if (indicesReference != null) {
+            ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, indicesReference);
+            if (resolvedCall != null) {
+                CallableDescriptor indices = resolvedCall.getResultingDescriptor();
+                if (RangeCodegenUtil.isArrayIndices(indices)) {
+                    generateForLoop(new ForInIndicesLoopGenerator(forExpression, false));
+                    return StackValue.none();
+                }
+                ReceiverParameterDescriptor receiverParameter = indices.getReceiverParameter();
+                if (receiverParameter != null &&
+                    RangeCodegenUtil.isCollectionIndices(indices, asmType(receiverParameter.getType()))) {
+                    generateForLoop(new ForInIndicesLoopGenerator(forExpression, true));
+                    return StackValue.none();
+                }
+            }
+        }
+
         final JetExpression loopRange = forExpression.getLoopRange();
         final JetType loopRangeType = bindingContext.get(BindingContext.EXPRESSION_TYPE, loopRange);
         assert loopRangeType != null;
@@ -505,16 +567,17 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         Label continueLabel = new Label();
 
         generator.beforeLoop();
+        generator.checkEmptyLoop(loopExit);
 
         v.mark(loopEntry);
-        generator.conditionAndJump(loopExit);
+        generator.checkPreCondition(loopExit);
 
         generator.beforeBody();
         blockStackElements.push(new LoopBlockStackElement(loopExit, continueLabel, targetLabel(generator.forExpression)));
         generator.body();
         blockStackElements.pop();
         v.mark(continueLabel);
-        generator.afterBody();
+        generator.afterBody(loopExit);
 
         v.goTo(loopEntry);
 
@@ -579,7 +642,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             }
         }
 
-        public abstract void conditionAndJump(@NotNull Label loopExit);
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+        }
+
+        public abstract void checkPreCondition(@NotNull Label loopExit);
 
         public void beforeBody() {
             v.mark(bodyStart);
@@ -645,12 +711,17 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             return varIndex;
         }
 
-        public void afterBody() {
+        public void afterBody(@NotNull Label loopExit) {
+            checkPostCondition(loopExit);
             increment();
 
             v.mark(bodyEnd);
         }
 
+        // Counted loops are left after the body for the last element, so that the loop parameter never goes past it
+        protected void checkPostCondition(@NotNull Label loopExit) {
+        }
+
         public void afterLoop() {
             for (Runnable task : Lists.reverse(leaveVariableTasks)) {
                 task.run();
@@ -668,6 +739,29 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             StackValue.coerce(asmWrapperType, elementType, v);
             v.store(varToStore, elementType);
         }
+
+        // Compares two values of asmElementType on the stack, which must be integral, and jumps if they satisfy
+        // the condition of the given IFxx opcode
+        protected void integralCompareAndJump(int opcode, @NotNull Label label) {
+            if (asmElementType.getSort() == Type.LONG) {
+                v.lcmp();
+                v.visitJumpInsn(opcode, label);
+                return;
+            }
+            switch (opcode) {
+                case IFEQ:
+                    v.ificmpeq(label);
+                    break;
+                case IFGT:
+                    v.ificmpgt(label);
+                    break;
+                case IFLT:
+                    v.ificmplt(label);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected comparison: " + opcode);
+            }
+        }
     }
 
     private class IteratorForLoopGenerator extends AbstractForLoopGenerator {
@@ -709,7 +803,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
 
         @Override
-        public void conditionAndJump(@NotNull Label loopExit) {
+        public void checkPreCondition(@NotNull Label loopExit) {
             // tmp<iterator>.hasNext()
 
             JetExpression loopRange = forExpression.getLoopRange();
@@ -774,7 +868,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
 
         @Override
-        public void conditionAndJump(@NotNull Label loopExit) {
+        public void checkPreCondition(@NotNull Label loopExit) {
             v.load(indexVar, Type.INT_TYPE);
             v.load(arrayVar, OBJECT_TYPE);
             v.arraylength();
@@ -804,11 +898,18 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    /**
+     * Loop over a range, or over a progression with increment 1 or -1 (in the latter case the element type is integral)
+     */
     private abstract class AbstractForInRangeLoopGenerator extends AbstractForLoopGenerator {
+        protected final int increment;
         protected int endVar;
 
-        private AbstractForInRangeLoopGenerator(@NotNull JetForExpression forExpression) {
+        private AbstractForInRangeLoopGenerator(@NotNull JetForExpression forExpression, int increment) {
             super(forExpression);
+            this.increment = increment;
+            assert increment == 1 || (increment == -1 && RangeCodegenUtil.isIntegralType(asmElementType)) :
+                    "Unexpected increment " + increment + " for " + asmElementType;
         }
 
         @Override
@@ -822,24 +923,23 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         protected abstract void storeRangeStartAndEnd();
 
         @Override
-        public void conditionAndJump(@NotNull Label loopExit) {
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            if (!RangeCodegenUtil.isIntegralType(asmElementType)) return;
+
             v.load(loopParameterVar, asmElementType);
             v.load(endVar, asmElementType);
+            integralCompareAndJump(increment > 0 ? IFGT : IFLT, loopExit);
+        }
 
-            int sort = asmElementType.getSort();
-            switch (sort) {
-                case Type.INT:
-                case Type.CHAR:
-                case Type.BYTE:
-                case Type.SHORT:
-                    v.ificmpgt(loopExit);
-                    break;
+        @Override
+        public void checkPreCondition(@NotNull Label loopExit) {
+            if (RangeCodegenUtil.isIntegralType(asmElementType)) return;
 
-                case Type.LONG:
-                    v.lcmp();
-                    v.ifgt(loopExit);
-                    break;
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
 
+            int sort = asmElementType.getSort();
+            switch (sort) {
                 case Type.FLOAT:
                 case Type.DOUBLE:
                     v.cmpg(asmElementType);
@@ -851,6 +951,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             }
         }
 
+        @Override
+        protected void checkPostCondition(@NotNull Label loopExit) {
+            if (!RangeCodegenUtil.isIntegralType(asmElementType)) return;
+
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            integralCompareAndJump(IFEQ, loopExit);
+        }
+
         @Override
         protected void assignToLoopParameter() {
         }
@@ -863,7 +972,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
                 case Type.CHAR:
                 case Type.BYTE:
                 case Type.SHORT:
-                    v.iinc(loopParameterVar, 1);
+                    v.iinc(loopParameterVar, increment);
                     if (sort != Type.INT) {
                         v.load(loopParameterVar, Type.INT_TYPE);
                         StackValue.coerce(Type.INT_TYPE, asmElementType, v);
@@ -873,7 +982,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
                 case Type.LONG:
                     v.load(loopParameterVar, asmElementType);
-                    v.lconst(1);
+                    v.lconst(increment);
                     v.add(asmElementType);
                     v.store(loopParameterVar, asmElementType);
                     break;
@@ -902,9 +1011,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
         private ForInRangeLiteralLoopGenerator(
                 @NotNull JetForExpression forExpression,
-                @NotNull RangeCodegenUtil.BinaryCall rangeCall
+                @NotNull RangeCodegenUtil.BinaryCall rangeCall,
+                int increment
         ) {
-            super(forExpression);
+            super(forExpression, increment);
             this.rangeCall = rangeCall;
         }
 
@@ -920,7 +1030,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
     private class ForInRangeInstanceLoopGenerator extends AbstractForInRangeLoopGenerator {
         private ForInRangeInstanceLoopGenerator(@NotNull JetForExpression forExpression) {
-            super(forExpression);
+            super(forExpression, 1);
         }
 
         @Override
@@ -936,7 +1046,42 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    // for (i in c.indices), where c is an array or a collection: 0..size-1 without creating the range
+    private class ForInIndicesLoopGenerator extends AbstractForInRangeLoopGenerator {
+        private final boolean isCollection;
+
+        private ForInIndicesLoopGenerator(@NotNull JetForExpression forExpression, boolean isCollection) {
+            super(forExpression, 1);
+            this.isCollection = isCollection;
+        }
+
+        @Override
+        protected void storeRangeStartAndEnd() {
+            v.iconst(0);
+            v.store(loopParameterVar, Type.INT_TYPE);
+
+            JetExpression loopRange = JetPsiUtil.deparenthesizeWithNoTypeResolution(forExpression.getLoopRange());
+            assert loopRange instanceof JetDotQualifiedExpression : loopRange;
+            JetExpression receiver = ((JetDotQualifiedExpression) loopRange).getReceiverExpression();
+            JetType receiverType = bindingContext.get(EXPRESSION_TYPE, receiver);
+            assert receiverType != null;
+            Type asmReceiverType = asmType(receiverType);
+
+            gen(receiver, asmReceiverType);
+            if (isCollection) {
+                v.invokeinterface("java/util/Collection", "size", "()I");
+            }
+            else {
+                v.arraylength();
+            }
+            v.iconst(1);
+            v.sub(Type.INT_TYPE);
+            v.store(endVar, Type.INT_TYPE);
+        }
+    }
+
     private class ForInProgressionExpressionLoopGenerator extends AbstractForLoopGenerator {
+        // For integral types, the final element of the progression, see jet.runtime.ProgressionUtil
         private int endVar;
         private int incrementVar;
         private Type incrementType;
@@ -967,87 +1112,92 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             generateRangeOrProgressionProperty(asmLoopRangeType, "getStart", asmElementType, loopParameterVar);
             generateRangeOrProgressionProperty(asmLoopRangeType, "getEnd", asmElementType, endVar);
             generateRangeOrProgressionProperty(asmLoopRangeType, "getIncrement", incrementType, incrementVar);
+
+            if (RangeCodegenUtil.isIntegralType(asmElementType)) {
+                storeFinalElement();
+            }
         }
 
-        @Override
-        public void conditionAndJump(@NotNull Label loopExit) {
+        private void storeFinalElement() {
+            Type computationType = asmElementType.getSort() == Type.LONG ? Type.LONG_TYPE : Type.INT_TYPE;
             v.load(loopParameterVar, asmElementType);
-            v.load(incrementVar, asmElementType);
+            v.load(endVar, asmElementType);
+            v.load(incrementVar, incrementType);
+            v.invokestatic("jet/runtime/ProgressionUtil", "getProgressionFinalElement",
+                           Type.getMethodDescriptor(computationType, computationType, computationType, computationType));
+            StackValue.coerce(computationType, asmElementType, v);
+            v.store(endVar, asmElementType);
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            if (!RangeCodegenUtil.isIntegralType(asmElementType)) return;
 
             Label negativeIncrement = new Label();
             Label afterIf = new Label();
 
-            int sort = asmElementType.getSort();
-            switch (sort) {
-                case Type.INT:
-                case Type.CHAR:
-                case Type.BYTE:
-                case Type.SHORT:
-                    v.ifle(negativeIncrement); // if increment < 0, jump
-
-                    // increment > 0
-                    v.load(endVar, asmElementType);
-                    v.ificmpgt(loopExit);
-                    v.goTo(afterIf);
-
-                    // increment < 0
-                    v.visitLabel(negativeIncrement);
-                    v.load(endVar, asmElementType);
-                    v.ificmplt(loopExit);
-                    v.visitLabel(afterIf);
-
-                    break;
-
-                case Type.LONG:
-                    v.lconst(0L);
-                    v.lcmp();
-                    v.ifle(negativeIncrement); // if increment < 0, jump
+            v.load(incrementVar, incrementType);
+            if (incrementType.getSort() == Type.LONG) {
+                v.lconst(0L);
+                v.lcmp();
+            }
+            v.ifle(negativeIncrement); // if increment < 0, jump
 
-                    // increment > 0
-                    v.load(endVar, asmElementType);
-                    v.lcmp();
-                    v.ifgt(loopExit);
-                    v.goTo(afterIf);
+            // increment > 0
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            integralCompareAndJump(IFGT, loopExit);
+            v.goTo(afterIf);
 
-                    // increment < 0
-                    v.visitLabel(negativeIncrement);
-                    v.load(endVar, asmElementType);
-                    v.lcmp();
-                    v.iflt(loopExit);
-                    v.visitLabel(afterIf);
+            // increment < 0
+            v.visitLabel(negativeIncrement);
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            integralCompareAndJump(IFLT, loopExit);
+            v.visitLabel(afterIf);
+        }
 
-                    break;
+        @Override
+        public void checkPreCondition(@NotNull Label loopExit) {
+            int sort = asmElementType.getSort();
+            if (sort != Type.FLOAT && sort != Type.DOUBLE) return;
 
-                case Type.DOUBLE:
-                case Type.FLOAT:
-                    if (sort == Type.DOUBLE) {
-                        v.dconst(0.0);
-                    }
-                    else {
-                        v.fconst(0.0f);
-                    }
-                    v.cmpl(incrementType);
-                    v.ifle(negativeIncrement); // if increment < 0, jump
+            Label negativeIncrement = new Label();
+            Label afterIf = new Label();
 
-                    // increment > 0
-                    v.load(endVar, asmElementType);
-                    v.cmpg(asmElementType); // if loop parameter is NaN, exit from loop, as well
-                    v.ifgt(loopExit);
-                    v.goTo(afterIf);
+            v.load(incrementVar, incrementType);
+            if (sort == Type.DOUBLE) {
+                v.dconst(0.0);
+            }
+            else {
+                v.fconst(0.0f);
+            }
+            v.cmpl(incrementType);
+            v.ifle(negativeIncrement); // if increment < 0, jump
 
-                    // increment < 0
-                    v.visitLabel(negativeIncrement);
-                    v.load(endVar, asmElementType);
-                    v.cmpl(asmElementType); // if loop parameter is NaN, exit from loop, as well
-                    v.iflt(loopExit);
-                    v.visitLabel(afterIf);
+            // increment > 0
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            v.cmpg(asmElementType); // if loop parameter is NaN, exit from loop, as well
+            v.ifgt(loopExit);
+            v.goTo(afterIf);
 
-                    break;
+            // increment < 0
+            v.visitLabel(negativeIncrement);
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            v.cmpl(asmElementType); // if loop parameter is NaN, exit from loop, as well
+            v.iflt(loopExit);
+            v.visitLabel(afterIf);
+        }
 
-                default:
-                    throw new IllegalStateException("Unexpected range element type: " + asmElementType);
-            }
+        @Override
+        protected void checkPostCondition(@NotNull Label loopExit) {
+            if (!RangeCodegenUtil.isIntegralType(asmElementType)) return;
 
+            v.load(loopParameterVar, asmElementType);
+            v.load(endVar, asmElementType);
+            integralCompareAndJump(IFEQ, loopExit);
         }
 
         @Override
@@ -1056,7 +1206,6 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
         @Override
         protected void increment() {
-
             v.load(loopParameterVar, asmElementType);
             v.load(incrementVar, asmElementType);
             v.add(asmElementType);
@@ -1452,6 +1601,8 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
     }
 
     private void markLineNumber(@NotNull JetElement statement) {
+        if (generatingInlinedBody) return;
+
         final Document document = statement.getContainingFile().getViewProvider().getDocument();
         if (document != null) {
             int lineNumber = document.getLineNumber(statement.getTextRange().getStartOffset());  // 0-based
@@ -1466,19 +1617,18 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
-    private void doFinallyOnReturn() {
-        for (int i = blockStackElements.size() - 1; i >= 0; --i) {
+    private void doFinallyOnReturn(int depth) {
+        for (int i = blockStackElements.size() - 1; i >= depth; --i) {
             BlockStackElement stackElement = blockStackElements.get(i);
             if (stackElement instanceof FinallyBlockStackElement) {
                 FinallyBlockStackElement finallyBlockStackElement = (FinallyBlockStackElement) stackElement;
                 JetTryExpression jetTryExpression = finallyBlockStackElement.expression;
-                blockStackElements.pop();
+                // the finally block is generated outside of its try expression and of everything nested in it
+                List<BlockStackElement> left = new ArrayList<BlockStackElement>(blockStackElements.subList(i, blockStackElements.size()));
+                blockStackElements.subList(i, blockStackElements.size()).clear();
                 //noinspection ConstantConditions
                 gen(jetTryExpression.getFinallyBlock().getFinalExpression(), Type.VOID_TYPE);
-                blockStackElements.push(finallyBlockStackElement);
-            }
-            else {
-                break;
+                blockStackElements.addAll(left);
             }
         }
     }
@@ -1486,13 +1636,24 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
     @Override
     public StackValue visitReturnExpression(JetReturnExpression expression, StackValue receiver) {
         final JetExpression returnedExpression = expression.getReturnedExpression();
-        if (returnedExpression != null) {
+        InlineFrame frame = findInlineFrame(PsiTreeUtil.getParentOfType(expression, JetNamedFunction.class));
+        if (frame != null) {
+            if (returnedExpression != null) {
+                gen(returnedExpression, frame.returnType);
+                if (frame.resultIndex >= 0) {
+                    v.store(frame.resultIndex, frame.returnType);
+                }
+            }
+            doFinallyOnReturn(frame.blockStackDepth);
+            v.goTo(frame.end);
+        }
+        else if (returnedExpression != null) {
             gen(returnedExpression, returnType);
-            doFinallyOnReturn();
+            doFinallyOnReturn(0);
             v.areturn(returnType);
         }
         else {
-            doFinallyOnReturn();
+            doFinallyOnReturn(0);
             v.visitInsn(RETURN);
         }
         return StackValue.none();
@@ -1864,6 +2025,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             throw new CompilationException("Cannot resolve: " + callee.getText(), null, expression);
         }
 
+        JetNamedFunction inlinedFunction = InlineUtil.getInlinedFunction(expression, bindingContext);
+        if (inlinedFunction != null) {
+            return generateInlinedCall(expression, inlinedFunction, receiver, resolvedCall);
+        }
 
         DeclarationDescriptor funDescriptor = resolvedCall.getResultingDescriptor();
 
@@ -1882,6 +2047,11 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
             if (resolvedCall instanceof VariableAsFunctionResolvedCall) {
                 VariableAsFunctionResolvedCall variableAsFunctionResolvedCall = (VariableAsFunctionResolvedCall) resolvedCall;
                 ResolvedCallWithTrace<FunctionDescriptor> functionCall = variableAsFunctionResolvedCall.getFunctionCall();
+                JetFunctionLiteralExpression literal =
+                        findInlinedFunctionLiteral(variableAsFunctionResolvedCall.getVariableCall().getResultingDescriptor());
+                if (literal != null) {
+                    return generateInlinedFunctionLiteral(literal, functionCall);
+                }
                 return invokeFunction(call, receiver, functionCall);
             }
             else {
@@ -1890,6 +2060,136 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    private StackValue generateInlinedCall(
+            @NotNull JetCallExpression expression,
+            @NotNull JetNamedFunction function,
+            @NotNull StackValue receiver,
+            @NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall
+    ) {
+        FunctionDescriptor descriptor = (FunctionDescriptor) resolvedCall.getResultingDescriptor();
+        FunctionDescriptor original = descriptor.getOriginal();
+        Map<ValueParameterDescriptor, JetFunctionLiteralExpression> functionLiterals =
+                new HashMap<ValueParameterDescriptor, JetFunctionLiteralExpression>(InlineUtil.getInlinedFunctionLiterals(expression, bindingContext));
+
+        FrameMap.Mark mark = myFrameMap.mark();
+
+        StackValue receiverValue = StackValue.none();
+        ReceiverParameterDescriptor receiverParameter = original.getReceiverParameter();
+        if (receiverParameter != null) {
+            Type receiverType = asmType(receiverParameter.getType());
+            StackValue.receiver(resolvedCall, receiver, this, null).put(receiverType, v);
+            int receiverIndex = myFrameMap.enterTemp(receiverType);
+            v.store(receiverIndex, receiverType);
+            receiverValue = StackValue.local(receiverIndex, receiverType);
+        }
+
+        List<ResolvedValueArgument> arguments = resolvedCall.getValueArgumentsByIndex();
+        for (ValueParameterDescriptor parameter : original.getValueParameters()) {
+            if (functionLiterals.containsKey(parameter)) continue;
+
+            ValueArgument valueArgument = ((ExpressionValueArgument) arguments.get(parameter.getIndex())).getValueArgument();
+            assert valueArgument != null;
+            JetExpression argumentExpression = valueArgument.getArgumentExpression();
+            assert argumentExpression != null;
+
+            // a parameter bound to a function literal is passed on to the inlined call as the same literal
+            JetFunctionLiteralExpression forwarded = argumentExpression instanceof JetSimpleNameExpression
+                    ? findInlinedFunctionLiteral(bindingContext.get(REFERENCE_TARGET, (JetSimpleNameExpression) argumentExpression))
+                    : null;
+            if (forwarded != null) {
+                assert InlineUtil.isInvokedOnly(parameter, function, bindingContext) : "Function literal can't be passed as an object: " + parameter;
+                functionLiterals.put(parameter, forwarded);
+                continue;
+            }
+
+            Type parameterType = asmType(parameter.getType());
+            gen(argumentExpression, parameterType);
+            v.store(myFrameMap.enter(parameter, parameterType), parameterType);
+        }
+
+        JetType returnJetType = original.getReturnType();
+        assert returnJetType != null;
+        Type calleeReturnType = typeMapper.mapReturnType(returnJetType);
+        int resultIndex = calleeReturnType != Type.VOID_TYPE ? myFrameMap.enterTemp(calleeReturnType) : -1;
+
+        InlineFrame frame = new InlineFrame(function, original, functionLiterals, receiverValue, calleeReturnType, resultIndex,
+                                            blockStackElements.size());
+        inlineFrames.push(frame);
+        boolean wasGeneratingInlinedBody = generatingInlinedBody;
+        generatingInlinedBody = true;
+
+        JetExpression bodyExpression = function.getBodyExpression();
+        assert bodyExpression != null;
+        if (function.hasBlockBody()) {
+            gen(bodyExpression, Type.VOID_TYPE);
+            v.mark(frame.end);
+            if (resultIndex >= 0) {
+                v.load(resultIndex, calleeReturnType);
+            }
+        }
+        else {
+            gen(bodyExpression, calleeReturnType);
+        }
+
+        generatingInlinedBody = wasGeneratingInlinedBody;
+        inlineFrames.pop();
+        mark.dropTo();
+
+        return returnValueAsStackValue(descriptor, calleeReturnType);
+    }
+
+    private StackValue generateInlinedFunctionLiteral(
+            @NotNull JetFunctionLiteralExpression literal,
+            @NotNull ResolvedCall<FunctionDescriptor> invokeCall
+    ) {
+        FunctionDescriptor literalDescriptor = bindingContext.get(FUNCTION, literal);
+        assert literalDescriptor != null : "No descriptor for function literal " + literal.getText();
+
+        FrameMap.Mark mark = myFrameMap.mark();
+
+        List<ResolvedValueArgument> arguments = invokeCall.getValueArgumentsByIndex();
+        for (ValueParameterDescriptor parameter : literalDescriptor.getValueParameters()) {
+            ValueArgument valueArgument = ((ExpressionValueArgument) arguments.get(parameter.getIndex())).getValueArgument();
+            assert valueArgument != null;
+
+            Type parameterType = asmType(parameter.getType());
+            gen(valueArgument.getArgumentExpression(), parameterType);
+            v.store(myFrameMap.enter(parameter, parameterType), parameterType);
+        }
+
+        JetType returnJetType = literalDescriptor.getReturnType();
+        assert returnJetType != null;
+        Type literalReturnType = typeMapper.mapReturnType(returnJetType);
+
+        // the literal is the caller's code, its lines are marked
+        boolean wasGeneratingInlinedBody = generatingInlinedBody;
+        generatingInlinedBody = false;
+        gen(literal.getBodyExpression(), literalReturnType);
+        generatingInlinedBody = wasGeneratingInlinedBody;
+
+        mark.dropTo();
+
+        return StackValue.onStack(literalReturnType);
+    }
+
+    @Nullable
+    private JetFunctionLiteralExpression findInlinedFunctionLiteral(@Nullable DeclarationDescriptor parameter) {
+        for (int i = inlineFrames.size() - 1; i >= 0; i--) {
+            JetFunctionLiteralExpression literal = inlineFrames.get(i).functionLiterals.get(parameter);
+            if (literal != null) return literal;
+        }
+        return null;
+    }
+
+    @Nullable
+    private InlineFrame findInlineFrame(@Nullable JetNamedFunction function) {
+        for (int i = inlineFrames.size() - 1; i >= 0; i--) {
+            InlineFrame frame = inlineFrames.get(i);
+            if (frame.function == function) return frame;
+        }
+        return null;
+    }
+
     private PropertyDescriptor accessablePropertyDescriptor(PropertyDescriptor propertyDescriptor) {
         PropertySetterDescriptor setter = propertyDescriptor.getSetter();
         PropertyGetterDescriptor getter = propertyDescriptor.getGetter();
@@ -1951,6 +2251,13 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
         fd = accessableFunctionDescriptor(fd);
 
+        if (!superCall) {
+            StackValue specialized = invokeSpecializedFunction(resolvedCall, receiver);
+            if (specialized != null) {
+                return specialized;
+            }
+        }
+
         Callable callable = resolveToCallable(fd, superCall);
         if (callable instanceof CallableMethod) {
             final CallableMethod callableMethod = (CallableMethod) callable;
@@ -1978,6 +2285,54 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    /**
+     * Calls an unboxed entry point of a function object (see {@link FunctionInvokeSpecialization})
+     * when the static type of the callee is a function type of a supported shape.
+     *
+     * @return null if the call was not generated
+     */
+    @Nullable
+    private StackValue invokeSpecializedFunction(
+            @NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall,
+            @NotNull StackValue receiver
+    ) {
+        CallableDescriptor descriptor = resolvedCall.getResultingDescriptor();
+        if (!"invoke".equals(descriptor.getName().getName())) {
+            return null;
+        }
+        DeclarationDescriptor container = descriptor.getContainingDeclaration();
+        if (!(container instanceof ClassDescriptor) ||
+            !KotlinBuiltIns.getInstance().isFunctionOrExtensionFunctionType(((ClassDescriptor) container).getDefaultType())) {
+            return null;
+        }
+
+        List<Type> argumentTypes = new ArrayList<Type>();
+        ReceiverParameterDescriptor receiverParameter = descriptor.getReceiverParameter();
+        if (receiverParameter != null) {
+            argumentTypes.add(asmType(receiverParameter.getType()));
+        }
+        List<Type> valueParameterTypes = new ArrayList<Type>();
+        for (ValueParameterDescriptor parameter : descriptor.getValueParameters()) {
+            valueParameterTypes.add(asmType(parameter.getType()));
+        }
+        argumentTypes.addAll(valueParameterTypes);
+
+        JetType returnType = descriptor.getReturnType();
+        assert returnType != null;
+        Method specialized = FunctionInvokeSpecialization.getSpecializedInvoke(
+                argumentTypes.toArray(new Type[argumentTypes.size()]), typeMapper.mapReturnType(returnType));
+        if (specialized == null) {
+            return null;
+        }
+
+        StackValue callReceiver = StackValue.receiver(resolvedCall, receiver, this, null);
+        callReceiver.put(callReceiver.type, v);
+        pushMethodArguments(resolvedCall, valueParameterTypes);
+        v.invokevirtual(asmType(((ClassDescriptor) container).getDefaultType()).getInternalName(),
+                        specialized.getName(), specialized.getDescriptor());
+        return StackValue.onStack(specialized.getReturnType());
+    }
+
     @Nullable
     private static JetSuperExpression getSuperCallExpression(Call call) {
         ReceiverValue explicitReceiver = call.getExplicitReceiver();
@@ -2167,6 +2522,11 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
     }
 
     private StackValue generateReceiver(DeclarationDescriptor provided) {
+        for (int i = inlineFrames.size() - 1; i >= 0; i--) {
+            InlineFrame frame = inlineFrames.get(i);
+            if (frame.descriptor == provided) return frame.receiver;
+        }
+
         if (context.getCallableDescriptorWithReceiver() == provided) {
             StackValue result = context.getReceiverExpression(typeMapper);
             return castToRequiredTypeOfInterfaceIfNeeded(result, provided, null);
@@ -2197,9 +2557,13 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
                     JvmClassName className =
                             classNameForScriptDescriptor(bindingContext,
                                                                         receiver.getDeclarationDescriptor());
-                    String fieldName = state.getScriptCodegen().getScriptFieldName(receiver.getDeclarationDescriptor());
+                    int index = state.getScriptCodegen().getScriptIndex(receiver.getDeclarationDescriptor());
                     result.put(currentScriptClassName.getAsmType(), v);
-                    StackValue.field(className.getAsmType(), currentScriptClassName, fieldName, false).put(className.getAsmType(), v);
+                    StackValue.field(JAVA_ARRAY_GENERIC_TYPE, currentScriptClassName, ScriptCodegen.EARLIER_SCRIPTS_FIELD_NAME, false)
+                            .put(JAVA_ARRAY_GENERIC_TYPE, v);
+                    v.iconst(index);
+                    v.aload(OBJECT_TYPE);
+                    v.checkcast(className.getAsmType());
                 }
                 return;
             }
@@ -3518,9 +3882,10 @@ The "returned" value of try expression with no finally is either the last expres
         final int subjectLocal = expr != null ? myFrameMap.enterTemp(subjectType) : -1;
         if (subjectLocal != -1) {
             gen(expr, subjectType);
-            tempVariables.put(expr, StackValue.local(subjectLocal, subjectType));
             v.store(subjectLocal, subjectType);
         }
+        // the same when expression may be generated again inside itself when an inline function is expanded in its branch
+        StackValue.Local outerSubject = subjectLocal != -1 ? tempVariables.put(expr, StackValue.local(subjectLocal, subjectType)) : null;
 
         Label end = new Label();
         boolean hasElse = false;
@@ -3531,6 +3896,42 @@ The "returned" value of try expression with no finally is either the last expres
             }
         }
 
+        SwitchCodegenUtil.SwitchTable switchTable =
+                subjectLocal != -1 ? SwitchCodegenUtil.buildSwitchTable(expression, subjectJetType, bindingContext) : null;
+        if (switchTable != null && switchTable.getKind() == SwitchCodegenUtil.SwitchKind.ENUM &&
+            (bindingContext.get(MAPPING_FOR_WHEN_BY_ENUM, expression) == null || !inlineFrames.isEmpty())) {
+            // the mapping class is generated along with the function itself, not with its inlined copies
+            switchTable = null;
+        }
+
+        if (switchTable != null) {
+            generateWhenSwitch(expression, switchTable, subjectType, subjectLocal, resultType, hasElse, end);
+        }
+        else {
+            generateWhenChain(expression, subjectType, subjectLocal, resultType, hasElse, end);
+        }
+
+        markLineNumber(expression);
+        v.mark(end);
+
+        myFrameMap.leaveTemp(subjectType);
+        if (outerSubject != null) {
+            tempVariables.put(expr, outerSubject);
+        }
+        else {
+            tempVariables.remove(expr);
+        }
+        return StackValue.onStack(resultType);
+    }
+
+    private void generateWhenChain(
+            JetWhenExpression expression,
+            Type subjectType,
+            int subjectLocal,
+            Type resultType,
+            boolean hasElse,
+            Label end
+    ) {
         Label nextCondition = null;
         for (JetWhenEntry whenEntry : expression.getEntries()) {
             if (nextCondition != null) {
@@ -3563,13 +3964,266 @@ The "returned" value of try expression with no finally is either the last expres
             v.mark(nextCondition);
             throwNewException(CLASS_NO_PATTERN_MATCHED_EXCEPTION);
         }
+    }
 
-        markLineNumber(expression);
-        v.mark(end);
+    private void generateWhenSwitch(
+            JetWhenExpression expression,
+            SwitchCodegenUtil.SwitchTable switchTable,
+            Type subjectType,
+            int subjectLocal,
+            Type resultType,
+            boolean hasElse,
+            Label end
+    ) {
+        List<JetWhenEntry> entries = expression.getEntries();
+        Label defaultLabel = new Label();
+        Label[] entryLabels = new Label[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            entryLabels[i] = entries.get(i).isElse() ? defaultLabel : new Label();
+        }
+
+        Map<Object, Integer> entryIndices = switchTable.getEntryIndices();
+        switch (switchTable.getKind()) {
+            case INT: {
+                int[] keys = new int[entryIndices.size()];
+                Label[] labels = new Label[entryIndices.size()];
+                int i = 0;
+                for (Map.Entry<Object, Integer> entry : entryIndices.entrySet()) {
+                    keys[i] = (Integer) entry.getKey();
+                    labels[i] = entryLabels[entry.getValue()];
+                    i++;
+                }
+                v.load(subjectLocal, subjectType);
+                genSwitch(keys, labels, defaultLabel);
+                break;
+            }
+            case STRING: {
+                genNullCheckForSwitch(switchTable, subjectType, subjectLocal, entryLabels, defaultLabel);
+                genStringSwitch(entryIndices, subjectType, subjectLocal, entryLabels, defaultLabel);
+                break;
+            }
+            case ENUM: {
+                genNullCheckForSwitch(switchTable, subjectType, subjectLocal, entryLabels, defaultLabel);
+                genEnumSwitch(expression, switchTable, subjectType, subjectLocal, entryLabels, defaultLabel);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown switch kind: " + switchTable.getKind());
+        }
 
-        myFrameMap.leaveTemp(subjectType);
-        tempVariables.remove(expr);
-        return StackValue.onStack(resultType);
+        for (int i = 0; i < entries.size(); i++) {
+            JetWhenEntry whenEntry = entries.get(i);
+            v.mark(entryLabels[i]);
+            FrameMap.Mark mark = myFrameMap.mark();
+            gen(whenEntry.getExpression(), resultType);
+            mark.dropTo();
+            v.goTo(end);
+        }
+
+        if (!hasElse) {
+            v.mark(defaultLabel);
+            throwNewException(CLASS_NO_PATTERN_MATCHED_EXCEPTION);
+        }
+    }
+
+    private void genNullCheckForSwitch(
+            SwitchCodegenUtil.SwitchTable switchTable,
+            Type subjectType,
+            int subjectLocal,
+            Label[] entryLabels,
+            Label defaultLabel
+    ) {
+        int nullEntryIndex = switchTable.getNullEntryIndex();
+        v.load(subjectLocal, subjectType);
+        v.ifnull(nullEntryIndex != -1 ? entryLabels[nullEntryIndex] : defaultLabel);
+    }
+
+    private void genStringSwitch(
+            Map<Object, Integer> entryIndices,
+            Type subjectType,
+            int subjectLocal,
+            Label[] entryLabels,
+            Label defaultLabel
+    ) {
+        // Strings with equal hash codes are checked one by one in the order of the conditions
+        Map<Integer, List<String>> stringsByHashCode = new TreeMap<Integer, List<String>>();
+        for (Object key : entryIndices.keySet()) {
+            String string = (String) key;
+            List<String> strings = stringsByHashCode.get(string.hashCode());
+            if (strings == null) {
+                strings = new ArrayList<String>(1);
+                stringsByHashCode.put(string.hashCode(), strings);
+            }
+            strings.add(string);
+        }
+
+        int[] keys = new int[stringsByHashCode.size()];
+        Label[] labels = new Label[stringsByHashCode.size()];
+        int i = 0;
+        for (Integer hashCode : stringsByHashCode.keySet()) {
+            keys[i] = hashCode;
+            labels[i] = new Label();
+            i++;
+        }
+
+        v.load(subjectLocal, subjectType);
+        v.invokevirtual("java/lang/String", "hashCode", "()I");
+        genSwitch(keys, labels, defaultLabel);
+
+        i = 0;
+        for (List<String> strings : stringsByHashCode.values()) {
+            v.mark(labels[i++]);
+            for (String string : strings) {
+                v.load(subjectLocal, subjectType);
+                v.aconst(string);
+                v.invokevirtual("java/lang/String", "equals", "(Ljava/lang/Object;)Z");
+                v.ifne(entryLabels[entryIndices.get(string)]);
+            }
+            v.goTo(defaultLabel);
+        }
+    }
+
+    private void genEnumSwitch(
+            JetWhenExpression expression,
+            SwitchCodegenUtil.SwitchTable switchTable,
+            Type subjectType,
+            int subjectLocal,
+            Label[] entryLabels,
+            Label defaultLabel
+    ) {
+        Map<Object, Integer> entryIndices = switchTable.getEntryIndices();
+        JvmClassName mappingClassName = bindingContext.get(MAPPING_FOR_WHEN_BY_ENUM, expression);
+        assert mappingClassName != null : "No mapping class for when by enum: " + expression.getText();
+
+        Type enumType = typeMapper.mapType(switchTable.getEnumClass());
+        List<String> entryNames = new ArrayList<String>(entryIndices.size());
+        for (Object key : entryIndices.keySet()) {
+            entryNames.add((String) key);
+        }
+        generateWhenMappingClass(expression, mappingClassName, enumType, entryNames);
+
+        // Ordinals are mapped to 1..n so that entries missing from the mapping (zeros) go to the default branch
+        int[] keys = new int[entryNames.size()];
+        Label[] labels = new Label[entryNames.size()];
+        for (int i = 0; i < entryNames.size(); i++) {
+            keys[i] = i + 1;
+            labels[i] = entryLabels[entryIndices.get(entryNames.get(i))];
+        }
+
+        v.getstatic(mappingClassName.getInternalName(), WHEN_MAPPING_FIELD_NAME, "[I");
+        v.load(subjectLocal, subjectType);
+        v.invokevirtual("java/lang/Enum", "ordinal", "()I");
+        v.aload(Type.INT_TYPE);
+        genSwitch(keys, labels, defaultLabel);
+    }
+
+    /**
+     * Generates a class holding the mapping from the ordinals of the enum entries to the keys of the switch,
+     * so that the switch doesn't depend on the order of the entries, which may change after this code is compiled.
+     * Entries removed from the enum since then are skipped and go to the default branch.
+     * The class is generated once per when expression, even if the expression itself is generated several times.
+     */
+    private void generateWhenMappingClass(
+            JetWhenExpression expression,
+            JvmClassName mappingClassName,
+            Type enumType,
+            List<String> entryNames
+    ) {
+        ClassBuilder cv = state.getFactory().newVisitorIfAbsent(mappingClassName.getInternalName() + ".class", expression.getContainingFile());
+        if (cv == null) return;
+
+        cv.defineClass(expression,
+                       V1_6,
+                       ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                       mappingClassName.getInternalName(),
+                       null,
+                       "java/lang/Object",
+                       new String[0]
+        );
+        cv.visitSource(expression.getContainingFile().getName(), null);
+
+        cv.newField(expression, ACC_PUBLIC | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, WHEN_MAPPING_FIELD_NAME, "[I", null, null);
+
+        MethodVisitor mv = cv.newMethod(expression, ACC_STATIC | ACC_SYNTHETIC, "<clinit>", "()V", null, new String[0]);
+        InstructionAdapter iv = new InstructionAdapter(mv);
+        mv.visitCode();
+
+        iv.invokestatic(enumType.getInternalName(), "values", "()[" + enumType.getDescriptor());
+        iv.arraylength();
+        iv.newarray(Type.INT_TYPE);
+        iv.putstatic(mappingClassName.getInternalName(), WHEN_MAPPING_FIELD_NAME, "[I");
+
+        for (int i = 0; i < entryNames.size(); i++) {
+            Label tryStart = new Label();
+            Label tryEnd = new Label();
+            Label handler = new Label();
+            Label next = new Label();
+            iv.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/NoSuchFieldError");
+
+            iv.mark(tryStart);
+            iv.getstatic(mappingClassName.getInternalName(), WHEN_MAPPING_FIELD_NAME, "[I");
+            iv.getstatic(enumType.getInternalName(), entryNames.get(i), enumType.getDescriptor());
+            iv.invokevirtual("java/lang/Enum", "ordinal", "()I");
+            iv.iconst(i + 1);
+            iv.astore(Type.INT_TYPE);
+            iv.mark(tryEnd);
+            iv.goTo(next);
+
+            iv.mark(handler);
+            iv.pop();
+            iv.mark(next);
+        }
+
+        iv.areturn(Type.VOID_TYPE);
+        FunctionCodegen.endVisit(mv, "<clinit>", expression);
+
+        cv.done();
+    }
+
+    /**
+     * Chooses between tableswitch and lookupswitch the same way javac does: by the estimated size of the code
+     * plus three times the estimated number of comparisons
+     */
+    private void genSwitch(int[] keys, Label[] labels, Label defaultLabel) {
+        int n = keys.length;
+        int[] sortedKeys = new int[n];
+        Label[] sortedLabels = new Label[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        final int[] unsortedKeys = keys;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int x = unsortedKeys[a];
+                int y = unsortedKeys[b];
+                return x < y ? -1 : x == y ? 0 : 1;
+            }
+        });
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedLabels[i] = labels[order[i]];
+        }
+
+        int lo = sortedKeys[0];
+        int hi = sortedKeys[n - 1];
+        long tableSpaceCost = 4 + ((long) hi - lo + 1);
+        long tableTimeCost = 3;
+        long lookupSpaceCost = 3 + 2 * (long) n;
+        long lookupTimeCost = n;
+
+        if (tableSpaceCost + 3 * tableTimeCost <= lookupSpaceCost + 3 * lookupTimeCost) {
+            Label[] table = new Label[hi - lo + 1];
+            Arrays.fill(table, defaultLabel);
+            for (int i = 0; i < n; i++) {
+                table[sortedKeys[i] - lo] = sortedLabels[i];
+            }
+            v.tableswitch(lo, hi, defaultLabel, table);
+        }
+        else {
+            v.lookupswitch(defaultLabel, sortedKeys, sortedLabels);
+        }
     }
 
     private StackValue generateWhenCondition(Type subjectType, int subjectLocal, JetWhenCondition condition) {
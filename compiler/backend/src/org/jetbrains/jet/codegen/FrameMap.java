@@ -26,14 +26,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Stack;
 
 public class FrameMap {
     private final TObjectIntHashMap<DeclarationDescriptor> myVarIndex = new TObjectIntHashMap<DeclarationDescriptor>();
     private final TObjectIntHashMap<DeclarationDescriptor> myVarSizes = new TObjectIntHashMap<DeclarationDescriptor>();
     private int myMaxIndex = 0;
 
+    // Variables hidden by a later slot for the same descriptor: the body of an inline function may be expanded again
+    // inside a function literal passed to it, and the outer expansion's variables must be visible again afterwards
+    private final Stack<ShadowedVariable> myShadowed = new Stack<ShadowedVariable>();
+
     public int enter(DeclarationDescriptor descriptor, Type type) {
         int index = myMaxIndex;
+        if (myVarIndex.contains(descriptor)) {
+            myShadowed.push(new ShadowedVariable(descriptor, myVarIndex.get(descriptor), myVarSizes.get(descriptor), index));
+        }
         myVarIndex.put(descriptor, index);
         myMaxIndex += type.getSize();
         myVarSizes.put(descriptor, type.getSize());
@@ -48,9 +56,20 @@ public class FrameMap {
         if (oldIndex != myMaxIndex) {
             throw new IllegalStateException("descriptor can be left only if it is last");
         }
+        restoreShadowed(myMaxIndex);
         return oldIndex;
     }
 
+    private void restoreShadowed(int maxIndex) {
+        while (!myShadowed.isEmpty() && myShadowed.peek().shadowedBy >= maxIndex) {
+            ShadowedVariable variable = myShadowed.pop();
+            if (variable.index < maxIndex) {
+                myVarIndex.put(variable.descriptor, variable.index);
+                myVarSizes.put(variable.descriptor, variable.size);
+            }
+        }
+    }
+
     public int enterTemp(Type type) {
         int result = myMaxIndex;
         myMaxIndex += type.getSize();
@@ -90,6 +109,21 @@ public class FrameMap {
                 myVarSizes.remove(declarationDescriptor);
             }
             myMaxIndex = myIndex;
+            restoreShadowed(myIndex);
+        }
+    }
+
+    private static class ShadowedVariable {
+        private final DeclarationDescriptor descriptor;
+        private final int index;
+        private final int size;
+        private final int shadowedBy;
+
+        private ShadowedVariable(DeclarationDescriptor descriptor, int index, int size, int shadowedBy) {
+            this.descriptor = descriptor;
+            this.index = index;
+            this.size = size;
+            this.shadowedBy = shadowedBy;
         }
     }
 
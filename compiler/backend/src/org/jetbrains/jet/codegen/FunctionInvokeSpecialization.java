@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.Method;
+
+/**
+ * Unboxed entry points of jet.Function1, jet.Function2, jet.ExtensionFunction0 and jet.ExtensionFunction1
+ * (e.g. <code>invokeAsInt(I)I</code> next to the generic <code>invoke(Object)Object</code>).
+ * The receiver of an extension function counts as its first argument.
+ */
+public final class FunctionInvokeSpecialization {
+    private static final int MAX_ARGUMENT_COUNT = 2;
+
+    private FunctionInvokeSpecialization() {
+    }
+
+    @Nullable
+    public static Method getSpecializedInvoke(@NotNull Type[] argumentTypes, @NotNull Type returnType) {
+        if (argumentTypes.length == 0 || argumentTypes.length > MAX_ARGUMENT_COUNT) {
+            return null;
+        }
+
+        Type argumentType = argumentTypes[0];
+        if (!isSpecializedArgumentType(argumentType)) {
+            return null;
+        }
+        for (Type type : argumentTypes) {
+            if (!type.equals(argumentType)) {
+                return null;
+            }
+        }
+
+        if (returnType.equals(Type.BOOLEAN_TYPE)) {
+            return new Method("invokeAsBoolean", returnType, argumentTypes);
+        }
+        if (returnType.equals(argumentType)) {
+            return new Method("invokeAs" + getShortName(argumentType), returnType, argumentTypes);
+        }
+        return null;
+    }
+
+    private static boolean isSpecializedArgumentType(@NotNull Type type) {
+        return type.equals(Type.INT_TYPE) || type.equals(Type.LONG_TYPE) || type.equals(Type.DOUBLE_TYPE);
+    }
+
+    @NotNull
+    private static String getShortName(@NotNull Type type) {
+        switch (type.getSort()) {
+            case Type.INT:
+                return "Int";
+            case Type.LONG:
+                return "Long";
+            case Type.DOUBLE:
+                return "Double";
+            default:
+                throw new IllegalArgumentException("Not a specialized type: " + type);
+        }
+    }
+}
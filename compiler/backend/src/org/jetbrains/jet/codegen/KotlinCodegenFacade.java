@@ -28,9 +28,8 @@ import org.jetbrains.jet.lang.resolve.ScriptNameUtil;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static org.jetbrains.jet.codegen.binding.CodegenBinding.registerClassNameForScript;
 
@@ -58,11 +57,77 @@ public class KotlinCodegenFacade {
             namespaceGrouping.putValue(JetPsiUtil.getFQName(file), file);
         }
 
+        if (state.getCodegenThreads() > 1 && namespaceGrouping.size() > 1 && !hasScripts(state.getFiles())) {
+            generateNamespacesInParallel(state, namespaceGrouping, errorHandler);
+            return;
+        }
+
         for (Map.Entry<FqName, Collection<JetFile>> entry : namespaceGrouping.entrySet()) {
             generateNamespace(state, entry.getKey(), entry.getValue(), errorHandler);
         }
     }
 
+    private static void generateNamespacesInParallel(
+            @NotNull final GenerationState state,
+            @NotNull MultiMap<FqName, JetFile> namespaceGrouping,
+            @NotNull final CompilationErrorHandler errorHandler
+    ) {
+        final ClassFileFactory factory = state.getFactory();
+        final CompilationErrorHandler synchronizedErrorHandler = new CompilationErrorHandler() {
+            @Override
+            public synchronized void reportException(Throwable exception, String fileUrl) {
+                errorHandler.reportException(exception, fileUrl);
+            }
+        };
+
+        int threads = Math.min(state.getCodegenThreads(), namespaceGrouping.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (final Map.Entry<FqName, Collection<JetFile>> entry : namespaceGrouping.entrySet()) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return factory.collectOutputs(new Runnable() {
+                            @Override
+                            public void run() {
+                                generateNamespace(state, entry.getKey(), entry.getValue(), synchronizedErrorHandler);
+                            }
+                        });
+                    }
+                }));
+            }
+
+            List<List<String>> outputGroups = new ArrayList<List<String>>(futures.size());
+            for (Future<List<String>> future : futures) {
+                outputGroups.add(future.get());
+            }
+
+            // Classes must be written in the same order as in the serial mode for the output to be the same
+            factory.restoreOutputOrder(outputGroups);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating namespaces", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean hasScripts(@NotNull Collection<JetFile> files) {
+        for (JetFile file : files) {
+            if (file.isScript()) return true;
+        }
+        return false;
+    }
+
     public static void generateNamespace(
             @NotNull GenerationState state,
             @NotNull FqName fqName,
@@ -19,8 +19,8 @@ package org.jetbrains.jet.codegen;
 import com.google.common.collect.ImmutableMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
-import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.name.FqName;
@@ -33,6 +33,8 @@ import java.util.List;
 import static org.jetbrains.jet.codegen.AsmUtil.isPrimitiveNumberClassDescriptor;
 
 public class RangeCodegenUtil {
+    private static final FqName STDLIB_PACKAGE = new FqName("kotlin");
+
     private static final ImmutableMap<FqName, PrimitiveType> RANGE_TO_ELEMENT_TYPE;
     private static final ImmutableMap<FqName, PrimitiveType> PROGRESSION_TO_ELEMENT_TYPE;
 
@@ -111,6 +113,27 @@ public class RangeCodegenUtil {
         return map.get(DescriptorUtils.getFQName(declarationDescriptor).toSafe());
     }
 
+    @Nullable
+    public static JetSimpleNameExpression getIndicesPropertyReference(@NotNull JetForExpression forExpression) {
+        // We are looking for "c.indices" where c is an array or a collection
+        // Other properties will be filtered out later (by examining the resolved call)
+        JetExpression rangeExpression = forExpression.getLoopRange();
+        assert rangeExpression != null;
+        JetExpression loopRange = JetPsiUtil.deparenthesizeWithNoTypeResolution(rangeExpression);
+        if (loopRange instanceof JetDotQualifiedExpression) {
+            JetExpression selector = ((JetDotQualifiedExpression) loopRange).getSelectorExpression();
+            if (selector instanceof JetSimpleNameExpression) {
+                return (JetSimpleNameExpression) selector;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isIntegralType(@NotNull Type type) {
+        int sort = type.getSort();
+        return sort == Type.INT || sort == Type.CHAR || sort == Type.BYTE || sort == Type.SHORT || sort == Type.LONG;
+    }
+
     public static boolean isOptimizableRangeTo(CallableDescriptor rangeTo) {
         if ("rangeTo".equals(rangeTo.getName().getName())) {
             if (isPrimitiveNumberClassDescriptor(rangeTo.getContainingDeclaration())) {
@@ -120,6 +143,46 @@ public class RangeCodegenUtil {
         return false;
     }
 
+    // "downTo" functions from the standard library, which create progressions of integral types with increment -1
+    public static boolean isOptimizableDownTo(@NotNull CallableDescriptor downTo) {
+        if (!"downTo".equals(downTo.getName().getName()) || !isFromStandardLibrary(downTo)) {
+            return false;
+        }
+        JetType progressionType = downTo.getReturnType();
+        if (progressionType == null || !isProgression(progressionType)) {
+            return false;
+        }
+        PrimitiveType elementType = getPrimitiveProgressionElementType(progressionType);
+        return elementType != PrimitiveType.FLOAT && elementType != PrimitiveType.DOUBLE;
+    }
+
+    public static boolean isArrayIndices(@NotNull CallableDescriptor indices) {
+        if (!"indices".equals(indices.getName().getName())) {
+            return false;
+        }
+        DeclarationDescriptor container = indices.getContainingDeclaration();
+        if (!(container instanceof ClassDescriptor)) {
+            return false;
+        }
+        JetType arrayType = ((ClassDescriptor) container).getDefaultType();
+        return KotlinBuiltIns.getInstance().isArray(arrayType) || KotlinBuiltIns.getInstance().isPrimitiveArray(arrayType);
+    }
+
+    // "indices" extension property from the standard library, receiverAsmType is the type of the receiver as seen by the backend
+    public static boolean isCollectionIndices(@NotNull CallableDescriptor indices, @Nullable Type receiverAsmType) {
+        return "indices".equals(indices.getName().getName()) &&
+               isFromStandardLibrary(indices) &&
+               receiverAsmType != null &&
+               "java/util/Collection".equals(receiverAsmType.getInternalName());
+    }
+
+    private static boolean isFromStandardLibrary(@NotNull CallableDescriptor descriptor) {
+        DeclarationDescriptor container = descriptor.getContainingDeclaration();
+        return container instanceof NamespaceDescriptor &&
+               STDLIB_PACKAGE.equals(DescriptorUtils.getFQName(container).toSafe()) &&
+               descriptor.getReceiverParameter() != null;
+    }
+
     public static class BinaryCall {
         public final JetExpression left;
         public final JetExpression op;
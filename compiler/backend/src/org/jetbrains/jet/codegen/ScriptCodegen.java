@@ -17,6 +17,7 @@
 package org.jetbrains.jet.codegen;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.intellij.openapi.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.asm4.MethodVisitor;
@@ -38,17 +39,25 @@ import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.jetbrains.asm4.Opcodes.*;
 import static org.jetbrains.jet.codegen.binding.CodegenBinding.*;
-import static org.jetbrains.jet.lang.resolve.java.AsmTypeConstants.OBJECT_TYPE;
+import static org.jetbrains.jet.lang.resolve.java.AsmTypeConstants.JAVA_ARRAY_GENERIC_TYPE;
 
 public class ScriptCodegen extends MemberCodegen {
 
+    /**
+     * Instances of earlier scripts are passed to the constructor as a single array, so the cost of creating
+     * a script does not depend on the number of scripts evaluated before it (e.g. in a long REPL session)
+     */
+    public static final String EARLIER_SCRIPTS_FIELD_NAME = "earlierScripts$";
+
     @NotNull
     private ClassFileFactory classFileFactory;
 
     private List<ScriptDescriptor> earlierScripts;
+    private Map<ScriptDescriptor, Integer> earlierScriptIndices;
     private Method scriptConstructorMethod;
 
     public ScriptCodegen(@NotNull GenerationState state) {
@@ -132,12 +141,12 @@ public class ScriptCodegen extends MemberCodegen {
 
         FrameMap frameMap = context.prepareFrame(typeMapper);
 
-        for (ScriptDescriptor importedScript : importedScripts) {
-            frameMap.enter(importedScript, OBJECT_TYPE);
+        if (!importedScripts.isEmpty()) {
+            frameMap.enterTemp(JAVA_ARRAY_GENERIC_TYPE);
         }
 
         Type[] argTypes = jvmSignature.getAsmMethod().getArgumentTypes();
-        int add = 0;
+        int add = importedScripts.isEmpty() ? 0 : 1;
 
         for (int i = 0; i < scriptDescriptor.getValueParameters().size(); i++) {
             ValueParameterDescriptor parameter = scriptDescriptor.getValueParameters().get(i);
@@ -153,13 +162,12 @@ public class ScriptCodegen extends MemberCodegen {
 
         int offset = 1;
 
-        for (ScriptDescriptor earlierScript : importedScripts) {
-            JvmClassName earlierClassName = classNameForScriptDescriptor(bindingContext, earlierScript);
+        if (!importedScripts.isEmpty()) {
             instructionAdapter.load(0, className.getAsmType());
-            instructionAdapter.load(offset, earlierClassName.getAsmType());
-            offset += earlierClassName.getAsmType().getSize();
-            instructionAdapter.putfield(className.getInternalName(), getScriptFieldName(earlierScript),
-                                        earlierClassName.getAsmType().getDescriptor());
+            instructionAdapter.load(offset, JAVA_ARRAY_GENERIC_TYPE);
+            offset += JAVA_ARRAY_GENERIC_TYPE.getSize();
+            instructionAdapter.putfield(className.getInternalName(), EARLIER_SCRIPTS_FIELD_NAME,
+                                        JAVA_ARRAY_GENERIC_TYPE.getDescriptor());
         }
 
         for (ValueParameterDescriptor parameter : scriptDescriptor.getValueParameters()) {
@@ -184,11 +192,9 @@ public class ScriptCodegen extends MemberCodegen {
     }
 
     private void genFieldsForParameters(@NotNull ScriptDescriptor script, @NotNull ClassBuilder classBuilder) {
-        for (ScriptDescriptor earlierScript : earlierScripts) {
-            JvmClassName earlierClassName;
-            earlierClassName = classNameForScriptDescriptor(bindingContext, earlierScript);
+        if (!earlierScripts.isEmpty()) {
             int access = ACC_PRIVATE | ACC_FINAL;
-            classBuilder.newField(null, access, getScriptFieldName(earlierScript), earlierClassName.getDescriptor(), null, null);
+            classBuilder.newField(null, access, EARLIER_SCRIPTS_FIELD_NAME, JAVA_ARRAY_GENERIC_TYPE.getDescriptor(), null, null);
         }
 
         for (ValueParameterDescriptor parameter : script.getValueParameters()) {
@@ -209,27 +215,32 @@ public class ScriptCodegen extends MemberCodegen {
             ScriptDescriptor earlierDescriptor = t.first;
             JvmClassName earlierClassName = t.second;
 
-            registerClassNameForScript(state.getBindingTrace(), earlierDescriptor, earlierClassName);
+            // the caller may have already registered class names in the binding context it gives us (e.g. REPL does)
+            if (bindingContext.get(CLASS_FOR_FUNCTION, earlierDescriptor) == null) {
+                registerClassNameForScript(state.getBindingTrace(), earlierDescriptor, earlierClassName);
+            }
         }
 
         List<ScriptDescriptor> earlierScriptDescriptors = Lists.newArrayList();
+        Map<ScriptDescriptor, Integer> indices = Maps.newHashMap();
         for (Pair<ScriptDescriptor, JvmClassName> t : earlierScripts) {
             ScriptDescriptor earlierDescriptor = t.first;
+            indices.put(earlierDescriptor, earlierScriptDescriptors.size());
             earlierScriptDescriptors.add(earlierDescriptor);
         }
         this.earlierScripts = earlierScriptDescriptors;
+        this.earlierScriptIndices = indices;
     }
 
-    protected int getScriptIndex(@NotNull ScriptDescriptor scriptDescriptor) {
-        int index = earlierScripts.indexOf(scriptDescriptor);
-        if (index < 0) {
+    /**
+     * @return index of the earlier script's instance in the {@link #EARLIER_SCRIPTS_FIELD_NAME} array
+     */
+    public int getScriptIndex(@NotNull ScriptDescriptor scriptDescriptor) {
+        Integer index = earlierScriptIndices.get(scriptDescriptor);
+        if (index == null) {
             throw new IllegalStateException("Unregistered script: " + scriptDescriptor);
         }
-        return index + 1;
-    }
-
-    public String getScriptFieldName(@NotNull ScriptDescriptor scriptDescriptor) {
-        return "script$" + getScriptIndex(scriptDescriptor);
+        return index;
     }
 
     public void setScriptConstructorMethod(Method scriptConstructorMethod) {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.constants.*;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.util.*;
+
+/**
+ * Decides whether a {@code when} with a subject can be compiled to a {@code tableswitch} or {@code lookupswitch}:
+ * the subject should be of a non-nullable Int, Char, Short or Byte type, of a String type or of an enum type,
+ * and every condition should be a compile time constant of the subject type (or an entry of the subject enum).
+ */
+public class SwitchCodegenUtil {
+    public enum SwitchKind {
+        /** Switch over the value of an Int, Char, Short or Byte subject */
+        INT,
+        /** Switch over the hash code of a String subject followed by equals() checks */
+        STRING,
+        /** Switch over the ordinal of an enum subject mapped by a synthetic array */
+        ENUM
+    }
+
+    /**
+     * Constants of a {@code when} grouped by kind, each mapped to the index of the first entry it occurs in.
+     * Constants are Integers for {@link SwitchKind#INT}, Strings for {@link SwitchKind#STRING}
+     * and names of the entries for {@link SwitchKind#ENUM}.
+     */
+    public static class SwitchTable {
+        private final SwitchKind kind;
+        private final ClassDescriptor enumClass;
+        private final Map<Object, Integer> entryIndices = new LinkedHashMap<Object, Integer>();
+        private int nullEntryIndex = -1;
+
+        private SwitchTable(@NotNull SwitchKind kind, @Nullable ClassDescriptor enumClass) {
+            this.kind = kind;
+            this.enumClass = enumClass;
+        }
+
+        @NotNull
+        public SwitchKind getKind() {
+            return kind;
+        }
+
+        @NotNull
+        public ClassDescriptor getEnumClass() {
+            assert enumClass != null : "Not a switch over enum";
+            return enumClass;
+        }
+
+        @NotNull
+        public Map<Object, Integer> getEntryIndices() {
+            return entryIndices;
+        }
+
+        /**
+         * @return index of the entry with the {@code null} condition, or -1 if there is none
+         */
+        public int getNullEntryIndex() {
+            return nullEntryIndex;
+        }
+    }
+
+    private SwitchCodegenUtil() {}
+
+    @Nullable
+    public static SwitchTable buildSwitchTable(
+            @NotNull JetWhenExpression expression,
+            @Nullable JetType subjectType,
+            @NotNull BindingContext bindingContext
+    ) {
+        if (expression.getSubjectExpression() == null || subjectType == null) return null;
+
+        SwitchTable table = createTable(subjectType);
+        if (table == null) return null;
+
+        List<JetWhenEntry> entries = expression.getEntries();
+        for (int index = 0; index < entries.size(); index++) {
+            JetWhenEntry entry = entries.get(index);
+            if (entry.isElse()) continue;
+
+            boolean reachable = false;
+            for (JetWhenCondition condition : entry.getConditions()) {
+                if (!(condition instanceof JetWhenConditionWithExpression)) return null;
+                JetExpression conditionExpression = ((JetWhenConditionWithExpression) condition).getExpression();
+                if (conditionExpression == null) return null;
+                conditionExpression = JetPsiUtil.deparenthesizeWithNoTypeResolution(conditionExpression);
+                if (conditionExpression == null) return null;
+
+                CompileTimeConstant<?> constant = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, conditionExpression);
+                if (constant instanceof NullValue && table.kind != SwitchKind.INT) {
+                    if (table.nullEntryIndex == -1) {
+                        table.nullEntryIndex = index;
+                        reachable = true;
+                    }
+                    continue;
+                }
+
+                Object key = table.kind == SwitchKind.ENUM
+                             ? getEnumEntryName(conditionExpression, table.enumClass, bindingContext)
+                             : getConstantKey(constant, subjectType);
+                if (key == null) return null;
+
+                if (!table.entryIndices.containsKey(key)) {
+                    table.entryIndices.put(key, index);
+                    reachable = true;
+                }
+            }
+
+            // An entry whose constants have all been matched before would leave dead code after the switch
+            if (!reachable) return null;
+        }
+
+        return table.entryIndices.isEmpty() ? null : table;
+    }
+
+    /**
+     * @return true if the given {@code when} will be compiled to a switch over the ordinal of an enum
+     *         and thus needs a class with the mapping from ordinals to the switch keys
+     */
+    public static boolean isSwitchOverEnum(@NotNull JetWhenExpression expression, @NotNull BindingContext bindingContext) {
+        JetExpression subject = expression.getSubjectExpression();
+        if (subject == null) return false;
+        SwitchTable table = buildSwitchTable(expression, bindingContext.get(BindingContext.EXPRESSION_TYPE, subject), bindingContext);
+        return table != null && table.kind == SwitchKind.ENUM;
+    }
+
+    @Nullable
+    private static SwitchTable createTable(@NotNull JetType subjectType) {
+        ClassifierDescriptor descriptor = subjectType.getConstructor().getDeclarationDescriptor();
+        if (!(descriptor instanceof ClassDescriptor)) return null;
+
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        if (descriptor == builtIns.getString()) {
+            return new SwitchTable(SwitchKind.STRING, null);
+        }
+        if (DescriptorUtils.isEnumClass(descriptor)) {
+            return new SwitchTable(SwitchKind.ENUM, (ClassDescriptor) descriptor);
+        }
+        if (!subjectType.isNullable() && getIntegralConstantClass(subjectType) != null) {
+            return new SwitchTable(SwitchKind.INT, null);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Class<?> getIntegralConstantClass(@NotNull JetType type) {
+        ClassifierDescriptor descriptor = type.getConstructor().getDeclarationDescriptor();
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        if (descriptor == builtIns.getInt()) return IntValue.class;
+        if (descriptor == builtIns.getChar()) return CharValue.class;
+        if (descriptor == builtIns.getShort()) return ShortValue.class;
+        if (descriptor == builtIns.getByte()) return ByteValue.class;
+        return null;
+    }
+
+    @Nullable
+    private static Object getConstantKey(@Nullable CompileTimeConstant<?> constant, @NotNull JetType subjectType) {
+        if (constant == null) return null;
+
+        if (constant instanceof StringValue) {
+            return KotlinBuiltIns.getInstance().getString() == subjectType.getConstructor().getDeclarationDescriptor()
+                   ? ((StringValue) constant).getValue()
+                   : null;
+        }
+
+        // Constants of other types are compared with equals() by the general code and never match
+        if (constant.getClass() != getIntegralConstantClass(subjectType)) return null;
+
+        Object value = constant.getValue();
+        if (value instanceof Character) {
+            return (int) (Character) value;
+        }
+        return ((Number) value).intValue();
+    }
+
+    @Nullable
+    private static String getEnumEntryName(
+            @NotNull JetExpression expression,
+            @NotNull ClassDescriptor enumClass,
+            @NotNull BindingContext bindingContext
+    ) {
+        JetExpression reference = expression;
+        if (reference instanceof JetDotQualifiedExpression) {
+            reference = ((JetDotQualifiedExpression) reference).getSelectorExpression();
+        }
+        if (!(reference instanceof JetSimpleNameExpression)) return null;
+
+        DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) reference);
+        if (!(target instanceof VariableDescriptor)) return null;
+        if (bindingContext.get(BindingContext.OBJECT_DECLARATION_CLASS, (VariableDescriptor) target) == null) return null;
+
+        DeclarationDescriptor classObject = target.getContainingDeclaration();
+        if (classObject == null || !DescriptorUtils.isEnumClassObject(classObject)) return null;
+        if (classObject.getContainingDeclaration() != enumClass) return null;
+
+        return target.getName().getName();
+    }
+}
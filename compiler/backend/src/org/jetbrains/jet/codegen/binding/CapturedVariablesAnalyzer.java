@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.binding;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.cfg.pseudocode.*;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lexer.JetTokens;
+
+import java.util.*;
+
+import static org.jetbrains.jet.codegen.binding.CodegenBinding.CAPTURED_BY_VALUE;
+import static org.jetbrains.jet.lang.resolve.BindingContext.REFERENCE_TARGET;
+
+/**
+ * Finds mutable locals which are captured by closure classes but never change after any of the closures is created.
+ * Such a closure may get a copy of the value, so the variable stays a plain JVM local instead of a SharedVar.
+ * <p/>
+ * The analysis is conservative: a variable is copied only if it has an initializer, all of its assignments are
+ * in the function which declares it (not in any local function or literal, even inlined), no local class or object
+ * references it, and no assignment is reachable in the control-flow graph from a local declaration referencing it
+ * (unless the declaration of the variable itself is passed on the way, e.g. in the next iteration of a loop).
+ */
+class CapturedVariablesAnalyzer {
+    private final BindingContext bindingContext;
+    private final Map<JetDeclaration, Pseudocode> pseudocodeCache = new HashMap<JetDeclaration, Pseudocode>();
+
+    private CapturedVariablesAnalyzer(@NotNull BindingContext bindingContext) {
+        this.bindingContext = bindingContext;
+    }
+
+    public static void analyze(@NotNull BindingTrace bindingTrace, @NotNull Collection<VariableDescriptor> capturedInClosureClasses) {
+        CapturedVariablesAnalyzer analyzer = new CapturedVariablesAnalyzer(bindingTrace.getBindingContext());
+        for (VariableDescriptor variable : capturedInClosureClasses) {
+            if (variable.isVar() && analyzer.canBeCapturedByValue(variable)) {
+                bindingTrace.record(CAPTURED_BY_VALUE, variable);
+            }
+        }
+    }
+
+    private boolean canBeCapturedByValue(@NotNull VariableDescriptor variable) {
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, variable);
+        if (!(declaration instanceof JetProperty) || ((JetProperty) declaration).getInitializer() == null) return false;
+        JetProperty property = (JetProperty) declaration;
+
+        PsiElement container = PsiTreeUtil.getParentOfType(
+                property, JetDeclarationWithBody.class, JetClassOrObject.class, JetClassInitializer.class);
+        if (!(container instanceof JetDeclarationWithBody) || !(container instanceof JetDeclaration)) return false;
+
+        List<JetSimpleNameExpression> references = findReferences((JetElement) container, variable);
+        for (JetSimpleNameExpression reference : references) {
+            if (isInsideClassOrObject(reference, container)) return false;
+            if (isAssigned(reference) && PsiTreeUtil.getParentOfType(reference, JetDeclarationWithBody.class) != container) return false;
+        }
+
+        Pseudocode pseudocode = getPseudocode((JetDeclaration) container);
+        for (Instruction instruction : pseudocode.getInstructions()) {
+            if (instruction instanceof LocalDeclarationInstruction &&
+                containsAny(((LocalDeclarationInstruction) instruction).getElement(), references) &&
+                isWriteReachable(instruction, variable, property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    private Pseudocode getPseudocode(@NotNull JetDeclaration declaration) {
+        Pseudocode pseudocode = pseudocodeCache.get(declaration);
+        if (pseudocode == null) {
+            pseudocode = PseudocodeUtil.generatePseudocode(declaration, bindingContext);
+            pseudocodeCache.put(declaration, pseudocode);
+        }
+        return pseudocode;
+    }
+
+    @NotNull
+    private List<JetSimpleNameExpression> findReferences(@NotNull JetElement container, @NotNull final VariableDescriptor variable) {
+        final List<JetSimpleNameExpression> references = new ArrayList<JetSimpleNameExpression>();
+        container.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitSimpleNameExpression(JetSimpleNameExpression expression) {
+                if (bindingContext.get(REFERENCE_TARGET, expression) == variable) {
+                    references.add(expression);
+                }
+            }
+        });
+        return references;
+    }
+
+    private static boolean isInsideClassOrObject(@NotNull PsiElement reference, @NotNull PsiElement container) {
+        for (PsiElement element = reference.getParent(); element != null && element != container; element = element.getParent()) {
+            if (element instanceof JetClassOrObject || element instanceof JetObjectLiteralExpression) return true;
+        }
+        return false;
+    }
+
+    private static boolean isAssigned(@NotNull JetSimpleNameExpression reference) {
+        PsiElement element = reference;
+        while (element.getParent() instanceof JetParenthesizedExpression) {
+            element = element.getParent();
+        }
+        PsiElement parent = element.getParent();
+        if (parent instanceof JetBinaryExpression) {
+            JetBinaryExpression binaryExpression = (JetBinaryExpression) parent;
+            IElementType operationToken = binaryExpression.getOperationToken();
+            return binaryExpression.getLeft() == element &&
+                   (operationToken == JetTokens.EQ || JetTokens.AUGMENTED_ASSIGNMENTS.contains(operationToken));
+        }
+        if (parent instanceof JetUnaryExpression) {
+            IElementType operationToken = ((JetUnaryExpression) parent).getOperationReference().getReferencedNameElementType();
+            return operationToken == JetTokens.PLUSPLUS || operationToken == JetTokens.MINUSMINUS;
+        }
+        return false;
+    }
+
+    private static boolean containsAny(@NotNull PsiElement element, @NotNull List<JetSimpleNameExpression> references) {
+        for (JetSimpleNameExpression reference : references) {
+            if (PsiTreeUtil.isAncestor(element, reference, false)) return true;
+        }
+        return false;
+    }
+
+    private boolean isWriteOf(@NotNull Instruction instruction, @NotNull VariableDescriptor variable) {
+        return instruction instanceof WriteValueInstruction &&
+               PseudocodeUtil.extractVariableDescriptorIfAny(instruction, false, bindingContext) == variable;
+    }
+
+    private boolean isWriteReachable(@NotNull Instruction from, @NotNull VariableDescriptor variable, @NotNull JetProperty declaration) {
+        Set<Instruction> visited = new HashSet<Instruction>();
+        Deque<Instruction> queue = new ArrayDeque<Instruction>(from.getNextInstructions());
+        while (!queue.isEmpty()) {
+            Instruction instruction = queue.poll();
+            if (!visited.add(instruction)) continue;
+            if (isDeclarationOf(instruction, declaration)) continue;
+            if (isWriteOf(instruction, variable)) return true;
+            queue.addAll(instruction.getNextInstructions());
+        }
+        return false;
+    }
+
+    private static boolean isDeclarationOf(@NotNull Instruction instruction, @Nullable JetProperty declaration) {
+        return instruction instanceof VariableDeclarationInstruction &&
+               ((VariableDeclarationInstruction) instruction).getVariableDeclarationElement() == declaration;
+    }
+}
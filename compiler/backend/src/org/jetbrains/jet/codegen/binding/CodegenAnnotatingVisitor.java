@@ -16,14 +16,19 @@
 
 package org.jetbrains.jet.codegen.binding;
 
+import com.intellij.psi.PsiElement;
 import com.intellij.util.containers.Stack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.codegen.SwitchCodegenUtil;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
 import org.jetbrains.jet.lang.descriptors.impl.ClassDescriptorImpl;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
 import org.jetbrains.jet.lang.resolve.BindingTrace;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.calls.util.InlineUtil;
 import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.jet.lang.resolve.java.PackageClassUtils;
@@ -34,7 +39,9 @@ import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static org.jetbrains.jet.codegen.CodegenUtil.peekFromStack;
 import static org.jetbrains.jet.codegen.binding.CodegenBinding.*;
@@ -42,6 +49,8 @@ import static org.jetbrains.jet.lang.resolve.BindingContext.*;
 
 class CodegenAnnotatingVisitor extends JetVisitorVoid {
     private final Map<String, Integer> anonymousSubclassesCount = new HashMap<String, Integer>();
+    private final Map<String, Integer> whenMappingsCount = new HashMap<String, Integer>();
+    private final Set<VariableDescriptor> capturedInClosureClasses = new LinkedHashSet<VariableDescriptor>();
 
     private final Stack<ClassDescriptor> classStack = new Stack<ClassDescriptor>();
     private final Stack<String> nameStack = new Stack<String>();
@@ -53,6 +62,15 @@ class CodegenAnnotatingVisitor extends JetVisitorVoid {
         this.bindingContext = bindingTrace.getBindingContext();
     }
 
+    /**
+     * Variables recorded as {@link CodegenBinding#CAPTURED_IN_CLOSURE_CLASS} by this visitor. They are kept here
+     * because asking the trace for all the keys of a slice may resolve the whole project in the IDE.
+     */
+    @NotNull
+    public Set<VariableDescriptor> getCapturedInClosureClasses() {
+        return capturedInClosureClasses;
+    }
+
     private ClassDescriptor recordClassForFunction(FunctionDescriptor funDescriptor) {
         ClassDescriptor classDescriptor;
         int arity = funDescriptor.getValueParameters().size();
@@ -101,6 +119,17 @@ class CodegenAnnotatingVisitor extends JetVisitorVoid {
         return name;
     }
 
+    private String inventWhenMappingClassName() {
+        String top = peekFromStack(nameStack);
+        Integer cnt = whenMappingsCount.get(top);
+        if (cnt == null) {
+            cnt = 0;
+        }
+        whenMappingsCount.put(top, cnt + 1);
+
+        return top + "$WhenMappings$" + (cnt + 1);
+    }
+
     @Override
     public void visitJetElement(JetElement element) {
         super.visitJetElement(element);
@@ -229,6 +258,12 @@ class CodegenAnnotatingVisitor extends JetVisitorVoid {
         // working around a problem with shallow analysis
         if (functionDescriptor == null) return;
 
+        if (Boolean.TRUE.equals(bindingContext.get(INLINED_FUNCTION_LITERAL, expression))) {
+            // the body is generated in place of the invocations, so no class is needed
+            super.visitFunctionLiteralExpression(expression);
+            return;
+        }
+
         String name = inventAnonymousClassName(expression);
         ClassDescriptor classDescriptor = recordClassForFunction(functionDescriptor);
         recordClosure(bindingTrace, expression, classDescriptor, peekFromStack(classStack), JvmClassName.byInternalName(name), true);
@@ -240,6 +275,47 @@ class CodegenAnnotatingVisitor extends JetVisitorVoid {
         classStack.pop();
     }
 
+    @Override
+    public void visitCallExpression(JetCallExpression expression) {
+        for (JetFunctionLiteralExpression literal : InlineUtil.getInlinedFunctionLiterals(expression, bindingContext).values()) {
+            bindingTrace.record(INLINED_FUNCTION_LITERAL, literal);
+        }
+        super.visitCallExpression(expression);
+    }
+
+    @Override
+    public void visitSimpleNameExpression(JetSimpleNameExpression expression) {
+        DeclarationDescriptor descriptor = bindingContext.get(REFERENCE_TARGET, expression);
+        if (descriptor instanceof VariableDescriptor && Boolean.TRUE.equals(bindingContext.get(CAPTURED_IN_CLOSURE, (VariableDescriptor) descriptor))) {
+            PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, descriptor);
+            if (declaration != null && isReferencedFromClosureClass(expression, declaration)) {
+                bindingTrace.record(CAPTURED_IN_CLOSURE_CLASS, (VariableDescriptor) descriptor);
+                capturedInClosureClasses.add((VariableDescriptor) descriptor);
+            }
+        }
+        super.visitSimpleNameExpression(expression);
+    }
+
+    private boolean isReferencedFromClosureClass(@NotNull JetSimpleNameExpression reference, @NotNull PsiElement declaration) {
+        for (PsiElement element = reference.getParent(); element != null && element != declaration.getParent(); element = element.getParent()) {
+            if (element instanceof JetFunctionLiteralExpression) {
+                if (!Boolean.TRUE.equals(bindingContext.get(INLINED_FUNCTION_LITERAL, (JetFunctionLiteralExpression) element))) return true;
+            }
+            else if (element instanceof JetNamedFunction || element instanceof JetClassOrObject || element instanceof JetObjectLiteralExpression) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void visitWhenExpression(JetWhenExpression expression) {
+        if (SwitchCodegenUtil.isSwitchOverEnum(expression, bindingContext)) {
+            bindingTrace.record(MAPPING_FOR_WHEN_BY_ENUM, expression, JvmClassName.byInternalName(inventWhenMappingClassName()));
+        }
+        super.visitWhenExpression(expression);
+    }
+
     @Override
     public void visitProperty(JetProperty property) {
         nameStack.push(peekFromStack(nameStack) + '$' + property.getName());
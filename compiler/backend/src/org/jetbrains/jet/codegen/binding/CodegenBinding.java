@@ -53,6 +53,22 @@ public class CodegenBinding {
 
     public static final WritableSlice<ClassDescriptor, Boolean> ENUM_ENTRY_CLASS_NEED_SUBCLASS = Slices.createSimpleSetSlice();
 
+    public static final WritableSlice<JetWhenExpression, JvmClassName> MAPPING_FOR_WHEN_BY_ENUM = Slices.createSimpleSlice();
+
+    public static final WritableSlice<JetFunctionLiteralExpression, Boolean> INLINED_FUNCTION_LITERAL = Slices.createSimpleSetSlice();
+
+    /**
+     * Variables captured by a closure which is compiled to a class. The rest of CAPTURED_IN_CLOSURE variables are only
+     * captured by inlined function literals and stay plain locals
+     */
+    public static final WritableSlice<VariableDescriptor, Boolean> CAPTURED_IN_CLOSURE_CLASS = Slices.createSimpleSetSlice();
+
+    /**
+     * Mutable variables captured by closure classes which don't change after the closures are created,
+     * so the closures get a copy of the value and the variable stays a plain local (see CapturedVariablesAnalyzer)
+     */
+    public static final WritableSlice<VariableDescriptor, Boolean> CAPTURED_BY_VALUE = Slices.createSimpleSetSlice();
+
     private CodegenBinding() {
     }
 
@@ -61,6 +77,7 @@ public class CodegenBinding {
         for (JetFile file : allFilesInNamespaces(bindingTrace.getBindingContext(), files)) {
             file.accept(visitor);
         }
+        CapturedVariablesAnalyzer.analyze(bindingTrace, visitor.getCapturedInClosureClasses());
     }
 
     public static boolean enumEntryNeedSubclass(BindingContext bindingContext, JetEnumEntry enumEntry) {
@@ -361,6 +378,8 @@ public class CodegenBinding {
         if (!(descriptor instanceof VariableDescriptor) || descriptor instanceof PropertyDescriptor) return false;
         VariableDescriptor variableDescriptor = (VariableDescriptor) descriptor;
         return Boolean.TRUE.equals(bindingContext.get(CAPTURED_IN_CLOSURE, variableDescriptor)) &&
+               Boolean.TRUE.equals(bindingContext.get(CAPTURED_IN_CLOSURE_CLASS, variableDescriptor)) &&
+               !Boolean.TRUE.equals(bindingContext.get(CAPTURED_BY_VALUE, variableDescriptor)) &&
                variableDescriptor.isVar();
     }
 
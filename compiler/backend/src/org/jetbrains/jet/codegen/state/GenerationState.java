@@ -26,6 +26,7 @@ import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.BindingTrace;
 import org.jetbrains.jet.lang.resolve.DelegatingBindingTrace;
+import org.jetbrains.jet.lang.resolve.ThreadSafeDelegatingBindingTrace;
 
 import java.util.List;
 
@@ -68,6 +69,8 @@ public class GenerationState {
 
     private final boolean generateDeclaredClasses;
 
+    private final int codegenThreads;
+
     public GenerationState(Project project, ClassBuilderFactory builderFactory, BindingContext bindingContext, List<JetFile> files) {
         this(project, builderFactory, Progress.DEAF, bindingContext, files, BuiltinToJavaTypesMapping.ENABLED, true, false, true);
     }
@@ -82,13 +85,34 @@ public class GenerationState {
             boolean generateNotNullAssertions,
             boolean generateNotNullParamAssertions,
             boolean generateDeclaredClasses
+    ) {
+        this(project, builderFactory, progress, bindingContext, files, builtinToJavaTypesMapping, generateNotNullAssertions,
+             generateNotNullParamAssertions, generateDeclaredClasses, 1);
+    }
+
+    public GenerationState(
+            @NotNull Project project,
+            @NotNull ClassBuilderFactory builderFactory,
+            @NotNull Progress progress,
+            @NotNull BindingContext bindingContext,
+            @NotNull List<JetFile> files,
+            @NotNull BuiltinToJavaTypesMapping builtinToJavaTypesMapping,
+            boolean generateNotNullAssertions,
+            boolean generateNotNullParamAssertions,
+            boolean generateDeclaredClasses,
+            int codegenThreads
     ) {
         this.project = project;
         this.progress = progress;
         this.files = files;
         this.classBuilderMode = builderFactory.getClassBuilderMode();
 
-        bindingTrace = new DelegatingBindingTrace(bindingContext, "trace in GenerationState");
+        this.codegenThreads = Math.max(codegenThreads, 1);
+
+        // namespaces generated on different threads share this trace (see KotlinCodegenFacade)
+        bindingTrace = this.codegenThreads > 1
+                       ? new ThreadSafeDelegatingBindingTrace(bindingContext, "thread-safe trace in GenerationState")
+                       : new DelegatingBindingTrace(bindingContext, "trace in GenerationState");
         this.bindingContext = bindingTrace.getBindingContext();
 
         this.typeMapper = new JetTypeMapper(bindingTrace, builtinToJavaTypesMapping == BuiltinToJavaTypesMapping.ENABLED, classBuilderMode);
@@ -168,6 +192,10 @@ public class GenerationState {
         return generateDeclaredClasses;
     }
 
+    public int getCodegenThreads() {
+        return codegenThreads;
+    }
+
     public void beforeCompile() {
         markUsed();
 
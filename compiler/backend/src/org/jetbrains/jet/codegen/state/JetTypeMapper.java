@@ -889,11 +889,10 @@ public class JetTypeMapper extends BindingTraceAware {
 
         signatureWriter.writeParametersStart();
 
-        for (ScriptDescriptor importedScript : importedScripts) {
+        if (!importedScripts.isEmpty()) {
+            // instances of all imported scripts are passed in one array, see ScriptCodegen.EARLIER_SCRIPTS_FIELD_NAME
             signatureWriter.writeParameterType(JvmMethodParameterKind.VALUE);
-            final ClassDescriptor descriptor = bindingContext.get(CLASS_FOR_FUNCTION, importedScript);
-            assert descriptor != null;
-            mapType(descriptor.getDefaultType(), signatureWriter, JetTypeMapperMode.VALUE);
+            signatureWriter.writeAsmType(AsmTypeConstants.JAVA_ARRAY_GENERIC_TYPE, false);
             signatureWriter.writeParameterTypeEnd();
         }
 
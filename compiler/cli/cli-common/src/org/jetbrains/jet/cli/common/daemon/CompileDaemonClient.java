@@ -0,0 +1,254 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.common.daemon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jetbrains.jet.cli.common.daemon.CompileDaemonProtocol.*;
+
+/**
+ * Sends compilation requests to a long-running compiler process, starting it on the first request.
+ * A daemon is identified by the compiler classpath, so different compiler versions never share a daemon.
+ */
+public class CompileDaemonClient {
+    public static final String DAEMON_MAIN_CLASS = "org.jetbrains.jet.cli.jvm.daemon.K2JVMCompileDaemon";
+
+    private static final long STARTUP_TIMEOUT_MS = 30 * 1000;
+    private static final long STARTUP_POLL_INTERVAL_MS = 100;
+
+    @NotNull
+    private final File javaExecutable;
+    @NotNull
+    private final List<File> compilerClasspath;
+    @NotNull
+    private final List<String> jvmArguments;
+
+    public CompileDaemonClient(@NotNull File javaExecutable, @NotNull List<File> compilerClasspath, @NotNull List<String> jvmArguments) {
+        this.javaExecutable = javaExecutable;
+        this.compilerClasspath = compilerClasspath;
+        this.jvmArguments = jvmArguments;
+    }
+
+    @NotNull
+    public static File getJavaExecutable(@NotNull String javaHome) {
+        String executableName = System.getProperty("os.name").toLowerCase().startsWith("windows") ? "java.exe" : "java";
+        return new File(new File(javaHome, "bin"), executableName);
+    }
+
+    /**
+     * Compiles with the given command line arguments, writing the compiler output into {@code out}.
+     * @return the exit code of the compiler
+     */
+    public int compile(@NotNull String[] arguments, @NotNull OutputStream out) throws IOException {
+        Connection connection = connectOrStartDaemon();
+        Socket socket = connection.socket;
+        try {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            request.writeInt(VERSION);
+            writeString(request, connection.secret);
+            request.writeInt(COMMAND_COMPILE);
+            writeArguments(request, arguments);
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte frame = response.readByte();
+                if (frame == FRAME_EXIT) {
+                    out.flush();
+                    return response.readInt();
+                }
+                if (frame != FRAME_OUTPUT) {
+                    throw new IOException("Unexpected frame from compile daemon: " + frame);
+                }
+
+                int remaining = response.readInt();
+                while (remaining > 0) {
+                    int read = response.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read < 0) throw new EOFException();
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Asks the daemon to exit, if it is running.
+     */
+    public void shutdown() throws IOException {
+        Connection connection = tryConnect();
+        if (connection == null) return;
+        Socket socket = connection.socket;
+        try {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            request.writeInt(VERSION);
+            writeString(request, connection.secret);
+            request.writeInt(COMMAND_SHUTDOWN);
+            request.flush();
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    @NotNull
+    private Connection connectOrStartDaemon() throws IOException {
+        Connection connection = tryConnect();
+        if (connection != null) return connection;
+
+        // Other clients may be starting the same daemon right now. File locks are held by the whole JVM,
+        // so the threads of this process are kept out by the monitor
+        String daemonId = getDaemonId();
+        synchronized (CompileDaemonClient.class) {
+            RandomAccessFile lockFile = new RandomAccessFile(getLockFile(daemonId), "rw");
+            try {
+                FileLock lock = lockFile.getChannel().lock();
+                try {
+                    connection = tryConnect();
+                    if (connection != null) return connection;
+
+                    File portFile = getPortFile(daemonId);
+                    startDaemon(portFile);
+                    return waitForDaemon(portFile);
+                }
+                finally {
+                    lock.release();
+                }
+            }
+            finally {
+                lockFile.close();
+            }
+        }
+    }
+
+    @NotNull
+    private Connection waitForDaemon(@NotNull File portFile) throws IOException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Connection connection = tryConnect();
+            if (connection != null) return connection;
+            try {
+                Thread.sleep(STARTUP_POLL_INTERVAL_MS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the compile daemon to start");
+            }
+        }
+        throw new IOException("Compile daemon has not started in " + STARTUP_TIMEOUT_MS + " ms, see " + getLogFile(portFile));
+    }
+
+    @Nullable
+    private Connection tryConnect() throws IOException {
+        File portFile = getPortFile(getDaemonId());
+        if (!portFile.isFile()) return null;
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(portFile));
+            int port;
+            String secret;
+            try {
+                String portLine = reader.readLine();
+                secret = reader.readLine();
+                if (portLine == null || secret == null) return null;
+                port = Integer.parseInt(portLine.trim());
+            }
+            finally {
+                reader.close();
+            }
+            return new Connection(new Socket(InetAddress.getByName(null), port), secret.trim());
+        }
+        catch (NumberFormatException e) {
+            // The daemon is writing the file right now
+            return null;
+        }
+        catch (IOException e) {
+            // The daemon has died without removing its port file
+            //noinspection ResultOfMethodCallIgnored
+            portFile.delete();
+            return null;
+        }
+    }
+
+    private void startDaemon(@NotNull File portFile) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(javaExecutable.getPath());
+        command.addAll(jvmArguments);
+        command.add("-cp");
+        command.add(getClasspathString());
+        command.add(DAEMON_MAIN_CLASS);
+        command.add(portFile.getAbsolutePath());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        // The daemon writes its output into a log file, it must outlive this process
+        process.getOutputStream().close();
+        process.getInputStream().close();
+    }
+
+    @NotNull
+    public static File getLogFile(@NotNull File portFile) {
+        return new File(portFile.getPath() + ".log");
+    }
+
+    @NotNull
+    private String getClasspathString() {
+        StringBuilder classpath = new StringBuilder();
+        for (File file : compilerClasspath) {
+            if (classpath.length() > 0) {
+                classpath.append(File.pathSeparator);
+            }
+            classpath.append(file.getAbsolutePath());
+        }
+        return classpath.toString();
+    }
+
+    @NotNull
+    private String getDaemonId() {
+        StringBuilder key = new StringBuilder(getClasspathString());
+        for (File file : compilerClasspath) {
+            key.append(File.pathSeparator).append(file.lastModified());
+        }
+        for (String argument : jvmArguments) {
+            key.append(' ').append(argument);
+        }
+        return Integer.toHexString(key.toString().hashCode());
+    }
+
+    private static class Connection {
+        @NotNull
+        private final Socket socket;
+        @NotNull
+        private final String secret;
+
+        private Connection(@NotNull Socket socket, @NotNull String secret) {
+            this.socket = socket;
+            this.secret = secret;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.common.daemon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Wire format shared by the compile daemon and its clients. All the communication goes over a loopback socket,
+ * one connection per request:
+ * <pre>
+ * request:  int VERSION, string secret, int command, [for COMMAND_COMPILE: int count, count x string argument]
+ * response: any number of FRAME_OUTPUT frames (int length, bytes of the compiler output), then FRAME_EXIT (int exit code)
+ * </pre>
+ * Strings are sent as an int length followed by UTF-8 bytes, since arguments such as a classpath may be longer than
+ * {@link DataOutput#writeUTF(String)} allows.
+ * <p/>
+ * The daemon writes its port and a random secret into the port file, which is readable only by the user who started it.
+ * Requests without this secret are rejected, so other users of the machine can't make the daemon compile for them.
+ */
+public class CompileDaemonProtocol {
+    public static final int VERSION = 2;
+
+    public static final int COMMAND_COMPILE = 1;
+    public static final int COMMAND_SHUTDOWN = 2;
+
+    public static final byte FRAME_OUTPUT = 1;
+    public static final byte FRAME_EXIT = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SECRET_BYTES = 16;
+
+    private CompileDaemonProtocol() {
+    }
+
+    /**
+     * A directory in the home of the current user which is accessible only to this user
+     */
+    @NotNull
+    public static File getDaemonDirectory() throws IOException {
+        File directory = new File(System.getProperty("user.home"), ".kotlin" + File.separator + "daemon");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create compile daemon directory " + directory);
+        }
+        setOwnerOnlyPermissions(directory);
+        return directory;
+    }
+
+    @NotNull
+    public static File getPortFile(@NotNull String daemonId) throws IOException {
+        return new File(getDaemonDirectory(), "compile-daemon-" + daemonId + ".port");
+    }
+
+    /**
+     * Clients hold a lock on this file while they start a daemon, so that only one daemon is started for the same id
+     */
+    @NotNull
+    public static File getLockFile(@NotNull String daemonId) throws IOException {
+        return new File(getDaemonDirectory(), "compile-daemon-" + daemonId + ".lock");
+    }
+
+    /**
+     * Takes away all the permissions of other users. Only the owner permissions are available in JDK 6, so all the permissions
+     * are revoked first and then granted back to the owner.
+     */
+    public static void setOwnerOnlyPermissions(@NotNull File file) throws IOException {
+        boolean success = file.setReadable(false, false) && file.setReadable(true, true) &&
+                          file.setWritable(false, false) && file.setWritable(true, true);
+        if (file.isDirectory()) {
+            success &= file.setExecutable(false, false) && file.setExecutable(true, true);
+        }
+        if (!success) {
+            throw new IOException("Couldn't restrict permissions of " + file);
+        }
+    }
+
+    @NotNull
+    public static String generateSecret() {
+        byte[] bytes = new byte[SECRET_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Reads a secret sent by a client and checks it in constant time, so that it can't be guessed by timing the responses
+     */
+    public static boolean readAndCheckSecret(@NotNull DataInputStream in, @NotNull String expected) throws IOException {
+        // The length is checked before anything is allocated, the client is not trusted yet
+        int length = in.readInt();
+        if (length != SECRET_BYTES * 2) return false;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return MessageDigest.isEqual(expected.getBytes(UTF_8), bytes);
+    }
+
+    public static void writeString(@NotNull DataOutputStream out, @NotNull String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NotNull
+    public static String readString(@NotNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    public static void writeArguments(@NotNull DataOutputStream out, @NotNull String[] arguments) throws IOException {
+        out.writeInt(arguments.length);
+        for (String argument : arguments) {
+            writeString(out, argument);
+        }
+    }
+
+    @NotNull
+    public static String[] readArguments(@NotNull DataInputStream in) throws IOException {
+        String[] arguments = new String[in.readInt()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = readString(in);
+        }
+        return arguments;
+    }
+
+    /**
+     * Wraps everything written into it into FRAME_OUTPUT frames
+     */
+    public static class FramingOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        public FramingOutputStream(@NotNull DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(@NotNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            out.writeByte(FRAME_OUTPUT);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
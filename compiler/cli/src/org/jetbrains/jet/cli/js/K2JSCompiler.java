@@ -45,6 +45,7 @@ import org.jetbrains.k2js.facade.K2JSTranslator;
 import org.jetbrains.k2js.facade.MainCallParameters;
 
 import java.io.File;
+import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
 
@@ -157,7 +158,13 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
         }
         else {
             // lets discover the JS library definitions on the classpath
-            return new ClassPathLibraryDefintionsConfig(project, moduleId, ecmaVersion);
+            Config classPathConfig = new ClassPathLibraryDefintionsConfig(project, moduleId, ecmaVersion);
+            URL serializedLibrary = SerializedLibraryConfig.findSerializedLibrary();
+            if (classPathConfig.getLibFiles().isEmpty() && serializedLibrary != null) {
+                // The standard library shipped with the compiler, already analyzed at build time
+                return new SerializedLibraryConfig(project, moduleId, ecmaVersion, serializedLibrary);
+            }
+            return classPathConfig;
         }
     }
 }
@@ -39,4 +39,13 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("generate not-null assertions");
     public static final CompilerConfigurationKey<Boolean> GENERATE_NOT_NULL_PARAMETER_ASSERTIONS =
             CompilerConfigurationKey.create("generate not-null parameter assertions");
+
+    public static final CompilerConfigurationKey<Integer> CODEGEN_THREADS =
+            CompilerConfigurationKey.create("number of threads to generate bytecode in");
+    public static final CompilerConfigurationKey<Integer> BODY_RESOLVE_THREADS =
+            CompilerConfigurationKey.create("number of threads to resolve bodies in");
+    public static final CompilerConfigurationKey<Integer> PARSE_THREADS =
+            CompilerConfigurationKey.create("number of threads to parse source files in");
+    public static final CompilerConfigurationKey<Integer> MODULE_THREADS =
+            CompilerConfigurationKey.create("number of threads to compile modules in");
 }
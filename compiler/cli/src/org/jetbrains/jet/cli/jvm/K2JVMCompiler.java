@@ -123,6 +123,18 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
 
         configuration.put(JVMConfigurationKeys.GENERATE_NOT_NULL_ASSERTIONS, arguments.notNullAssertions);
         configuration.put(JVMConfigurationKeys.GENERATE_NOT_NULL_PARAMETER_ASSERTIONS, arguments.notNullParamAssertions);
+        if (arguments.codegenThreads != null) {
+            configuration.put(JVMConfigurationKeys.CODEGEN_THREADS, arguments.codegenThreads);
+        }
+        if (arguments.bodyResolveThreads != null) {
+            configuration.put(JVMConfigurationKeys.BODY_RESOLVE_THREADS, arguments.bodyResolveThreads);
+        }
+        if (arguments.parseThreads != null) {
+            configuration.put(JVMConfigurationKeys.PARSE_THREADS, arguments.parseThreads);
+        }
+        if (arguments.moduleThreads != null) {
+            configuration.put(JVMConfigurationKeys.MODULE_THREADS, arguments.moduleThreads);
+        }
 
         configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
 
@@ -136,7 +148,7 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
 
             if (arguments.module != null) {
                 MessageCollector sanitizedCollector = new FilteringMessageCollector(messageCollector);
-                List<Module> modules = CompileEnvironmentUtil.loadModuleScript(paths, arguments.module, sanitizedCollector);
+                List<Module> modules = CompileEnvironmentUtil.loadModuleDescriptions(paths, arguments.module, sanitizedCollector);
 
                 File directory = new File(arguments.module).getParentFile();
                 KotlinToJVMBytecodeCompiler.compileModules(configuration, modules,
@@ -70,6 +70,18 @@ public class K2JVMCompilerArguments extends CompilerArguments {
     @Argument(value = "notNullParamAssertions", description = "generate not-null assertions on parameters of methods accessible from Java")
     public boolean notNullParamAssertions;
 
+    @Argument(value = "codegenThreads", description = "generate bytecode of independent namespaces in the given number of threads (experimental)")
+    public Integer codegenThreads;
+
+    @Argument(value = "bodyResolveThreads", description = "resolve bodies of functions and properties in the given number of threads (experimental)")
+    public Integer bodyResolveThreads;
+
+    @Argument(value = "parseThreads", description = "parse source files in the given number of threads (experimental)")
+    public Integer parseThreads;
+
+    @Argument(value = "moduleThreads", description = "compile independent modules in the given number of threads (experimental)")
+    public Integer moduleThreads;
+
     @Argument(value = "builtins", description = "compile builtin classes (internal)")
     public boolean builtins;
 
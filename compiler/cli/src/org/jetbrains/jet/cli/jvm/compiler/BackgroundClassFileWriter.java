@@ -0,0 +1,275 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.codegen.ClassFileSink;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Writes class files to a jar or an output directory on a separate thread while the code generation goes on.
+ * The queue is bounded, so a slow disk holds the codegen back instead of letting the generated bytes pile up in memory.
+ * The jar or the directory is only touched when the first class arrives or when the writer is closed.
+ * A discarded writer leaves no output behind: the jar is written to a temporary file which replaces the jar only
+ * when it is complete, and the classes already written to the directory are deleted.
+ */
+abstract class BackgroundClassFileWriter implements ClassFileSink {
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static class Entry {
+        private final String relativePath;
+        private final byte[] bytes;
+
+        private Entry(@NotNull String relativePath, @NotNull byte[] bytes) {
+            this.relativePath = relativePath;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final Entry FINISH = new Entry("<finish>", new byte[0]);
+    private static final Entry DISCARD = new Entry("<discard>", new byte[0]);
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile Throwable error = null;
+    private boolean opened = false;
+    private boolean closed = false;
+
+    protected BackgroundClassFileWriter(@NotNull String description) {
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeEntries();
+            }
+        }, "Kotlin class file writer: " + description);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @NotNull
+    public static BackgroundClassFileWriter create(
+            @Nullable File jar,
+            @Nullable File outputDir,
+            @Nullable FqName mainClass,
+            boolean includeRuntime
+    ) {
+        if (jar != null) {
+            return toJar(jar, mainClass, includeRuntime);
+        }
+        if (outputDir != null) {
+            return toDirectory(outputDir);
+        }
+        throw new CompileEnvironmentException("Output directory or jar file is not specified - no files will be saved to the disk");
+    }
+
+    @NotNull
+    public static BackgroundClassFileWriter toDirectory(@NotNull final File outputDir) {
+        return new BackgroundClassFileWriter(outputDir.getPath()) {
+            private final List<File> writtenFiles = new ArrayList<File>();
+
+            @Override
+            protected void open() {
+            }
+
+            @Override
+            protected void writeClass(@NotNull String relativePath, @NotNull byte[] bytes) throws IOException {
+                File file = new File(outputDir, relativePath);
+                writtenFiles.add(file);
+                FileUtil.writeToFile(file, bytes);
+            }
+
+            @Override
+            protected void discardOutput() {
+                for (File file : writtenFiles) {
+                    FileUtil.delete(file);
+                }
+            }
+
+            @Override
+            protected void finish() {
+            }
+        };
+    }
+
+    @NotNull
+    public static BackgroundClassFileWriter toJar(@NotNull final File jar, @Nullable final FqName mainClass, final boolean includeRuntime) {
+        return new BackgroundClassFileWriter(jar.getPath()) {
+            private File tempFile;
+            private FileOutputStream fos;
+            private JarOutputStream stream;
+
+            @Override
+            protected void open() throws IOException {
+                try {
+                    // In the same directory, so that it can be renamed to the jar
+                    tempFile = File.createTempFile(jar.getName(), ".tmp", jar.getAbsoluteFile().getParentFile());
+                    fos = new FileOutputStream(tempFile);
+                }
+                catch (IOException e) {
+                    throw new CompileEnvironmentException("Invalid jar path " + jar, e);
+                }
+                stream = CompileEnvironmentUtil.createJarOutputStream(fos, mainClass);
+            }
+
+            @Override
+            protected void writeClass(@NotNull String relativePath, @NotNull byte[] bytes) throws IOException {
+                stream.putNextEntry(new JarEntry(relativePath));
+                stream.write(bytes);
+            }
+
+            @Override
+            protected void discardOutput() {
+                ExceptionUtils.closeQuietly(fos);
+                if (tempFile != null) {
+                    FileUtil.delete(tempFile);
+                }
+            }
+
+            @Override
+            protected void finish() throws IOException {
+                try {
+                    if (includeRuntime) {
+                        CompileEnvironmentUtil.writeRuntimeToJar(stream);
+                    }
+                    stream.finish();
+                    fos.close();
+                    // renameTo() doesn't replace an existing file on some platforms
+                    if (!tempFile.renameTo(jar) && !(jar.delete() && tempFile.renameTo(jar))) {
+                        throw new IOException("Couldn't replace " + jar + " with " + tempFile);
+                    }
+                }
+                finally {
+                    ExceptionUtils.closeQuietly(fos);
+                    // Does nothing once the file is renamed
+                    FileUtil.delete(tempFile);
+                }
+            }
+        };
+    }
+
+    protected abstract void open() throws IOException;
+
+    protected abstract void writeClass(@NotNull String relativePath, @NotNull byte[] bytes) throws IOException;
+
+    protected abstract void finish() throws IOException;
+
+    // Releases whatever open() has acquired when the output is not going to be completed
+    protected void discardOutput() {
+    }
+
+    @Override
+    public void write(@NotNull String relativePath, @NotNull byte[] bytes) {
+        rethrowError();
+        put(new Entry(relativePath, bytes));
+    }
+
+    /**
+     * Waits until all the classes are written and completes the output
+     */
+    public void close() {
+        stop(FINISH);
+        rethrowError();
+    }
+
+    /**
+     * Stops the writer without completing the output, e.g. when the compilation has failed
+     */
+    public void discard() {
+        stop(DISCARD);
+    }
+
+    private synchronized void stop(@NotNull Entry command) {
+        if (closed) return;
+        closed = true;
+
+        put(command);
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException("Interrupted while writing class files", e);
+        }
+    }
+
+    private void put(@NotNull Entry entry) {
+        try {
+            queue.put(entry);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException("Interrupted while writing class files", e);
+        }
+    }
+
+    private void writeEntries() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            }
+            catch (InterruptedException e) {
+                continue;
+            }
+
+            if (entry == DISCARD || (entry == FINISH && error != null)) {
+                if (opened) {
+                    discardOutput();
+                }
+                return;
+            }
+            // After a failure the queue is still drained, so that the codegen threads are not blocked
+            if (error != null) continue;
+
+            try {
+                if (!opened) {
+                    opened = true;
+                    open();
+                }
+                if (entry == FINISH) {
+                    finish();
+                    return;
+                }
+                writeClass(entry.relativePath, entry.bytes);
+            }
+            catch (Throwable e) {
+                error = e;
+            }
+        }
+    }
+
+    private void rethrowError() {
+        Throwable e = error;
+        if (e == null) return;
+        if (e instanceof CompileEnvironmentException) throw (CompileEnvironmentException) e;
+        if (e instanceof IOException) throw new CompileEnvironmentException("Failed to write class files", e);
+        throw ExceptionUtils.rethrow(e);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Knows which roots of the classpath may contain a given package, so that a lookup doesn't ask every root in turn.
+ * Jars are indexed with {@link JarIndex}. Other roots, normally directories, are few on typical classpaths and are always asked.
+ */
+class ClasspathIndex {
+    private final List<Root> unindexedRoots = new ArrayList<Root>();
+    private final Map<String, List<Root>> jarRootsByPackage = new HashMap<String, List<Root>>();
+    private int rootCount = 0;
+
+    public void addJar(@NotNull File jar, @NotNull VirtualFile root) throws IOException {
+        JarRoot jarRoot = new JarRoot(rootCount++, root, JarIndex.forJar(jar));
+        for (String packagePath : jarRoot.index.getPackages()) {
+            List<Root> roots = jarRootsByPackage.get(packagePath);
+            if (roots == null) {
+                roots = new ArrayList<Root>(1);
+                jarRootsByPackage.put(packagePath, roots);
+            }
+            roots.add(jarRoot);
+        }
+    }
+
+    public void addUnindexedRoot(@NotNull VirtualFile root) {
+        unindexedRoots.add(new UnindexedRoot(rootCount++, root));
+    }
+
+    /**
+     * @param packagePath slash-separated, "" for the root package
+     * @return matching class files in classpath order
+     */
+    @NotNull
+    public List<VirtualFile> findClassFiles(@NotNull String packagePath, @NotNull String className) {
+        List<VirtualFile> result = null;
+        for (Root root : getRoots(packagePath)) {
+            VirtualFile file = root.findClassFile(packagePath, className);
+            if (file != null) {
+                if (result == null) {
+                    result = new ArrayList<VirtualFile>(1);
+                }
+                result.add(file);
+            }
+        }
+        return result != null ? result : Collections.<VirtualFile>emptyList();
+    }
+
+    public boolean containsPackage(@NotNull String packagePath) {
+        if (jarRootsByPackage.containsKey(packagePath)) {
+            return true;
+        }
+        for (Root root : unindexedRoots) {
+            if (root.containsPackage(packagePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    private List<Root> getRoots(@NotNull String packagePath) {
+        List<Root> jarRoots = jarRootsByPackage.get(packagePath);
+        if (unindexedRoots.isEmpty()) {
+            return jarRoots != null ? jarRoots : Collections.<Root>emptyList();
+        }
+        if (jarRoots == null) {
+            return unindexedRoots;
+        }
+
+        List<Root> result = new ArrayList<Root>(jarRoots.size() + unindexedRoots.size());
+        result.addAll(jarRoots);
+        result.addAll(unindexedRoots);
+        Collections.sort(result, Root.CLASSPATH_ORDER);
+        return result;
+    }
+
+    @NotNull
+    private static String getRelativePath(@NotNull String packagePath, @NotNull String name) {
+        return packagePath.isEmpty() ? name : packagePath + "/" + name;
+    }
+
+    private abstract static class Root {
+        public static final Comparator<Root> CLASSPATH_ORDER = new Comparator<Root>() {
+            @Override
+            public int compare(Root root1, Root root2) {
+                return root1.position - root2.position;
+            }
+        };
+
+        protected final int position;
+        protected final VirtualFile file;
+
+        protected Root(int position, @NotNull VirtualFile file) {
+            this.position = position;
+            this.file = file;
+        }
+
+        @Nullable
+        public abstract VirtualFile findClassFile(@NotNull String packagePath, @NotNull String className);
+
+        public abstract boolean containsPackage(@NotNull String packagePath);
+    }
+
+    private static class JarRoot extends Root {
+        private final JarIndex index;
+
+        public JarRoot(int position, @NotNull VirtualFile file, @NotNull JarIndex index) {
+            super(position, file);
+            this.index = index;
+        }
+
+        @Nullable
+        @Override
+        public VirtualFile findClassFile(@NotNull String packagePath, @NotNull String className) {
+            String path = getRelativePath(packagePath, className);
+            return index.containsClassFile(path) ? file.findFileByRelativePath(path + ".class") : null;
+        }
+
+        @Override
+        public boolean containsPackage(@NotNull String packagePath) {
+            return index.containsPackage(packagePath);
+        }
+    }
+
+    private static class UnindexedRoot extends Root {
+        public UnindexedRoot(int position, @NotNull VirtualFile file) {
+            super(position, file);
+        }
+
+        @Nullable
+        @Override
+        public VirtualFile findClassFile(@NotNull String packagePath, @NotNull String className) {
+            VirtualFile packageDir = packagePath.isEmpty() ? file : file.findFileByRelativePath(packagePath);
+            if (packageDir == null) {
+                return null;
+            }
+            // Directories on the classpath may contain Java sources as well as compiled classes
+            VirtualFile classFile = packageDir.findChild(className + ".class");
+            return classFile != null ? classFile : packageDir.findChild(className + ".java");
+        }
+
+        @Override
+        public boolean containsPackage(@NotNull String packagePath) {
+            VirtualFile packageDir = packagePath.isEmpty() ? file : file.findFileByRelativePath(packagePath);
+            return packageDir != null && packageDir.isDirectory();
+        }
+    }
+}
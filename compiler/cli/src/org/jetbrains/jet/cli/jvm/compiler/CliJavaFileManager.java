@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.core.CoreJavaFileManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link CoreJavaFileManager} which finds classes and packages through a {@link ClasspathIndex}: lookups, in particular
+ * ones for classes which don't exist, no longer walk every root of a long classpath.
+ *
+ * Class files are still read through the core VFS, so that the same class is always represented by the same {@link PsiClass}.
+ */
+public class CliJavaFileManager extends CoreJavaFileManager {
+    private final PsiManager psiManager;
+    private final ClasspathIndex index = new ClasspathIndex();
+
+    public CliJavaFileManager(@NotNull PsiManager psiManager) {
+        super(psiManager);
+        this.psiManager = psiManager;
+    }
+
+    public void addJar(@NotNull File jar, @NotNull VirtualFile root) {
+        addToClasspath(root);
+        try {
+            index.addJar(jar, root);
+        }
+        catch (IOException e) {
+            // The VFS may still be able to read it, the jar is just asked on every lookup
+            index.addUnindexedRoot(root);
+        }
+    }
+
+    public void addDirectory(@NotNull VirtualFile root) {
+        addToClasspath(root);
+        index.addUnindexedRoot(root);
+    }
+
+    @Nullable
+    @Override
+    public PsiPackage findPackage(@NotNull String packageName) {
+        if (!index.containsPackage(packageName.replace('.', '/'))) {
+            return null;
+        }
+        return super.findPackage(packageName);
+    }
+
+    @Nullable
+    @Override
+    public PsiClass findClass(@NotNull String qName, @NotNull GlobalSearchScope scope) {
+        // "a.b.C.D" is either class D from package "a.b.C" or class D nested in a.b.C, the former is tried first
+        String topLevelClassName = qName;
+        while (true) {
+            PsiClass topLevelClass = findTopLevelClass(topLevelClassName, scope);
+            if (topLevelClass != null) {
+                return findNestedClass(topLevelClass, qName.substring(topLevelClassName.length()));
+            }
+
+            int lastDot = topLevelClassName.lastIndexOf('.');
+            if (lastDot < 0) {
+                return null;
+            }
+            topLevelClassName = topLevelClassName.substring(0, lastDot);
+        }
+    }
+
+    @Nullable
+    private PsiClass findTopLevelClass(@NotNull String qName, @NotNull GlobalSearchScope scope) {
+        String packagePath = StringUtil.getPackageName(qName).replace('.', '/');
+        String className = StringUtil.getShortName(qName);
+
+        for (VirtualFile file : index.findClassFiles(packagePath, className)) {
+            if (!scope.contains(file)) {
+                continue;
+            }
+            PsiFile psiFile = psiManager.findFile(file);
+            if (psiFile instanceof PsiClassOwner) {
+                for (PsiClass psiClass : ((PsiClassOwner) psiFile).getClasses()) {
+                    if (className.equals(psiClass.getName())) {
+                        return psiClass;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiClass findNestedClass(@NotNull PsiClass topLevelClass, @NotNull String nestedNames) {
+        PsiClass result = topLevelClass;
+        for (String name : StringUtil.split(nestedNames, ".")) {
+            result = result.findInnerClassByName(name, false);
+            if (result == null) {
+                return null;
+            }
+        }
+        return result;
+    }
+}
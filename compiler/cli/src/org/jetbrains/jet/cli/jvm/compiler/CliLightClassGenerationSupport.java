@@ -60,15 +60,18 @@ public class CliLightClassGenerationSupport extends LightClassGenerationSupport
         return ServiceManager.getService(project, CliLightClassGenerationSupport.class);
     }
 
+    private final boolean threadSafeTrace;
     private BindingTrace trace;
 
-    public CliLightClassGenerationSupport() {
+    public CliLightClassGenerationSupport(boolean threadSafeTrace) {
+        this.threadSafeTrace = threadSafeTrace;
     }
 
     @NotNull
     public BindingTrace getTrace() {
         if (trace == null) {
-            trace = new BindingTraceContext();
+            // Namespaces generated in parallel and bodies resolved in parallel write to the trace from several threads
+            trace = threadSafeTrace ? new ThreadSafeBindingTraceContext() : new BindingTraceContext();
         }
         return trace;
     }
@@ -78,6 +78,26 @@ public class CompileEnvironmentUtil {
         return null;
     }
 
+    /**
+     * Loads modules from an XML module description if {@code moduleFile} is one, or compiles and runs it as a module script otherwise.
+     */
+    @NotNull
+    public static List<Module> loadModuleDescriptions(KotlinPaths paths, String moduleFile, MessageCollector messageCollector) {
+        if (!ModuleXmlParser.isModuleXml(moduleFile)) {
+            return loadModuleScript(paths, moduleFile, messageCollector);
+        }
+
+        if (!new File(moduleFile).isFile()) {
+            throw new CompileEnvironmentException("Module description " + moduleFile + " does not exist");
+        }
+
+        List<Module> modules = ModuleXmlParser.parse(moduleFile);
+        if (modules.isEmpty()) {
+            throw new CompileEnvironmentException("No modules where defined by " + moduleFile);
+        }
+        return modules;
+    }
+
     @NotNull
     public static List<Module> loadModuleScript(KotlinPaths paths, String moduleScriptFile, MessageCollector messageCollector) {
         Disposable disposable = new Disposable() {
@@ -164,14 +184,7 @@ public class CompileEnvironmentUtil {
     // TODO: includeRuntime should be not a flag but a path to runtime
     public static void writeToJar(ClassFileFactory factory, final OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime) {
         try {
-            Manifest manifest = new Manifest();
-            final Attributes mainAttributes = manifest.getMainAttributes();
-            mainAttributes.putValue("Manifest-Version", "1.0");
-            mainAttributes.putValue("Created-By", "JetBrains Kotlin");
-            if (mainClass != null) {
-                mainAttributes.putValue("Main-Class", mainClass.getFqName());
-            }
-            JarOutputStream stream = new JarOutputStream(fos, manifest);
+            JarOutputStream stream = createJarOutputStream(fos, mainClass);
             for (String file : factory.files()) {
                 stream.putNextEntry(new JarEntry(file));
                 stream.write(factory.asBytes(file));
@@ -186,7 +199,19 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    private static void writeRuntimeToJar(final JarOutputStream stream) throws IOException {
+    @NotNull
+    static JarOutputStream createJarOutputStream(@NotNull OutputStream fos, @Nullable FqName mainClass) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes mainAttributes = manifest.getMainAttributes();
+        mainAttributes.putValue("Manifest-Version", "1.0");
+        mainAttributes.putValue("Created-By", "JetBrains Kotlin");
+        if (mainClass != null) {
+            mainAttributes.putValue("Main-Class", mainClass.getFqName());
+        }
+        return new JarOutputStream(fos, manifest);
+    }
+
+    static void writeRuntimeToJar(final JarOutputStream stream) throws IOException {
         final File unpackedRuntimePath = getUnpackedRuntimePath();
         if (unpackedRuntimePath != null) {
             FileUtil.processFilesRecursively(unpackedRuntimePath, new Processor<File>() {
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class files and packages of a jar, read from its central directory.
+ *
+ * Indices of the recently used jars are kept in memory (which matters for the compile daemon), and all indices are kept
+ * on disk in a directory of the current user. They are rebuilt when the length or the modification time of the jar changes.
+ */
+final class JarIndex {
+    public static final String CACHE_DIR_PROPERTY = "kotlin.classpath.index.dir";
+
+    private static final int CACHE_VERSION = 1;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_ARCHIVE_COMMENT_LENGTH = 0xFFFF;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIZE = 46;
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAX_LOADED_INDICES = 1000;
+
+    // Least recently used indices are dropped, so that a long-running process doesn't keep every jar it has ever seen
+    private static final Map<File, JarIndex> LOADED_INDICES = new LinkedHashMap<File, JarIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, JarIndex> eldest) {
+            return size() > MAX_LOADED_INDICES;
+        }
+    };
+
+    private final long length;
+    private final long lastModified;
+    // Paths without the ".class" suffix, e.g. "java/util/Map$Entry"
+    private final Set<String> classFiles;
+    // Slash-separated, including all the parent packages and "" for the root package
+    private final Set<String> packages;
+
+    private JarIndex(long length, long lastModified, @NotNull Collection<String> classFiles) {
+        this.length = length;
+        this.lastModified = lastModified;
+        this.classFiles = new HashSet<String>(classFiles);
+        this.packages = new HashSet<String>();
+        packages.add("");
+        for (String classFile : classFiles) {
+            for (int slash = classFile.lastIndexOf('/'); slash > 0; slash = classFile.lastIndexOf('/', slash - 1)) {
+                if (!packages.add(classFile.substring(0, slash))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public boolean containsClassFile(@NotNull String pathWithoutSuffix) {
+        return classFiles.contains(pathWithoutSuffix);
+    }
+
+    public boolean containsPackage(@NotNull String packagePath) {
+        return packages.contains(packagePath);
+    }
+
+    @NotNull
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    @NotNull
+    public static JarIndex forJar(@NotNull File jar) throws IOException {
+        String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+        return forJar(jar, cacheDir != null
+                           ? new File(cacheDir)
+                           : new File(System.getProperty("user.home"), ".kotlin" + File.separator + "classpath-index"));
+    }
+
+    @NotNull
+    public static JarIndex forJar(@NotNull File jar, @Nullable File cacheDir) throws IOException {
+        File file = jar.getAbsoluteFile();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        JarIndex index;
+        synchronized (LOADED_INDICES) {
+            index = LOADED_INDICES.get(file);
+        }
+        if (index != null && index.length == length && index.lastModified == lastModified) {
+            return index;
+        }
+
+        File cacheFile = cacheDir != null ? new File(cacheDir, getCacheFileName(file)) : null;
+        index = cacheFile != null ? readCache(cacheFile, file, length, lastModified) : null;
+        if (index == null) {
+            index = new JarIndex(length, lastModified, getClassFiles(readEntryNames(file)));
+            if (cacheFile != null) {
+                writeCache(cacheFile, file, index);
+            }
+        }
+        synchronized (LOADED_INDICES) {
+            LOADED_INDICES.put(file, index);
+        }
+        return index;
+    }
+
+    @NotNull
+    private static String getCacheFileName(@NotNull File jar) {
+        return jar.getName() + "." + Integer.toHexString(jar.getPath().hashCode()) + ".index";
+    }
+
+    @Nullable
+    private static JarIndex readCache(@NotNull File cacheFile, @NotNull File jar, long length, long lastModified) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            try {
+                if (in.readInt() != CACHE_VERSION ||
+                    !in.readUTF().equals(jar.getPath()) ||
+                    in.readLong() != length ||
+                    in.readLong() != lastModified) {
+                    return null;
+                }
+                int count = in.readInt();
+                List<String> classFiles = new ArrayList<String>(count);
+                for (int i = 0; i < count; i++) {
+                    classFiles.add(in.readUTF());
+                }
+                return new JarIndex(length, lastModified, classFiles);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            // Broken cache file, will be rewritten
+            return null;
+        }
+    }
+
+    private static void writeCache(@NotNull File cacheFile, @NotNull File jar, @NotNull JarIndex index) {
+        try {
+            // Written to a temporary file first, so that concurrent compilations never see a partially written index
+            FileUtil.createParentDirs(cacheFile);
+            File tempFile = FileUtil.createTempFile(cacheFile.getParentFile(), cacheFile.getName(), ".tmp", true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(jar.getPath());
+                out.writeLong(index.length);
+                out.writeLong(index.lastModified);
+                out.writeInt(index.classFiles.size());
+                for (String classFile : index.classFiles) {
+                    out.writeUTF(classFile);
+                }
+            }
+            finally {
+                out.close();
+            }
+            FileUtil.rename(tempFile, cacheFile);
+        }
+        catch (IOException e) {
+            // The index is only a cache, compilation can go on without it
+        }
+    }
+
+    @NotNull
+    private static List<String> getClassFiles(@NotNull List<String> entryNames) {
+        List<String> result = new ArrayList<String>(entryNames.size());
+        for (String name : entryNames) {
+            if (name.endsWith(CLASS_FILE_SUFFIX)) {
+                result.add(name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Only the central directory at the end of the file is read, which is much faster for big jars than
+     * {@link ZipFile}, which reads and inflates entry metadata it doesn't need here. The directory is read into a heap buffer
+     * rather than mapped, because mapped buffers can't be released explicitly and would hold on to the address space.
+     * Archives this method can't handle (Zip64, archives with data prepended) are read with {@link ZipFile}.
+     */
+    @NotNull
+    static List<String> readEntryNames(@NotNull File jar) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(jar, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_ARCHIVE_COMMENT_LENGTH);
+            ByteBuffer tail = read(channel, size - tailSize, tailSize);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            int end = findEndOfCentralDirectory(tail);
+            if (end < 0) {
+                return readEntryNamesWithZipFile(jar);
+            }
+            int entryCount = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+            if (entryCount == 0xFFFF || directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > size - tailSize + end) {
+                return readEntryNamesWithZipFile(jar);
+            }
+
+            ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+            directory.order(ByteOrder.LITTLE_ENDIAN);
+            List<String> names = new ArrayList<String>(entryCount);
+            int position = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (position + CENTRAL_DIRECTORY_ENTRY_SIZE > directorySize ||
+                    directory.getInt(position) != CENTRAL_DIRECTORY_ENTRY_SIGNATURE) {
+                    return readEntryNamesWithZipFile(jar);
+                }
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                int commentLength = directory.getShort(position + 32) & 0xFFFF;
+
+                byte[] name = new byte[nameLength];
+                directory.position(position + CENTRAL_DIRECTORY_ENTRY_SIZE);
+                directory.get(name);
+                names.add(new String(name, UTF_8));
+
+                position += CENTRAL_DIRECTORY_ENTRY_SIZE + nameLength + extraLength + commentLength;
+            }
+            return names;
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    @NotNull
+    private static ByteBuffer read(@NotNull FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int findEndOfCentralDirectory(@NotNull ByteBuffer tail) {
+        for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    @NotNull
+    private static List<String> readEntryNamesWithZipFile(@NotNull File jar) throws IOException {
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            List<String> names = new ArrayList<String>(zipFile.size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+            return names;
+        }
+        finally {
+            zipFile.close();
+        }
+    }
+}
@@ -25,7 +25,6 @@ import com.intellij.lang.java.JavaParserDefinition;
 import com.intellij.mock.MockApplication;
 import com.intellij.mock.MockProject;
 import com.intellij.openapi.Disposable;
-import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.fileTypes.PlainTextFileType;
 import com.intellij.openapi.project.Project;
@@ -34,7 +33,6 @@ import com.intellij.psi.PsiElementFinder;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.impl.compiled.ClsCustomNavigationPolicy;
-import com.intellij.psi.impl.file.impl.JavaFileManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.CompilerModeProvider;
 import org.jetbrains.jet.OperationModeProvider;
@@ -53,14 +51,18 @@ import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.java.JetFilesProvider;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 import org.jetbrains.jet.plugin.JetFileType;
+import org.jetbrains.jet.utils.ExceptionUtils;
 import org.jetbrains.jet.utils.PathUtil;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.ERROR;
-import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.WARNING;
+import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.*;
 
 public class JetCoreEnvironment {
 
@@ -69,38 +71,43 @@ public class JetCoreEnvironment {
     private final List<JetFile> sourceFiles = new ArrayList<JetFile>();
 
     private final CoreExternalAnnotationsManager annotationsManager;
+    private final CliJavaFileManager javaFileManager;
 
     private final CompilerConfiguration configuration;
 
     private boolean initialized = false;
 
     public JetCoreEnvironment(Disposable parentDisposable, @NotNull CompilerConfiguration configuration) {
+        this(parentDisposable, createApplicationEnvironment(parentDisposable), configuration);
+    }
+
+    /**
+     * Creates an environment in an application environment which may be shared with other environments, e.g. when several
+     * modules are compiled: jars on the class path are then opened only once.
+     * Environments sharing an application environment must not be created or disposed concurrently.
+     */
+    public JetCoreEnvironment(
+            Disposable parentDisposable,
+            @NotNull JavaCoreApplicationEnvironment applicationEnvironment,
+            @NotNull CompilerConfiguration configuration
+    ) {
         this.configuration = configuration.copy();
         this.configuration.setReadOnly(true);
 
-        this.applicationEnvironment = new JavaCoreApplicationEnvironment(parentDisposable);
-
-        // ability to get text from annotations xml files
-        applicationEnvironment.registerFileType(PlainTextFileType.INSTANCE, "xml");
-
-        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "kt");
-        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "kts");
-        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "ktm");
-        applicationEnvironment.registerFileType(JetFileType.INSTANCE, JetParserDefinition.KTSCRIPT_FILE_SUFFIX); // should be renamed to kts
-        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "jet");
-        applicationEnvironment.registerParserDefinition(new JavaParserDefinition());
-        applicationEnvironment.registerParserDefinition(new JetParserDefinition());
-
-        applicationEnvironment.getApplication().registerService(OperationModeProvider.class, new CompilerModeProvider());
+        this.applicationEnvironment = applicationEnvironment;
 
         projectEnvironment = new JavaCoreProjectEnvironment(parentDisposable, applicationEnvironment);
 
         MockProject project = projectEnvironment.getProject();
         project.registerService(JetScriptDefinitionProvider.class, new JetScriptDefinitionProvider());
         project.registerService(JetFilesProvider.class, new CliJetFilesProvider(this));
-        project.registerService(CoreJavaFileManager.class, (CoreJavaFileManager) ServiceManager.getService(project, JavaFileManager.class));
+        // Used by the Kotlin resolver instead of JavaFileManager, see JavaPsiFacadeKotlinHacks
+        javaFileManager = new CliJavaFileManager(PsiManager.getInstance(project));
+        project.registerService(CoreJavaFileManager.class, javaFileManager);
 
-        CliLightClassGenerationSupport cliLightClassGenerationSupport = new CliLightClassGenerationSupport();
+        CliLightClassGenerationSupport cliLightClassGenerationSupport =
+                new CliLightClassGenerationSupport(configuration.get(JVMConfigurationKeys.CODEGEN_THREADS, 1) > 1 ||
+                                                   configuration.get(JVMConfigurationKeys.BODY_RESOLVE_THREADS, 1) > 1);
         project.registerService(LightClassGenerationSupport.class, cliLightClassGenerationSupport);
         project.registerService(CliLightClassGenerationSupport.class, cliLightClassGenerationSupport);
 
@@ -108,10 +115,6 @@ public class JetCoreEnvironment {
                 .getExtensionPoint(PsiElementFinder.EP_NAME)
                 .registerExtension(new JavaElementFinder(project, cliLightClassGenerationSupport));
 
-        // This extension point should be registered in JavaCoreApplicationEnvironment
-        CoreApplicationEnvironment.registerExtensionPoint(Extensions.getRootArea(), ClsCustomNavigationPolicy.EP_NAME,
-                                                          ClsCustomNavigationPolicy.class);
-
         annotationsManager = new CoreExternalAnnotationsManager(project.getComponent(PsiManager.class));
         project.registerService(ExternalAnnotationsManager.class, annotationsManager);
 
@@ -131,6 +134,30 @@ public class JetCoreEnvironment {
         initialized = true;
     }
 
+    @NotNull
+    public static JavaCoreApplicationEnvironment createApplicationEnvironment(@NotNull Disposable parentDisposable) {
+        JavaCoreApplicationEnvironment applicationEnvironment = new JavaCoreApplicationEnvironment(parentDisposable);
+
+        // ability to get text from annotations xml files
+        applicationEnvironment.registerFileType(PlainTextFileType.INSTANCE, "xml");
+
+        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "kt");
+        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "kts");
+        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "ktm");
+        applicationEnvironment.registerFileType(JetFileType.INSTANCE, JetParserDefinition.KTSCRIPT_FILE_SUFFIX); // should be renamed to kts
+        applicationEnvironment.registerFileType(JetFileType.INSTANCE, "jet");
+        applicationEnvironment.registerParserDefinition(new JavaParserDefinition());
+        applicationEnvironment.registerParserDefinition(new JetParserDefinition());
+
+        applicationEnvironment.getApplication().registerService(OperationModeProvider.class, new CompilerModeProvider());
+
+        // This extension point should be registered in JavaCoreApplicationEnvironment
+        CoreApplicationEnvironment.registerExtensionPoint(Extensions.getRootArea(), ClsCustomNavigationPolicy.EP_NAME,
+                                                          ClsCustomNavigationPolicy.class);
+
+        return applicationEnvironment;
+    }
+
     public CompilerConfiguration getConfiguration() {
         return configuration;
     }
@@ -187,6 +214,72 @@ public class JetCoreEnvironment {
         addSources(new File(path));
     }
 
+    /**
+     * Builds the syntax trees of all the source files before the analysis, which would otherwise parse each file lazily on
+     * the first access. With more than one thread ({@link JVMConfigurationKeys#PARSE_THREADS}), files are parsed concurrently;
+     * {@link #getSourceFiles()} keeps the order in which the files were found either way.
+     * <p/>
+     * This is not done by the constructor: environments sharing an application environment are created under a lock,
+     * and parsing doesn't need it.
+     */
+    public void parseSources() {
+        int threads = configuration.get(JVMConfigurationKeys.PARSE_THREADS, 1);
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (JetFile file : sourceFiles) {
+            VirtualFile virtualFile = file.getVirtualFile();
+            if (virtualFile != null) {
+                bytes += virtualFile.getLength();
+            }
+        }
+
+        if (threads > 1 && sourceFiles.size() > 1) {
+            parseSourcesInParallel(Math.min(threads, sourceFiles.size()));
+        }
+        else {
+            for (JetFile file : sourceFiles) {
+                parse(file);
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1000000;
+        report(LOGGING, "Parsed " + sourceFiles.size() + " source files (" + bytes + " bytes) in " + millis + " ms" +
+                        (threads > 1 ? " on " + threads + " threads" : ""));
+    }
+
+    private void parseSourcesInParallel(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(sourceFiles.size());
+            for (final JetFile file : sourceFiles) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        parse(file);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException("Interrupted while parsing source files", e);
+        }
+        catch (ExecutionException e) {
+            throw ExceptionUtils.rethrow(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void parse(@NotNull JetFile file) {
+        // Loads the text of the file, and lexes and parses it
+        file.getDeclarations();
+    }
+
     public void addToClasspath(File path) {
         if (initialized) {
             throw new IllegalStateException("Cannot add class path when JetCoreEnvironment is already initialized");
@@ -198,6 +291,7 @@ public class JetCoreEnvironment {
                 return;
             }
             projectEnvironment.addJarToClassPath(path);
+            javaFileManager.addJar(path, jarFile);
         }
         else {
             final VirtualFile root = applicationEnvironment.getLocalFileSystem().findFileByPath(path.getAbsolutePath());
@@ -206,6 +300,7 @@ public class JetCoreEnvironment {
                 return;
             }
             projectEnvironment.addSourcesToClasspath(root);
+            javaFileManager.addDirectory(root);
         }
     }
 
@@ -218,7 +313,7 @@ public class JetCoreEnvironment {
         if (messageCollector != null) {
             messageCollector.report(severity, message, CompilerMessageLocation.NO_LOCATION);
         }
-        else {
+        else if (!CompilerMessageSeverity.VERBOSE.contains(severity)) {
             throw new CompileEnvironmentException(message);
         }
     }
@@ -18,6 +18,7 @@ package org.jetbrains.jet.cli.jvm.compiler;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.intellij.core.JavaCoreApplicationEnvironment;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
@@ -48,15 +49,13 @@ import org.jetbrains.jet.lang.resolve.ScriptNameUtil;
 import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
 import org.jetbrains.jet.lang.resolve.java.PackageClassUtils;
 import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.types.checker.SubtypingCache;
 import org.jetbrains.jet.plugin.JetMainDetector;
 import org.jetbrains.jet.utils.ExceptionUtils;
 import org.jetbrains.jet.utils.KotlinPaths;
 import org.jetbrains.jet.utils.PathUtil;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -72,6 +71,17 @@ public class KotlinToJVMBytecodeCompiler {
 
     @Nullable
     public static ClassFileFactory compileModule(CompilerConfiguration configuration, Module moduleBuilder, File directory) {
+        return compileModule(configuration, moduleBuilder, directory, null, null);
+    }
+
+    @Nullable
+    private static ClassFileFactory compileModule(
+            CompilerConfiguration configuration,
+            Module moduleBuilder,
+            File directory,
+            @Nullable ClassFileSink sink,
+            @Nullable JavaCoreApplicationEnvironment sharedApplicationEnvironment
+    ) {
         if (moduleBuilder.getSourceFiles().isEmpty()) {
             throw new CompileEnvironmentException("No source files where defined in module " + moduleBuilder.getModuleName());
         }
@@ -101,21 +111,48 @@ public class KotlinToJVMBytecodeCompiler {
         Disposable parentDisposable = CompileEnvironmentUtil.createMockDisposable();
         JetCoreEnvironment moduleEnvironment = null;
         try {
-            moduleEnvironment = new JetCoreEnvironment(parentDisposable, compilerConfiguration);
+            moduleEnvironment = createModuleEnvironment(parentDisposable, sharedApplicationEnvironment, compilerConfiguration);
+            moduleEnvironment.parseSources();
 
-
-            GenerationState generationState = analyzeAndGenerate(moduleEnvironment);
+            GenerationState generationState = analyzeAndGenerate(moduleEnvironment, sink);
             if (generationState == null) {
                 return null;
             }
             return generationState.getFactory();
         } finally {
             if (moduleEnvironment != null) {
-                Disposer.dispose(parentDisposable);
+                disposeModuleEnvironment(parentDisposable, sharedApplicationEnvironment);
             }
         }
     }
 
+    @NotNull
+    private static JetCoreEnvironment createModuleEnvironment(
+            @NotNull Disposable parentDisposable,
+            @Nullable JavaCoreApplicationEnvironment sharedApplicationEnvironment,
+            @NotNull CompilerConfiguration configuration
+    ) {
+        if (sharedApplicationEnvironment == null) {
+            return new JetCoreEnvironment(parentDisposable, configuration);
+        }
+        synchronized (sharedApplicationEnvironment) {
+            return new JetCoreEnvironment(parentDisposable, sharedApplicationEnvironment, configuration);
+        }
+    }
+
+    private static void disposeModuleEnvironment(
+            @NotNull Disposable parentDisposable,
+            @Nullable JavaCoreApplicationEnvironment sharedApplicationEnvironment
+    ) {
+        if (sharedApplicationEnvironment == null) {
+            Disposer.dispose(parentDisposable);
+            return;
+        }
+        synchronized (sharedApplicationEnvironment) {
+            Disposer.dispose(parentDisposable);
+        }
+    }
+
     public static boolean compileModules(
             CompilerConfiguration configuration,
             @NotNull List<Module> modules,
@@ -124,34 +161,56 @@ public class KotlinToJVMBytecodeCompiler {
             @Nullable File outputDir,
             boolean jarRuntime) {
 
+        int threads = configuration.get(JVMConfigurationKeys.MODULE_THREADS, 1);
+        if (threads > 1 && modules.size() > 1) {
+            return new ParallelModuleCompiler(configuration, modules, directory, jarPath, outputDir, jarRuntime).compile(threads);
+        }
+
         for (Module moduleBuilder : modules) {
-            ClassFileFactory moduleFactory = compileModule(configuration, moduleBuilder, directory);
-            if (moduleFactory == null) {
+            if (!compileModuleToOutput(configuration, moduleBuilder, directory, jarPath, outputDir, jarRuntime, null)) {
                 return false;
             }
-            if (outputDir != null) {
-                CompileEnvironmentUtil.writeToOutputDirectory(moduleFactory, outputDir);
+        }
+        return true;
+    }
+
+    static boolean compileModuleToOutput(
+            CompilerConfiguration configuration,
+            @NotNull Module moduleBuilder,
+            @NotNull File directory,
+            @Nullable File jarPath,
+            @Nullable File outputDir,
+            boolean jarRuntime,
+            @Nullable JavaCoreApplicationEnvironment sharedApplicationEnvironment
+    ) {
+        BackgroundClassFileWriter writer = outputDir != null
+                                           ? BackgroundClassFileWriter.toDirectory(outputDir)
+                                           : BackgroundClassFileWriter.toJar(getModuleOutput(moduleBuilder, directory, jarPath, null),
+                                                                             null, jarRuntime);
+        boolean generated = false;
+        try {
+            generated = compileModule(configuration, moduleBuilder, directory, writer, sharedApplicationEnvironment) != null;
+        }
+        finally {
+            if (generated) {
+                writer.close();
             }
             else {
-                File path = jarPath != null ? jarPath : new File(directory, moduleBuilder.getModuleName() + ".jar");
-                FileOutputStream outputStream = null;
-                try {
-                    outputStream = new FileOutputStream(path);
-                    CompileEnvironmentUtil.writeToJar(moduleFactory, outputStream, null, jarRuntime);
-                    outputStream.close();
-                }
-                catch (FileNotFoundException e) {
-                    throw new CompileEnvironmentException("Invalid jar path " + path, e);
-                }
-                catch (IOException e) {
-                    throw ExceptionUtils.rethrow(e);
-                }
-                finally {
-                    ExceptionUtils.closeQuietly(outputStream);
-                }
+                writer.discard();
             }
         }
-        return true;
+        return generated;
+    }
+
+    /**
+     * @return the jar or the directory the classes of the module are written to
+     */
+    @NotNull
+    static File getModuleOutput(@NotNull Module module, @NotNull File directory, @Nullable File jarPath, @Nullable File outputDir) {
+        if (outputDir != null) {
+            return outputDir;
+        }
+        return jarPath != null ? jarPath : new File(directory, module.getModuleName() + ".jar");
     }
 
     @Nullable
@@ -176,44 +235,25 @@ public class KotlinToJVMBytecodeCompiler {
             @Nullable File outputDir,
             boolean includeRuntime
     ) {
+        environment.parseSources();
 
         FqName mainClass = findMainClass(environment.getSourceFiles());
 
-        GenerationState generationState = analyzeAndGenerate(environment);
-        if (generationState == null) {
-            return false;
-        }
-
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.create(jar, outputDir, mainClass, includeRuntime);
+        GenerationState generationState = null;
         try {
-            ClassFileFactory factory = generationState.getFactory();
-            if (jar != null) {
-                FileOutputStream os = null;
-                try {
-                    os = new FileOutputStream(jar);
-                    CompileEnvironmentUtil.writeToJar(factory, new FileOutputStream(jar), mainClass, includeRuntime);
-                    os.close();
-                }
-                catch (FileNotFoundException e) {
-                    throw new CompileEnvironmentException("Invalid jar path " + jar, e);
-                }
-                catch (IOException e) {
-                    throw ExceptionUtils.rethrow(e);
-                }
-                finally {
-                    ExceptionUtils.closeQuietly(os);
-                }
-            }
-            else if (outputDir != null) {
-                CompileEnvironmentUtil.writeToOutputDirectory(factory, outputDir);
+            generationState = analyzeAndGenerate(environment, writer);
+        }
+        finally {
+            if (generationState != null) {
+                generationState.destroy();
+                writer.close();
             }
             else {
-                throw new CompileEnvironmentException("Output directory or jar file is not specified - no files will be saved to the disk");
+                writer.discard();
             }
-            return true;
-        }
-        finally {
-            generationState.destroy();
         }
+        return generationState != null;
     }
 
     public static boolean compileAndExecuteScript(
@@ -270,8 +310,7 @@ public class KotlinToJVMBytecodeCompiler {
 
     @Nullable
     public static GenerationState analyzeAndGenerate(JetCoreEnvironment environment) {
-        return analyzeAndGenerate(environment, environment.getConfiguration().get(JVMConfigurationKeys.STUBS, false),
-                                  environment.getConfiguration().getList(JVMConfigurationKeys.SCRIPT_PARAMETERS));
+        return analyzeAndGenerate(environment, (ClassFileSink) null);
     }
 
     @Nullable
@@ -288,6 +327,22 @@ public class KotlinToJVMBytecodeCompiler {
             JetCoreEnvironment environment,
             boolean stubs,
             List<AnalyzerScriptParameter> scriptParameters
+    ) {
+        return analyzeAndGenerate(environment, stubs, scriptParameters, null);
+    }
+
+    @Nullable
+    private static GenerationState analyzeAndGenerate(JetCoreEnvironment environment, @Nullable ClassFileSink sink) {
+        return analyzeAndGenerate(environment, environment.getConfiguration().get(JVMConfigurationKeys.STUBS, false),
+                                  environment.getConfiguration().getList(JVMConfigurationKeys.SCRIPT_PARAMETERS), sink);
+    }
+
+    @Nullable
+    private static GenerationState analyzeAndGenerate(
+            JetCoreEnvironment environment,
+            boolean stubs,
+            List<AnalyzerScriptParameter> scriptParameters,
+            @Nullable ClassFileSink sink
     ) {
         AnalyzeExhaust exhaust = analyze(environment, scriptParameters, stubs);
 
@@ -297,7 +352,7 @@ public class KotlinToJVMBytecodeCompiler {
 
         exhaust.throwIfError();
 
-        return generate(environment, exhaust, stubs);
+        return generate(environment, exhaust, stubs, sink);
     }
 
     @Nullable
@@ -305,10 +360,12 @@ public class KotlinToJVMBytecodeCompiler {
             final JetCoreEnvironment environment,
             final List<AnalyzerScriptParameter> scriptParameters,
             boolean stubs) {
-        AnalyzerWithCompilerReport analyzerWithCompilerReport = new AnalyzerWithCompilerReport(
-                environment.getConfiguration().get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY));
+        MessageCollector messageCollector = environment.getConfiguration().get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY);
+        AnalyzerWithCompilerReport analyzerWithCompilerReport = new AnalyzerWithCompilerReport(messageCollector);
+        final SubtypingCache.Statistics subtypingStatistics = new SubtypingCache.Statistics();
         final Predicate<PsiFile> filesToAnalyzeCompletely =
                 stubs ? Predicates.<PsiFile>alwaysFalse() : Predicates.<PsiFile>alwaysTrue();
+        final int bodyResolveThreads = environment.getConfiguration().get(JVMConfigurationKeys.BODY_RESOLVE_THREADS, 1);
         analyzerWithCompilerReport.analyzeAndReport(
                 new Function0<AnalyzeExhaust>() {
                     @NotNull
@@ -321,12 +378,18 @@ public class KotlinToJVMBytecodeCompiler {
                                 sharedTrace,
                                 scriptParameters,
                                 filesToAnalyzeCompletely,
-                                false
+                                false,
+                                bodyResolveThreads,
+                                subtypingStatistics
                         );
                     }
                 }, environment.getSourceFiles()
         );
 
+        if (messageCollector != null) {
+            messageCollector.report(CompilerMessageSeverity.LOGGING, subtypingStatistics.toString(), CompilerMessageLocation.NO_LOCATION);
+        }
+
         return analyzerWithCompilerReport.hasErrors() ? null : analyzerWithCompilerReport.getAnalyzeExhaust();
     }
 
@@ -334,7 +397,8 @@ public class KotlinToJVMBytecodeCompiler {
     private static GenerationState generate(
             final JetCoreEnvironment environment,
             AnalyzeExhaust exhaust,
-            boolean stubs) {
+            boolean stubs,
+            @Nullable ClassFileSink sink) {
         Project project = environment.getProject();
         final CompilerConfiguration configuration = environment.getConfiguration();
         Progress backendProgress = new Progress() {
@@ -356,9 +420,17 @@ public class KotlinToJVMBytecodeCompiler {
                 configuration.get(JVMConfigurationKeys.BUILTIN_TO_JAVA_TYPES_MAPPING_KEY, BuiltinToJavaTypesMapping.ENABLED),
                 configuration.get(JVMConfigurationKeys.GENERATE_NOT_NULL_ASSERTIONS, false),
                 configuration.get(JVMConfigurationKeys.GENERATE_NOT_NULL_PARAMETER_ASSERTIONS, false),
-                /*generateDeclaredClasses = */true
+                /*generateDeclaredClasses = */true,
+                configuration.get(JVMConfigurationKeys.CODEGEN_THREADS, 1)
         );
+        if (sink != null) {
+            // Each class is written as soon as it is generated instead of keeping the whole module in memory
+            generationState.getFactory().setSink(sink);
+        }
         KotlinCodegenFacade.compileCorrectFiles(generationState, CompilationErrorHandler.THROW_EXCEPTION);
+        if (sink != null) {
+            generationState.getFactory().done();
+        }
 
         CompilerPluginContext context = new CompilerPluginContext(project, exhaust.getBindingContext(), environment.getSourceFiles());
         for (CompilerPlugin plugin : configuration.getList(CLIConfigurationKeys.COMPILER_PLUGINS)) {
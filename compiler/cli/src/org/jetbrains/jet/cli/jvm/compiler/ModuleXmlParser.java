@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import jet.modules.Module;
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads module descriptions of the form
+ * <pre>
+ * &lt;modules&gt;
+ *     &lt;module name="name"&gt;
+ *         &lt;sources path="..."/&gt;
+ *         &lt;classpath path="..."/&gt;
+ *         &lt;externalAnnotations path="..."/&gt;
+ *     &lt;/module&gt;
+ * &lt;/modules&gt;
+ * </pre>
+ * Unlike module scripts, these are turned into {@link Module}s without analyzing and running any Kotlin code.
+ */
+public class ModuleXmlParser {
+    private static final String MODULES = "modules";
+    private static final String MODULE = "module";
+    private static final String NAME = "name";
+    private static final String SOURCES = "sources";
+    private static final String CLASSPATH = "classpath";
+    private static final String EXTERNAL_ANNOTATIONS = "externalAnnotations";
+    private static final String PATH = "path";
+
+    public static boolean isModuleXml(@NotNull String moduleFile) {
+        return moduleFile.toLowerCase().endsWith(".xml");
+    }
+
+    @NotNull
+    public static List<Module> parse(@NotNull String moduleFile) {
+        ModuleXmlHandler handler = new ModuleXmlHandler(moduleFile);
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(new File(moduleFile), handler);
+        }
+        catch (ParserConfigurationException e) {
+            throw new CompileEnvironmentException("Cannot create an XML parser for module description " + moduleFile, e);
+        }
+        catch (SAXException e) {
+            throw new CompileEnvironmentException("Malformed module description " + moduleFile + ": " + e.getMessage(), e);
+        }
+        catch (IOException e) {
+            throw new CompileEnvironmentException("Cannot read module description " + moduleFile, e);
+        }
+        return handler.modules;
+    }
+
+    private static class ModuleXmlHandler extends DefaultHandler {
+        private final String moduleFile;
+        private final List<Module> modules = new ArrayList<Module>();
+
+        private Locator locator;
+        private boolean insideModules;
+        private ModuleDescription currentModule;
+
+        private ModuleXmlHandler(@NotNull String moduleFile) {
+            this.moduleFile = moduleFile;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if (!insideModules) {
+                if (!MODULES.equals(qName)) {
+                    throw error("<" + MODULES + "> expected, but <" + qName + "> found");
+                }
+                insideModules = true;
+            }
+            else if (currentModule == null) {
+                if (!MODULE.equals(qName)) {
+                    throw error("<" + MODULE + "> expected, but <" + qName + "> found");
+                }
+                currentModule = new ModuleDescription(getAttribute(attributes, NAME, qName));
+            }
+            else if (SOURCES.equals(qName)) {
+                currentModule.sourceFiles.add(getAttribute(attributes, PATH, qName));
+            }
+            else if (CLASSPATH.equals(qName)) {
+                currentModule.classpathRoots.add(getAttribute(attributes, PATH, qName));
+            }
+            else if (EXTERNAL_ANNOTATIONS.equals(qName)) {
+                currentModule.annotationsRoots.add(getAttribute(attributes, PATH, qName));
+            }
+            else {
+                throw error("Unknown element <" + qName + "> in module " + currentModule.getModuleName());
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (MODULE.equals(qName) && currentModule != null) {
+                modules.add(currentModule);
+                currentModule = null;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            for (int i = start; i < start + length; i++) {
+                if (!Character.isWhitespace(ch[i])) {
+                    throw error("Unexpected text in module description");
+                }
+            }
+        }
+
+        @NotNull
+        private String getAttribute(@NotNull Attributes attributes, @NotNull String name, @NotNull String element) throws SAXException {
+            String value = attributes.getValue(name);
+            if (value == null) {
+                throw error("Attribute '" + name + "' is missing on <" + element + ">");
+            }
+            return value;
+        }
+
+        @NotNull
+        private SAXException error(@NotNull String message) {
+            String location = locator == null ? moduleFile : moduleFile + ":" + locator.getLineNumber();
+            return new SAXException(message + " (" + location + ")");
+        }
+    }
+
+    private static class ModuleDescription implements Module {
+        private final String name;
+        private final List<String> sourceFiles = new ArrayList<String>();
+        private final List<String> classpathRoots = new ArrayList<String>();
+        private final List<String> annotationsRoots = new ArrayList<String>();
+
+        private ModuleDescription(@NotNull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getModuleName() {
+            return name;
+        }
+
+        @Override
+        public List<String> getSourceFiles() {
+            return sourceFiles;
+        }
+
+        @Override
+        public List<String> getClasspathRoots() {
+            return classpathRoots;
+        }
+
+        @Override
+        public List<String> getAnnotationsRoots() {
+            return annotationsRoots;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private ModuleXmlParser() {}
+}
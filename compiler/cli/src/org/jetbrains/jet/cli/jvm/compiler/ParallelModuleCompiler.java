@@ -0,0 +1,272 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.core.JavaCoreApplicationEnvironment;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
+import jet.modules.Module;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.cli.common.CLIConfigurationKeys;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.jet.cli.common.messages.MessageCollector;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compiles modules on a thread pool, each one into its own environment and to its own output.
+ *
+ * A module waits for the earlier modules whose output is on its classpath (or which have its output on their classpath,
+ * or write to the same jar or output directory), so every module sees the same classes as in the sequential compilation
+ * and no output is written by two modules at once; other modules are compiled concurrently.
+ *
+ * All module environments share one application environment, and so one jar file system: a jar on the classpath of
+ * many modules is opened and indexed once. Descriptors of Java classes are not shared, they belong to the project of
+ * each module.
+ *
+ * Messages of each module are collected separately and reported in the order of the modules.
+ */
+class ParallelModuleCompiler {
+    private final CompilerConfiguration configuration;
+    private final List<Module> modules;
+    private final File directory;
+    private final File jarPath;
+    private final File outputDir;
+    private final boolean jarRuntime;
+    private final File[] outputs;
+
+    @Nullable
+    private final MessageCollector messageCollector;
+    private final BufferingMessageCollector[] moduleMessages;
+    private final boolean[] finished;
+    private int firstNotReported = 0;
+
+    public ParallelModuleCompiler(
+            @NotNull CompilerConfiguration configuration,
+            @NotNull List<Module> modules,
+            @NotNull File directory,
+            @Nullable File jarPath,
+            @Nullable File outputDir,
+            boolean jarRuntime
+    ) {
+        this.configuration = configuration;
+        this.modules = modules;
+        this.directory = directory;
+        this.jarPath = jarPath;
+        this.outputDir = outputDir;
+        this.jarRuntime = jarRuntime;
+
+        this.outputs = new File[modules.size()];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = normalize(KotlinToJVMBytecodeCompiler.getModuleOutput(modules.get(i), directory, jarPath, outputDir));
+        }
+
+        this.messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY);
+        this.moduleMessages = new BufferingMessageCollector[modules.size()];
+        for (int i = 0; i < moduleMessages.length; i++) {
+            moduleMessages[i] = new BufferingMessageCollector();
+        }
+        this.finished = new boolean[modules.size()];
+    }
+
+    public boolean compile(int threads) {
+        int moduleCount = modules.size();
+        List<List<Integer>> dependents = new ArrayList<List<Integer>>(moduleCount);
+        int[] dependencyCount = new int[moduleCount];
+        computeDependencies(dependents, dependencyCount);
+
+        Disposable rootDisposable = CompileEnvironmentUtil.createMockDisposable();
+        final JavaCoreApplicationEnvironment applicationEnvironment = JetCoreEnvironment.createApplicationEnvironment(rootDisposable);
+        openClasspathJars(applicationEnvironment);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, moduleCount));
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<Boolean>(executor);
+        Map<Future<Boolean>, Integer> running = new HashMap<Future<Boolean>, Integer>();
+        try {
+            for (int i = 0; i < moduleCount; i++) {
+                if (dependencyCount[i] == 0) {
+                    running.put(completionService.submit(compileTask(i, applicationEnvironment)), i);
+                }
+            }
+
+            boolean success = true;
+            Throwable error = null;
+            while (!running.isEmpty()) {
+                Future<Boolean> future = completionService.take();
+                int index = running.remove(future);
+                moduleFinished(index);
+
+                try {
+                    if (!future.get()) {
+                        success = false;
+                    }
+                }
+                catch (ExecutionException e) {
+                    success = false;
+                    if (error == null) {
+                        error = e.getCause();
+                    }
+                }
+                // As in the sequential compilation, no module is started after a failure
+                if (!success) continue;
+
+                for (int dependent : dependents.get(index)) {
+                    if (--dependencyCount[dependent] == 0) {
+                        running.put(completionService.submit(compileTask(dependent, applicationEnvironment)), dependent);
+                    }
+                }
+            }
+
+            if (error != null) {
+                throw ExceptionUtils.rethrow(error);
+            }
+            return success;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException("Interrupted while compiling modules", e);
+        }
+        finally {
+            executor.shutdownNow();
+            reportRemainingMessages();
+            Disposer.dispose(rootDisposable);
+        }
+    }
+
+    @NotNull
+    private Callable<Boolean> compileTask(final int index, @NotNull final JavaCoreApplicationEnvironment applicationEnvironment) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                CompilerConfiguration moduleConfiguration = configuration;
+                if (messageCollector != null) {
+                    moduleConfiguration = configuration.copy();
+                    moduleConfiguration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, moduleMessages[index]);
+                }
+                return KotlinToJVMBytecodeCompiler.compileModuleToOutput(
+                        moduleConfiguration, modules.get(index), directory, jarPath, outputDir, jarRuntime, applicationEnvironment);
+            }
+        };
+    }
+
+    private void computeDependencies(@NotNull List<List<Integer>> dependents, @NotNull int[] dependencyCount) {
+        int moduleCount = modules.size();
+        List<Set<File>> classpaths = new ArrayList<Set<File>>(moduleCount);
+        for (Module module : modules) {
+            Set<File> classpath = new HashSet<File>();
+            for (String root : module.getClasspathRoots()) {
+                classpath.add(normalize(new File(root)));
+            }
+            classpaths.add(classpath);
+            dependents.add(new ArrayList<Integer>());
+        }
+
+        for (int later = 0; later < moduleCount; later++) {
+            for (int earlier = 0; earlier < later; earlier++) {
+                // A shared output directory is written by the modules one after another, like a shared jar
+                boolean sameOutput = outputs[earlier].equals(outputs[later]);
+                if (sameOutput || classpaths.get(later).contains(outputs[earlier]) || classpaths.get(earlier).contains(outputs[later])) {
+                    dependents.get(earlier).add(later);
+                    dependencyCount[later]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Jars are opened before any module environment is created, so that while the modules are compiled the jar file system
+     * is only read. Outputs of the modules are not opened, they are not written yet.
+     */
+    private void openClasspathJars(@NotNull JavaCoreApplicationEnvironment applicationEnvironment) {
+        Set<File> moduleOutputs = new HashSet<File>(Arrays.asList(outputs));
+        for (Module module : modules) {
+            for (String root : module.getClasspathRoots()) {
+                // The same path as JetCoreEnvironment.addToClasspath() will ask for
+                File file = new File(root);
+                if (file.isFile() && !moduleOutputs.contains(normalize(file))) {
+                    applicationEnvironment.getJarFileSystem().findFileByPath(file + "!/");
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static File normalize(@NotNull File file) {
+        return new File(FileUtil.toCanonicalPath(file.getAbsolutePath()));
+    }
+
+    private void moduleFinished(int index) {
+        finished[index] = true;
+        while (firstNotReported < finished.length && finished[firstNotReported]) {
+            reportMessages(firstNotReported++);
+        }
+    }
+
+    private void reportRemainingMessages() {
+        for (int i = firstNotReported; i < finished.length; i++) {
+            if (finished[i]) {
+                reportMessages(i);
+            }
+        }
+        firstNotReported = finished.length;
+    }
+
+    private void reportMessages(int index) {
+        if (messageCollector != null) {
+            moduleMessages[index].flush(messageCollector);
+        }
+    }
+
+    private static class BufferingMessageCollector implements MessageCollector {
+        private final List<Message> messages = new ArrayList<Message>();
+
+        @Override
+        public synchronized void report(
+                @NotNull CompilerMessageSeverity severity,
+                @NotNull String message,
+                @NotNull CompilerMessageLocation location
+        ) {
+            messages.add(new Message(severity, message, location));
+        }
+
+        public synchronized void flush(@NotNull MessageCollector delegate) {
+            for (Message message : messages) {
+                delegate.report(message.severity, message.message, message.location);
+            }
+            messages.clear();
+        }
+    }
+
+    private static class Message {
+        private final CompilerMessageSeverity severity;
+        private final String message;
+        private final CompilerMessageLocation location;
+
+        private Message(@NotNull CompilerMessageSeverity severity, @NotNull String message, @NotNull CompilerMessageLocation location) {
+            this.severity = severity;
+            this.message = message;
+            this.location = location;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.daemon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.cli.common.ExitCode;
+import org.jetbrains.jet.cli.common.daemon.CompileDaemonClient;
+import org.jetbrains.jet.cli.jvm.K2JVMCompiler;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentException;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import static org.jetbrains.jet.cli.common.daemon.CompileDaemonProtocol.*;
+
+/**
+ * A compiler process that serves compilation requests from {@link CompileDaemonClient} one after another,
+ * so that the JIT-compiled compiler code and the JVM-wide state (such as built-in descriptors) are reused between builds.
+ *
+ * Usage: K2JVMCompileDaemon &lt;port file&gt;
+ * The daemon listens on a loopback port that it writes into the port file together with the secret the clients must send,
+ * and exits after a shutdown request or when it hasn't been used for {@link #IDLE_TIMEOUT_MS}.
+ * A client that doesn't send its whole request within {@link #REQUEST_TIMEOUT_MS} is disconnected.
+ */
+public class K2JVMCompileDaemon {
+    public static final int IDLE_TIMEOUT_MS = 2 * 60 * 60 * 1000;
+    public static final int REQUEST_TIMEOUT_MS = 30 * 1000;
+
+    @NotNull
+    private final String secret;
+
+    private K2JVMCompileDaemon(@NotNull String secret) {
+        this.secret = secret;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: K2JVMCompileDaemon <port file>");
+            System.exit(1);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        File portFile = new File(args[0]);
+        PrintStream log = new PrintStream(new FileOutputStream(CompileDaemonClient.getLogFile(portFile)), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName(null));
+        try {
+            serverSocket.setSoTimeout(IDLE_TIMEOUT_MS);
+            String secret = generateSecret();
+            writePortFile(portFile, serverSocket.getLocalPort(), secret);
+            log.println("Compile daemon is listening on port " + serverSocket.getLocalPort());
+
+            new K2JVMCompileDaemon(secret).serve(serverSocket);
+        }
+        finally {
+            //noinspection ResultOfMethodCallIgnored
+            portFile.delete();
+            serverSocket.close();
+        }
+        log.println("Compile daemon has stopped");
+        System.exit(0);
+    }
+
+    private static void writePortFile(@NotNull File portFile, int port, @NotNull String secret) throws IOException {
+        // Write to a temporary file first, so that clients never see a partially written port.
+        // Its permissions are restricted before the secret is written into it
+        File tempFile = new File(portFile.getPath() + ".tmp");
+        //noinspection ResultOfMethodCallIgnored
+        tempFile.delete();
+        if (!tempFile.createNewFile()) {
+            throw new IOException("Couldn't create port file " + tempFile);
+        }
+        setOwnerOnlyPermissions(tempFile);
+        Writer writer = new FileWriter(tempFile);
+        try {
+            writer.write(port + "\n" + secret + "\n");
+        }
+        finally {
+            writer.close();
+        }
+        if (!tempFile.renameTo(portFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            portFile.delete();
+            if (!tempFile.renameTo(portFile)) {
+                throw new IOException("Couldn't write port file " + portFile);
+            }
+        }
+    }
+
+    private void serve(@NotNull ServerSocket serverSocket) throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            }
+            catch (SocketTimeoutException e) {
+                System.out.println("Compile daemon has been idle for " + IDLE_TIMEOUT_MS + " ms, exiting");
+                return;
+            }
+
+            try {
+                // Requests are served one at a time: the compiler keeps JVM-wide state that is not thread-safe,
+                // so a client that stalls while sending a request must not keep the others waiting
+                socket.setSoTimeout(REQUEST_TIMEOUT_MS);
+                if (!handleRequest(socket)) return;
+            }
+            catch (SocketTimeoutException e) {
+                System.err.println("Rejected an incomplete request from " + socket.getRemoteSocketAddress());
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+            finally {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * @return false if the daemon should stop
+     */
+    private boolean handleRequest(@NotNull Socket socket) throws IOException {
+        DataInputStream request = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        int version = request.readInt();
+        if (version != VERSION) {
+            System.err.println("Unsupported protocol version: " + version);
+            return true;
+        }
+        if (!readAndCheckSecret(request, secret)) {
+            System.err.println("Rejected a request without the secret from " + socket.getRemoteSocketAddress());
+            return true;
+        }
+
+        int command = request.readInt();
+        switch (command) {
+            case COMMAND_SHUTDOWN:
+                return false;
+            case COMMAND_COMPILE:
+                compile(readArguments(request), new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+                return true;
+            default:
+                System.err.println("Unknown command: " + command);
+                return true;
+        }
+    }
+
+    private static void compile(@NotNull String[] arguments, @NotNull DataOutputStream response) throws IOException {
+        PrintStream out = new PrintStream(new FramingOutputStream(response), true, "UTF-8");
+
+        int exitCode;
+        try {
+            exitCode = new K2JVMCompiler().exec(out, arguments).getCode();
+        }
+        catch (CompileEnvironmentException e) {
+            out.println(e.getMessage());
+            exitCode = ExitCode.INTERNAL_ERROR.getCode();
+        }
+        catch (Throwable e) {
+            // Unlike the command line compiler, the daemon must survive any failure of a single compilation
+            e.printStackTrace(out);
+            exitCode = ExitCode.INTERNAL_ERROR.getCode();
+        }
+        out.flush();
+
+        response.writeByte(FRAME_EXIT);
+        response.writeInt(exitCode);
+        response.flush();
+    }
+}
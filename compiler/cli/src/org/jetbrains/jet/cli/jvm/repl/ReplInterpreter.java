@@ -37,19 +37,20 @@ import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
 import org.jetbrains.jet.codegen.ClassBuilderFactories;
 import org.jetbrains.jet.codegen.CompilationErrorHandler;
+import org.jetbrains.jet.codegen.binding.CodegenBinding;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.di.InjectorForTopDownAnalyzerForJvm;
-import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorImpl;
 import org.jetbrains.jet.lang.descriptors.impl.NamespaceLikeBuilderDummy;
-import org.jetbrains.jet.lang.descriptors.ScriptDescriptor;
-import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.*;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.RedeclarationHandler;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
@@ -63,18 +64,33 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class ReplInterpreter {
 
     private int lineNumber = 0;
-    @Nullable
-    private JetScope lastLineScope;
     private List<EarlierLine> earlierLines = Lists.newArrayList();
     private List<String> previousIncompleteLines = Lists.newArrayList();
     private final ReplClassLoader classLoader;
 
+    // Everything below grows with the session, but is only appended to after each line,
+    // so analysis and code generation of a line do not depend on the number of earlier lines
+
+    private final List<Pair<ScriptDescriptor, JvmClassName>> earlierScripts = Lists.newArrayList();
+    // Passed to the constructor of each line's class, see ScriptCodegen.EARLIER_SCRIPTS_FIELD_NAME
+    private Object[] earlierScriptInstances = new Object[16];
+    private final List<JetImportDirective> importDirectives = Lists.newArrayList();
+    // Declarations of all evaluated lines, later lines overwrite earlier declarations with the same name
+    @NotNull
+    private final WritableScope replScope;
+    // Imports of all evaluated lines
+    @NotNull
+    private final WritableScope importsScope;
+    @NotNull
+    private final JetImportsFactory importsFactory;
+
     @NotNull
     private final InjectorForTopDownAnalyzerForJvm injector;
     @NotNull
@@ -96,6 +112,14 @@ public class ReplInterpreter {
                 Collections.<AnalyzerScriptParameter>emptyList());
         injector = new InjectorForTopDownAnalyzerForJvm(project, topDownAnalysisParameters, trace, module);
 
+        replScope = new WritableScopeImpl(JetScope.EMPTY, module, RedeclarationHandler.DO_NOTHING, "Declarations of earlier REPL lines");
+        replScope.changeLockLevel(WritableScope.LockLevel.BOTH);
+        importsScope = new WritableScopeImpl(JetScope.EMPTY, module, RedeclarationHandler.DO_NOTHING, "Imports of earlier REPL lines");
+        importsScope.changeLockLevel(WritableScope.LockLevel.BOTH);
+
+        importsFactory = new JetImportsFactory();
+        importsFactory.setProject(project);
+
         List<URL> classpath = Lists.newArrayList();
 
         for (File file : configuration.getList(JVMConfigurationKeys.CLASSPATH_KEY)) {
@@ -218,16 +242,10 @@ public class ReplInterpreter {
             return LineResult.error(errorCollector.getString());
         }
 
-        List<Pair<ScriptDescriptor, JvmClassName>> earierScripts = Lists.newArrayList();
-
-        for (EarlierLine earlierLine : earlierLines) {
-            earierScripts.add(Pair.create(earlierLine.getScriptDescriptor(), earlierLine.getClassName()));
-        }
-
         BindingContext bindingContext = AnalyzeExhaust.success(trace.getBindingContext(), injector.getModuleConfiguration()).getBindingContext();
         GenerationState generationState = new GenerationState(psiFile.getProject(), ClassBuilderFactories.binaries(false),
                                                               bindingContext, Collections.singletonList(psiFile));
-        generationState.getScriptCodegen().compileScript(psiFile.getScript(), scriptClassName, earierScripts,
+        generationState.getScriptCodegen().compileScript(psiFile.getScript(), scriptClassName, earlierScripts,
                                                          CompilationErrorHandler.THROW_EXCEPTION);
 
         for (String file : generationState.getFactory().files()) {
@@ -237,12 +255,15 @@ public class ReplInterpreter {
         try {
             Class<?> scriptClass = classLoader.loadClass(scriptClassName.getFqName().getFqName());
 
-            Class<?>[] constructorParams = new Class<?>[earlierLines.size()];
-            Object[] constructorArgs = new Object[earlierLines.size()];
-
-            for (int i = 0; i < earlierLines.size(); ++i) {
-                constructorParams[i] = earlierLines.get(i).getScriptClass();
-                constructorArgs[i] = earlierLines.get(i).getScriptInstance();
+            Class<?>[] constructorParams;
+            Object[] constructorArgs;
+            if (earlierLines.isEmpty()) {
+                constructorParams = new Class<?>[0];
+                constructorArgs = new Object[0];
+            }
+            else {
+                constructorParams = new Class<?>[] {Object[].class};
+                constructorArgs = new Object[] {earlierScriptInstances};
             }
 
             Constructor<?> scriptInstanceConstructor = scriptClass.getConstructor(constructorParams);
@@ -257,6 +278,8 @@ public class ReplInterpreter {
             Object rv = rvField.get(scriptInstance);
 
             earlierLines.add(new EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance, scriptClassName));
+            addEarlierScript(scriptDescriptor, scriptClassName, scriptInstance);
+            extendReplScope(psiFile.getScript());
 
             return LineResult.successful(rv, scriptDescriptor.getReturnType().equals(KotlinBuiltIns.getInstance().getUnitType()));
         } catch (Throwable e) {
@@ -285,9 +308,8 @@ public class ReplInterpreter {
         // This makes the namespaces visible at all, does not import themselves
         scope.importScope(rootNs.getMemberScope());
 
-        if (lastLineScope != null) {
-            scope.importScope(lastLineScope);
-        }
+        scope.importScope(importsScope);
+        scope.importScope(replScope);
 
         scope.changeLockLevel(WritableScope.LockLevel.READING);
 
@@ -300,13 +322,70 @@ public class ReplInterpreter {
             return null;
         }
 
-        ScriptDescriptor scriptDescriptor = injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
-        lastLineScope = trace.get(BindingContext.SCRIPT_SCOPE, scriptDescriptor);
-        if (lastLineScope == null) {
-            throw new IllegalStateException("last line scope is not initialized");
+        return injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
+    }
+
+    private void addEarlierScript(@NotNull ScriptDescriptor scriptDescriptor, @NotNull JvmClassName className, @NotNull Object instance) {
+        // register the class name once, so code generation of later lines doesn't have to
+        CodegenBinding.registerClassNameForScript(trace, scriptDescriptor, className);
+
+        int index = earlierScripts.size();
+        earlierScripts.add(Pair.create(scriptDescriptor, className));
+
+        if (index == earlierScriptInstances.length) {
+            // classes of earlier lines keep the old array, it already contains all instances they refer to
+            earlierScriptInstances = Arrays.copyOf(earlierScriptInstances, index * 2);
+        }
+        earlierScriptInstances[index] = instance;
+    }
+
+    private void extendReplScope(@NotNull JetScript script) {
+        BindingContext bindingContext = trace.getBindingContext();
+        for (JetDeclaration declaration : script.getDeclarations()) {
+            if (declaration instanceof JetProperty) {
+                addVariable(bindingContext.get(BindingContext.VARIABLE, declaration));
+            }
+            else if (declaration instanceof JetObjectDeclaration) {
+                JetObjectDeclarationName nameAsDeclaration = ((JetObjectDeclaration) declaration).getNameAsDeclaration();
+                if (nameAsDeclaration != null) {
+                    addVariable(bindingContext.get(BindingContext.VARIABLE, nameAsDeclaration));
+                }
+            }
+            else if (declaration instanceof JetMultiDeclaration) {
+                for (JetMultiDeclarationEntry entry : ((JetMultiDeclaration) declaration).getEntries()) {
+                    addVariable(bindingContext.get(BindingContext.VARIABLE, entry));
+                }
+            }
+            else if (declaration instanceof JetNamedFunction) {
+                SimpleFunctionDescriptor descriptor = bindingContext.get(BindingContext.FUNCTION, declaration);
+                if (descriptor != null) {
+                    replScope.addFunctionDescriptor(descriptor);
+                }
+            }
+            else if (declaration instanceof JetClass) {
+                ClassDescriptor descriptor = bindingContext.get(BindingContext.CLASS, declaration);
+                if (descriptor != null) {
+                    replScope.addClassifierDescriptor(descriptor);
+                }
+            }
         }
 
-        return scriptDescriptor;
+        List<JetImportDirective> lineImportDirectives = script.getImportDirectives();
+        if (!lineImportDirectives.isEmpty()) {
+            // all imports are processed again into one scope, so that lookups don't depend on the number of lines with imports
+            importDirectives.addAll(lineImportDirectives);
+            NamespaceDescriptorImpl rootNs = injector.getNamespaceFactory().createNamespaceDescriptorPathIfNeeded(FqName.ROOT);
+            ImportsResolver.processImportsInFile(
+                    QualifiedExpressionResolver.LookupMode.EVERYTHING, importsScope, importDirectives, rootNs.getMemberScope(),
+                    injector.getModuleConfiguration(), TemporaryBindingTrace.create(trace, "imports of earlier REPL lines"),
+                    new QualifiedExpressionResolver(), importsFactory);
+        }
+    }
+
+    private void addVariable(@Nullable VariableDescriptor descriptor) {
+        if (descriptor != null) {
+            replScope.addVariableDescriptor(descriptor);
+        }
     }
 
     public void dumpClasses(@NotNull PrintWriter out) {
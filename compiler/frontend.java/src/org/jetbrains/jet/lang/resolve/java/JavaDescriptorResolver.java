@@ -23,6 +23,7 @@ import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.java.provider.ClassPsiDeclarationProvider;
 import org.jetbrains.jet.lang.resolve.java.provider.PsiDeclarationProvider;
 import org.jetbrains.jet.lang.resolve.java.resolver.*;
+import org.jetbrains.jet.lang.resolve.java.scope.JavaBaseScope;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
@@ -34,6 +35,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Java descriptors are resolved under the monitor of this object (also taken by the Java scopes, see {@link JavaBaseScope}),
+ * because the resolvers and their caches are not thread-safe, while namespaces may be generated and bodies resolved in parallel.
+ */
 public class JavaDescriptorResolver implements DependencyClassByQualifiedNameResolver {
 
     public static final Name JAVA_ROOT = Name.special("<java_root>");
@@ -180,39 +185,39 @@ public class JavaDescriptorResolver implements DependencyClassByQualifiedNameRes
     }
 
     @Nullable
-    public ClassDescriptor resolveClass(@NotNull FqName qualifiedName, @NotNull DescriptorSearchRule searchRule) {
+    public synchronized ClassDescriptor resolveClass(@NotNull FqName qualifiedName, @NotNull DescriptorSearchRule searchRule) {
         return classResolver.resolveClass(qualifiedName, searchRule);
     }
 
     @Override
-    public ClassDescriptor resolveClass(@NotNull FqName qualifiedName) {
+    public synchronized ClassDescriptor resolveClass(@NotNull FqName qualifiedName) {
         return classResolver.resolveClass(qualifiedName);
     }
 
     @NotNull
-    public Collection<ConstructorDescriptor> resolveConstructors(
+    public synchronized Collection<ConstructorDescriptor> resolveConstructors(
             @NotNull ClassPsiDeclarationProvider classData, @NotNull ClassDescriptor classDescriptor
     ) {
         return constructorResolver.resolveConstructors(classData, classDescriptor);
     }
 
     @Nullable
-    public NamespaceDescriptor resolveNamespace(@NotNull FqName qualifiedName, @NotNull DescriptorSearchRule searchRule) {
+    public synchronized NamespaceDescriptor resolveNamespace(@NotNull FqName qualifiedName, @NotNull DescriptorSearchRule searchRule) {
         return namespaceResolver.resolveNamespace(qualifiedName, searchRule);
     }
 
     @Override
-    public NamespaceDescriptor resolveNamespace(@NotNull FqName qualifiedName) {
+    public synchronized NamespaceDescriptor resolveNamespace(@NotNull FqName qualifiedName) {
         return namespaceResolver.resolveNamespace(qualifiedName);
     }
 
     @Nullable
-    public JetScope getJavaPackageScope(@NotNull NamespaceDescriptor namespaceDescriptor) {
+    public synchronized JetScope getJavaPackageScope(@NotNull NamespaceDescriptor namespaceDescriptor) {
         return namespaceResolver.getJavaPackageScopeForExistingNamespaceDescriptor(namespaceDescriptor);
     }
 
     @NotNull
-    public Set<VariableDescriptor> resolveFieldGroupByName(
+    public synchronized Set<VariableDescriptor> resolveFieldGroupByName(
             @NotNull Name name,
             @NotNull PsiDeclarationProvider data,
             @NotNull ClassOrNamespaceDescriptor ownerDescriptor
@@ -221,7 +226,7 @@ public class JavaDescriptorResolver implements DependencyClassByQualifiedNameRes
     }
 
     @Nullable
-    public ClassDescriptor resolveClass(@NotNull FqName name, @NotNull DescriptorSearchRule searchRule, @NotNull PostponedTasks tasks) {
+    public synchronized ClassDescriptor resolveClass(@NotNull FqName name, @NotNull DescriptorSearchRule searchRule, @NotNull PostponedTasks tasks) {
         return classResolver.resolveClass(name, searchRule, tasks);
     }
 
@@ -246,7 +251,7 @@ public class JavaDescriptorResolver implements DependencyClassByQualifiedNameRes
     }
 
     @NotNull
-    public Set<FunctionDescriptor> resolveFunctionGroup(
+    public synchronized Set<FunctionDescriptor> resolveFunctionGroup(
             @NotNull Name methodName,
             @NotNull ClassPsiDeclarationProvider scopeData,
             @NotNull ClassOrNamespaceDescriptor ownerDescriptor
@@ -255,7 +260,7 @@ public class JavaDescriptorResolver implements DependencyClassByQualifiedNameRes
     }
 
     @NotNull
-    public List<ClassDescriptor> resolveInnerClasses(@NotNull ClassPsiDeclarationProvider declarationProvider) {
+    public synchronized List<ClassDescriptor> resolveInnerClasses(@NotNull ClassPsiDeclarationProvider declarationProvider) {
         return innerClassResolver.resolveInnerClasses(declarationProvider);
     }
 }
@@ -54,13 +54,13 @@ public class JavaPsiFacadeKotlinHacks {
 
     @NotNull
     private JavaFileManager findJavaFileManager(@NotNull Project project) {
-        JavaFileManager javaFileManager = project.getComponent(JavaFileManager.class);
+        // In the compiler, CoreJavaFileManager is registered separately, and may be an indexed implementation
+        JavaFileManager javaFileManager = project.getComponent(CoreJavaFileManager.class);
         if (javaFileManager != null) {
             return javaFileManager;
         }
-        javaFileManager = project.getComponent(CoreJavaFileManager.class);
+        javaFileManager = project.getComponent(JavaFileManager.class);
         if (javaFileManager != null) {
-            // TODO: why it is not found by JavaFileManager?
             return javaFileManager;
         }
         throw new IllegalStateException("JavaFileManager component is not found in project");
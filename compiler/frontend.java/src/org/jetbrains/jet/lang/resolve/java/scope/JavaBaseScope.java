@@ -38,6 +38,9 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * The caches of Java scopes are guarded by the monitor of the {@link JavaDescriptorResolver} that fills them.
+ */
 public abstract class JavaBaseScope extends JetScopeImpl {
 
     @NotNull
@@ -75,16 +78,18 @@ public abstract class JavaBaseScope extends JetScopeImpl {
     @NotNull
     @Override
     public Collection<VariableDescriptor> getProperties(@NotNull Name name) {
-        Set<VariableDescriptor> cached = propertyDescriptors.get(name);
-        if (cached != null) return cached;
+        synchronized (getResolver()) {
+            Set<VariableDescriptor> cached = propertyDescriptors.get(name);
+            if (cached != null) return cached;
 
-        if (allDescriptorsComputed()) {
-            return Collections.emptySet();
-        }
+            if (allDescriptorsComputed()) {
+                return Collections.emptySet();
+            }
 
-        Set<VariableDescriptor> computedDescriptors = computePropertyDescriptors(name);
-        propertyDescriptors.put(name, computedDescriptors);
-        return computedDescriptors;
+            Set<VariableDescriptor> computedDescriptors = computePropertyDescriptors(name);
+            propertyDescriptors.put(name, computedDescriptors);
+            return computedDescriptors;
+        }
     }
 
     @NotNull
@@ -95,16 +100,18 @@ public abstract class JavaBaseScope extends JetScopeImpl {
     @NotNull
     @Override
     public Collection<FunctionDescriptor> getFunctions(@NotNull Name name) {
-        Set<FunctionDescriptor> cached = functionDescriptors.get(name);
-        if (cached != null) return cached;
+        synchronized (getResolver()) {
+            Set<FunctionDescriptor> cached = functionDescriptors.get(name);
+            if (cached != null) return cached;
 
-        if (allDescriptorsComputed()) {
-            return Collections.emptySet();
-        }
+            if (allDescriptorsComputed()) {
+                return Collections.emptySet();
+            }
 
-        Set<FunctionDescriptor> computedDescriptors = computeFunctionDescriptor(name);
-        functionDescriptors.put(name, computedDescriptors);
-        return computedDescriptors;
+            Set<FunctionDescriptor> computedDescriptors = computeFunctionDescriptor(name);
+            functionDescriptors.put(name, computedDescriptors);
+            return computedDescriptors;
+        }
     }
 
     @NotNull
@@ -113,13 +120,15 @@ public abstract class JavaBaseScope extends JetScopeImpl {
     @NotNull
     @Override
     public Collection<DeclarationDescriptor> getAllDescriptors() {
-        if (allDescriptorsComputed()) {
-            return allDescriptors;
-        }
+        synchronized (getResolver()) {
+            if (allDescriptorsComputed()) {
+                return allDescriptors;
+            }
 
-        allDescriptors = computeAllDescriptors();
+            allDescriptors = computeAllDescriptors();
 
-        return allDescriptors;
+            return allDescriptors;
+        }
     }
 
     private boolean allDescriptorsComputed() {
@@ -169,9 +178,11 @@ public abstract class JavaBaseScope extends JetScopeImpl {
 
     @NotNull
     protected Collection<ClassDescriptor> getInnerClasses() {
-        if (innerClasses == null) {
-            innerClasses = computeInnerClasses();
+        synchronized (getResolver()) {
+            if (innerClasses == null) {
+                innerClasses = computeInnerClasses();
+            }
+            return innerClasses;
         }
-        return innerClasses;
     }
 }
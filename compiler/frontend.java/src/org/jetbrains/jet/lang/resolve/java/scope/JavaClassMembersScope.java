@@ -58,14 +58,16 @@ public abstract class JavaClassMembersScope extends JavaBaseScope {
 
     @NotNull
     private Map<Name, ClassDescriptor> getInnerClassesMap() {
-        if (innerClassesMap == null) {
-            Collection<ClassDescriptor> innerClasses = getInnerClasses();
-            innerClassesMap = new HashMap<Name, ClassDescriptor>();
-            for (ClassDescriptor innerClass : innerClasses) {
-                innerClassesMap.put(innerClass.getName(), innerClass);
+        synchronized (getResolver()) {
+            if (innerClassesMap == null) {
+                Collection<ClassDescriptor> innerClasses = getInnerClasses();
+                innerClassesMap = new HashMap<Name, ClassDescriptor>();
+                for (ClassDescriptor innerClass : innerClasses) {
+                    innerClassesMap.put(innerClass.getName(), innerClass);
+                }
             }
+            return innerClassesMap;
         }
-        return innerClassesMap;
     }
 
     @NotNull
@@ -39,10 +39,11 @@ public class AnalyzerFacadeForEverything {
             Project project, List<AnalyzerScriptParameter> scriptParameters, Predicate<PsiFile> filesToAnalyzeCompletely,
             @NotNull BindingTrace traceContext,
             @NotNull BodiesResolveContext bodiesResolveContext,
-            @NotNull ModuleConfiguration configuration) {
+            @NotNull ModuleConfiguration configuration,
+            boolean nonLocalReturnsAllowed) {
 
         TopDownAnalysisParameters topDownAnalysisParameters = new TopDownAnalysisParameters(
-                filesToAnalyzeCompletely, false, false, scriptParameters);
+                filesToAnalyzeCompletely, false, false, scriptParameters, 1, nonLocalReturnsAllowed);
 
         bodiesResolveContext.setTopDownAnalysisParameters(topDownAnalysisParameters);
 
@@ -18,15 +18,11 @@ package org.jetbrains.jet.lang.cfg;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.cfg.pseudocode.*;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.jetbrains.jet.lang.cfg.PseudocodeTraverser.TraversalOrder.FORWARD;
 
@@ -71,94 +67,223 @@ public class PseudocodeTraverser {
         return lookInside == LookInsideStrategy.ANALYSE_LOCAL_DECLARATIONS && instruction instanceof LocalDeclarationInstruction;
     }
 
+    /**
+     * Solves a data flow problem over the pseudocode (and the local declarations inside it, if requested).
+     *
+     * Instructions are kept on a worklist ordered by reverse postorder of the traversal direction, so that an
+     * instruction is merged again only when the data on one of its incoming edges has changed. Acyclic code
+     * is processed in a single pass; loops are iterated until their data stops changing.
+     */
     public static <D> Map<Instruction, Edges<D>> collectData(
             @NotNull Pseudocode pseudocode, TraversalOrder traversalOrder, LookInsideStrategy lookInside,
             @NotNull D initialDataValue, @NotNull D initialDataValueForEnterInstruction,
             @NotNull InstructionDataMergeStrategy<D> instructionDataMergeStrategy) {
 
+        InstructionGraph graph = new InstructionGraph(pseudocode, traversalOrder, lookInside);
+        int size = graph.instructions.size();
+
+        List<Edges<D>> values = Lists.newArrayListWithCapacity(size);
+        Edges<D> initialEdge = Edges.create(initialDataValue, initialDataValue);
+        for (int node = 0; node < size; node++) {
+            values.add(initialEdge);
+        }
+        values.set(graph.startNode, Edges.create(initialDataValueForEnterInstruction, initialDataValueForEnterInstruction));
+
+        int[] order = graph.computeReversePostorder();
+        int[] positions = new int[size];
+        for (int position = 0; position < size; position++) {
+            positions[order[position]] = position;
+        }
+
+        BitSet worklist = new BitSet(size);
+        worklist.set(0, size);
+        int position = worklist.nextSetBit(0);
+        while (position >= 0) {
+            worklist.clear(position);
+            int node = order[position];
+            if (!graph.fixed[node]) {
+                Edges<D> newValue;
+                int copyFrom = graph.copyFrom[node];
+                if (copyFrom >= 0) {
+                    newValue = values.get(copyFrom);
+                }
+                else {
+                    int[] predecessors = graph.predecessors[node];
+                    List<D> incomingEdgesData = Lists.newArrayListWithCapacity(predecessors.length);
+                    for (int predecessor : predecessors) {
+                        incomingEdgesData.add(values.get(predecessor).out);
+                    }
+                    newValue = instructionDataMergeStrategy.execute(graph.instructions.get(node), incomingEdgesData);
+                }
+                if (!newValue.equals(values.get(node))) {
+                    values.set(node, newValue);
+                    for (int successor : graph.successors[node]) {
+                        worklist.set(positions[successor]);
+                    }
+                }
+            }
+            int next = worklist.nextSetBit(position + 1);
+            position = next >= 0 ? next : worklist.nextSetBit(0);
+        }
+
         Map<Instruction, Edges<D>> edgesMap = Maps.newLinkedHashMap();
-        initializeEdgesMap(pseudocode, lookInside, edgesMap, initialDataValue);
-        edgesMap.put(getStartInstruction(pseudocode, traversalOrder), Edges.create(initialDataValueForEnterInstruction, initialDataValueForEnterInstruction));
-
-        boolean[] changed = new boolean[1];
-        changed[0] = true;
-        while (changed[0]) {
-            changed[0] = false;
-            collectDataFromSubgraph(pseudocode, traversalOrder, lookInside, edgesMap, instructionDataMergeStrategy,
-                                    Collections.<Instruction>emptyList(), changed, false);
+        for (int node = 0; node < size; node++) {
+            edgesMap.put(graph.instructions.get(node), values.get(node));
         }
         return edgesMap;
     }
 
-    private static <D> void initializeEdgesMap(
-            @NotNull Pseudocode pseudocode, LookInsideStrategy lookInside,
-            @NotNull Map<Instruction, Edges<D>> edgesMap,
-            @NotNull D initialDataValue) {
-        List<Instruction> instructions = pseudocode.getInstructions();
-        Edges<D> initialEdge = Edges.create(initialDataValue, initialDataValue);
-        for (Instruction instruction : instructions) {
-            edgesMap.put(instruction, initialEdge);
-            if (shouldLookInside(instruction, lookInside)) {
-                initializeEdgesMap(((LocalDeclarationInstruction) instruction).getBody(), lookInside, edgesMap, initialDataValue);
+    /**
+     * Instructions of a pseudocode numbered densely, with their incoming and outgoing edges in the traversal direction.
+     * When local declarations are analysed, their bodies are inlined: the body is entered from the predecessors of
+     * the declaration instruction, and the declaration instruction takes the data from the last instruction of the body.
+     */
+    private static class InstructionGraph {
+        private final TraversalOrder traversalOrder;
+        private final LookInsideStrategy lookInside;
+
+        private final List<Instruction> instructions = Lists.newArrayList();
+        private final Map<Instruction, Integer> indices = Maps.newHashMap();
+        private final int startNode;
+
+        private final int[][] predecessors;
+        private final int[][] successors;
+        private final int[] copyFrom;
+        private final boolean[] fixed;
+
+        private InstructionGraph(@NotNull Pseudocode pseudocode, TraversalOrder traversalOrder, LookInsideStrategy lookInside) {
+            this.traversalOrder = traversalOrder;
+            this.lookInside = lookInside;
+
+            addInstructions(pseudocode);
+            startNode = indices.get(getStartInstruction(pseudocode, traversalOrder));
+
+            int size = instructions.size();
+            predecessors = new int[size][];
+            copyFrom = new int[size];
+            fixed = new boolean[size];
+            Arrays.fill(copyFrom, -1);
+            addEdges(pseudocode, Collections.<Instruction>emptyList(), false);
+
+            int[] successorCounts = new int[size];
+            for (int node = 0; node < size; node++) {
+                for (int predecessor : predecessors[node]) {
+                    successorCounts[predecessor]++;
+                }
+                if (copyFrom[node] >= 0) {
+                    successorCounts[copyFrom[node]]++;
+                }
+            }
+            successors = new int[size][];
+            for (int node = 0; node < size; node++) {
+                successors[node] = new int[successorCounts[node]];
+                successorCounts[node] = 0;
+            }
+            for (int node = 0; node < size; node++) {
+                for (int predecessor : predecessors[node]) {
+                    successors[predecessor][successorCounts[predecessor]++] = node;
+                }
+                if (copyFrom[node] >= 0) {
+                    successors[copyFrom[node]][successorCounts[copyFrom[node]]++] = node;
+                }
             }
         }
-    }
-
-    private static <D> void collectDataFromSubgraph(
-            @NotNull Pseudocode pseudocode, TraversalOrder traversalOrder,
-            LookInsideStrategy lookInside,
-            @NotNull Map<Instruction, Edges<D>> edgesMap,
-            @NotNull InstructionDataMergeStrategy<D> instructionDataMergeStrategy,
-            @NotNull Collection<Instruction> previousSubGraphInstructions,
-            boolean[] changed, boolean isLocal) {
 
-        List<Instruction> instructions = getInstructions(pseudocode, traversalOrder);
-        Instruction startInstruction = getStartInstruction(pseudocode, traversalOrder);
-
-        for (Instruction instruction : instructions) {
-            boolean isStart = isStartInstruction(instruction, traversalOrder);
-            if (!isLocal && isStart) continue;
+        private void addInstructions(@NotNull Pseudocode pseudocode) {
+            for (Instruction instruction : pseudocode.getInstructions()) {
+                indices.put(instruction, instructions.size());
+                instructions.add(instruction);
+                if (shouldLookInside(instruction, lookInside)) {
+                    addInstructions(((LocalDeclarationInstruction) instruction).getBody());
+                }
+            }
+        }
 
-            Collection<Instruction> allPreviousInstructions;
-            Collection<Instruction> previousInstructions = getPreviousInstruction(instruction, traversalOrder);
+        private void addEdges(
+                @NotNull Pseudocode pseudocode,
+                @NotNull Collection<Instruction> previousSubGraphInstructions,
+                boolean isLocal
+        ) {
+            Instruction startInstruction = getStartInstruction(pseudocode, traversalOrder);
+            for (Instruction instruction : pseudocode.getInstructions()) {
+                int node = indices.get(instruction);
+                Collection<Instruction> previousInstructions = getPreviousInstruction(instruction, traversalOrder);
+
+                if (!isLocal && isStartInstruction(instruction, traversalOrder)) {
+                    fixed[node] = true;
+                    predecessors[node] = new int[0];
+                    continue;
+                }
+                if (shouldLookInside(instruction, lookInside)) {
+                    Pseudocode subroutinePseudocode = ((LocalDeclarationInstruction) instruction).getBody();
+                    addEdges(subroutinePseudocode, previousInstructions, true);
+                    copyFrom[node] = indices.get(getLastInstruction(subroutinePseudocode, traversalOrder));
+                    predecessors[node] = new int[0];
+                    continue;
+                }
 
-            if (instruction == startInstruction && !previousSubGraphInstructions.isEmpty()) {
-                allPreviousInstructions = Lists.newArrayList(previousInstructions);
-                allPreviousInstructions.addAll(previousSubGraphInstructions);
-            }
-            else {
-                allPreviousInstructions = previousInstructions;
+                List<Integer> nodes = Lists.newArrayList();
+                addNodes(previousInstructions, nodes);
+                if (instruction == startInstruction) {
+                    addNodes(previousSubGraphInstructions, nodes);
+                }
+                int[] result = new int[nodes.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = nodes.get(i);
+                }
+                predecessors[node] = result;
             }
+        }
 
-            if (shouldLookInside(instruction, lookInside)) {
-                Pseudocode subroutinePseudocode = ((LocalDeclarationInstruction) instruction).getBody();
-                collectDataFromSubgraph(subroutinePseudocode, traversalOrder, lookInside, edgesMap, instructionDataMergeStrategy,
-                                        previousInstructions,
-                                        changed, true);
-                Instruction lastInstruction = getLastInstruction(subroutinePseudocode, traversalOrder);
-                Edges<D> previousValue = edgesMap.get(instruction);
-                Edges<D> newValue = edgesMap.get(lastInstruction);
-                if (!previousValue.equals(newValue)) {
-                    changed[0] = true;
-                    edgesMap.put(instruction, newValue);
+        private void addNodes(@NotNull Collection<Instruction> instructions, @NotNull List<Integer> nodes) {
+            for (Instruction instruction : instructions) {
+                Integer node = indices.get(instruction);
+                if (node != null) {
+                    nodes.add(node);
                 }
-                continue;
             }
-            Edges<D> previousDataValue = edgesMap.get(instruction);
-
-            Collection<D> incomingEdgesData = Sets.newHashSet();
+        }
 
-            for (Instruction previousInstruction : allPreviousInstructions) {
-                Edges<D> previousData = edgesMap.get(previousInstruction);
-                if (previousData != null) {
-                    incomingEdgesData.add(previousData.out);
+        /**
+         * Reverse postorder of depth-first searches started from the start instruction and then from every instruction
+         * not visited yet. The search is iterative, as pseudocode of large functions is deep.
+         */
+        @NotNull
+        private int[] computeReversePostorder() {
+            int size = instructions.size();
+            int[] postorder = new int[size];
+            int postorderSize = 0;
+            boolean[] visited = new boolean[size];
+            int[] stack = new int[size];
+            int[] nextSuccessor = new int[size];
+
+            for (int root = -1; root < size; root++) {
+                int rootNode = root < 0 ? startNode : root;
+                if (visited[rootNode]) continue;
+                visited[rootNode] = true;
+                int stackSize = 0;
+                stack[stackSize++] = rootNode;
+                while (stackSize > 0) {
+                    int node = stack[stackSize - 1];
+                    if (nextSuccessor[node] < successors[node].length) {
+                        int successor = successors[node][nextSuccessor[node]++];
+                        if (!visited[successor]) {
+                            visited[successor] = true;
+                            stack[stackSize++] = successor;
+                        }
+                    }
+                    else {
+                        stackSize--;
+                        postorder[postorderSize++] = node;
+                    }
                 }
             }
-            Edges<D> mergedData = instructionDataMergeStrategy.execute(instruction, incomingEdgesData);
-            if (!mergedData.equals(previousDataValue)) {
-                changed[0] = true;
-                edgesMap.put(instruction, mergedData);
+
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = postorder[size - 1 - i];
             }
+            return order;
         }
     }
 
@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.lang.cfg;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.jetbrains.annotations.NotNull;
@@ -28,10 +29,7 @@ import org.jetbrains.jet.lang.psi.JetDeclaration;
 import org.jetbrains.jet.lang.psi.JetProperty;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static org.jetbrains.jet.lang.cfg.PseudocodeTraverser.LookInsideStrategy.ANALYSE_LOCAL_DECLARATIONS;
 import static org.jetbrains.jet.lang.cfg.PseudocodeTraverser.LookInsideStrategy.SKIP_LOCAL_DECLARATIONS;
@@ -129,9 +127,11 @@ public class PseudocodeVariablesData {
 
         Set<VariableDescriptor> usedVariables = getUsedVariables(pseudocode);
         Set<VariableDescriptor> declaredVariables = getDeclaredVariables(pseudocode, false);
-        Map<VariableDescriptor, VariableInitState> initialMap = Collections.emptyMap();
-        final Map<VariableDescriptor, VariableInitState> initialMapForStartInstruction = prepareInitializersMapForStartInstruction(
-                usedVariables, declaredVariables);
+        final VariableIndex variableIndex = new VariableIndex(usedVariables);
+        Map<VariableDescriptor, VariableInitState> initialMap =
+                new PackedVariableStates<VariableInitState>(variableIndex, new byte[variableIndex.size()], INIT_STATES);
+        Map<VariableDescriptor, VariableInitState> initialMapForStartInstruction = prepareInitializersMapForStartInstruction(
+                variableIndex, declaredVariables);
 
         Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> variableInitializersMap = PseudocodeTraverser.collectData(
                 pseudocode, FORWARD, SKIP_LOCAL_DECLARATIONS,
@@ -140,9 +140,10 @@ public class PseudocodeVariablesData {
             public Edges<Map<VariableDescriptor, VariableInitState>> execute(
                     @NotNull Instruction instruction, @NotNull Collection<Map<VariableDescriptor, VariableInitState>> incomingEdgesData) {
 
-                Map<VariableDescriptor, VariableInitState> enterInstructionData = mergeIncomingEdgesDataForInitializers(incomingEdgesData);
+                Map<VariableDescriptor, VariableInitState> enterInstructionData =
+                        mergeIncomingEdgesDataForInitializers(variableIndex, incomingEdgesData);
                 Map<VariableDescriptor, VariableInitState> exitInstructionData =
-                        addVariableInitStateFromCurrentInstructionIfAny(instruction, enterInstructionData);
+                        addVariableInitStateFromCurrentInstructionIfAny(variableIndex, instruction, enterInstructionData);
                 return Edges.create(enterInstructionData, exitInstructionData);
             }
         });
@@ -164,50 +165,43 @@ public class PseudocodeVariablesData {
     }
 
     @NotNull
-    private Map<VariableDescriptor, VariableInitState> prepareInitializersMapForStartInstruction(
-            @NotNull Collection<VariableDescriptor> usedVariables,
+    private static Map<VariableDescriptor, VariableInitState> prepareInitializersMapForStartInstruction(
+            @NotNull VariableIndex usedVariables,
             @NotNull Collection<VariableDescriptor> declaredVariables) {
 
-        Map<VariableDescriptor, VariableInitState> initialMapForStartInstruction = Maps.newHashMap();
-        VariableInitState initializedForExternalVariable = VariableInitState.create(true);
-        VariableInitState notInitializedForDeclaredVariable = VariableInitState.create(false);
-
-        for (VariableDescriptor variable : usedVariables) {
-            if (declaredVariables.contains(variable)) {
-                initialMapForStartInstruction.put(variable, notInitializedForDeclaredVariable);
-            }
-            else {
-                initialMapForStartInstruction.put(variable, initializedForExternalVariable);
-            }
+        byte[] codes = new byte[usedVariables.size()];
+        for (int i = 0; i < codes.length; i++) {
+            boolean isDeclared = declaredVariables.contains(usedVariables.get(i));
+            codes[i] = initStateCode(!isDeclared, false);
         }
-        return initialMapForStartInstruction;
+        return new PackedVariableStates<VariableInitState>(usedVariables, codes, INIT_STATES);
     }
 
     @NotNull
-    private Map<VariableDescriptor, VariableInitState> mergeIncomingEdgesDataForInitializers(
+    private static Map<VariableDescriptor, VariableInitState> mergeIncomingEdgesDataForInitializers(
+            @NotNull VariableIndex variableIndex,
             @NotNull Collection<Map<VariableDescriptor, VariableInitState>> incomingEdgesData) {
 
-        Set<VariableDescriptor> variablesInScope = Sets.newHashSet();
-        for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-            variablesInScope.addAll(edgeData.keySet());
-        }
+        Map<VariableDescriptor, VariableInitState> sameData = getSameData(incomingEdgesData);
+        if (sameData != null) return sameData;
 
-        Map<VariableDescriptor, VariableInitState> enterInstructionData = Maps.newHashMap();
-        for (VariableDescriptor variable : variablesInScope) {
-            Set<VariableInitState> edgesDataForVariable = Sets.newHashSet();
-            for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-                VariableInitState initState = edgeData.get(variable);
-                if (initState != null) {
-                    edgesDataForVariable.add(initState);
+        // A variable is initialized (declared) on enter if it is initialized (declared) on every incoming edge it is known on
+        byte[] codes = new byte[variableIndex.size()];
+        for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
+            byte[] edgeCodes = PackedVariableStates.getCodes(edgeData);
+            for (int i = 0; i < codes.length; i++) {
+                byte edgeCode = edgeCodes[i];
+                if (edgeCode != 0) {
+                    codes[i] = codes[i] == 0 ? edgeCode : (byte) (codes[i] & edgeCode);
                 }
             }
-            enterInstructionData.put(variable, VariableInitState.create(edgesDataForVariable));
         }
-        return enterInstructionData;
+        return new PackedVariableStates<VariableInitState>(variableIndex, codes, INIT_STATES);
     }
 
     @NotNull
     private Map<VariableDescriptor, VariableInitState> addVariableInitStateFromCurrentInstructionIfAny(
+            @NotNull VariableIndex variableIndex,
             @NotNull Instruction instruction, @NotNull Map<VariableDescriptor, VariableInitState> enterInstructionData) {
 
         if (!(instruction instanceof WriteValueInstruction) && !(instruction instanceof VariableDeclarationInstruction)) {
@@ -217,32 +211,32 @@ public class PseudocodeVariablesData {
         if (variable == null) {
             return enterInstructionData;
         }
-        Map<VariableDescriptor, VariableInitState> exitInstructionData = Maps.newHashMap(enterInstructionData);
+        int index = variableIndex.indexOf(variable);
+        assert index >= 0 : "Variable is not used in pseudocode: " + variable;
+        byte enterCode = PackedVariableStates.getCodes(enterInstructionData)[index];
+        byte exitCode;
         if (instruction instanceof WriteValueInstruction) {
-            VariableInitState enterInitState = enterInstructionData.get(variable);
-            VariableInitState initializationAtThisElement =
-                    VariableInitState.create(((WriteValueInstruction) instruction).getElement() instanceof JetProperty, enterInitState);
-            exitInstructionData.put(variable, initializationAtThisElement);
+            boolean isDeclaredHere = ((WriteValueInstruction) instruction).getElement() instanceof JetProperty;
+            exitCode = initStateCode(true, isDeclaredHere || (enterCode & DECLARED_BIT) != 0);
         }
         else { // instruction instanceof VariableDeclarationInstruction
-            VariableInitState enterInitState = enterInstructionData.get(variable);
-            if (enterInitState == null || !enterInitState.isInitialized || !enterInitState.isDeclared) {
-                boolean isInitialized = enterInitState != null && enterInitState.isInitialized;
-                VariableInitState variableDeclarationInfo = VariableInitState.create(isInitialized, true);
-                exitInstructionData.put(variable, variableDeclarationInfo);
-            }
+            exitCode = initStateCode((enterCode & INITIALIZED_BIT) != 0, true);
         }
-        return exitInstructionData;
+        return PackedVariableStates.withCode(enterInstructionData, index, exitCode);
     }
 
 // variable use
 
     @NotNull
     public Map<Instruction, Edges<Map<VariableDescriptor, VariableUseState>>> getVariableUseStatusData() {
-        Map<VariableDescriptor, VariableUseState> sinkInstructionData = Maps.newHashMap();
-        for (VariableDescriptor usedVariable : getUsedVariables(pseudocode)) {
-            sinkInstructionData.put(usedVariable, VariableUseState.UNUSED);
-        }
+        final VariableIndex variableIndex = new VariableIndex(getUsedVariables(pseudocode));
+        byte[] sinkInstructionCodes = new byte[variableIndex.size()];
+        Arrays.fill(sinkInstructionCodes, useStateCode(VariableUseState.UNUSED));
+        Map<VariableDescriptor, VariableUseState> sinkInstructionData =
+                new PackedVariableStates<VariableUseState>(variableIndex, sinkInstructionCodes, USE_STATES);
+        Map<VariableDescriptor, VariableUseState> initialData =
+                new PackedVariableStates<VariableUseState>(variableIndex, new byte[variableIndex.size()], USE_STATES);
+
         InstructionDataMergeStrategy<Map<VariableDescriptor, VariableUseState>> collectVariableUseStatusStrategy =
                 new InstructionDataMergeStrategy<Map<VariableDescriptor, VariableUseState>>() {
                     @Override
@@ -251,45 +245,200 @@ public class PseudocodeVariablesData {
                             @NotNull Collection<Map<VariableDescriptor, VariableUseState>> incomingEdgesData
                     ) {
 
-                        Map<VariableDescriptor, VariableUseState> enterResult = Maps.newHashMap();
-                        for (Map<VariableDescriptor, VariableUseState> edgeData : incomingEdgesData) {
-                            for (Map.Entry<VariableDescriptor, VariableUseState> entry : edgeData.entrySet()) {
-                                VariableDescriptor variableDescriptor = entry.getKey();
-                                VariableUseState variableUseState = entry.getValue();
-                                enterResult.put(variableDescriptor, variableUseState.merge(enterResult.get(variableDescriptor)));
-                            }
-                        }
+                        Map<VariableDescriptor, VariableUseState> enterResult = mergeIncomingEdgesDataForUseStatus(
+                                variableIndex, incomingEdgesData);
                         VariableDescriptor variableDescriptor = PseudocodeUtil.extractVariableDescriptorIfAny(instruction, true,
                                                                                                               bindingContext);
                         if (variableDescriptor == null ||
                             (!(instruction instanceof ReadValueInstruction) && !(instruction instanceof WriteValueInstruction))) {
                             return Edges.create(enterResult, enterResult);
                         }
-                        Map<VariableDescriptor, VariableUseState> exitResult = Maps.newHashMap(enterResult);
+                        int index = variableIndex.indexOf(variableDescriptor);
+                        assert index >= 0 : "Variable is not used in pseudocode: " + variableDescriptor;
+                        byte exitCode;
                         if (instruction instanceof ReadValueInstruction) {
-                            exitResult.put(variableDescriptor, VariableUseState.LAST_READ);
+                            exitCode = useStateCode(VariableUseState.LAST_READ);
                         }
                         else { //instruction instanceof WriteValueInstruction
-                            VariableUseState variableUseState = enterResult.get(variableDescriptor);
-                            if (variableUseState == null) {
-                                variableUseState = VariableUseState.UNUSED;
-                            }
+                            byte enterCode = PackedVariableStates.getCodes(enterResult)[index];
+                            VariableUseState variableUseState = enterCode != 0 ? USE_STATES[enterCode] : VariableUseState.UNUSED;
                             switch (variableUseState) {
                                 case UNUSED:
                                 case ONLY_WRITTEN_NEVER_READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.ONLY_WRITTEN_NEVER_READ);
+                                    exitCode = useStateCode(VariableUseState.ONLY_WRITTEN_NEVER_READ);
                                     break;
-                                case LAST_WRITTEN:
-                                case LAST_READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.LAST_WRITTEN);
+                                default:
+                                    exitCode = useStateCode(VariableUseState.LAST_WRITTEN);
                             }
                         }
-                        return Edges.create(enterResult, exitResult);
+                        return Edges.create(enterResult, PackedVariableStates.withCode(enterResult, index, exitCode));
                     }
                 };
         return PseudocodeTraverser.collectData(pseudocode, BACKWARD, ANALYSE_LOCAL_DECLARATIONS,
-                                               Collections.<VariableDescriptor, VariableUseState>emptyMap(),
-                                               sinkInstructionData, collectVariableUseStatusStrategy);
+                                               initialData, sinkInstructionData, collectVariableUseStatusStrategy);
+    }
+
+    @NotNull
+    private static Map<VariableDescriptor, VariableUseState> mergeIncomingEdgesDataForUseStatus(
+            @NotNull VariableIndex variableIndex,
+            @NotNull Collection<Map<VariableDescriptor, VariableUseState>> incomingEdgesData) {
+
+        Map<VariableDescriptor, VariableUseState> sameData = getSameData(incomingEdgesData);
+        if (sameData != null) return sameData;
+
+        // Codes grow with the importance of use states, so the most important state wins
+        byte[] codes = new byte[variableIndex.size()];
+        for (Map<VariableDescriptor, VariableUseState> edgeData : incomingEdgesData) {
+            byte[] edgeCodes = PackedVariableStates.getCodes(edgeData);
+            for (int i = 0; i < codes.length; i++) {
+                if (edgeCodes[i] > codes[i]) {
+                    codes[i] = edgeCodes[i];
+                }
+            }
+        }
+        return new PackedVariableStates<VariableUseState>(variableIndex, codes, USE_STATES);
+    }
+
+    /**
+     * Merging the same data with itself gives the same data, so a merge of a single incoming edge (which is the case
+     * for most instructions) doesn't need to copy anything.
+     */
+    @Nullable
+    private static <S> Map<VariableDescriptor, S> getSameData(@NotNull Collection<Map<VariableDescriptor, S>> incomingEdgesData) {
+        Map<VariableDescriptor, S> result = null;
+        for (Map<VariableDescriptor, S> edgeData : incomingEdgesData) {
+            if (result == null) {
+                result = edgeData;
+            }
+            else if (result != edgeData) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+// packed variable states
+
+    private static final int INITIALIZED_BIT = 2;
+    private static final int DECLARED_BIT = 1;
+    private static final int KNOWN_BIT = 4;
+
+    private static final VariableInitState[] INIT_STATES = new VariableInitState[8];
+    private static final VariableUseState[] USE_STATES = new VariableUseState[8];
+
+    static {
+        for (boolean isInitialized : new boolean[] {false, true}) {
+            for (boolean isDeclared : new boolean[] {false, true}) {
+                INIT_STATES[initStateCode(isInitialized, isDeclared)] = VariableInitState.create(isInitialized, isDeclared);
+            }
+        }
+        for (VariableUseState useState : VariableUseState.values()) {
+            USE_STATES[useStateCode(useState)] = useState;
+        }
+    }
+
+    private static byte initStateCode(boolean isInitialized, boolean isDeclared) {
+        return (byte) (KNOWN_BIT | (isInitialized ? INITIALIZED_BIT : 0) | (isDeclared ? DECLARED_BIT : 0));
+    }
+
+    private static byte useStateCode(@NotNull VariableUseState useState) {
+        return (byte) (KNOWN_BIT | useState.importance);
+    }
+
+    /**
+     * Dense numbering of the variables used in a pseudocode.
+     */
+    private static class VariableIndex {
+        private final List<VariableDescriptor> variables;
+        private final Map<VariableDescriptor, Integer> indices = Maps.newHashMap();
+
+        private VariableIndex(@NotNull Collection<VariableDescriptor> variables) {
+            this.variables = Lists.newArrayList(variables);
+            for (int i = 0; i < this.variables.size(); i++) {
+                indices.put(this.variables.get(i), i);
+            }
+        }
+
+        private int indexOf(@Nullable Object variable) {
+            Integer index = indices.get(variable);
+            return index != null ? index : -1;
+        }
+
+        @NotNull
+        private VariableDescriptor get(int index) {
+            return variables.get(index);
+        }
+
+        private int size() {
+            return variables.size();
+        }
+    }
+
+    /**
+     * Immutable states of the variables of a {@link VariableIndex}, one byte per variable. Zero stands for a variable
+     * without a state (which is absent from the map), other codes are decoded by the given table.
+     */
+    private static class PackedVariableStates<S> extends AbstractMap<VariableDescriptor, S> {
+        private final VariableIndex variableIndex;
+        private final byte[] codes;
+        private final S[] states;
+
+        private PackedVariableStates(@NotNull VariableIndex variableIndex, @NotNull byte[] codes, @NotNull S[] states) {
+            this.variableIndex = variableIndex;
+            this.codes = codes;
+            this.states = states;
+        }
+
+        @NotNull
+        private static byte[] getCodes(@NotNull Map<VariableDescriptor, ?> data) {
+            return ((PackedVariableStates<?>) data).codes;
+        }
+
+        @NotNull
+        private static <S> Map<VariableDescriptor, S> withCode(@NotNull Map<VariableDescriptor, S> data, int index, byte code) {
+            PackedVariableStates<S> packed = (PackedVariableStates<S>) data;
+            if (packed.codes[index] == code) return packed;
+            byte[] codes = packed.codes.clone();
+            codes[index] = code;
+            return new PackedVariableStates<S>(packed.variableIndex, codes, packed.states);
+        }
+
+        @Override
+        public S get(Object key) {
+            int index = variableIndex.indexOf(key);
+            return index >= 0 ? states[codes[index]] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<VariableDescriptor, S>> entrySet() {
+            Set<Entry<VariableDescriptor, S>> entries = Sets.newLinkedHashSet();
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != 0) {
+                    entries.add(new SimpleImmutableEntry<VariableDescriptor, S>(variableIndex.get(i), states[codes[i]]));
+                }
+            }
+            return Collections.unmodifiableSet(entries);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o instanceof PackedVariableStates && ((PackedVariableStates) o).variableIndex == variableIndex) {
+                return Arrays.equals(codes, ((PackedVariableStates) o).codes);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
     }
 
     public static class VariableInitState {
@@ -315,28 +464,6 @@ public class PseudocodeVariablesData {
             if (isDeclared) return VS_FT;
             return VS_FF;
         }
-
-        private static VariableInitState create(boolean isInitialized) {
-            return create(isInitialized, false);
-        }
-
-        private static VariableInitState create(boolean isDeclaredHere, @Nullable VariableInitState mergedEdgesData) {
-            return create(true, isDeclaredHere || (mergedEdgesData != null && mergedEdgesData.isDeclared));
-        }
-
-        private static VariableInitState create(@NotNull Set<VariableInitState> edgesData) {
-            boolean isInitialized = true;
-            boolean isDeclared = true;
-            for (VariableInitState edgeData : edgesData) {
-                if (!edgeData.isInitialized) {
-                    isInitialized = false;
-                }
-                if (!edgeData.isDeclared) {
-                    isDeclared = false;
-                }
-            }
-            return create(isInitialized, isDeclared);
-        }
     }
 
     public static enum VariableUseState {
@@ -351,11 +478,6 @@ public class PseudocodeVariablesData {
             this.importance = importance;
         }
 
-        private VariableUseState merge(@Nullable VariableUseState variableUseState) {
-            if (variableUseState == null || importance > variableUseState.importance) return this;
-            return variableUseState;
-        }
-
         public static boolean isUsed(@Nullable VariableUseState variableUseState) {
             return variableUseState != null && variableUseState != UNUSED;
         }
@@ -26,10 +26,13 @@ import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.types.TypeSubstitutor;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ModuleDescriptor extends DeclarationDescriptorImpl implements ClassOrNamespaceDescriptor, NamespaceDescriptorParent {
     private NamespaceDescriptor rootNamepsace;
 
+    private final AtomicInteger visibleScopesModificationCount = new AtomicInteger();
+
     public ModuleDescriptor(@NotNull Name name) {
         super(Collections.<AnnotationDescriptor>emptyList(), name);
         if (!name.isSpecial()) {
@@ -50,6 +53,18 @@ public class ModuleDescriptor extends DeclarationDescriptorImpl implements Class
         return null;
     }
 
+    /**
+     * Changes whenever a scope of this module that may be seen through the imports of another scope is written to
+     * (see WritableScopeWithImports).
+     */
+    public int getVisibleScopesModificationCount() {
+        return visibleScopesModificationCount.get();
+    }
+
+    public void visibleScopeModified() {
+        visibleScopesModificationCount.incrementAndGet();
+    }
+
     public NamespaceDescriptor getRootNamespace() {
         return rootNamepsace;
     }
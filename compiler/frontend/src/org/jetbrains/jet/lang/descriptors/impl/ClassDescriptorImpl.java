@@ -42,6 +42,7 @@ public class ClassDescriptorImpl extends DeclarationDescriptorNonRootImpl implem
     private ClassDescriptor classObjectDescriptor;
     private final ClassKind kind;
     private boolean isInner;
+    private JetType defaultType;
 
     public ClassDescriptorImpl(
         @NotNull DeclarationDescriptor containingDeclaration,
@@ -78,6 +79,7 @@ public class ClassDescriptorImpl extends DeclarationDescriptorNonRootImpl implem
         this.constructors = constructors;
         this.primaryConstructor = primaryConstructor;
         this.isInner = isInner;
+        this.defaultType = null;
         return this;
     }
 
@@ -110,7 +112,10 @@ public class ClassDescriptorImpl extends DeclarationDescriptorNonRootImpl implem
     @NotNull
     @Override
     public JetType getDefaultType() {
-        return TypeUtils.makeUnsubstitutedType(this, memberDeclarations);
+        if (defaultType == null) {
+            defaultType = TypeUtils.makeUnsubstitutedType(this, memberDeclarations);
+        }
+        return defaultType;
     }
 
     @NotNull
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.constants.*;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.types.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.jetbrains.jet.lang.descriptors.CallableMemberDescriptor.Kind.DECLARATION;
+
+/**
+ * Reads records written by {@link DescriptorSerializer}. An instance knows the type parameters visible at the current point:
+ * a child is created for every class and every generic member.
+ */
+class DescriptorDeserializer {
+    private static final List<AnnotationDescriptor> NO_ANNOTATIONS = Collections.emptyList();
+
+    private final DescriptorDeserializer parent;
+    private final DeserializedPackageDescriptor packageDescriptor;
+    private final PackageData data;
+    private final StorageManager storageManager;
+    private final Map<Integer, TypeParameterDescriptor> typeParameters = new HashMap<Integer, TypeParameterDescriptor>();
+
+    DescriptorDeserializer(
+            @Nullable DescriptorDeserializer parent,
+            @NotNull DeserializedPackageDescriptor packageDescriptor,
+            @NotNull PackageData data,
+            @NotNull StorageManager storageManager
+    ) {
+        this.parent = parent;
+        this.packageDescriptor = packageDescriptor;
+        this.data = data;
+        this.storageManager = storageManager;
+    }
+
+    @NotNull
+    DescriptorDeserializer createChildContext() {
+        return new DescriptorDeserializer(this, packageDescriptor, data, storageManager);
+    }
+
+    @NotNull
+    PackageData getData() {
+        return data;
+    }
+
+    @NotNull
+    List<CallableMemberDescriptor> readMembers(@NotNull DataInputStream in, @NotNull DeclarationDescriptor owner) throws IOException {
+        List<CallableMemberDescriptor> result = new ArrayList<CallableMemberDescriptor>();
+        int functionCount = in.readInt();
+        for (int i = 0; i < functionCount; i++) {
+            result.add(readFunction(in, owner));
+        }
+        int propertyCount = in.readInt();
+        for (int i = 0; i < propertyCount; i++) {
+            result.add(readProperty(in, owner));
+        }
+        return result;
+    }
+
+    @NotNull
+    private SimpleFunctionDescriptor readFunction(@NotNull DataInputStream in, @NotNull DeclarationDescriptor owner) throws IOException {
+        Name name = readName(in);
+        Modality modality = readModality(in);
+        Visibility visibility = readVisibility(in);
+        List<AnnotationDescriptor> annotations = readAnnotations(in);
+        boolean isInline = in.readBoolean();
+
+        SimpleFunctionDescriptorImpl function = new SimpleFunctionDescriptorImpl(owner, annotations, name, DECLARATION);
+        DescriptorDeserializer local = createChildContext();
+        List<TypeParameterDescriptor> typeParameters = local.readTypeParameters(in, function);
+        JetType receiverType = local.readReceiverType(in);
+        List<ValueParameterDescriptor> valueParameters = local.readValueParameters(in, function);
+        JetType returnType = local.readType(in);
+
+        function.initialize(receiverType, DescriptorUtils.getExpectedThisObjectIfNeeded(owner), typeParameters, valueParameters,
+                            returnType, modality, visibility, isInline);
+        return function;
+    }
+
+    @NotNull
+    private PropertyDescriptor readProperty(@NotNull DataInputStream in, @NotNull DeclarationDescriptor owner) throws IOException {
+        Name name = readName(in);
+        Modality modality = readModality(in);
+        Visibility visibility = readVisibility(in);
+        List<AnnotationDescriptor> annotations = readAnnotations(in);
+        boolean isVar = in.readBoolean();
+
+        PropertyDescriptorImpl property = new PropertyDescriptorImpl(owner, annotations, modality, visibility, isVar, name, DECLARATION);
+        DescriptorDeserializer local = createChildContext();
+        List<TypeParameterDescriptor> typeParameters = local.readTypeParameters(in, property);
+        JetType receiverType = local.readReceiverType(in);
+        JetType type = local.readType(in);
+        property.setType(type, typeParameters, DescriptorUtils.getExpectedThisObjectIfNeeded(owner), receiverType);
+
+        PropertyGetterDescriptorImpl getter = null;
+        if (in.readBoolean()) {
+            getter = new PropertyGetterDescriptorImpl(property, NO_ANNOTATIONS, readModality(in), readVisibility(in),
+                                                      in.readBoolean(), in.readBoolean(), DECLARATION);
+            getter.initialize(type);
+        }
+
+        PropertySetterDescriptorImpl setter = null;
+        if (in.readBoolean()) {
+            setter = new PropertySetterDescriptorImpl(property, NO_ANNOTATIONS, readModality(in), readVisibility(in),
+                                                      in.readBoolean(), in.readBoolean(), DECLARATION);
+            if (setter.isDefault()) {
+                setter.initializeDefault();
+            }
+            else {
+                Name parameterName = readName(in);
+                setter.initialize(new ValueParameterDescriptorImpl(setter, 0, NO_ANNOTATIONS, parameterName, false, local.readType(in),
+                                                                   false, null));
+            }
+        }
+
+        property.initialize(getter, setter);
+        return property;
+    }
+
+    @NotNull
+    ConstructorDescriptor readConstructor(@NotNull DataInputStream in, @NotNull ClassDescriptor classDescriptor) throws IOException {
+        boolean isPrimary = in.readBoolean();
+        Visibility visibility = readVisibility(in);
+        List<AnnotationDescriptor> annotations = readAnnotations(in);
+
+        ConstructorDescriptorImpl constructor = new ConstructorDescriptorImpl(classDescriptor, annotations, isPrimary);
+        // Same as in DescriptorResolver: constructors of objects are never static
+        boolean isStatic = !classDescriptor.getKind().isObject() && DescriptorUtils.isConstructorOfStaticNestedClass(constructor);
+        constructor.initialize(classDescriptor.getTypeConstructor().getParameters(), readValueParameters(in, constructor), visibility,
+                               isStatic);
+        constructor.setReturnType(classDescriptor.getDefaultType());
+        return constructor;
+    }
+
+    @NotNull
+    private List<ValueParameterDescriptor> readValueParameters(@NotNull DataInputStream in, @NotNull CallableDescriptor owner)
+            throws IOException {
+        int count = in.readInt();
+        List<ValueParameterDescriptor> result = new ArrayList<ValueParameterDescriptor>(count);
+        for (int i = 0; i < count; i++) {
+            Name name = readName(in);
+            List<AnnotationDescriptor> annotations = readAnnotations(in);
+            boolean declaresDefaultValue = in.readBoolean();
+            CompileTimeConstant<?> defaultValue = declaresDefaultValue && in.readBoolean() ? readConstant(in) : null;
+            boolean isVar = in.readBoolean();
+            JetType type = readType(in);
+            JetType varargElementType = in.readBoolean() ? readType(in) : null;
+            ValueParameterDescriptorImpl parameter =
+                    new ValueParameterDescriptorImpl(owner, i, annotations, name, isVar, type, declaresDefaultValue, varargElementType);
+            if (defaultValue != null) {
+                packageDescriptor.getTrace().record(BindingContext.DESERIALIZED_DEFAULT_VALUE, parameter, defaultValue);
+            }
+            result.add(parameter);
+        }
+        return result;
+    }
+
+    /**
+     * Creates the type parameters and makes them visible in this context. Upper bounds are read lazily, because they may refer to
+     * the parameters themselves or to classes which are not loaded yet
+     */
+    @NotNull
+    List<TypeParameterDescriptor> readTypeParameters(@NotNull DataInputStream in, @NotNull DeclarationDescriptor owner)
+            throws IOException {
+        int count = in.readInt();
+        List<TypeParameterDescriptor> result = new ArrayList<TypeParameterDescriptor>(count);
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            Name name = readName(in);
+            Variance variance = Variance.values()[in.readByte()];
+            boolean reified = in.readBoolean();
+            byte[] bounds = readSection(in);
+
+            TypeParameterDescriptor typeParameter =
+                    new DeserializedTypeParameterDescriptor(storageManager, this, owner, name, i, variance, reified, bounds);
+            typeParameters.put(id, typeParameter);
+            result.add(typeParameter);
+        }
+        return result;
+    }
+
+    @Nullable
+    private JetType readReceiverType(@NotNull DataInputStream in) throws IOException {
+        return in.readBoolean() ? readType(in) : null;
+    }
+
+    @NotNull
+    List<JetType> readTypes(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<JetType> result = new ArrayList<JetType>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readType(in));
+        }
+        return result;
+    }
+
+    @NotNull
+    private JetType readType(@NotNull DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        boolean nullable = in.readBoolean();
+        switch (tag) {
+            case DescriptorSerializer.TYPE_PARAMETER_TYPE:
+                JetType type = getTypeParameter(in.readInt()).getDefaultType();
+                return nullable ? TypeUtils.makeNullable(type) : type;
+            case DescriptorSerializer.CLASS_TYPE:
+                ClassDescriptor classDescriptor = readClassReference(in);
+
+                int argumentCount = in.readInt();
+                List<TypeProjection> arguments = new ArrayList<TypeProjection>(argumentCount);
+                for (int i = 0; i < argumentCount; i++) {
+                    Variance projectionKind = Variance.values()[in.readByte()];
+                    arguments.add(new TypeProjection(projectionKind, readType(in)));
+                }
+
+                return new JetTypeImpl(NO_ANNOTATIONS, classDescriptor.getTypeConstructor(), nullable, arguments,
+                                       classDescriptor.getMemberScope(arguments));
+            default:
+                throw new IOException("Unknown type tag: " + tag);
+        }
+    }
+
+    @NotNull
+    private ClassDescriptor readClassReference(@NotNull DataInputStream in) throws IOException {
+        FqName packageFqName = new FqName(data.getString(in.readInt()));
+        return packageDescriptor.resolveClass(packageFqName, data.readNames(in));
+    }
+
+    @NotNull
+    List<AnnotationDescriptor> readAnnotations(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == 0) return NO_ANNOTATIONS;
+
+        List<AnnotationDescriptor> result = new ArrayList<AnnotationDescriptor>(count);
+        for (int i = 0; i < count; i++) {
+            ClassDescriptor annotationClass = readClassReference(in);
+            AnnotationDescriptor annotation = new AnnotationDescriptor();
+            annotation.setAnnotationType(annotationClass.getDefaultType());
+
+            int argumentCount = in.readInt();
+            for (int j = 0; j < argumentCount; j++) {
+                Name parameterName = readName(in);
+                annotation.setValueArgument(getAnnotationParameter(annotationClass, parameterName), readConstant(in));
+            }
+            result.add(annotation);
+        }
+        return result;
+    }
+
+    @NotNull
+    private static ValueParameterDescriptor getAnnotationParameter(@NotNull ClassDescriptor annotationClass, @NotNull Name name)
+            throws IOException {
+        ConstructorDescriptor constructor = annotationClass.getUnsubstitutedPrimaryConstructor();
+        if (constructor != null) {
+            for (ValueParameterDescriptor parameter : constructor.getValueParameters()) {
+                if (parameter.getName().equals(name)) return parameter;
+            }
+        }
+        throw new IOException("Parameter " + name + " is not found in annotation class " + annotationClass);
+    }
+
+    @NotNull
+    private CompileTimeConstant<?> readConstant(@NotNull DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case DescriptorSerializer.NULL_CONSTANT:
+                return NullValue.NULL;
+            case DescriptorSerializer.STRING_CONSTANT:
+                return new StringValue(data.getString(in.readInt()));
+            case DescriptorSerializer.INT_CONSTANT:
+                return new IntValue(in.readInt());
+            case DescriptorSerializer.BOOLEAN_CONSTANT:
+                return in.readBoolean() ? BooleanValue.TRUE : BooleanValue.FALSE;
+            default:
+                throw new IOException("Unknown constant tag: " + tag);
+        }
+    }
+
+    @NotNull
+    private TypeParameterDescriptor getTypeParameter(int id) throws IOException {
+        for (DescriptorDeserializer context = this; context != null; context = context.parent) {
+            TypeParameterDescriptor typeParameter = context.typeParameters.get(id);
+            if (typeParameter != null) return typeParameter;
+        }
+        throw new IOException("Type parameter is not found: " + id);
+    }
+
+    @NotNull
+    Name readName(@NotNull DataInputStream in) throws IOException {
+        return data.getName(in.readInt());
+    }
+
+    @NotNull
+    static Modality readModality(@NotNull DataInputStream in) throws IOException {
+        return Modality.values()[in.readByte()];
+    }
+
+    @NotNull
+    static Visibility readVisibility(@NotNull DataInputStream in) throws IOException {
+        return DescriptorSerializer.VISIBILITIES.get(in.readByte());
+    }
+
+    @NotNull
+    static byte[] readSection(@NotNull DataInputStream in) throws IOException {
+        byte[] section = new byte[in.readInt()];
+        in.readFully(section);
+        return section;
+    }
+
+    @NotNull
+    static DataInputStream open(@NotNull byte[] section) {
+        return new DataInputStream(new ByteArrayInputStream(section));
+    }
+
+    @NotNull
+    static IllegalStateException corrupted(@NotNull IOException e) {
+        return new IllegalStateException("Serialized descriptors are corrupted: " + e.getMessage(), e);
+    }
+}
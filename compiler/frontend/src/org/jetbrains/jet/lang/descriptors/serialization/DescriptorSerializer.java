@@ -0,0 +1,570 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.Annotated;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.psi.JetExpression;
+import org.jetbrains.jet.lang.psi.JetParameter;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.constants.*;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.types.ErrorUtils;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.TypeProjection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Writes the resolved descriptors of one package into a compact binary form that {@link PackageData} reads back.
+ *
+ * The output starts with a string table and an index of all classes (nested classes, class objects and top-level objects
+ * included), so that every class can be deserialized on its own when it is first requested. Only declared members are written:
+ * fake overrides and the properties of objects are recreated by the deserializer. Annotation arguments and default values of
+ * parameters are written only if they are null, string, int or boolean constants; enum entries and objects nested in classes
+ * are not supported yet.
+ */
+public class DescriptorSerializer {
+    static final int MAGIC = 0x4B444553;
+    static final int VERSION = 2;
+
+    static final byte CLASS_TYPE = 0;
+    static final byte TYPE_PARAMETER_TYPE = 1;
+
+    static final byte NULL_CONSTANT = 0;
+    static final byte STRING_CONSTANT = 1;
+    static final byte INT_CONSTANT = 2;
+    static final byte BOOLEAN_CONSTANT = 3;
+
+    static final List<Visibility> VISIBILITIES = ImmutableList.of(
+            Visibilities.PRIVATE,
+            Visibilities.PROTECTED,
+            Visibilities.INTERNAL,
+            Visibilities.PUBLIC,
+            Visibilities.LOCAL,
+            Visibilities.INHERITED,
+            Visibilities.INVISIBLE_FAKE
+    );
+
+    private final BindingContext bindingContext;
+
+    private final List<String> strings = Lists.newArrayList();
+    private final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+    private final Map<TypeParameterDescriptor, Integer> typeParameterIds = new HashMap<TypeParameterDescriptor, Integer>();
+
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final List<ClassEntry> classes = Lists.newArrayList();
+    private final List<Name> objects = Lists.newArrayList();
+
+    private static class ClassEntry {
+        private final List<Name> path;
+        private final int offset;
+        private final int length;
+
+        private ClassEntry(@NotNull List<Name> path, int offset, int length) {
+            this.path = path;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public static void serialize(@NotNull NamespaceDescriptor packageDescriptor, @NotNull OutputStream stream) throws IOException {
+        serialize(packageDescriptor, null, stream);
+    }
+
+    /**
+     * @param bindingContext the context the package was analyzed in, if default values of parameters should be written
+     */
+    public static void serialize(
+            @NotNull NamespaceDescriptor packageDescriptor,
+            @Nullable BindingContext bindingContext,
+            @NotNull OutputStream stream
+    ) throws IOException {
+        new DescriptorSerializer(bindingContext).doSerialize(packageDescriptor, stream);
+    }
+
+    /**
+     * Writes the packages one after another, preceded by their number; parents must precede their subpackages.
+     * {@link DeserializedLibrary} reads the result back
+     */
+    public static void serializeLibrary(
+            @NotNull List<NamespaceDescriptor> packages,
+            @Nullable BindingContext bindingContext,
+            @NotNull OutputStream stream
+    ) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(packages.size());
+        for (NamespaceDescriptor packageDescriptor : packages) {
+            serialize(packageDescriptor, bindingContext, out);
+        }
+        out.flush();
+    }
+
+    private DescriptorSerializer(@Nullable BindingContext bindingContext) {
+        this.bindingContext = bindingContext;
+    }
+
+    private void doSerialize(@NotNull NamespaceDescriptor packageDescriptor, @NotNull OutputStream stream) throws IOException {
+        Set<Name> objectNames = new HashSet<Name>();
+        for (ClassDescriptor object : packageDescriptor.getMemberScope().getObjectDescriptors()) {
+            objectNames.add(object.getName());
+            objects.add(object.getName());
+            writeClass(Collections.<Name>emptyList(), object);
+        }
+
+        List<CallableMemberDescriptor> members = Lists.newArrayList();
+        for (DeclarationDescriptor descriptor : packageDescriptor.getMemberScope().getAllDescriptors()) {
+            if (descriptor instanceof ClassDescriptor) {
+                writeClass(Collections.<Name>emptyList(), (ClassDescriptor) descriptor);
+            }
+            else if (descriptor instanceof CallableMemberDescriptor) {
+                // Properties of object declarations are recreated from the objects on load
+                if (!(descriptor instanceof PropertyDescriptor && objectNames.contains(descriptor.getName()))) {
+                    members.add((CallableMemberDescriptor) descriptor);
+                }
+            }
+            else if (!(descriptor instanceof NamespaceDescriptor)) {
+                throw unsupported(descriptor);
+            }
+        }
+
+        int membersOffset = data.size();
+        writeMembers(new DataOutputStream(data), members);
+        int membersLength = data.size() - membersOffset;
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(packageDescriptor.getFqName().getFqName());
+
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+
+        out.writeInt(classes.size());
+        for (ClassEntry entry : classes) {
+            writeNames(out, entry.path);
+            out.writeInt(entry.offset);
+            out.writeInt(entry.length);
+        }
+        writeNames(out, objects);
+        out.writeInt(membersOffset);
+        out.writeInt(membersLength);
+
+        out.writeInt(data.size());
+        data.writeTo(out);
+        out.flush();
+    }
+
+    private void writeClass(@NotNull List<Name> outerPath, @NotNull ClassDescriptor classDescriptor) throws IOException {
+        ClassKind kind = classDescriptor.getKind();
+        if (kind == ClassKind.ENUM_ENTRY || (kind == ClassKind.OBJECT && !outerPath.isEmpty())) {
+            throw unsupported(classDescriptor);
+        }
+
+        List<Name> path = append(outerPath, classDescriptor.getName());
+
+        List<ClassDescriptor> nestedClasses = Lists.newArrayList();
+        for (DeclarationDescriptor descriptor : classDescriptor.getUnsubstitutedInnerClassesScope().getAllDescriptors()) {
+            nestedClasses.add((ClassDescriptor) descriptor);
+        }
+        ClassDescriptor classObject = classDescriptor.getClassObjectDescriptor();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(kind.ordinal());
+        out.writeByte(classDescriptor.getModality().ordinal());
+        writeVisibility(out, classDescriptor.getVisibility());
+        out.writeBoolean(classDescriptor.isInner());
+        out.writeBoolean(classObject != null);
+
+        ByteArrayOutputStream annotations = new ByteArrayOutputStream();
+        writeAnnotations(new DataOutputStream(annotations), classDescriptor);
+        writeSection(out, annotations);
+
+        out.writeInt(nestedClasses.size());
+        for (ClassDescriptor nestedClass : nestedClasses) {
+            writeName(out, nestedClass.getName());
+        }
+
+        writeTypeParameters(out, classDescriptor.getTypeConstructor().getParameters());
+
+        ByteArrayOutputStream supertypes = new ByteArrayOutputStream();
+        writeTypes(new DataOutputStream(supertypes), classDescriptor.getTypeConstructor().getSupertypes());
+        writeSection(out, supertypes);
+
+        ByteArrayOutputStream constructors = new ByteArrayOutputStream();
+        writeConstructors(new DataOutputStream(constructors), classDescriptor.getConstructors());
+        writeSection(out, constructors);
+
+        List<CallableMemberDescriptor> members = Lists.newArrayList();
+        for (DeclarationDescriptor descriptor : classDescriptor.getDefaultType().getMemberScope().getAllDescriptors()) {
+            if (descriptor instanceof CallableMemberDescriptor) {
+                members.add((CallableMemberDescriptor) descriptor);
+            }
+        }
+        ByteArrayOutputStream memberBytes = new ByteArrayOutputStream();
+        writeMembers(new DataOutputStream(memberBytes), members);
+        writeSection(out, memberBytes);
+
+        out.flush();
+        classes.add(new ClassEntry(path, data.size(), bytes.size()));
+        bytes.writeTo(data);
+
+        if (classObject != null) {
+            writeClass(path, classObject);
+        }
+        for (ClassDescriptor nestedClass : nestedClasses) {
+            writeClass(path, nestedClass);
+        }
+    }
+
+    private void writeConstructors(@NotNull DataOutputStream out, @NotNull Collection<ConstructorDescriptor> constructors)
+            throws IOException {
+        out.writeInt(constructors.size());
+        for (ConstructorDescriptor constructor : constructors) {
+            out.writeBoolean(constructor.isPrimary());
+            writeVisibility(out, constructor.getVisibility());
+            writeAnnotations(out, constructor);
+            writeValueParameters(out, constructor.getValueParameters());
+        }
+    }
+
+    private void writeMembers(@NotNull DataOutputStream out, @NotNull List<CallableMemberDescriptor> members) throws IOException {
+        List<SimpleFunctionDescriptor> functions = Lists.newArrayList();
+        List<PropertyDescriptor> properties = Lists.newArrayList();
+        for (CallableMemberDescriptor member : members) {
+            CallableMemberDescriptor.Kind kind = member.getKind();
+            if (kind == CallableMemberDescriptor.Kind.FAKE_OVERRIDE) continue;
+            if (kind != CallableMemberDescriptor.Kind.DECLARATION) {
+                throw unsupported(member);
+            }
+
+            if (member instanceof SimpleFunctionDescriptor) {
+                functions.add((SimpleFunctionDescriptor) member);
+            }
+            else if (member instanceof PropertyDescriptor) {
+                properties.add((PropertyDescriptor) member);
+            }
+            else {
+                throw unsupported(member);
+            }
+        }
+
+        out.writeInt(functions.size());
+        for (SimpleFunctionDescriptor function : functions) {
+            writeFunction(out, function);
+        }
+        out.writeInt(properties.size());
+        for (PropertyDescriptor property : properties) {
+            writeProperty(out, property);
+        }
+    }
+
+    private void writeFunction(@NotNull DataOutputStream out, @NotNull SimpleFunctionDescriptor function) throws IOException {
+        writeName(out, function.getName());
+        writeModality(out, function.getModality());
+        writeVisibility(out, function.getVisibility());
+        writeAnnotations(out, function);
+        out.writeBoolean(function.isInline());
+        writeTypeParameters(out, function.getTypeParameters());
+        writeReceiverType(out, function.getReceiverParameter());
+        writeValueParameters(out, function.getValueParameters());
+        writeType(out, returnType(function));
+    }
+
+    private void writeProperty(@NotNull DataOutputStream out, @NotNull PropertyDescriptor property) throws IOException {
+        writeName(out, property.getName());
+        writeModality(out, property.getModality());
+        writeVisibility(out, property.getVisibility());
+        writeAnnotations(out, property);
+        out.writeBoolean(property.isVar());
+        writeTypeParameters(out, property.getTypeParameters());
+        writeReceiverType(out, property.getReceiverParameter());
+        writeType(out, property.getType());
+
+        PropertyGetterDescriptor getter = property.getGetter();
+        out.writeBoolean(getter != null);
+        if (getter != null) {
+            writeAccessor(out, getter);
+        }
+
+        PropertySetterDescriptor setter = property.getSetter();
+        out.writeBoolean(setter != null);
+        if (setter != null) {
+            writeAccessor(out, setter);
+            if (!setter.isDefault()) {
+                ValueParameterDescriptor parameter = setter.getValueParameters().get(0);
+                writeName(out, parameter.getName());
+                writeType(out, parameter.getType());
+            }
+        }
+    }
+
+    private void writeAccessor(@NotNull DataOutputStream out, @NotNull PropertyAccessorDescriptor accessor) throws IOException {
+        checkNoAnnotations(accessor);
+        writeModality(out, accessor.getModality());
+        writeVisibility(out, accessor.getVisibility());
+        out.writeBoolean(accessor.hasBody());
+        out.writeBoolean(accessor.isDefault());
+    }
+
+    private void writeValueParameters(@NotNull DataOutputStream out, @NotNull List<ValueParameterDescriptor> parameters)
+            throws IOException {
+        out.writeInt(parameters.size());
+        for (ValueParameterDescriptor parameter : parameters) {
+            writeName(out, parameter.getName());
+            writeAnnotations(out, parameter);
+            out.writeBoolean(parameter.declaresDefaultValue());
+            if (parameter.declaresDefaultValue()) {
+                CompileTimeConstant<?> defaultValue = getDefaultValue(parameter);
+                out.writeBoolean(defaultValue != null);
+                if (defaultValue != null) {
+                    writeConstant(out, defaultValue);
+                }
+            }
+            out.writeBoolean(parameter.isVar());
+            writeType(out, parameter.getType());
+            JetType varargElementType = parameter.getVarargElementType();
+            out.writeBoolean(varargElementType != null);
+            if (varargElementType != null) {
+                writeType(out, varargElementType);
+            }
+        }
+    }
+
+    private void writeReceiverType(@NotNull DataOutputStream out, @Nullable ReceiverParameterDescriptor receiverParameter)
+            throws IOException {
+        out.writeBoolean(receiverParameter != null);
+        if (receiverParameter != null) {
+            writeType(out, receiverParameter.getType());
+        }
+    }
+
+    private void writeTypeParameters(@NotNull DataOutputStream out, @NotNull List<TypeParameterDescriptor> typeParameters)
+            throws IOException {
+        // All ids are registered before any bound is written: bounds may refer to the parameters themselves (E : Enum<E>)
+        for (TypeParameterDescriptor typeParameter : typeParameters) {
+            typeParameterIds.put(typeParameter, typeParameterIds.size());
+        }
+
+        out.writeInt(typeParameters.size());
+        for (TypeParameterDescriptor typeParameter : typeParameters) {
+            checkNoAnnotations(typeParameter);
+            out.writeInt(typeParameterIds.get(typeParameter));
+            writeName(out, typeParameter.getName());
+            out.writeByte(typeParameter.getVariance().ordinal());
+            out.writeBoolean(typeParameter.isReified());
+
+            ByteArrayOutputStream bounds = new ByteArrayOutputStream();
+            writeTypes(new DataOutputStream(bounds), typeParameter.getUpperBounds());
+            writeSection(out, bounds);
+        }
+    }
+
+    private void writeTypes(@NotNull DataOutputStream out, @NotNull Collection<JetType> types) throws IOException {
+        out.writeInt(types.size());
+        for (JetType type : types) {
+            writeType(out, type);
+        }
+    }
+
+    private void writeType(@NotNull DataOutputStream out, @NotNull JetType type) throws IOException {
+        if (ErrorUtils.isErrorType(type)) {
+            throw new IllegalStateException("Error types can not be serialized: " + type);
+        }
+
+        ClassifierDescriptor classifier = type.getConstructor().getDeclarationDescriptor();
+        if (classifier instanceof TypeParameterDescriptor) {
+            Integer id = typeParameterIds.get(classifier);
+            if (id == null) {
+                throw new IllegalStateException("Type parameter is used outside of its declaration: " + classifier);
+            }
+            out.writeByte(TYPE_PARAMETER_TYPE);
+            out.writeBoolean(type.isNullable());
+            out.writeInt(id);
+        }
+        else if (classifier instanceof ClassDescriptor) {
+            out.writeByte(CLASS_TYPE);
+            out.writeBoolean(type.isNullable());
+            writeClassReference(out, (ClassDescriptor) classifier);
+
+            List<TypeProjection> arguments = type.getArguments();
+            out.writeInt(arguments.size());
+            for (TypeProjection argument : arguments) {
+                out.writeByte(argument.getProjectionKind().ordinal());
+                writeType(out, argument.getType());
+            }
+        }
+        else {
+            throw new IllegalStateException("Unknown classifier " + classifier + " of type " + type);
+        }
+    }
+
+    @Nullable
+    private CompileTimeConstant<?> getDefaultValue(@NotNull ValueParameterDescriptor parameter) {
+        if (bindingContext == null) return null;
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, parameter);
+        if (!(declaration instanceof JetParameter)) return null;
+        JetExpression defaultValue = ((JetParameter) declaration).getDefaultValue();
+        if (defaultValue == null) return null;
+        CompileTimeConstant<?> constant = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, defaultValue);
+        return constant != null && isSupportedConstant(constant) ? constant : null;
+    }
+
+    private void writeAnnotations(@NotNull DataOutputStream out, @NotNull Annotated annotated) throws IOException {
+        List<AnnotationDescriptor> annotations = annotated.getAnnotations();
+        out.writeInt(annotations.size());
+        for (AnnotationDescriptor annotation : annotations) {
+            ClassifierDescriptor annotationClass = annotation.getType().getConstructor().getDeclarationDescriptor();
+            if (!(annotationClass instanceof ClassDescriptor)) {
+                throw new IllegalStateException("Annotation of an unknown class can not be serialized: " + annotation);
+            }
+            writeClassReference(out, (ClassDescriptor) annotationClass);
+
+            Map<ValueParameterDescriptor, CompileTimeConstant<?>> arguments = annotation.getAllValueArguments();
+            out.writeInt(arguments.size());
+            for (Map.Entry<ValueParameterDescriptor, CompileTimeConstant<?>> argument : arguments.entrySet()) {
+                if (!isSupportedConstant(argument.getValue())) {
+                    throw new IllegalStateException("Annotation argument can not be serialized yet: " + annotation + " on " + annotated);
+                }
+                writeName(out, argument.getKey().getName());
+                writeConstant(out, argument.getValue());
+            }
+        }
+    }
+
+    private static boolean isSupportedConstant(@NotNull CompileTimeConstant<?> constant) {
+        return constant instanceof NullValue || constant instanceof StringValue || constant instanceof IntValue ||
+               constant instanceof BooleanValue;
+    }
+
+    private void writeConstant(@NotNull DataOutputStream out, @NotNull CompileTimeConstant<?> constant) throws IOException {
+        if (constant instanceof NullValue) {
+            out.writeByte(NULL_CONSTANT);
+        }
+        else if (constant instanceof StringValue) {
+            out.writeByte(STRING_CONSTANT);
+            out.writeInt(stringIndex(((StringValue) constant).getValue()));
+        }
+        else if (constant instanceof IntValue) {
+            out.writeByte(INT_CONSTANT);
+            out.writeInt(((IntValue) constant).getValue());
+        }
+        else if (constant instanceof BooleanValue) {
+            out.writeByte(BOOLEAN_CONSTANT);
+            out.writeBoolean(((BooleanValue) constant).getValue());
+        }
+        else {
+            throw new IllegalStateException("Constants of this kind can not be serialized yet: " + constant);
+        }
+    }
+
+    private void writeClassReference(@NotNull DataOutputStream out, @NotNull ClassDescriptor classDescriptor) throws IOException {
+        LinkedList<Name> path = new LinkedList<Name>();
+        DeclarationDescriptor current = classDescriptor;
+        while (current instanceof ClassDescriptor) {
+            path.addFirst(current.getName());
+            current = current.getContainingDeclaration();
+        }
+        if (!(current instanceof NamespaceDescriptor)) {
+            throw new IllegalStateException("Local classes can not be serialized: " + classDescriptor);
+        }
+
+        out.writeInt(stringIndex(DescriptorUtils.getFQName(current).getFqName()));
+        writeNames(out, path);
+    }
+
+    private void writeNames(@NotNull DataOutputStream out, @NotNull List<Name> names) throws IOException {
+        out.writeInt(names.size());
+        for (Name name : names) {
+            writeName(out, name);
+        }
+    }
+
+    private void writeName(@NotNull DataOutputStream out, @NotNull Name name) throws IOException {
+        out.writeInt(stringIndex(name.getName()));
+    }
+
+    private int stringIndex(@NotNull String string) {
+        Integer index = stringIndices.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndices.put(string, index);
+        }
+        return index;
+    }
+
+    private static void writeSection(@NotNull DataOutputStream out, @NotNull ByteArrayOutputStream section) throws IOException {
+        out.writeInt(section.size());
+        section.writeTo(out);
+    }
+
+    private static void writeModality(@NotNull DataOutputStream out, @NotNull Modality modality) throws IOException {
+        out.writeByte(modality.ordinal());
+    }
+
+    private static void writeVisibility(@NotNull DataOutputStream out, @NotNull Visibility visibility) throws IOException {
+        int index = VISIBILITIES.indexOf(visibility);
+        if (index < 0) {
+            throw new IllegalStateException("Unknown visibility: " + visibility);
+        }
+        out.writeByte(index);
+    }
+
+    @NotNull
+    private static JetType returnType(@NotNull CallableDescriptor descriptor) {
+        JetType returnType = descriptor.getReturnType();
+        if (returnType == null) {
+            throw new IllegalStateException("Return type is not resolved: " + descriptor);
+        }
+        return returnType;
+    }
+
+    private static void checkNoAnnotations(@NotNull Annotated annotated) {
+        if (!annotated.getAnnotations().isEmpty()) {
+            throw new IllegalStateException("Annotations can not be serialized yet: " + annotated);
+        }
+    }
+
+    @NotNull
+    private static List<Name> append(@NotNull List<Name> path, @NotNull Name name) {
+        List<Name> result = new ArrayList<Name>(path);
+        result.add(name);
+        return result;
+    }
+
+    @NotNull
+    private static IllegalStateException unsupported(@NotNull DeclarationDescriptor descriptor) {
+        return new IllegalStateException("Declarations of this kind can not be serialized yet: " + descriptor);
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.ClassDescriptorBase;
+import org.jetbrains.jet.lang.resolve.BindingTraceContext;
+import org.jetbrains.jet.lang.resolve.DescriptorResolver;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.OverrideResolver;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NotNullLazyValue;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NullableLazyValue;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.InnerClassesScopeWrapper;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.TypeConstructor;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+
+public class DeserializedClassDescriptor extends ClassDescriptorBase {
+    private final DeclarationDescriptor containingDeclaration;
+    private final List<Name> path;
+    private final DeserializedPackageDescriptor packageDescriptor;
+    private final DescriptorDeserializer deserializer;
+
+    private final ClassKind kind;
+    private final Modality modality;
+    private final Visibility visibility;
+    private final boolean isInner;
+    private final boolean hasClassObject;
+    private final Set<Name> nestedClassNames;
+
+    private final TypeConstructor typeConstructor;
+    private final DeserializedClassMemberScope memberScope;
+    private final JetScope innerClassesScope;
+
+    private final NotNullLazyValue<List<AnnotationDescriptor>> annotations;
+    private final NotNullLazyValue<Collection<ConstructorDescriptor>> constructors;
+    private final NullableLazyValue<ClassDescriptor> classObjectDescriptor;
+    private final NotNullLazyValue<ReceiverParameterDescriptor> thisAsReceiverParameter;
+
+    DeserializedClassDescriptor(
+            @NotNull StorageManager storageManager,
+            @NotNull DeclarationDescriptor containingDeclaration,
+            @NotNull List<Name> path,
+            @NotNull DeserializedPackageDescriptor packageDescriptor,
+            @NotNull DescriptorDeserializer deserializer,
+            @NotNull DataInputStream in
+    ) throws IOException {
+        this.containingDeclaration = containingDeclaration;
+        this.path = path;
+        this.packageDescriptor = packageDescriptor;
+        this.deserializer = deserializer;
+
+        this.kind = ClassKind.values()[in.readByte()];
+        this.modality = DescriptorDeserializer.readModality(in);
+        this.visibility = DescriptorDeserializer.readVisibility(in);
+        this.isInner = in.readBoolean();
+        this.hasClassObject = in.readBoolean();
+        // Annotations are read lazily: an annotation class may be annotated with itself
+        final byte[] annotations = DescriptorDeserializer.readSection(in);
+
+        int nestedClassCount = in.readInt();
+        this.nestedClassNames = new LinkedHashSet<Name>(nestedClassCount);
+        for (int i = 0; i < nestedClassCount; i++) {
+            nestedClassNames.add(deserializer.readName(in));
+        }
+
+        List<TypeParameterDescriptor> typeParameters = deserializer.readTypeParameters(in, this);
+        final byte[] supertypes = DescriptorDeserializer.readSection(in);
+        final byte[] constructors = DescriptorDeserializer.readSection(in);
+        final byte[] members = DescriptorDeserializer.readSection(in);
+
+        this.typeConstructor = new DeserializedClassTypeConstructor(storageManager, typeParameters, supertypes);
+        this.memberScope = new DeserializedClassMemberScope(storageManager, members);
+        this.innerClassesScope = new InnerClassesScopeWrapper(memberScope);
+
+        this.annotations = storageManager.createLazyValue(new Computable<List<AnnotationDescriptor>>() {
+            @Override
+            public List<AnnotationDescriptor> compute() {
+                return computeAnnotations(annotations);
+            }
+        });
+        this.constructors = storageManager.createLazyValue(new Computable<Collection<ConstructorDescriptor>>() {
+            @Override
+            public Collection<ConstructorDescriptor> compute() {
+                return computeConstructors(constructors);
+            }
+        });
+        this.classObjectDescriptor = storageManager.createNullableLazyValue(new Computable<ClassDescriptor>() {
+            @Override
+            public ClassDescriptor compute() {
+                return computeClassObjectDescriptor();
+            }
+        });
+        this.thisAsReceiverParameter = storageManager.createLazyValue(new Computable<ReceiverParameterDescriptor>() {
+            @Override
+            public ReceiverParameterDescriptor compute() {
+                return DescriptorResolver.createLazyReceiverParameterDescriptor(DeserializedClassDescriptor.this);
+            }
+        });
+    }
+
+    @NotNull
+    private List<AnnotationDescriptor> computeAnnotations(@NotNull byte[] record) {
+        try {
+            return deserializer.readAnnotations(DescriptorDeserializer.open(record));
+        }
+        catch (IOException e) {
+            throw DescriptorDeserializer.corrupted(e);
+        }
+    }
+
+    @NotNull
+    private Collection<ConstructorDescriptor> computeConstructors(@NotNull byte[] record) {
+        try {
+            DataInputStream in = DescriptorDeserializer.open(record);
+            int count = in.readInt();
+            List<ConstructorDescriptor> result = new ArrayList<ConstructorDescriptor>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(deserializer.readConstructor(in, this));
+            }
+            return result;
+        }
+        catch (IOException e) {
+            throw DescriptorDeserializer.corrupted(e);
+        }
+    }
+
+    @Nullable
+    private ClassDescriptor computeClassObjectDescriptor() {
+        if (!hasClassObject) return null;
+        Name classObjectName = DescriptorUtils.getClassObjectName(getName());
+        return packageDescriptor.findClass(append(path, classObjectName));
+    }
+
+    @Nullable
+    private ClassDescriptor getNestedClass(@NotNull Name name) {
+        if (!nestedClassNames.contains(name)) return null;
+        return packageDescriptor.findClass(append(path, name));
+    }
+
+    @NotNull
+    private static List<Name> append(@NotNull List<Name> path, @NotNull Name name) {
+        List<Name> result = new ArrayList<Name>(path.size() + 1);
+        result.addAll(path);
+        result.add(name);
+        return result;
+    }
+
+    @Override
+    protected JetScope getScopeForMemberLookup() {
+        return memberScope;
+    }
+
+    @NotNull
+    @Override
+    public JetScope getUnsubstitutedInnerClassesScope() {
+        return innerClassesScope;
+    }
+
+    @NotNull
+    @Override
+    public Collection<ConstructorDescriptor> getConstructors() {
+        return constructors.compute();
+    }
+
+    @Override
+    public ConstructorDescriptor getUnsubstitutedPrimaryConstructor() {
+        for (ConstructorDescriptor constructor : getConstructors()) {
+            if (constructor.isPrimary()) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getContainingDeclaration() {
+        return containingDeclaration;
+    }
+
+    @NotNull
+    @Override
+    public TypeConstructor getTypeConstructor() {
+        return typeConstructor;
+    }
+
+    @Override
+    public JetType getClassObjectType() {
+        ClassDescriptor classObjectDescriptor = getClassObjectDescriptor();
+        return classObjectDescriptor == null ? null : classObjectDescriptor.getDefaultType();
+    }
+
+    @Override
+    public ClassDescriptor getClassObjectDescriptor() {
+        return classObjectDescriptor.compute();
+    }
+
+    @Override
+    public boolean isClassObjectAValue() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public ClassKind getKind() {
+        return kind;
+    }
+
+    @NotNull
+    @Override
+    public Modality getModality() {
+        return modality;
+    }
+
+    @NotNull
+    @Override
+    public Visibility getVisibility() {
+        return visibility;
+    }
+
+    @Override
+    public boolean isInner() {
+        return isInner;
+    }
+
+    @NotNull
+    @Override
+    public ReceiverParameterDescriptor getThisAsReceiverParameter() {
+        return thisAsReceiverParameter.compute();
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getOriginal() {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return path.get(path.size() - 1);
+    }
+
+    @Override
+    public List<AnnotationDescriptor> getAnnotations() {
+        return annotations.compute();
+    }
+
+    @Override
+    public String toString() {
+        return "deserialized class " + getName().toString();
+    }
+
+    private class DeserializedClassTypeConstructor implements TypeConstructor {
+        private final List<TypeParameterDescriptor> parameters;
+        private final NotNullLazyValue<Collection<JetType>> supertypes;
+
+        public DeserializedClassTypeConstructor(
+                @NotNull StorageManager storageManager,
+                @NotNull List<TypeParameterDescriptor> parameters,
+                @NotNull final byte[] supertypesRecord
+        ) {
+            this.parameters = parameters;
+            this.supertypes = storageManager.createLazyValue(new Computable<Collection<JetType>>() {
+                @Override
+                public Collection<JetType> compute() {
+                    try {
+                        return deserializer.readTypes(DescriptorDeserializer.open(supertypesRecord));
+                    }
+                    catch (IOException e) {
+                        throw DescriptorDeserializer.corrupted(e);
+                    }
+                }
+            });
+        }
+
+        @NotNull
+        @Override
+        public List<TypeParameterDescriptor> getParameters() {
+            return parameters;
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetType> getSupertypes() {
+            return supertypes.compute();
+        }
+
+        @Override
+        public boolean isSealed() {
+            return !getModality().isOverridable();
+        }
+
+        @Override
+        public ClassifierDescriptor getDeclarationDescriptor() {
+            return DeserializedClassDescriptor.this;
+        }
+
+        @Override
+        public List<AnnotationDescriptor> getAnnotations() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString() {
+            return getName().toString();
+        }
+    }
+
+    private class DeserializedClassMemberScope extends DeserializedMemberScope {
+        public DeserializedClassMemberScope(@NotNull StorageManager storageManager, @NotNull final byte[] membersRecord) {
+            super(storageManager, DeserializedClassDescriptor.this, deserializer, new Computable<DataInputStream>() {
+                @Override
+                public DataInputStream compute() {
+                    return DescriptorDeserializer.open(membersRecord);
+                }
+            });
+        }
+
+        @Override
+        public ClassifierDescriptor getClassifier(@NotNull Name name) {
+            return getNestedClass(name);
+        }
+
+        @Override
+        protected void addClassDescriptors(@NotNull Collection<DeclarationDescriptor> result) {
+            for (Name name : nestedClassNames) {
+                ContainerUtil.addIfNotNull(result, getNestedClass(name));
+            }
+        }
+
+        @Override
+        protected void getNonDeclaredFunctions(@NotNull Name name, @NotNull Set<FunctionDescriptor> result) {
+            Collection<FunctionDescriptor> fromSupertypes = Lists.newArrayList();
+            for (JetType supertype : getTypeConstructor().getSupertypes()) {
+                fromSupertypes.addAll(supertype.getMemberScope().getFunctions(name));
+            }
+            generateFakeOverrides(name, fromSupertypes, result);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void getNonDeclaredProperties(@NotNull Name name, @NotNull Set<VariableDescriptor> result) {
+            Collection<PropertyDescriptor> fromSupertypes = Lists.newArrayList();
+            for (JetType supertype : getTypeConstructor().getSupertypes()) {
+                fromSupertypes.addAll((Collection) supertype.getMemberScope().getProperties(name));
+            }
+            generateFakeOverrides(name, fromSupertypes, (Collection) result);
+        }
+
+        private <D extends CallableMemberDescriptor> void generateFakeOverrides(
+                @NotNull Name name,
+                @NotNull Collection<D> fromSupertypes,
+                @NotNull final Collection<D> result
+        ) {
+            final List<CallableMemberDescriptor> fakeOverrides = Lists.newArrayList();
+            OverrideResolver.generateOverridesInFunctionGroup(
+                    name,
+                    fromSupertypes,
+                    Lists.newArrayList(result),
+                    DeserializedClassDescriptor.this,
+                    new OverrideResolver.DescriptorSink() {
+                        @Override
+                        public void addToScope(@NotNull CallableMemberDescriptor fakeOverride) {
+                            fakeOverrides.add(fakeOverride);
+                        }
+
+                        @Override
+                        public void conflict(@NotNull CallableMemberDescriptor fromSuper, @NotNull CallableMemberDescriptor fromCurrent) {
+                            throw new IllegalStateException("Conflicting overloads in a deserialized class: " + fromCurrent);
+                        }
+                    }
+            );
+            OverrideResolver.resolveUnknownVisibilities(fakeOverrides, new BindingTraceContext());
+            //noinspection unchecked
+            result.addAll((Collection) fakeOverrides);
+        }
+
+        @Override
+        protected void addExtraDescriptors(@NotNull Collection<DeclarationDescriptor> result) {
+            for (JetType supertype : getTypeConstructor().getSupertypes()) {
+                for (DeclarationDescriptor descriptor : supertype.getMemberScope().getAllDescriptors()) {
+                    if (descriptor instanceof FunctionDescriptor) {
+                        result.addAll(getFunctions(descriptor.getName()));
+                    }
+                    else if (descriptor instanceof PropertyDescriptor) {
+                        result.addAll(getProperties(descriptor.getName()));
+                    }
+                    // Nothing else is inherited
+                }
+            }
+        }
+
+        @Nullable
+        @Override
+        protected ReceiverParameterDescriptor getImplicitReceiver() {
+            return getThisAsReceiverParameter();
+        }
+
+        @Override
+        public String toString() {
+            return "deserialized scope for class " + getName();
+        }
+    }
+}
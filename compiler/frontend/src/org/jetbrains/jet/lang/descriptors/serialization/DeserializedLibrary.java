@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorImpl;
+import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorParent;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.RedeclarationHandler;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packages written by {@link DescriptorSerializer#serializeLibrary}, loaded under a common root namespace. Classes referenced
+ * from the library are looked up in its own packages first, and then among the built-ins.
+ *
+ * Every package is recorded into the trace under {@link BindingContext#FQNAME_TO_NAMESPACE_DESCRIPTOR}, so that the trace can be
+ * used in place of the binding context of the analyzed library sources.
+ */
+public class DeserializedLibrary {
+    private static final Function<FqName, Name> NO_ALIASES = new Function<FqName, Name>() {
+        @Override
+        public Name fun(FqName name) {
+            return null;
+        }
+    };
+
+    private final NamespaceDescriptorImpl rootNamespace;
+    private final Map<FqName, DeserializedPackageDescriptor> packages = new LinkedHashMap<FqName, DeserializedPackageDescriptor>();
+
+    @NotNull
+    public static DeserializedLibrary read(
+            @NotNull ModuleDescriptor module,
+            @NotNull InputStream stream,
+            @NotNull StorageManager storageManager,
+            @NotNull BindingTrace trace
+    ) throws IOException {
+        return new DeserializedLibrary(module, new DataInputStream(stream), storageManager, trace);
+    }
+
+    private DeserializedLibrary(
+            @NotNull ModuleDescriptor module,
+            @NotNull DataInputStream in,
+            @NotNull StorageManager storageManager,
+            @NotNull BindingTrace trace
+    ) throws IOException {
+        rootNamespace = new NamespaceDescriptorImpl(module, Collections.<AnnotationDescriptor>emptyList(), FqNameUnsafe.ROOT_NAME);
+        WritableScopeImpl rootScope =
+                new WritableScopeImpl(JetScope.EMPTY, rootNamespace, RedeclarationHandler.DO_NOTHING, "Root scope of a library");
+        rootScope.changeLockLevel(WritableScope.LockLevel.BOTH);
+        rootNamespace.initialize(rootScope);
+        module.setRootNamespace(rootNamespace);
+        trace.record(BindingContext.FQNAME_TO_NAMESPACE_DESCRIPTOR, FqName.ROOT, rootNamespace);
+
+        ClassResolver classResolver = new ClassResolver() {
+            @Nullable
+            @Override
+            public ClassDescriptor findClass(@NotNull FqName packageFqName, @NotNull List<Name> path) {
+                return findLibraryOrBuiltInClass(packageFqName, path);
+            }
+        };
+
+        int packageCount = in.readInt();
+        for (int i = 0; i < packageCount; i++) {
+            PackageData data = PackageData.read(in);
+            FqName fqName = data.getPackageFqName();
+            NamespaceDescriptorParent parent = fqName.parent().isRoot() ? rootNamespace : packages.get(fqName.parent());
+            if (parent == null) {
+                throw new IOException("Package " + fqName + " is read before its parent");
+            }
+
+            DeserializedPackageDescriptor packageDescriptor =
+                    new DeserializedPackageDescriptor(parent, data, storageManager, classResolver, NO_ALIASES, trace);
+            parent.addNamespace(packageDescriptor);
+            packages.put(fqName, packageDescriptor);
+            trace.record(BindingContext.FQNAME_TO_NAMESPACE_DESCRIPTOR, fqName, packageDescriptor);
+        }
+
+        rootScope.changeLockLevel(WritableScope.LockLevel.READING);
+    }
+
+    @NotNull
+    public NamespaceDescriptor getRootNamespace() {
+        return rootNamespace;
+    }
+
+    @Nullable
+    public NamespaceDescriptor getPackage(@NotNull FqName fqName) {
+        return fqName.isRoot() ? rootNamespace : packages.get(fqName);
+    }
+
+    @Nullable
+    private ClassDescriptor findLibraryOrBuiltInClass(@NotNull FqName packageFqName, @NotNull List<Name> path) {
+        DeserializedPackageDescriptor packageDescriptor = packages.get(packageFqName);
+        if (packageDescriptor != null) {
+            ClassDescriptor classDescriptor = packageDescriptor.findClass(path);
+            if (classDescriptor != null) return classDescriptor;
+        }
+        if (packageFqName.equals(KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME)) {
+            return findNestedClass(KotlinBuiltIns.getInstance().getBuiltInsPackage(), path);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static ClassDescriptor findNestedClass(@NotNull NamespaceDescriptor namespace, @NotNull List<Name> path) {
+        ClassifierDescriptor classifier = namespace.getMemberScope().getClassifier(path.get(0));
+        for (Name name : path.subList(1, path.size())) {
+            if (!(classifier instanceof ClassDescriptor)) return null;
+            ClassDescriptor outer = (ClassDescriptor) classifier;
+            classifier = name.equals(DescriptorUtils.getClassObjectName(outer.getName()))
+                         ? outer.getClassObjectDescriptor()
+                         : outer.getUnsubstitutedInnerClassesScope().getClassifier(name);
+        }
+        return classifier instanceof ClassDescriptor ? (ClassDescriptor) classifier : null;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.resolve.lazy.storage.MemoizedFunctionToNotNull;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NotNullLazyValue;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.LabelName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager.ReferenceKind.STRONG;
+
+/**
+ * Members of a deserialized class or package. The whole member record is read on the first request, the descriptors are then
+ * grouped by name, so that non-declared members (fake overrides) can still be computed for one name at a time.
+ */
+public abstract class DeserializedMemberScope implements JetScope {
+    protected final DeclarationDescriptor containingDeclaration;
+
+    private final NotNullLazyValue<Map<Name, List<CallableMemberDescriptor>>> declaredMembers;
+    private final MemoizedFunctionToNotNull<Name, Set<FunctionDescriptor>> functions;
+    private final MemoizedFunctionToNotNull<Name, Set<VariableDescriptor>> properties;
+    private final NotNullLazyValue<Collection<DeclarationDescriptor>> allDescriptors;
+
+    protected DeserializedMemberScope(
+            @NotNull StorageManager storageManager,
+            @NotNull final DeclarationDescriptor containingDeclaration,
+            @NotNull final DescriptorDeserializer deserializer,
+            @NotNull final Computable<DataInputStream> membersRecord
+    ) {
+        this.containingDeclaration = containingDeclaration;
+
+        this.declaredMembers = storageManager.createLazyValue(new Computable<Map<Name, List<CallableMemberDescriptor>>>() {
+            @Override
+            public Map<Name, List<CallableMemberDescriptor>> compute() {
+                try {
+                    return groupByName(deserializer.readMembers(membersRecord.compute(), containingDeclaration));
+                }
+                catch (IOException e) {
+                    throw DescriptorDeserializer.corrupted(e);
+                }
+            }
+        });
+        this.functions = storageManager.createMemoizedFunction(new Function<Name, Set<FunctionDescriptor>>() {
+            @Override
+            public Set<FunctionDescriptor> fun(Name name) {
+                return computeFunctions(name);
+            }
+        }, STRONG);
+        this.properties = storageManager.createMemoizedFunction(new Function<Name, Set<VariableDescriptor>>() {
+            @Override
+            public Set<VariableDescriptor> fun(Name name) {
+                return computeProperties(name);
+            }
+        }, STRONG);
+        this.allDescriptors = storageManager.createLazyValue(new Computable<Collection<DeclarationDescriptor>>() {
+            @Override
+            public Collection<DeclarationDescriptor> compute() {
+                return computeAllDescriptors();
+            }
+        });
+    }
+
+    @NotNull
+    private static Map<Name, List<CallableMemberDescriptor>> groupByName(@NotNull List<CallableMemberDescriptor> members) {
+        Map<Name, List<CallableMemberDescriptor>> result = new LinkedHashMap<Name, List<CallableMemberDescriptor>>();
+        for (CallableMemberDescriptor member : members) {
+            List<CallableMemberDescriptor> sameName = result.get(member.getName());
+            if (sameName == null) {
+                sameName = new ArrayList<CallableMemberDescriptor>(1);
+                result.put(member.getName(), sameName);
+            }
+            sameName.add(member);
+        }
+        return result;
+    }
+
+    @NotNull
+    private List<CallableMemberDescriptor> getDeclaredMembers(@NotNull Name name) {
+        List<CallableMemberDescriptor> members = declaredMembers.compute().get(name);
+        return members != null ? members : Collections.<CallableMemberDescriptor>emptyList();
+    }
+
+    @NotNull
+    private Set<FunctionDescriptor> computeFunctions(@NotNull Name name) {
+        Set<FunctionDescriptor> result = Sets.newLinkedHashSet();
+        for (CallableMemberDescriptor member : getDeclaredMembers(name)) {
+            if (member instanceof FunctionDescriptor) {
+                result.add((FunctionDescriptor) member);
+            }
+        }
+        getNonDeclaredFunctions(name, result);
+        return result;
+    }
+
+    @NotNull
+    private Set<VariableDescriptor> computeProperties(@NotNull Name name) {
+        Set<VariableDescriptor> result = Sets.newLinkedHashSet();
+        for (CallableMemberDescriptor member : getDeclaredMembers(name)) {
+            if (member instanceof PropertyDescriptor) {
+                result.add((PropertyDescriptor) member);
+            }
+        }
+        getNonDeclaredProperties(name, result);
+        return result;
+    }
+
+    protected abstract void getNonDeclaredFunctions(@NotNull Name name, @NotNull Set<FunctionDescriptor> result);
+
+    protected abstract void getNonDeclaredProperties(@NotNull Name name, @NotNull Set<VariableDescriptor> result);
+
+    @NotNull
+    @Override
+    public Set<FunctionDescriptor> getFunctions(@NotNull Name name) {
+        return functions.fun(name);
+    }
+
+    @NotNull
+    @Override
+    public Set<VariableDescriptor> getProperties(@NotNull Name name) {
+        return properties.fun(name);
+    }
+
+    @NotNull
+    private Collection<DeclarationDescriptor> computeAllDescriptors() {
+        Collection<DeclarationDescriptor> result = Sets.newLinkedHashSet();
+        addClassDescriptors(result);
+        for (Name name : declaredMembers.compute().keySet()) {
+            result.addAll(getFunctions(name));
+            result.addAll(getProperties(name));
+        }
+        addExtraDescriptors(result);
+        return result;
+    }
+
+    protected abstract void addClassDescriptors(@NotNull Collection<DeclarationDescriptor> result);
+
+    protected abstract void addExtraDescriptors(@NotNull Collection<DeclarationDescriptor> result);
+
+    @NotNull
+    @Override
+    public Collection<DeclarationDescriptor> getAllDescriptors() {
+        return allDescriptors.compute();
+    }
+
+    @NotNull
+    @Override
+    public Collection<DeclarationDescriptor> getOwnDeclaredDescriptors() {
+        return getAllDescriptors();
+    }
+
+    @Nullable
+    protected abstract ReceiverParameterDescriptor getImplicitReceiver();
+
+    @NotNull
+    @Override
+    public List<ReceiverParameterDescriptor> getImplicitReceiversHierarchy() {
+        ReceiverParameterDescriptor receiver = getImplicitReceiver();
+        if (receiver != null) {
+            return Collections.singletonList(receiver);
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ClassDescriptor getObjectDescriptor(@NotNull Name name) {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public Collection<ClassDescriptor> getObjectDescriptors() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public NamespaceDescriptor getNamespace(@NotNull Name name) {
+        return null;
+    }
+
+    @Override
+    public VariableDescriptor getLocalVariable(@NotNull Name name) {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getContainingDeclaration() {
+        return containingDeclaration;
+    }
+
+    @NotNull
+    @Override
+    public Collection<DeclarationDescriptor> getDeclarationsByLabel(@NotNull LabelName labelName) {
+        // A member scope has no labels
+        return Collections.emptySet();
+    }
+
+    @Override
+    public PropertyDescriptor getPropertyByFieldReference(@NotNull Name fieldName) {
+        return null;
+    }
+}
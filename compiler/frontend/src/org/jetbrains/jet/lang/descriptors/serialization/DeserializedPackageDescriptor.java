@@ -0,0 +1,250 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.Function;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.AbstractNamespaceDescriptorImpl;
+import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorParent;
+import org.jetbrains.jet.lang.descriptors.impl.PropertyDescriptorImpl;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lang.resolve.DescriptorResolver;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.lazy.storage.MemoizedFunctionToNullable;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager.ReferenceKind.STRONG;
+
+/**
+ * A package read from {@link PackageData}. Classes are deserialized one by one when they are first looked up, top-level
+ * functions and properties are deserialized together on the first request for any of them.
+ *
+ * What the analysis of the sources would have recorded about the deserialized descriptors, i.e. the classes of object
+ * declarations and the constant default values of parameters, is recorded into the given trace as the descriptors are created.
+ */
+public class DeserializedPackageDescriptor extends AbstractNamespaceDescriptorImpl {
+    private final PackageData data;
+    private final StorageManager storageManager;
+    private final ClassResolver classResolver;
+    private final Function<FqName, Name> classifierAliases;
+    private final BindingTrace trace;
+    private final Map<Name, NamespaceDescriptor> subpackages = new LinkedHashMap<Name, NamespaceDescriptor>();
+    private final DescriptorDeserializer deserializer;
+    private final MemoizedFunctionToNullable<List<Name>, ClassDescriptor> classes;
+    private final JetScope memberScope;
+
+    /**
+     * @param classResolver if not null, it is asked first for every class referenced from the serialized data, including the
+     *                      classes of this package; otherwise only references to this package can be resolved
+     * @param classifierAliases maps an alias of a class of this package to the actual name, may return null
+     * @param trace records what is known about the deserialized descriptors, see {@link BindingContext}
+     */
+    public DeserializedPackageDescriptor(
+            @NotNull NamespaceDescriptorParent containingDeclaration,
+            @NotNull PackageData data,
+            @NotNull StorageManager storageManager,
+            @Nullable ClassResolver classResolver,
+            @NotNull Function<FqName, Name> classifierAliases,
+            @NotNull BindingTrace trace
+    ) {
+        super(containingDeclaration, Collections.<AnnotationDescriptor>emptyList(), data.getPackageFqName().shortNameOrSpecial());
+        this.data = data;
+        this.storageManager = storageManager;
+        this.classResolver = classResolver;
+        this.classifierAliases = classifierAliases;
+        this.trace = trace;
+        this.deserializer = new DescriptorDeserializer(null, this, data, storageManager);
+
+        this.classes = storageManager.createMemoizedFunctionWithNullableValues(new Function<List<Name>, ClassDescriptor>() {
+            @Override
+            public ClassDescriptor fun(List<Name> path) {
+                return computeClass(path);
+            }
+        }, STRONG);
+        this.memberScope = new DeserializedPackageMemberScope(storageManager);
+    }
+
+    @Nullable
+    private ClassDescriptor computeClass(@NotNull List<Name> path) {
+        DataInputStream in = data.openClass(path);
+        if (in == null) return null;
+
+        DeclarationDescriptor containingDeclaration =
+                path.size() == 1 ? this : findClass(new ArrayList<Name>(path.subList(0, path.size() - 1)));
+        if (containingDeclaration == null) return null;
+
+        try {
+            return new DeserializedClassDescriptor(storageManager, containingDeclaration, path, this,
+                                                   deserializer.createChildContext(), in);
+        }
+        catch (IOException e) {
+            throw DescriptorDeserializer.corrupted(e);
+        }
+    }
+
+    /**
+     * @param path names of the class and of its outer classes in this package, outermost first
+     */
+    @Nullable
+    public ClassDescriptor findClass(@NotNull List<Name> path) {
+        return classes.fun(path);
+    }
+
+    @NotNull
+    BindingTrace getTrace() {
+        return trace;
+    }
+
+    @NotNull
+    ClassDescriptor resolveClass(@NotNull FqName packageFqName, @NotNull List<Name> path) {
+        if (classResolver != null) {
+            ClassDescriptor classDescriptor = classResolver.findClass(packageFqName, path);
+            if (classDescriptor != null) return classDescriptor;
+        }
+        if (packageFqName.equals(getFqName())) {
+            ClassDescriptor classDescriptor = findClass(path);
+            if (classDescriptor != null) return classDescriptor;
+        }
+        throw new IllegalStateException("Class referenced from serialized descriptors is not found: " + packageFqName + " " + path);
+    }
+
+    @NotNull
+    @Override
+    public JetScope getMemberScope() {
+        return memberScope;
+    }
+
+    @Override
+    public void addNamespace(@NotNull NamespaceDescriptor namespaceDescriptor) {
+        subpackages.put(namespaceDescriptor.getName(), namespaceDescriptor);
+    }
+
+    @NotNull
+    private PropertyDescriptor createObjectProperty(@NotNull ClassDescriptor objectDescriptor) {
+        // Same as DescriptorResolver.resolveObjectDeclarationAsPropertyDescriptor()
+        PropertyDescriptorImpl property = new PropertyDescriptorImpl(
+                this, objectDescriptor.getAnnotations(), Modality.FINAL, objectDescriptor.getVisibility(), false,
+                objectDescriptor.getName(), CallableMemberDescriptor.Kind.DECLARATION);
+        property.setType(objectDescriptor.getDefaultType(), Collections.<TypeParameterDescriptor>emptyList(),
+                         DescriptorUtils.getExpectedThisObjectIfNeeded(this), ReceiverParameterDescriptor.NO_RECEIVER_PARAMETER);
+        property.initialize(DescriptorResolver.createDefaultGetter(property), null);
+        trace.record(BindingContext.OBJECT_DECLARATION_CLASS, property, objectDescriptor);
+        return property;
+    }
+
+    @NotNull
+    @Override
+    public FqName getFqName() {
+        return data.getPackageFqName();
+    }
+
+    private class DeserializedPackageMemberScope extends DeserializedMemberScope {
+        public DeserializedPackageMemberScope(@NotNull StorageManager storageManager) {
+            super(storageManager, DeserializedPackageDescriptor.this, deserializer, new Computable<DataInputStream>() {
+                @Override
+                public DataInputStream compute() {
+                    return data.openMembers();
+                }
+            });
+        }
+
+        @Override
+        public ClassifierDescriptor getClassifier(@NotNull Name name) {
+            Name actualName = classifierAliases.fun(getFqName().child(name));
+            if (actualName == null) {
+                actualName = name;
+            }
+            if (data.getObjectNames().contains(actualName)) return null;
+            return findClass(Collections.singletonList(actualName));
+        }
+
+        @Override
+        public ClassDescriptor getObjectDescriptor(@NotNull Name name) {
+            if (!data.getObjectNames().contains(name)) return null;
+            return findClass(Collections.singletonList(name));
+        }
+
+        @NotNull
+        @Override
+        public Collection<ClassDescriptor> getObjectDescriptors() {
+            List<ClassDescriptor> result = new ArrayList<ClassDescriptor>(data.getObjectNames().size());
+            for (Name name : data.getObjectNames()) {
+                ContainerUtil.addIfNotNull(result, getObjectDescriptor(name));
+            }
+            return result;
+        }
+
+        @Override
+        public NamespaceDescriptor getNamespace(@NotNull Name name) {
+            return subpackages.get(name);
+        }
+
+        @Override
+        protected void addClassDescriptors(@NotNull Collection<DeclarationDescriptor> result) {
+            for (List<Name> path : data.getClassPaths()) {
+                if (path.size() == 1 && !data.getObjectNames().contains(path.get(0))) {
+                    ContainerUtil.addIfNotNull(result, findClass(path));
+                }
+            }
+        }
+
+        @Override
+        protected void getNonDeclaredFunctions(@NotNull Name name, @NotNull Set<FunctionDescriptor> result) {
+            // No extra functions
+        }
+
+        @Override
+        protected void getNonDeclaredProperties(@NotNull Name name, @NotNull Set<VariableDescriptor> result) {
+            // Objects are also properties
+            ClassDescriptor objectDescriptor = getObjectDescriptor(name);
+            if (objectDescriptor != null) {
+                result.add(createObjectProperty(objectDescriptor));
+            }
+        }
+
+        @Override
+        protected void addExtraDescriptors(@NotNull Collection<DeclarationDescriptor> result) {
+            for (Name name : data.getObjectNames()) {
+                result.addAll(getProperties(name));
+            }
+        }
+
+        @Nullable
+        @Override
+        protected ReceiverParameterDescriptor getImplicitReceiver() {
+            return ReceiverParameterDescriptor.NO_RECEIVER_PARAMETER;
+        }
+
+        @Override
+        public String toString() {
+            return "deserialized scope for package " + getName();
+        }
+    }
+}
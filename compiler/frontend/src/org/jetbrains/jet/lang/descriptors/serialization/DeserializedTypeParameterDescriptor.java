@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.intellij.openapi.util.Computable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptorVisitor;
+import org.jetbrains.jet.lang.descriptors.TypeParameterDescriptor;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NotNullLazyValue;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.LazyScopeAdapter;
+import org.jetbrains.jet.lang.types.*;
+import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.util.lazy.RecursionIntolerantLazyValue;
+
+import java.io.IOException;
+import java.util.*;
+
+public class DeserializedTypeParameterDescriptor implements TypeParameterDescriptor {
+    private final DeclarationDescriptor containingDeclaration;
+    private final Name name;
+    private final int index;
+    private final Variance variance;
+    private final boolean reified;
+
+    private final TypeConstructor typeConstructor;
+    private final NotNullLazyValue<JetType> defaultType;
+    private final NotNullLazyValue<Set<JetType>> upperBounds;
+    private final NotNullLazyValue<JetType> upperBoundsAsType;
+
+    DeserializedTypeParameterDescriptor(
+            @NotNull StorageManager storageManager,
+            @NotNull final DescriptorDeserializer deserializer,
+            @NotNull DeclarationDescriptor containingDeclaration,
+            @NotNull Name name,
+            int index,
+            @NotNull Variance variance,
+            boolean reified,
+            @NotNull final byte[] bounds
+    ) {
+        this.containingDeclaration = containingDeclaration;
+        this.name = name;
+        this.index = index;
+        this.variance = variance;
+        this.reified = reified;
+
+        this.typeConstructor = createTypeConstructor();
+        this.defaultType = storageManager.createLazyValue(new Computable<JetType>() {
+            @Override
+            public JetType compute() {
+                return createDefaultType();
+            }
+        });
+        this.upperBounds = storageManager.createLazyValue(new Computable<Set<JetType>>() {
+            @Override
+            public Set<JetType> compute() {
+                try {
+                    return new LinkedHashSet<JetType>(deserializer.readTypes(DescriptorDeserializer.open(bounds)));
+                }
+                catch (IOException e) {
+                    throw DescriptorDeserializer.corrupted(e);
+                }
+            }
+        });
+        this.upperBoundsAsType = storageManager.createLazyValue(new Computable<JetType>() {
+            @Override
+            public JetType compute() {
+                return computeUpperBoundsAsType();
+            }
+        });
+    }
+
+    @Override
+    public boolean isReified() {
+        return reified;
+    }
+
+    @Override
+    public Variance getVariance() {
+        return variance;
+    }
+
+    @NotNull
+    @Override
+    public Set<JetType> getUpperBounds() {
+        return upperBounds.compute();
+    }
+
+    @NotNull
+    @Override
+    public JetType getUpperBoundsAsType() {
+        return upperBoundsAsType.compute();
+    }
+
+    @NotNull
+    private JetType computeUpperBoundsAsType() {
+        Set<JetType> upperBounds = getUpperBounds();
+        assert upperBounds.size() > 0 : "Upper bound list is empty in " + getName();
+        JetType upperBoundsAsType = TypeUtils.intersect(JetTypeChecker.INSTANCE, upperBounds);
+        if (upperBoundsAsType == null) {
+            upperBoundsAsType = KotlinBuiltIns.getInstance().getNothingType();
+        }
+        return upperBoundsAsType;
+    }
+
+    @NotNull
+    @Override
+    public Set<JetType> getLowerBounds() {
+        return Collections.singleton(getLowerBoundsAsType());
+    }
+
+    @NotNull
+    @Override
+    public JetType getLowerBoundsAsType() {
+        return KotlinBuiltIns.getInstance().getNothingType();
+    }
+
+    @NotNull
+    @Override
+    public TypeConstructor getTypeConstructor() {
+        return typeConstructor;
+    }
+
+    @NotNull
+    private TypeConstructor createTypeConstructor() {
+        return new TypeConstructor() {
+            @NotNull
+            @Override
+            public Collection<JetType> getSupertypes() {
+                return DeserializedTypeParameterDescriptor.this.getUpperBounds();
+            }
+
+            @NotNull
+            @Override
+            public List<TypeParameterDescriptor> getParameters() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean isSealed() {
+                return false;
+            }
+
+            @Override
+            public ClassifierDescriptor getDeclarationDescriptor() {
+                return DeserializedTypeParameterDescriptor.this;
+            }
+
+            @Override
+            public List<AnnotationDescriptor> getAnnotations() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String toString() {
+                return getName().toString();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public JetType getDefaultType() {
+        return defaultType.compute();
+    }
+
+    @NotNull
+    private JetType createDefaultType() {
+        return new JetTypeImpl(getTypeConstructor(), new LazyScopeAdapter(new RecursionIntolerantLazyValue<JetScope>() {
+                        @Override
+                        protected JetScope compute() {
+                            return getUpperBoundsAsType().getMemberScope();
+                        }
+                    }));
+    }
+
+    @Override
+    public JetType getClassObjectType() {
+        return null;
+    }
+
+    @Override
+    public boolean isClassObjectAValue() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getOriginal() {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getContainingDeclaration() {
+        return containingDeclaration;
+    }
+
+    @NotNull
+    @Override
+    @Deprecated
+    public TypeParameterDescriptor substitute(@NotNull TypeSubstitutor substitutor) {
+        throw new UnsupportedOperationException("Don't call substitute() on type parameters");
+    }
+
+    @Override
+    public <R, D> R accept(DeclarationDescriptorVisitor<R, D> visitor, D data) {
+        return visitor.visitTypeParameterDescriptor(this, data);
+    }
+
+    @Override
+    public void acceptVoid(DeclarationDescriptorVisitor<Void, Void> visitor) {
+        visitor.visitTypeParameterDescriptor(this, null);
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public List<AnnotationDescriptor> getAnnotations() {
+        return Collections.emptyList();
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return getName().toString();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * The contents of a stream written by {@link DescriptorSerializer}: the string table and the class index are read eagerly,
+ * the records of the classes and of the package members stay as bytes until they are requested.
+ */
+public final class PackageData {
+    private final FqName packageFqName;
+    private final String[] strings;
+    private final Name[] names;
+    private final Map<List<Name>, int[]> classes;
+    private final Set<Name> objectNames;
+    private final int membersOffset;
+    private final int membersLength;
+    private final byte[] data;
+
+    @NotNull
+    public static PackageData read(@NotNull InputStream stream) throws IOException {
+        return new PackageData(new DataInputStream(stream));
+    }
+
+    private PackageData(@NotNull DataInputStream in) throws IOException {
+        if (in.readInt() != DescriptorSerializer.MAGIC) {
+            throw new IOException("Not a serialized package");
+        }
+        int version = in.readInt();
+        if (version != DescriptorSerializer.VERSION) {
+            throw new IOException("Unsupported version of a serialized package: " + version);
+        }
+        packageFqName = new FqName(in.readUTF());
+
+        strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        names = new Name[strings.length];
+
+        int classCount = in.readInt();
+        classes = new LinkedHashMap<List<Name>, int[]>(classCount * 2);
+        for (int i = 0; i < classCount; i++) {
+            List<Name> path = readNames(in);
+            classes.put(path, new int[] {in.readInt(), in.readInt()});
+        }
+        objectNames = new LinkedHashSet<Name>(readNames(in));
+        membersOffset = in.readInt();
+        membersLength = in.readInt();
+
+        data = new byte[in.readInt()];
+        in.readFully(data);
+    }
+
+    @NotNull
+    public FqName getPackageFqName() {
+        return packageFqName;
+    }
+
+    /**
+     * @return paths of all classes in the order they were written; top-level classes have paths of length one
+     */
+    @NotNull
+    public Collection<List<Name>> getClassPaths() {
+        return Collections.unmodifiableSet(classes.keySet());
+    }
+
+    /**
+     * @return names of the top-level object declarations, which are also listed in {@link #getClassPaths()}
+     */
+    @NotNull
+    public Set<Name> getObjectNames() {
+        return Collections.unmodifiableSet(objectNames);
+    }
+
+    @Nullable
+    DataInputStream openClass(@NotNull List<Name> path) {
+        int[] segment = classes.get(path);
+        if (segment == null) return null;
+        return new DataInputStream(new ByteArrayInputStream(data, segment[0], segment[1]));
+    }
+
+    @NotNull
+    DataInputStream openMembers() {
+        return new DataInputStream(new ByteArrayInputStream(data, membersOffset, membersLength));
+    }
+
+    @NotNull
+    String getString(int index) {
+        return strings[index];
+    }
+
+    @NotNull
+    Name getName(int index) {
+        Name name = names[index];
+        if (name == null) {
+            // Benign race: every thread computes an equal name
+            name = Name.guess(strings[index]);
+            names[index] = name;
+        }
+        return name;
+    }
+
+    @NotNull
+    List<Name> readNames(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Name> result = new ArrayList<Name>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(getName(in.readInt()));
+        }
+        return result;
+    }
+}
@@ -74,6 +74,8 @@ public interface BindingContext {
             Slices.<JetAnnotationEntry, AnnotationDescriptor>sliceBuilder().setOpposite(ANNOTATION_DESCRIPTOR_TO_PSI_ELEMENT).build();
 
     WritableSlice<JetExpression, CompileTimeConstant<?>> COMPILE_TIME_VALUE = Slices.createSimpleSlice();
+    // Deserialized parameters have no default value expressions: the constant values are recorded instead, if they are known
+    WritableSlice<ValueParameterDescriptor, CompileTimeConstant<?>> DESERIALIZED_DEFAULT_VALUE = Slices.createSimpleSlice();
     WritableSlice<JetTypeReference, JetType> TYPE = Slices.createSimpleSlice();
     WritableSlice<JetExpression, JetType> EXPRESSION_TYPE = new BasicWritableSlice<JetExpression, JetType>(DO_NOTHING);
     WritableSlice<JetExpression, DataFlowInfo> EXPRESSION_DATA_FLOW_INFO = new BasicWritableSlice<JetExpression, DataFlowInfo>(DO_NOTHING);
@@ -131,6 +133,12 @@ public interface BindingContext {
 
     WritableSlice<VariableDescriptor, Boolean> CAPTURED_IN_CLOSURE = Slices.createSimpleSetSlice();
 
+    /**
+     * Unlabeled returns from a named function which cross function literals. They are allowed only if all these literals
+     * are inlined (checked after all bodies are resolved)
+     */
+    WritableSlice<JetReturnExpression, Boolean> NON_LOCAL_RETURN = Slices.createCollectiveSetSlice();
+
     //    enum DeferredTypeKey {DEFERRED_TYPE_KEY}
     //    WritableSlice<DeferredTypeKey, Collection<DeferredType>> DEFERRED_TYPES = Slices.createSimpleSlice();
 
@@ -22,8 +22,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.TestOnly;
 import org.jetbrains.jet.lang.diagnostics.Diagnostic;
 import org.jetbrains.jet.util.slicedmap.MutableSlicedMap;
+import org.jetbrains.jet.util.slicedmap.PartitionedSlicedMap;
 import org.jetbrains.jet.util.slicedmap.ReadOnlySlice;
-import org.jetbrains.jet.util.slicedmap.SlicedMapImpl;
 import org.jetbrains.jet.util.slicedmap.WritableSlice;
 
 import java.util.Collection;
@@ -32,7 +32,7 @@ import java.util.List;
 public class BindingTraceContext implements BindingTrace {
     private final List<Diagnostic> diagnostics = Lists.newArrayList();
 
-    private final MutableSlicedMap map = SlicedMapImpl.create();
+    private final MutableSlicedMap map = PartitionedSlicedMap.create();
 
     private final BindingContext bindingContext = new BindingContext() {
 
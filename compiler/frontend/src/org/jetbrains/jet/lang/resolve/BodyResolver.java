@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.lang.resolve;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.intellij.psi.PsiElement;
@@ -37,6 +38,7 @@ import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
 import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverValue;
 import org.jetbrains.jet.lang.types.*;
 import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
+import org.jetbrains.jet.lang.types.checker.SubtypingCache;
 import org.jetbrains.jet.lang.types.expressions.ExpressionTypingServices;
 import org.jetbrains.jet.lexer.JetTokens;
 import org.jetbrains.jet.util.Box;
@@ -45,6 +47,7 @@ import org.jetbrains.jet.util.slicedmap.WritableSlice;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.jetbrains.jet.lang.descriptors.ReceiverParameterDescriptor.NO_RECEIVER_PARAMETER;
 import static org.jetbrains.jet.lang.diagnostics.Errors.*;
@@ -120,6 +123,12 @@ public class BodyResolver {
         // Initialize context
         context = bodiesResolveContext;
 
+        if (topDownAnalysisParameters.getBodyResolveThreads() > 1) {
+            // Types inferred from bodies are shared by all the bodies, so they are computed before the bodies are resolved in parallel:
+            // otherwise two threads could wait for each other on a recursive dependency instead of reporting it
+            computeDeferredTypes();
+        }
+
         resolveDelegationSpecifierLists();
         resolveClassAnnotations();
 
@@ -363,12 +372,13 @@ public class BodyResolver {
                     parameterScope.addVariableDescriptor(valueParameterDescriptor);
                 }
                 parameterScope.changeLockLevel(WritableScope.LockLevel.READING);
-                checkDefaultParameterValues(klass.getPrimaryConstructorParameters(), unsubstitutedPrimaryConstructor.getValueParameters(), parameterScope);
+                checkDefaultParameterValues(trace, klass.getPrimaryConstructorParameters(), unsubstitutedPrimaryConstructor.getValueParameters(), parameterScope);
             }
         }
     }
 
     private void resolvePropertyDeclarationBodies() {
+        BodyResolveTasks tasks = new BodyResolveTasks();
 
         // Member properties
         Set<JetProperty> processed = Sets.newHashSet();
@@ -377,29 +387,34 @@ public class BodyResolver {
             if (!context.completeAnalysisNeeded(jetClass)) continue;
             MutableClassDescriptor classDescriptor = entry.getValue();
 
-            for (JetProperty property : jetClass.getProperties()) {
+            for (final JetProperty property : jetClass.getProperties()) {
                 final PropertyDescriptor propertyDescriptor = this.context.getProperties().get(property);
                 assert propertyDescriptor != null;
 
                 computeDeferredType(propertyDescriptor.getReturnType());
 
-                JetExpression initializer = property.getInitializer();
-                if (initializer != null) {
-                    ConstructorDescriptor primaryConstructor = classDescriptor.getUnsubstitutedPrimaryConstructor();
-                    if (primaryConstructor != null) {
-                        JetScope declaringScopeForPropertyInitializer = this.context.getDeclaringScopes().apply(property);
-                        resolvePropertyInitializer(property, propertyDescriptor, initializer, declaringScopeForPropertyInitializer);
+                final JetExpression initializer = property.getInitializer();
+                final JetScope declaringScopeForPropertyInitializer =
+                        initializer != null && classDescriptor.getUnsubstitutedPrimaryConstructor() != null
+                        ? this.context.getDeclaringScopes().apply(property)
+                        : null;
+
+                tasks.add(new BodyResolveTask() {
+                    @Override
+                    public void resolve(@NotNull BindingTrace trace) {
+                        if (declaringScopeForPropertyInitializer != null) {
+                            resolvePropertyInitializer(trace, property, propertyDescriptor, initializer, declaringScopeForPropertyInitializer);
+                        }
+                        resolvePropertyAccessors(trace, property, propertyDescriptor);
                     }
-                }
-
-                resolvePropertyAccessors(property, propertyDescriptor);
+                });
                 processed.add(property);
             }
         }
 
         // Top-level properties & properties of objects
         for (Map.Entry<JetProperty, PropertyDescriptor> entry : this.context.getProperties().entrySet()) {
-            JetProperty property = entry.getKey();
+            final JetProperty property = entry.getKey();
             if (!context.completeAnalysisNeeded(property)) continue;
             if (processed.contains(property)) continue;
 
@@ -407,18 +422,29 @@ public class BodyResolver {
 
             computeDeferredType(propertyDescriptor.getReturnType());
 
-            JetScope declaringScope = this.context.getDeclaringScopes().apply(property);
+            final JetScope declaringScope = this.context.getDeclaringScopes().apply(property);
 
-            JetExpression initializer = property.getInitializer();
-            if (initializer != null) {
-                resolvePropertyInitializer(property, propertyDescriptor, initializer, declaringScope);
-            }
+            tasks.add(new BodyResolveTask() {
+                @Override
+                public void resolve(@NotNull BindingTrace trace) {
+                    JetExpression initializer = property.getInitializer();
+                    if (initializer != null) {
+                        resolvePropertyInitializer(trace, property, propertyDescriptor, initializer, declaringScope);
+                    }
 
-            resolvePropertyAccessors(property, propertyDescriptor);
+                    resolvePropertyAccessors(trace, property, propertyDescriptor);
+                }
+            });
         }
+
+        tasks.finish();
     }
 
-    private JetScope makeScopeForPropertyAccessor(@NotNull JetPropertyAccessor accessor, PropertyDescriptor propertyDescriptor) {
+    private JetScope makeScopeForPropertyAccessor(
+            @NotNull BindingTrace trace,
+            @NotNull JetPropertyAccessor accessor,
+            PropertyDescriptor propertyDescriptor
+    ) {
         JetScope declaringScope = context.getDeclaringScopes().apply(accessor);
 
         JetScope propertyDeclarationInnerScope = descriptorResolver.getPropertyDeclarationInnerScope(
@@ -431,24 +457,28 @@ public class BodyResolver {
     }
 
     public void resolvePropertyAccessors(JetProperty property, PropertyDescriptor propertyDescriptor) {
-        ObservableBindingTrace fieldAccessTrackingTrace = createFieldTrackingTrace(propertyDescriptor);
+        resolvePropertyAccessors(trace, property, propertyDescriptor);
+    }
+
+    private void resolvePropertyAccessors(@NotNull BindingTrace trace, JetProperty property, PropertyDescriptor propertyDescriptor) {
+        ObservableBindingTrace fieldAccessTrackingTrace = createFieldTrackingTrace(trace, propertyDescriptor);
 
         JetPropertyAccessor getter = property.getGetter();
         PropertyGetterDescriptor getterDescriptor = propertyDescriptor.getGetter();
         if (getter != null && getterDescriptor != null) {
-            JetScope accessorScope = makeScopeForPropertyAccessor(getter, propertyDescriptor);
+            JetScope accessorScope = makeScopeForPropertyAccessor(trace, getter, propertyDescriptor);
             resolveFunctionBody(fieldAccessTrackingTrace, getter, getterDescriptor, accessorScope);
         }
 
         JetPropertyAccessor setter = property.getSetter();
         PropertySetterDescriptor setterDescriptor = propertyDescriptor.getSetter();
         if (setter != null && setterDescriptor != null) {
-            JetScope accessorScope = makeScopeForPropertyAccessor(setter, propertyDescriptor);
+            JetScope accessorScope = makeScopeForPropertyAccessor(trace, setter, propertyDescriptor);
             resolveFunctionBody(fieldAccessTrackingTrace, setter, setterDescriptor, accessorScope);
         }
     }
 
-    private ObservableBindingTrace createFieldTrackingTrace(final PropertyDescriptor propertyDescriptor) {
+    private static ObservableBindingTrace createFieldTrackingTrace(final BindingTrace trace, final PropertyDescriptor propertyDescriptor) {
         return new ObservableBindingTrace(trace).addHandler(BindingContext.REFERENCE_TARGET, new ObservableBindingTrace.RecordHandler<JetReferenceExpression, DeclarationDescriptor>() {
             @Override
             public void handleRecord(WritableSlice<JetReferenceExpression, DeclarationDescriptor> slice, JetReferenceExpression expression, DeclarationDescriptor descriptor) {
@@ -466,6 +496,16 @@ public class BodyResolver {
     }
 
     public void resolvePropertyInitializer(JetProperty property, PropertyDescriptor propertyDescriptor, JetExpression initializer, JetScope scope) {
+        resolvePropertyInitializer(trace, property, propertyDescriptor, initializer, scope);
+    }
+
+    private void resolvePropertyInitializer(
+            @NotNull BindingTrace trace,
+            JetProperty property,
+            PropertyDescriptor propertyDescriptor,
+            JetExpression initializer,
+            JetScope scope
+    ) {
         JetType expectedTypeForInitializer = property.getTypeRef() != null ? propertyDescriptor.getType() : NO_EXPECTED_TYPE;
         JetScope propertyDeclarationInnerScope = descriptorResolver.getPropertyDeclarationInnerScopeForInitializer(
                 scope, propertyDescriptor.getTypeParameters(), NO_RECEIVER_PARAMETER, trace);
@@ -473,19 +513,28 @@ public class BodyResolver {
     }
 
     private void resolveFunctionBodies() {
+        BodyResolveTasks tasks = new BodyResolveTasks();
+
         for (Map.Entry<JetNamedFunction, SimpleFunctionDescriptor> entry : this.context.getFunctions().entrySet()) {
-            JetNamedFunction declaration = entry.getKey();
-            SimpleFunctionDescriptor descriptor = entry.getValue();
+            final JetNamedFunction declaration = entry.getKey();
+            final SimpleFunctionDescriptor descriptor = entry.getValue();
 
             computeDeferredType(descriptor.getReturnType());
 
-            JetScope declaringScope = this.context.getDeclaringScopes().apply(declaration);
+            final JetScope declaringScope = this.context.getDeclaringScopes().apply(declaration);
             assert declaringScope != null;
 
-            resolveFunctionBody(trace, declaration, descriptor, declaringScope);
+            tasks.add(new BodyResolveTask() {
+                @Override
+                public void resolve(@NotNull BindingTrace trace) {
+                    resolveFunctionBody(trace, declaration, descriptor, declaringScope);
 
-            assert descriptor.getReturnType() != null;
+                    assert descriptor.getReturnType() != null;
+                }
+            });
         }
+
+        tasks.finish();
     }
 
     public void resolveFunctionBody(
@@ -504,12 +553,17 @@ public class BodyResolver {
         List<JetParameter> valueParameters = function.getValueParameters();
         List<ValueParameterDescriptor> valueParameterDescriptors = functionDescriptor.getValueParameters();
 
-        checkDefaultParameterValues(valueParameters, valueParameterDescriptors, functionInnerScope);
+        checkDefaultParameterValues(trace, valueParameters, valueParameterDescriptors, functionInnerScope);
 
         assert functionDescriptor.getReturnType() != null;
     }
 
-    private void checkDefaultParameterValues(List<JetParameter> valueParameters, List<ValueParameterDescriptor> valueParameterDescriptors, JetScope declaringScope) {
+    private void checkDefaultParameterValues(
+            @NotNull BindingTrace trace,
+            List<JetParameter> valueParameters,
+            List<ValueParameterDescriptor> valueParameterDescriptors,
+            JetScope declaringScope
+    ) {
         for (int i = 0; i < valueParameters.size(); i++) {
             ValueParameterDescriptor valueParameterDescriptor = valueParameterDescriptors.get(i);
             if (valueParameterDescriptor.hasDefaultValue()) {
@@ -535,6 +589,80 @@ public class BodyResolver {
         }
     }
 
+    private interface BodyResolveTask {
+        void resolve(@NotNull BindingTrace trace);
+    }
+
+    // Resolves bodies right away, or, if several threads are requested, collects them to be resolved in parallel by finish()
+    private class BodyResolveTasks {
+        private final List<BodyResolveTask> tasks = Lists.newArrayList();
+
+        public void add(@NotNull BodyResolveTask task) {
+            if (topDownAnalysisParameters.getBodyResolveThreads() > 1) {
+                tasks.add(task);
+            }
+            else {
+                task.resolve(trace);
+            }
+        }
+
+        public void finish() {
+            if (tasks.size() == 1) {
+                tasks.get(0).resolve(trace);
+            }
+            else if (!tasks.isEmpty()) {
+                resolveInParallel(tasks);
+            }
+        }
+    }
+
+    // Each body is resolved into a trace of its own. The traces are committed in the order of the tasks
+    // when all of them are done, so the results and the order of diagnostics do not depend on scheduling
+    private void resolveInParallel(@NotNull List<BodyResolveTask> tasks) {
+        int threads = Math.min(topDownAnalysisParameters.getBodyResolveThreads(), tasks.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<DelegatingBindingTrace>> futures = new ArrayList<Future<DelegatingBindingTrace>>(tasks.size());
+            for (final BodyResolveTask task : tasks) {
+                futures.add(executor.submit(new Callable<DelegatingBindingTrace>() {
+                    @Override
+                    public DelegatingBindingTrace call() {
+                        DelegatingBindingTrace bodyTrace = new DelegatingBindingTrace(trace.getBindingContext(), "trace to resolve a body in parallel");
+                        SubtypingCache subtypingCache = SubtypingCache.openSession(topDownAnalysisParameters.getSubtypingStatistics());
+                        try {
+                            task.resolve(bodyTrace);
+                        }
+                        finally {
+                            SubtypingCache.closeSession(subtypingCache);
+                        }
+                        return bodyTrace;
+                    }
+                }));
+            }
+
+            List<DelegatingBindingTrace> bodyTraces = new ArrayList<DelegatingBindingTrace>(futures.size());
+            for (Future<DelegatingBindingTrace> future : futures) {
+                bodyTraces.add(future.get());
+            }
+            for (DelegatingBindingTrace bodyTrace : bodyTraces) {
+                bodyTrace.addAllMyDataTo(trace);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving bodies", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void computeDeferredTypes() {
         Collection<Box<DeferredType>> deferredTypes = trace.getKeys(DEFERRED_TYPE);
         if (deferredTypes != null) {
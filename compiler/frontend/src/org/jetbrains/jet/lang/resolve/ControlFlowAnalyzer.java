@@ -16,18 +16,21 @@
 
 package org.jetbrains.jet.lang.resolve;
 
+import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.cfg.JetFlowInformationProvider;
 import org.jetbrains.jet.lang.descriptors.PropertyAccessorDescriptor;
 import org.jetbrains.jet.lang.descriptors.PropertyDescriptor;
 import org.jetbrains.jet.lang.descriptors.SimpleFunctionDescriptor;
 import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.calls.util.InlineUtil;
 import org.jetbrains.jet.lang.types.JetType;
 
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Map;
 
+import static org.jetbrains.jet.lang.diagnostics.Errors.RETURN_NOT_ALLOWED;
 import static org.jetbrains.jet.lang.types.TypeUtils.NO_EXPECTED_TYPE;
 
 public class ControlFlowAnalyzer {
@@ -71,6 +74,27 @@ public class ControlFlowAnalyzer {
             PropertyDescriptor propertyDescriptor = entry.getValue();
             checkProperty(property, propertyDescriptor);
         }
+        if (!topDownAnalysisParameters.isDeclaredLocally()) {
+            checkNonLocalReturns();
+        }
+    }
+
+    private void checkNonLocalReturns() {
+        BindingContext bindingContext = trace.getBindingContext();
+        for (JetReturnExpression returnExpression : trace.getKeys(BindingContext.NON_LOCAL_RETURN)) {
+            if (!topDownAnalysisParameters.isNonLocalReturnsAllowed()) {
+                trace.report(RETURN_NOT_ALLOWED.on(returnExpression));
+                continue;
+            }
+            JetFunctionLiteral literal = PsiTreeUtil.getParentOfType(returnExpression, JetFunctionLiteral.class, true, JetNamedFunction.class);
+            while (literal != null) {
+                if (!InlineUtil.isInlinedFunctionLiteral((JetFunctionLiteralExpression) literal.getParent(), bindingContext)) {
+                    trace.report(RETURN_NOT_ALLOWED.on(returnExpression));
+                    break;
+                }
+                literal = PsiTreeUtil.getParentOfType(literal, JetFunctionLiteral.class, true, JetNamedFunction.class);
+            }
+        }
     }
 
     private void checkDeclarationContainer(JetDeclarationContainer declarationContainer) {
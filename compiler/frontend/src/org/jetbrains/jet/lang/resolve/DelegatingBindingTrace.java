@@ -31,7 +31,7 @@ import java.util.Map;
 
 public class DelegatingBindingTrace implements BindingTrace {
     private final BindingContext parentContext;
-    private final MutableSlicedMap map = SlicedMapImpl.create();
+    private final MutableSlicedMap map = PartitionedSlicedMap.create();
     private final List<Diagnostic> diagnostics = Lists.newArrayList();
     private final String name;
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.util.slicedmap.ReadOnlySlice;
+import org.jetbrains.jet.util.slicedmap.WritableSlice;
+
+import java.util.Collection;
+
+/**
+ * A {@link BindingTraceContext} that may be read and written from several threads at once,
+ * e.g. when namespaces are generated in parallel and Java descriptors are resolved into it,
+ * or when bodies are resolved in parallel (see {@link TopDownAnalysisParameters#getBodyResolveThreads()}).
+ */
+public class ThreadSafeBindingTraceContext extends BindingTraceContext {
+    @Override
+    public synchronized void report(@NotNull Diagnostic diagnostic) {
+        super.report(diagnostic);
+    }
+
+    @Override
+    public synchronized void clearDiagnostics() {
+        super.clearDiagnostics();
+    }
+
+    @Override
+    public synchronized <K, V> void record(WritableSlice<K, V> slice, K key, V value) {
+        super.record(slice, key, value);
+    }
+
+    @Override
+    public synchronized <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        return super.get(slice, key);
+    }
+
+    @NotNull
+    @Override
+    public synchronized <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+        // A copy, because the keys may be added by other threads while the caller iterates over them
+        return Lists.newArrayList(super.getKeys(slice));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.util.slicedmap.ReadOnlySlice;
+import org.jetbrains.jet.util.slicedmap.WritableSlice;
+
+import java.util.Collection;
+
+/**
+ * A {@link DelegatingBindingTrace} that may be read and written from several threads at once.
+ * Reads through {@link #getBindingContext()} are guarded by the same monitor as writes.
+ */
+public class ThreadSafeDelegatingBindingTrace extends DelegatingBindingTrace {
+    public ThreadSafeDelegatingBindingTrace(BindingContext parentContext, String debugName) {
+        super(parentContext, debugName);
+    }
+
+    @Override
+    public synchronized <K, V> void record(WritableSlice<K, V> slice, K key, V value) {
+        super.record(slice, key, value);
+    }
+
+    @Override
+    public synchronized <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        return super.get(slice, key);
+    }
+
+    @NotNull
+    @Override
+    public synchronized <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+        // A copy: the keys of this trace may be a live view of its map, which other threads keep writing to
+        return Lists.newArrayList(super.getKeys(slice));
+    }
+
+    @Override
+    public synchronized void addAllMyDataTo(@NotNull BindingTrace trace, @Nullable TraceEntryFilter filter, boolean commitDiagnostics) {
+        super.addAllMyDataTo(trace, filter, commitDiagnostics);
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    @Override
+    public synchronized void report(@NotNull Diagnostic diagnostic) {
+        super.report(diagnostic);
+    }
+}
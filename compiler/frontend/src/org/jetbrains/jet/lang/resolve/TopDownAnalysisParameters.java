@@ -19,6 +19,7 @@ package org.jetbrains.jet.lang.resolve;
 import com.google.common.base.Predicate;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.types.checker.SubtypingCache;
 
 import java.util.List;
 
@@ -32,16 +33,54 @@ public class TopDownAnalysisParameters {
     private final boolean declaredLocally;
     @NotNull
     private final List<AnalyzerScriptParameter> scriptParameters;
+    private final int bodyResolveThreads;
+    private final boolean nonLocalReturnsAllowed;
+    @NotNull
+    private final SubtypingCache.Statistics subtypingStatistics;
 
     public TopDownAnalysisParameters(
             @NotNull Predicate<PsiFile> analyzeCompletely,
             boolean analyzingBootstrapLibrary,
             boolean declaredLocally,
             @NotNull List<AnalyzerScriptParameter> scriptParameters) {
+        this(analyzeCompletely, analyzingBootstrapLibrary, declaredLocally, scriptParameters, 1);
+    }
+
+    public TopDownAnalysisParameters(
+            @NotNull Predicate<PsiFile> analyzeCompletely,
+            boolean analyzingBootstrapLibrary,
+            boolean declaredLocally,
+            @NotNull List<AnalyzerScriptParameter> scriptParameters,
+            int bodyResolveThreads) {
+        this(analyzeCompletely, analyzingBootstrapLibrary, declaredLocally, scriptParameters, bodyResolveThreads, false);
+    }
+
+    public TopDownAnalysisParameters(
+            @NotNull Predicate<PsiFile> analyzeCompletely,
+            boolean analyzingBootstrapLibrary,
+            boolean declaredLocally,
+            @NotNull List<AnalyzerScriptParameter> scriptParameters,
+            int bodyResolveThreads,
+            boolean nonLocalReturnsAllowed) {
+        this(analyzeCompletely, analyzingBootstrapLibrary, declaredLocally, scriptParameters, bodyResolveThreads, nonLocalReturnsAllowed,
+             new SubtypingCache.Statistics());
+    }
+
+    public TopDownAnalysisParameters(
+            @NotNull Predicate<PsiFile> analyzeCompletely,
+            boolean analyzingBootstrapLibrary,
+            boolean declaredLocally,
+            @NotNull List<AnalyzerScriptParameter> scriptParameters,
+            int bodyResolveThreads,
+            boolean nonLocalReturnsAllowed,
+            @NotNull SubtypingCache.Statistics subtypingStatistics) {
         this.analyzeCompletely = analyzeCompletely;
         this.analyzingBootstrapLibrary = analyzingBootstrapLibrary;
         this.declaredLocally = declaredLocally;
         this.scriptParameters = scriptParameters;
+        this.bodyResolveThreads = Math.max(bodyResolveThreads, 1);
+        this.nonLocalReturnsAllowed = nonLocalReturnsAllowed;
+        this.subtypingStatistics = subtypingStatistics;
     }
 
     @NotNull
@@ -61,4 +100,28 @@ public class TopDownAnalysisParameters {
     public List<AnalyzerScriptParameter> getScriptParameters() {
         return scriptParameters;
     }
+
+    /**
+     * Bodies of functions and properties are resolved in this many threads.
+     * More than one thread requires the trace of the analysis to be thread-safe (see {@link ThreadSafeBindingTraceContext}).
+     */
+    public int getBodyResolveThreads() {
+        return bodyResolveThreads;
+    }
+
+    /**
+     * Unlabeled returns from function literals passed to inline functions return from the enclosing named function.
+     * Only backends that inline such calls (currently the JVM one) can compile them, otherwise they are reported as errors.
+     */
+    public boolean isNonLocalReturnsAllowed() {
+        return nonLocalReturnsAllowed;
+    }
+
+    /**
+     * Subtyping cache sessions opened while resolving bodies record their hits and misses here.
+     */
+    @NotNull
+    public SubtypingCache.Statistics getSubtypingStatistics() {
+        return subtypingStatistics;
+    }
 }
@@ -33,6 +33,7 @@ import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
+import org.jetbrains.jet.lang.types.checker.SubtypingCache;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
 import javax.inject.Inject;
@@ -129,7 +130,14 @@ public class TopDownAnalyzer {
         overloadResolver.process();
 
         if (!topDownAnalysisParameters.isAnalyzingBootstrapLibrary()) {
-            bodyResolver.resolveBodies();
+            // Supertypes of all the classes declared above are known by now, so subtyping results may be cached
+            SubtypingCache subtypingCache = SubtypingCache.openSession(topDownAnalysisParameters.getSubtypingStatistics());
+            try {
+                bodyResolver.resolveBodies();
+            }
+            finally {
+                SubtypingCache.closeSession(subtypingCache);
+            }
         }
 
         context.debug("Exit");
@@ -155,6 +155,10 @@ public class TypeResolver {
                                     trace.report(WRONG_NUMBER_OF_TYPE_ARGUMENTS.on(type.getTypeArgumentList(), expectedArgumentCount));
                                 }
                             }
+                            else if (arguments.isEmpty() && annotations.isEmpty()) {
+                                // Share the instance among all the references to a non-generic class
+                                result[0] = classDescriptor.getDefaultType();
+                            }
                             else {
                                 result[0] = new JetTypeImpl(
                                         annotations,
@@ -16,15 +16,16 @@
 
 package org.jetbrains.jet.lang.resolve.calls.autocasts;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.util.PersistentHashMap;
 
 import java.util.Set;
 
 public interface DataFlowInfo {
-    DataFlowInfo EMPTY = new DelegatingDataFlowInfo(null, ImmutableMap.<DataFlowValue, Nullability>of(),
-                                                    DelegatingDataFlowInfo.newTypeInfo());
+    DataFlowInfo EMPTY = new PersistentDataFlowInfo(PersistentHashMap.<DataFlowValue, Nullability>empty(),
+                                                    PersistentHashMap.<DataFlowValue, ImmutableSet<JetType>>empty());
 
     @NotNull
     Nullability getNullability(@NotNull DataFlowValue key);
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.calls.autocasts;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.TypeUtils;
+import org.jetbrains.jet.util.PersistentHashMap;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.jetbrains.jet.lang.resolve.calls.autocasts.Nullability.NOT_NULL;
+
+/**
+ * Keeps the complete information in persistent maps, so that an extension shares everything but the changed paths
+ * with the original info, and merging two infos derived from a common one only looks at the entries that differ.
+ */
+/* package */ class PersistentDataFlowInfo implements DataFlowInfo {
+    @NotNull
+    private final PersistentHashMap<DataFlowValue, Nullability> nullabilityInfo;
+
+    /** Types are ordered from the most recently established ones */
+    @NotNull
+    private final PersistentHashMap<DataFlowValue, ImmutableSet<JetType>> typeInfo;
+
+    /* package */ PersistentDataFlowInfo(
+            @NotNull PersistentHashMap<DataFlowValue, Nullability> nullabilityInfo,
+            @NotNull PersistentHashMap<DataFlowValue, ImmutableSet<JetType>> typeInfo
+    ) {
+        this.nullabilityInfo = nullabilityInfo;
+        this.typeInfo = typeInfo;
+    }
+
+    @Override
+    @NotNull
+    public Nullability getNullability(@NotNull DataFlowValue key) {
+        if (!key.isStableIdentifier()) return key.getImmanentNullability();
+        Nullability nullability = nullabilityInfo.get(key);
+        return nullability != null ? nullability : key.getImmanentNullability();
+    }
+
+    @NotNull
+    private PersistentHashMap<DataFlowValue, Nullability> putNullability(
+            @NotNull PersistentHashMap<DataFlowValue, Nullability> map,
+            @NotNull DataFlowValue value,
+            @NotNull Nullability nullability
+    ) {
+        if (!value.isStableIdentifier() || nullability == getNullability(value)) return map;
+        return map.plus(value, nullability);
+    }
+
+    @NotNull
+    private ImmutableSet<JetType> getTypes(@NotNull DataFlowValue key) {
+        ImmutableSet<JetType> types = typeInfo.get(key);
+        return types != null ? types : ImmutableSet.<JetType>of();
+    }
+
+    @Override
+    @NotNull
+    public Set<JetType> getPossibleTypes(@NotNull DataFlowValue key) {
+        ImmutableSet<JetType> types = getTypes(key);
+        if (getNullability(key).canBeNull()) {
+            return types;
+        }
+
+        Set<JetType> enrichedTypes = Sets.newLinkedHashSet();
+        JetType originalType = key.getType();
+        if (originalType.isNullable()) {
+            enrichedTypes.add(TypeUtils.makeNotNullable(originalType));
+        }
+        for (JetType type : types) {
+            enrichedTypes.add(TypeUtils.makeNotNullable(type));
+        }
+        return enrichedTypes;
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo equate(@NotNull DataFlowValue a, @NotNull DataFlowValue b) {
+        Nullability nullabilityOfA = getNullability(a);
+        Nullability nullabilityOfB = getNullability(b);
+
+        PersistentHashMap<DataFlowValue, Nullability> newNullabilityInfo = nullabilityInfo;
+        newNullabilityInfo = putNullability(newNullabilityInfo, a, nullabilityOfA.refine(nullabilityOfB));
+        newNullabilityInfo = putNullability(newNullabilityInfo, b, nullabilityOfB.refine(nullabilityOfA));
+        return newNullabilityInfo != nullabilityInfo ? new PersistentDataFlowInfo(newNullabilityInfo, typeInfo) : this;
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo disequate(@NotNull DataFlowValue a, @NotNull DataFlowValue b) {
+        Nullability nullabilityOfA = getNullability(a);
+        Nullability nullabilityOfB = getNullability(b);
+
+        PersistentHashMap<DataFlowValue, Nullability> newNullabilityInfo = nullabilityInfo;
+        newNullabilityInfo = putNullability(newNullabilityInfo, a, nullabilityOfA.refine(nullabilityOfB.invert()));
+        newNullabilityInfo = putNullability(newNullabilityInfo, b, nullabilityOfB.refine(nullabilityOfA.invert()));
+        return newNullabilityInfo != nullabilityInfo ? new PersistentDataFlowInfo(newNullabilityInfo, typeInfo) : this;
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo establishSubtyping(@NotNull DataFlowValue value, @NotNull JetType type) {
+        if (value.getType().equals(type)) return this;
+        if (getPossibleTypes(value).contains(type)) return this;
+        PersistentHashMap<DataFlowValue, Nullability> newNullabilityInfo =
+                type.isNullable() ? nullabilityInfo : nullabilityInfo.plus(value, NOT_NULL);
+        ImmutableSet<JetType> newTypes = ImmutableSet.<JetType>builder().add(type).addAll(getTypes(value)).build();
+        return new PersistentDataFlowInfo(newNullabilityInfo, typeInfo.plus(value, newTypes));
+    }
+
+    @NotNull
+    @Override
+    public DataFlowInfo and(@NotNull DataFlowInfo otherInfo) {
+        if (otherInfo == EMPTY) return this;
+        if (this == EMPTY) return otherInfo;
+        if (this == otherInfo) return this;
+
+        assert otherInfo instanceof PersistentDataFlowInfo : "Unknown DataFlowInfo type: " + otherInfo;
+        PersistentDataFlowInfo other = (PersistentDataFlowInfo) otherInfo;
+
+        // Entries shared with this info are left as they are: x.and(x) == x
+        PersistentHashMap<DataFlowValue, Nullability> newNullabilityInfo = nullabilityInfo;
+        for (Map.Entry<DataFlowValue, Nullability> entry : other.nullabilityInfo.entriesNotIn(nullabilityInfo)) {
+            DataFlowValue key = entry.getKey();
+            Nullability thisFlags = getNullability(key);
+            Nullability flags = thisFlags.and(entry.getValue());
+            if (flags != thisFlags) {
+                newNullabilityInfo = newNullabilityInfo.plus(key, flags);
+            }
+        }
+
+        PersistentHashMap<DataFlowValue, ImmutableSet<JetType>> newTypeInfo = typeInfo;
+        for (Map.Entry<DataFlowValue, ImmutableSet<JetType>> entry : other.typeInfo.entriesNotIn(typeInfo)) {
+            ImmutableSet<JetType> thisTypes = getTypes(entry.getKey());
+            ImmutableSet<JetType> otherTypes = entry.getValue();
+            if (!thisTypes.containsAll(otherTypes)) {
+                newTypeInfo = newTypeInfo.plus(entry.getKey(), ImmutableSet.<JetType>builder().addAll(otherTypes).addAll(thisTypes).build());
+            }
+        }
+
+        if (newNullabilityInfo == nullabilityInfo && newTypeInfo == typeInfo) {
+            return this;
+        }
+        return new PersistentDataFlowInfo(newNullabilityInfo, newTypeInfo);
+    }
+
+    @NotNull
+    @Override
+    public DataFlowInfo or(@NotNull DataFlowInfo otherInfo) {
+        if (otherInfo == EMPTY) return EMPTY;
+        if (this == EMPTY) return EMPTY;
+        if (this == otherInfo) return this;
+
+        assert otherInfo instanceof PersistentDataFlowInfo : "Unknown DataFlowInfo type: " + otherInfo;
+        PersistentDataFlowInfo other = (PersistentDataFlowInfo) otherInfo;
+
+        // Only the keys known to the other info survive. Entries shared with this info are left as they are: x.or(x) == x
+        PersistentHashMap<DataFlowValue, Nullability> newNullabilityInfo = other.nullabilityInfo;
+        for (Map.Entry<DataFlowValue, Nullability> entry : other.nullabilityInfo.entriesNotIn(nullabilityInfo)) {
+            DataFlowValue key = entry.getKey();
+            newNullabilityInfo = newNullabilityInfo.plus(key, getNullability(key).or(entry.getValue()));
+        }
+
+        // Only the keys known to both infos survive. Entries shared with the other info are left as they are
+        PersistentHashMap<DataFlowValue, ImmutableSet<JetType>> newTypeInfo = typeInfo;
+        for (Map.Entry<DataFlowValue, ImmutableSet<JetType>> entry : typeInfo.entriesNotIn(other.typeInfo)) {
+            DataFlowValue key = entry.getKey();
+            Set<JetType> commonTypes = Sets.intersection(entry.getValue(), other.getTypes(key));
+            newTypeInfo = commonTypes.isEmpty() ? newTypeInfo.minus(key) : newTypeInfo.plus(key, ImmutableSet.copyOf(commonTypes));
+        }
+
+        if (newNullabilityInfo.isEmpty() && newTypeInfo.isEmpty()) {
+            return EMPTY;
+        }
+        return new PersistentDataFlowInfo(newNullabilityInfo, newTypeInfo);
+    }
+
+    @Override
+    public boolean hasTypeInfoConstraints() {
+        return !typeInfo.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (typeInfo.isEmpty() && nullabilityInfo.isEmpty()) {
+            return "EMPTY";
+        }
+        return "Non-trivial DataFlowInfo";
+    }
+}
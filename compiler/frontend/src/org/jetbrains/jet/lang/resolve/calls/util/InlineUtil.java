@@ -0,0 +1,443 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.calls.util;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.calls.model.ExpressionValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.model.VariableAsFunctionResolvedCall;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.lexer.JetTokens;
+
+import java.util.*;
+
+/**
+ * Decides which calls of inline functions are replaced by the bodies of their callees and which function literal
+ * arguments of such calls are spliced into the caller instead of being compiled to closures.
+ *
+ * Only top-level functions declared in the analyzed sources are inlined: the body of a library function is not available.
+ * Both the backend and the check of non-local returns rely on this class, so they always agree on what is inlined.
+ */
+public class InlineUtil {
+    private InlineUtil() {
+    }
+
+    /**
+     * @return the declaration whose body replaces the given call, or null if the call is compiled as a regular invocation
+     */
+    @Nullable
+    public static JetNamedFunction getInlinedFunction(@NotNull JetCallExpression expression, @NotNull BindingContext bindingContext) {
+        JetExpression callee = expression.getCalleeExpression();
+        if (callee == null) return null;
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(BindingContext.RESOLVED_CALL, callee);
+        if (resolvedCall == null || resolvedCall instanceof VariableAsFunctionResolvedCall) return null;
+
+        JetNamedFunction function = getInlinableFunction(resolvedCall.getResultingDescriptor().getOriginal(), bindingContext);
+        if (function == null) return null;
+
+        for (ResolvedValueArgument argument : resolvedCall.getValueArguments().values()) {
+            if (!(argument instanceof ExpressionValueArgument)) return null;
+            ValueArgument valueArgument = ((ExpressionValueArgument) argument).getValueArgument();
+            if (valueArgument == null || valueArgument.getArgumentExpression() == null) return null;
+        }
+
+        // An exception handler starts with an empty operand stack, so a body with 'try' can only replace a call evaluated on an empty one
+        if (containsTry(function, new HashSet<JetNamedFunction>(), bindingContext) && !isStatement(getCallWithReceiver(expression), bindingContext)) {
+            return null;
+        }
+
+        return function;
+    }
+
+    /**
+     * @return the function literal arguments of the given call which are generated in place, keyed by the parameters of
+     *         the original (not substituted) callee
+     */
+    @NotNull
+    public static Map<ValueParameterDescriptor, JetFunctionLiteralExpression> getInlinedFunctionLiterals(
+            @NotNull JetCallExpression expression,
+            @NotNull BindingContext bindingContext
+    ) {
+        JetNamedFunction function = getInlinedFunction(expression, bindingContext);
+        if (function == null) return Collections.emptyMap();
+
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(BindingContext.RESOLVED_CALL, expression.getCalleeExpression());
+        assert resolvedCall != null;
+        List<ValueParameterDescriptor> originalParameters = resolvedCall.getResultingDescriptor().getOriginal().getValueParameters();
+
+        Map<ValueParameterDescriptor, JetFunctionLiteralExpression> result = new LinkedHashMap<ValueParameterDescriptor, JetFunctionLiteralExpression>();
+        for (Map.Entry<ValueParameterDescriptor, ResolvedValueArgument> entry : resolvedCall.getValueArguments().entrySet()) {
+            ValueArgument valueArgument = ((ExpressionValueArgument) entry.getValue()).getValueArgument();
+            assert valueArgument != null;
+            JetExpression argumentExpression = valueArgument.getArgumentExpression();
+            assert argumentExpression != null;
+            JetExpression deparenthesized = JetPsiUtil.deparenthesizeWithNoTypeResolution(argumentExpression);
+            if (!(deparenthesized instanceof JetFunctionLiteralExpression)) continue;
+
+            ValueParameterDescriptor parameter = originalParameters.get(entry.getKey().getIndex());
+            JetFunctionLiteralExpression literal = (JetFunctionLiteralExpression) deparenthesized;
+            if (isInlinableFunctionLiteral(literal, bindingContext) && isInvokedOnly(parameter, function, bindingContext)) {
+                result.put(parameter, literal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the body of the given function literal is generated in place of the invocations of the parameter it is passed to
+     */
+    public static boolean isInlinedFunctionLiteral(@NotNull JetFunctionLiteralExpression literal, @NotNull BindingContext bindingContext) {
+        PsiElement parent = literal.getParent();
+        while (parent instanceof JetPrefixExpression || parent instanceof JetParenthesizedExpression) {
+            parent = parent.getParent();
+        }
+        if (parent instanceof JetValueArgument) {
+            parent = parent.getParent() instanceof JetValueArgumentList ? parent.getParent().getParent() : null;
+        }
+        if (!(parent instanceof JetCallExpression)) return false;
+        return getInlinedFunctionLiterals((JetCallExpression) parent, bindingContext).containsValue(literal);
+    }
+
+    /**
+     * @return true if a function parameter is only invoked in the body of the given inlined function or passed on to
+     *         inlined calls which in turn only invoke it, so a function literal bound to it never has to exist as an object
+     */
+    public static boolean isInvokedOnly(
+            @NotNull final ValueParameterDescriptor parameter,
+            @NotNull JetNamedFunction function,
+            @NotNull final BindingContext bindingContext
+    ) {
+        JetType type = parameter.getType();
+        if (type.isNullable() || !KotlinBuiltIns.getInstance().isFunctionType(type)) return false;
+
+        JetExpression bodyExpression = function.getBodyExpression();
+        if (bodyExpression == null) return false;
+        final boolean[] result = new boolean[] {true};
+        bodyExpression.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitSimpleNameExpression(JetSimpleNameExpression expression) {
+                if (bindingContext.get(BindingContext.REFERENCE_TARGET, expression) == parameter && !isInvocationOrForwarding(expression, bindingContext)) {
+                    result[0] = false;
+                }
+            }
+        });
+        return result[0];
+    }
+
+    private static boolean isInvocationOrForwarding(@NotNull JetSimpleNameExpression reference, @NotNull BindingContext bindingContext) {
+        PsiElement parent = reference.getParent();
+        if (parent instanceof JetCallExpression) {
+            return ((JetCallExpression) parent).getCalleeExpression() == reference;
+        }
+        if (!(parent instanceof JetValueArgument) || !(parent.getParent() instanceof JetValueArgumentList)) return false;
+        PsiElement call = parent.getParent().getParent();
+        if (!(call instanceof JetCallExpression)) return false;
+
+        JetNamedFunction function = getInlinedFunction((JetCallExpression) call, bindingContext);
+        if (function == null) return false;
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(BindingContext.RESOLVED_CALL, ((JetCallExpression) call).getCalleeExpression());
+        assert resolvedCall != null;
+        List<ValueParameterDescriptor> originalParameters = resolvedCall.getResultingDescriptor().getOriginal().getValueParameters();
+        for (Map.Entry<ValueParameterDescriptor, ResolvedValueArgument> entry : resolvedCall.getValueArguments().entrySet()) {
+            ValueArgument valueArgument = ((ExpressionValueArgument) entry.getValue()).getValueArgument();
+            if (valueArgument != null && valueArgument.getArgumentExpression() == reference) {
+                return isInvokedOnly(originalParameters.get(entry.getKey().getIndex()), function, bindingContext);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the declaration of the given function if its body can replace calls to it, null otherwise
+     */
+    @Nullable
+    public static JetNamedFunction getInlinableFunction(@NotNull CallableDescriptor descriptor, @NotNull BindingContext bindingContext) {
+        JetNamedFunction function = getInlinableDeclaration(descriptor, bindingContext);
+        if (function == null) return null;
+        // Recursive inline functions would expand forever, such calls are compiled as regular invocations
+        if (isReachableFrom(function, function, new HashSet<JetNamedFunction>(), bindingContext)) return null;
+        return function;
+    }
+
+    private static boolean isReachableFrom(
+            @NotNull JetNamedFunction target,
+            @NotNull JetNamedFunction function,
+            @NotNull Set<JetNamedFunction> visited,
+            @NotNull BindingContext bindingContext
+    ) {
+        for (JetNamedFunction callee : getInlinableCallees(function, bindingContext)) {
+            if (callee == target) return true;
+            if (visited.add(callee) && isReachableFrom(target, callee, visited, bindingContext)) return true;
+        }
+        return false;
+    }
+
+    @NotNull
+    private static Collection<JetNamedFunction> getInlinableCallees(@NotNull JetNamedFunction function, @NotNull final BindingContext bindingContext) {
+        final Set<JetNamedFunction> result = new LinkedHashSet<JetNamedFunction>();
+        JetExpression bodyExpression = function.getBodyExpression();
+        assert bodyExpression != null;
+        bodyExpression.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitCallExpression(JetCallExpression expression) {
+                super.visitCallExpression(expression);
+                JetExpression callee = expression.getCalleeExpression();
+                if (callee == null) return;
+                ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(BindingContext.RESOLVED_CALL, callee);
+                if (resolvedCall == null) return;
+                JetNamedFunction declaration = getInlinableDeclaration(resolvedCall.getResultingDescriptor().getOriginal(), bindingContext);
+                if (declaration != null) {
+                    result.add(declaration);
+                }
+            }
+        });
+        return result;
+    }
+
+    @Nullable
+    private static JetNamedFunction getInlinableDeclaration(@NotNull CallableDescriptor descriptor, @NotNull BindingContext bindingContext) {
+        if (!(descriptor instanceof SimpleFunctionDescriptor) || !((SimpleFunctionDescriptor) descriptor).isInline()) return null;
+        if (!(descriptor.getContainingDeclaration() instanceof NamespaceDescriptor)) return null;
+
+        for (TypeParameterDescriptor typeParameter : descriptor.getTypeParameters()) {
+            if (typeParameter.isReified()) return null;
+        }
+        for (AnnotationDescriptor annotation : descriptor.getAnnotations()) {
+            ClassifierDescriptor classifier = annotation.getType().getConstructor().getDeclarationDescriptor();
+            if (classifier != null && "Intrinsic".equals(classifier.getName().getName())) return null;
+        }
+
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, descriptor);
+        if (!(declaration instanceof JetNamedFunction)) return null;
+        JetNamedFunction function = (JetNamedFunction) declaration;
+        JetExpression bodyExpression = function.getBodyExpression();
+        if (bodyExpression == null || bindingContext.get(BindingContext.EXPRESSION_TYPE, bodyExpression) == null) return null;
+
+        return isInlinableBody(bodyExpression, bindingContext) ? function : null;
+    }
+
+    private static boolean isInlinableBody(@NotNull JetExpression bodyExpression, @NotNull final BindingContext bindingContext) {
+        final boolean[] result = new boolean[] {true};
+        bodyExpression.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitFunctionLiteralExpression(JetFunctionLiteralExpression expression) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitObjectLiteralExpression(JetObjectLiteralExpression expression) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitNamedFunction(JetNamedFunction function) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitClass(JetClass klass) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitObjectDeclaration(JetObjectDeclaration declaration) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitSuperExpression(JetSuperExpression expression) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitThisExpression(JetThisExpression expression) {
+                if (expression.getTargetLabel() != null) {
+                    result[0] = false;
+                }
+            }
+
+            @Override
+            public void visitReturnExpression(JetReturnExpression expression) {
+                if (expression.getTargetLabel() != null || !isStatement(expression, bindingContext)) {
+                    result[0] = false;
+                }
+                super.visitReturnExpression(expression);
+            }
+
+            @Override
+            public void visitSimpleNameExpression(JetSimpleNameExpression expression) {
+                DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, expression);
+                if (target instanceof TypeParameterDescriptor) {
+                    result[0] = false;
+                }
+                else if (target instanceof DeclarationDescriptorWithVisibility) {
+                    Visibility visibility = ((DeclarationDescriptorWithVisibility) target).getVisibility();
+                    if (visibility == Visibilities.PRIVATE || visibility == Visibilities.PROTECTED) {
+                        result[0] = false;
+                    }
+                }
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * A function literal is generated in place if its own code never leaves it by a local return or a jump and doesn't catch
+     * exceptions. The body may be generated several times, so it must not declare anything compiled to a class of its own.
+     */
+    private static boolean isInlinableFunctionLiteral(@NotNull final JetFunctionLiteralExpression literal, @NotNull final BindingContext bindingContext) {
+        FunctionDescriptor descriptor = bindingContext.get(BindingContext.FUNCTION, literal);
+        if (descriptor == null || descriptor.getReceiverParameter() != null) return false;
+
+        final boolean[] result = new boolean[] {true};
+        literal.getBodyExpression().accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitFunctionLiteralExpression(JetFunctionLiteralExpression expression) {
+                // the nested literal's own code is checked when it is inlined itself
+                if (!isInlinedFunctionLiteral(expression, bindingContext)) {
+                    result[0] = false;
+                }
+            }
+
+            @Override
+            public void visitObjectLiteralExpression(JetObjectLiteralExpression expression) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitNamedFunction(JetNamedFunction function) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitClass(JetClass klass) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitObjectDeclaration(JetObjectDeclaration declaration) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitTryExpression(JetTryExpression expression) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visitReturnExpression(JetReturnExpression expression) {
+                if (expression.getTargetLabel() != null) {
+                    result[0] = false;
+                }
+                super.visitReturnExpression(expression);
+            }
+
+            @Override
+            public void visitBreakExpression(JetBreakExpression expression) {
+                checkJump(expression);
+            }
+
+            @Override
+            public void visitContinueExpression(JetContinueExpression expression) {
+                checkJump(expression);
+            }
+
+            private void checkJump(@NotNull JetLabelQualifiedExpression expression) {
+                if (expression.getTargetLabel() != null ||
+                    PsiTreeUtil.getParentOfType(expression, JetLoopExpression.class, true, JetFunctionLiteralExpression.class) == null) {
+                    result[0] = false;
+                }
+            }
+        });
+        return result[0];
+    }
+
+    private static boolean containsTry(@NotNull JetNamedFunction function, @NotNull Set<JetNamedFunction> visited, @NotNull BindingContext bindingContext) {
+        if (PsiTreeUtil.findChildOfType(function.getBodyExpression(), JetTryExpression.class, false) != null) return true;
+        for (JetNamedFunction callee : getInlinableCallees(function, bindingContext)) {
+            if (visited.add(callee) && containsTry(callee, visited, bindingContext)) return true;
+        }
+        return false;
+    }
+
+    @NotNull
+    private static JetExpression getCallWithReceiver(@NotNull JetCallExpression expression) {
+        PsiElement parent = expression.getParent();
+        if (parent instanceof JetDotQualifiedExpression && ((JetDotQualifiedExpression) parent).getSelectorExpression() == expression) {
+            return (JetExpression) parent;
+        }
+        return expression;
+    }
+
+    /**
+     * @return true if the given expression is evaluated on an empty operand stack of the method it is generated into
+     */
+    private static boolean isStatement(@NotNull JetExpression expression, @NotNull BindingContext bindingContext) {
+        PsiElement parent = expression.getParent();
+        if (parent instanceof JetParenthesizedExpression || parent instanceof JetReturnExpression) {
+            return parent instanceof JetReturnExpression || isStatement((JetExpression) parent, bindingContext);
+        }
+        if (parent instanceof JetBlockExpression) {
+            PsiElement owner = parent.getParent();
+            if (owner instanceof JetFunctionLiteral) {
+                // the body of a function literal may itself be generated in place of an invocation nested in an expression
+                return false;
+            }
+            if (owner instanceof JetNamedFunction || owner instanceof JetPropertyAccessor) return true;
+            if (owner instanceof JetCatchClause || owner instanceof JetFinallySection) {
+                owner = owner.getParent();
+            }
+            if (owner instanceof JetTryExpression) {
+                return isStatement((JetTryExpression) owner, bindingContext);
+            }
+            return isStatement((JetExpression) parent, bindingContext);
+        }
+        if (parent instanceof JetContainerNode) {
+            PsiElement owner = parent.getParent();
+            return (owner instanceof JetIfExpression || owner instanceof JetLoopExpression) && isStatement((JetExpression) owner, bindingContext);
+        }
+        if (parent instanceof JetWhenEntry) {
+            return ((JetWhenEntry) parent).getExpression() == expression && isStatement((JetExpression) parent.getParent(), bindingContext);
+        }
+        if (parent instanceof JetNamedFunction) {
+            return ((JetNamedFunction) parent).getBodyExpression() == expression;
+        }
+        if (parent instanceof JetProperty) {
+            JetProperty property = (JetProperty) parent;
+            return property.isLocal() && property.getInitializer() == expression && isStatement(property, bindingContext);
+        }
+        if (parent instanceof JetBinaryExpression) {
+            JetBinaryExpression binaryExpression = (JetBinaryExpression) parent;
+            if (binaryExpression.getOperationToken() != JetTokens.EQ || binaryExpression.getRight() != expression) return false;
+            JetExpression left = binaryExpression.getLeft();
+            if (!(left instanceof JetSimpleNameExpression)) return false;
+            DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) left);
+            return target instanceof VariableDescriptor && !(target instanceof PropertyDescriptor) && isStatement(binaryExpression, bindingContext);
+        }
+        return false;
+    }
+}
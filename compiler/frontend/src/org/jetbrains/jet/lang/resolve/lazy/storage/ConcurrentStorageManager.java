@@ -0,0 +1,303 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.lazy.storage;
+
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.Consumer;
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lang.resolve.lazy.storage.LockBasedStorageManager.Nulls;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A storage manager that does not serialize unrelated computations: every lazy value and every key of a memoized function
+ * is computed under its own ownership flag, so threads only wait for each other when they need the very same value.
+ *
+ * A thread that is about to wait for a value checks whether the owner of that value (transitively) waits for the thread itself.
+ * Waiting would be a deadlock then: the values depend on each other, which is reported like a recursive dependency.
+ * Only the values of one storage manager are considered, a cycle through values of other storage managers is not detected.
+ *
+ * A recursive request for a value that is being computed on the same thread is reported as an {@link IllegalStateException}.
+ */
+public class ConcurrentStorageManager implements StorageManager {
+
+    // Which computation of this storage manager each blocked thread is waiting for
+    private final ConcurrentMap<Thread, Computation<?>> waitingFor = new ConcurrentHashMap<Thread, Computation<?>>();
+
+    private final Object traceLock = new Object() {
+        @Override
+        public String toString() {
+            return "ConcurrentStorageManager trace lock";
+        }
+    };
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNotNull<K, V> createMemoizedFunction(
+            @NotNull Function<K, V> compute, @NotNull ReferenceKind valuesReferenceKind
+    ) {
+        return new ConcurrentMemoizedFunctionToNotNull<K, V>(
+                LockBasedStorageManager.<K, Object>createConcurrentMap(valuesReferenceKind), compute, waitingFor);
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNullable<K, V> createMemoizedFunctionWithNullableValues(
+            @NotNull Function<K, V> compute, @NotNull ReferenceKind valuesReferenceKind
+    ) {
+        return new ConcurrentMemoizedFunction<K, V>(
+                LockBasedStorageManager.<K, Object>createConcurrentMap(valuesReferenceKind), compute, waitingFor);
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValue(@NotNull Computable<T> computable) {
+        return new ConcurrentNotNullLazyValue<T>(computable, waitingFor);
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValueWithPostCompute(@NotNull Computable<T> computable, @NotNull final Consumer<T> postCompute) {
+        return new ConcurrentNotNullLazyValue<T>(computable, waitingFor) {
+            @Override
+            protected void postCompute(@NotNull T value) {
+                postCompute.consume(value);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValue(@NotNull Computable<T> computable) {
+        return new Computation<T>(computable, waitingFor);
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValueWithPostCompute(
+            @NotNull Computable<T> computable, @NotNull final Consumer<T> postCompute
+    ) {
+        return new Computation<T>(computable, waitingFor) {
+            @Override
+            protected void postCompute(@Nullable T value) {
+                postCompute.consume(value);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public BindingTrace createSafeTrace(@NotNull BindingTrace originalTrace) {
+        // Trace operations never compute lazy values, so a single lock for all of them can't participate in a deadlock
+        return new LockBasedStorageManager.LockProtectedTrace(traceLock, originalTrace);
+    }
+
+    private static class Computation<T> implements NullableLazyValue<T> {
+        private final Computable<T> computable;
+        private final ConcurrentMap<Thread, Computation<?>> waitingFor;
+        private final AtomicReference<Thread> owner = new AtomicReference<Thread>();
+
+        @Nullable
+        private volatile Object value = null;
+
+        public Computation(@NotNull Computable<T> computable, @NotNull ConcurrentMap<Thread, Computation<?>> waitingFor) {
+            this.computable = computable;
+            this.waitingFor = waitingFor;
+        }
+
+        @Override
+        public T compute() {
+            Thread current = Thread.currentThread();
+            while (true) {
+                Object _value = value;
+                if (_value != null) return Nulls.unescape(_value);
+
+                if (owner.compareAndSet(null, current)) {
+                    try {
+                        _value = value;
+                        if (_value != null) return Nulls.unescape(_value);
+
+                        return publish(computable.compute());
+                    }
+                    finally {
+                        owner.set(null);
+                        synchronized (this) {
+                            notifyAll();
+                        }
+                    }
+                }
+
+                Thread computing = owner.get();
+                if (computing == current) {
+                    throw new IllegalStateException("Recursive dependency detected while computing " + computable);
+                }
+                if (computing == null) continue;
+
+                waitingFor.put(current, this);
+                try {
+                    if (waitsFor(computing, current)) {
+                        // The owner is (transitively) waiting for this thread, so it would never release the value
+                        throw new IllegalStateException("Recursive dependency detected between threads while computing " + computable);
+                    }
+                    awaitRelease(computing);
+                }
+                finally {
+                    waitingFor.remove(current);
+                }
+            }
+        }
+
+        private synchronized void awaitRelease(@NotNull Thread computing) {
+            try {
+                while (value == null && owner.get() == computing) {
+                    wait();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + computable, e);
+            }
+        }
+
+        private T publish(@Nullable T typedValue) {
+            synchronized (this) {
+                Object _value = value;
+                if (_value != null) return Nulls.unescape(_value);
+
+                value = Nulls.escape(typedValue);
+            }
+
+            postCompute(typedValue);
+
+            return typedValue;
+        }
+
+        protected void postCompute(T value) {
+            // Doing something in post-compute helps prevent infinite recursion
+        }
+
+        private boolean waitsFor(@NotNull Thread thread, @NotNull Thread target) {
+            Thread next = thread;
+            // A chain of waiting threads can't be longer than the number of waiting threads
+            for (int steps = waitingFor.size() + 1; next != null && steps > 0; steps--) {
+                if (next == target) return true;
+
+                Computation<?> awaited = waitingFor.get(next);
+                if (awaited == null) return false;
+                next = awaited.owner.get();
+            }
+            return false;
+        }
+    }
+
+    private static class ConcurrentNotNullLazyValue<T> extends Computation<T> implements NotNullLazyValue<T> {
+
+        public ConcurrentNotNullLazyValue(@NotNull Computable<T> computable, @NotNull ConcurrentMap<Thread, Computation<?>> waitingFor) {
+            super(computable, waitingFor);
+        }
+
+        @Override
+        @NotNull
+        public T compute() {
+            T result = super.compute();
+            assert result != null : "compute() returned null";
+            return result;
+        }
+    }
+
+    private static class ConcurrentMemoizedFunction<K, V> implements MemoizedFunctionToNullable<K, V> {
+        private final ConcurrentMap<K, Object> cache;
+        private final ConcurrentMap<K, Computation<V>> computations = new ConcurrentHashMap<K, Computation<V>>();
+        private final Function<K, V> compute;
+        private final ConcurrentMap<Thread, Computation<?>> waitingFor;
+
+        public ConcurrentMemoizedFunction(
+                @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function<K, V> compute,
+                @NotNull ConcurrentMap<Thread, Computation<?>> waitingFor
+        ) {
+            this.cache = map;
+            this.compute = compute;
+            this.waitingFor = waitingFor;
+        }
+
+        @Override
+        @Nullable
+        public V fun(@NotNull final K input) {
+            Object value = cache.get(input);
+            if (value != null) return Nulls.unescape(value);
+
+            Computation<V> computation = computations.get(input);
+            if (computation == null) {
+                Computation<V> newComputation = new Computation<V>(new Computable<V>() {
+                    @Override
+                    public V compute() {
+                        return compute.fun(input);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return compute + " for " + input;
+                    }
+                }, waitingFor);
+                computation = computations.putIfAbsent(input, newComputation);
+                if (computation == null) {
+                    computation = newComputation;
+                }
+
+                // The value might have been cached and its computation discarded after the first look-up
+                value = cache.get(input);
+                if (value != null) {
+                    computations.remove(input, computation);
+                    return Nulls.unescape(value);
+                }
+            }
+
+            V typedValue = computation.compute();
+
+            Object oldValue = cache.putIfAbsent(input, Nulls.escape(typedValue));
+            computations.remove(input, computation);
+
+            return oldValue != null ? Nulls.<V>unescape(oldValue) : typedValue;
+        }
+    }
+
+    private static class ConcurrentMemoizedFunctionToNotNull<K, V> extends ConcurrentMemoizedFunction<K, V>
+            implements MemoizedFunctionToNotNull<K, V> {
+
+        public ConcurrentMemoizedFunctionToNotNull(
+                @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function<K, V> compute,
+                @NotNull ConcurrentMap<Thread, Computation<?>> waitingFor
+        ) {
+            super(map, compute, waitingFor);
+        }
+
+        @NotNull
+        @Override
+        public V fun(@NotNull K input) {
+            V result = super.fun(input);
+            assert result != null : "compute() returned null";
+            return result;
+        }
+    }
+}
@@ -59,7 +59,7 @@ public class LockBasedStorageManager implements StorageManager {
         return new MapBasedMemoizedFunction<K, V>(lock, map, compute);
     }
 
-    private static <K, V> ConcurrentMap<K, V> createConcurrentMap(ReferenceKind referenceKind) {
+    static <K, V> ConcurrentMap<K, V> createConcurrentMap(ReferenceKind referenceKind) {
         return (referenceKind == ReferenceKind.WEAK) ? new ConcurrentWeakValueHashMap<K, V>() : new ConcurrentHashMap<K, V>();
     }
 
@@ -107,18 +107,18 @@ public class LockBasedStorageManager implements StorageManager {
         return new LockProtectedTrace(lock, originalTrace);
     }
 
-    private static class Nulls {
+    static class Nulls {
         private static final Object NULL_VALUE = new Object();
     
         @Nullable
         @SuppressWarnings("unchecked")
-        private static <V> V unescape(@NotNull Object value) {
+        static <V> V unescape(@NotNull Object value) {
             if (value == NULL_VALUE) return null;
             return (V) value;
         }
     
         @NotNull
-        private static <V> Object escape(@Nullable V value) {
+        static <V> Object escape(@Nullable V value) {
             if (value == null) return NULL_VALUE;
             return value;
         }
@@ -224,7 +224,7 @@ public class LockBasedStorageManager implements StorageManager {
         }
     }
 
-    private static class LockProtectedTrace implements BindingTrace {
+    static class LockProtectedTrace implements BindingTrace {
         private final Object lock;
         private final BindingTrace trace;
 
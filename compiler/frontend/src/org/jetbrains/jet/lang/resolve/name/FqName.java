@@ -36,9 +36,6 @@ public class FqName extends FqNameBase {
     @NotNull
     private final FqNameUnsafe fqName;
 
-    // cache
-    private transient FqName parent;
-
     public FqName(@NotNull String fqName) {
         this.fqName = new FqNameUnsafe(fqName, this);
 
@@ -51,13 +48,6 @@ public class FqName extends FqNameBase {
         validateFqName();
     }
 
-    private FqName(@NotNull FqNameUnsafe fqName, FqName parent) {
-        this.fqName = fqName;
-        this.parent = parent;
-
-        validateFqName();
-    }
-
 
     private void validateFqName() {
         if (!isValidAfterUnsafeCheck(fqName.getFqName())) {
@@ -93,22 +83,12 @@ public class FqName extends FqNameBase {
 
     @NotNull
     public FqName parent() {
-        if (parent != null) {
-            return parent;
-        }
-
-        if (isRoot()) {
-            throw new IllegalStateException("root");
-        }
-
-        parent = new FqName(fqName.parent());
-
-        return parent;
+        return fqName.parent().toSafe();
     }
 
     @NotNull
     public FqName child(@NotNull Name name) {
-        return new FqName(fqName.child(name), this);
+        return fqName.child(name).toSafe();
     }
 
     @NotNull
@@ -123,15 +103,11 @@ public class FqName extends FqNameBase {
 
     @NotNull
     public List<FqName> path() {
-        final List<FqName> path = Lists.newArrayList();
-        path.add(ROOT);
-        fqName.walk(new FqNameUnsafe.WalkCallback() {
-            @Override
-            public void segment(@NotNull Name shortName, @NotNull FqNameUnsafe fqName) {
-                // TODO: do not validate
-                path.add(new FqName(fqName));
-            }
-        });
+        List<FqNameUnsafe> unsafePath = fqName.path();
+        List<FqName> path = Lists.newArrayListWithCapacity(unsafePath.size());
+        for (FqNameUnsafe unsafe : unsafePath) {
+            path.add(unsafe.toSafe());
+        }
         return path;
     }
 
@@ -151,7 +127,7 @@ public class FqName extends FqNameBase {
 
     @NotNull
     public static FqName topLevel(@NotNull Name shortName) {
-        return new FqName(FqNameUnsafe.topLevel(shortName));
+        return FqNameUnsafe.topLevel(shortName).toSafe();
     }
 
 
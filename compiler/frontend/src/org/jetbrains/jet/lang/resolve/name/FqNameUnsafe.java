@@ -17,47 +17,99 @@
 package org.jetbrains.jet.lang.resolve.name;
 
 import com.google.common.collect.Lists;
+import com.intellij.util.containers.ConcurrentWeakValueHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Like {@link FqName} but allows '<' and '>' characters in name.
+ *
+ * Qualified names are interned as a tree: an interned name has an interned parent (none for the root) and an
+ * interned short name. Every instance refers to its interned name, so equality is a reference check, and
+ * {@link #parent()} and {@link #child(Name)} don't allocate once the name has been seen. Interned names are
+ * held weakly.
  */
 public class FqNameUnsafe extends FqNameBase {
 
     public static final Name ROOT_NAME = Name.special("<root>");
 
+    private static final ConcurrentMap<String, FqNameUnsafe> INTERNED = new ConcurrentWeakValueHashMap<String, FqNameUnsafe>();
+    private static final FqNameUnsafe INTERNED_ROOT = new FqNameUnsafe();
+
     @NotNull
     private final String fqName;
+    @Nullable
+    private final FqNameUnsafe parent;
+    @Nullable
+    private final Name shortName;
+    @NotNull
+    private final FqNameUnsafe interned;
+    private final int hashCode;
 
     // cache
     private transient FqName safe;
-    private transient FqNameUnsafe parent;
-    private transient Name shortName;
+    private volatile ConcurrentMap<Name, FqNameUnsafe> children;
 
     FqNameUnsafe(@NotNull String fqName, @NotNull FqName safe) {
-        this.fqName = fqName;
+        this(fqName);
         this.safe = safe;
-
-        validateFqName();
+        if (interned.safe == null) {
+            interned.safe = safe;
+        }
     }
 
     public FqNameUnsafe(@NotNull String fqName) {
         this.fqName = fqName;
 
         validateFqName();
+
+        this.interned = intern(fqName);
+        this.parent = interned.parent;
+        this.shortName = interned.shortName;
+        this.hashCode = interned.hashCode;
     }
 
-    private FqNameUnsafe(@NotNull String fqName, FqNameUnsafe parent, Name shortName) {
-        this.fqName = fqName;
+    private FqNameUnsafe() {
+        this.fqName = "";
+        this.parent = null;
+        this.shortName = null;
+        this.interned = this;
+        this.hashCode = 0;
+    }
+
+    private FqNameUnsafe(@NotNull FqNameUnsafe parent, @NotNull Name shortName) {
+        this.fqName = parent.isRoot() ? shortName.getName() : parent.fqName + "." + shortName.getName();
         this.parent = parent;
         this.shortName = shortName;
+        this.interned = this;
+        this.hashCode = 31 * parent.hashCode + shortName.hashCode();
 
         validateFqName();
     }
 
+    @NotNull
+    private static FqNameUnsafe intern(@NotNull String fqName) {
+        if (fqName.isEmpty()) {
+            return INTERNED_ROOT;
+        }
+        FqNameUnsafe interned = INTERNED.get(fqName);
+        if (interned != null) {
+            return interned;
+        }
+        int lastDot = fqName.lastIndexOf('.');
+        FqNameUnsafe parent = lastDot >= 0 ? intern(fqName.substring(0, lastDot)) : INTERNED_ROOT;
+        return parent.child(segment(fqName.substring(lastDot + 1)));
+    }
+
+    // Segments are not validated separately: the qualified name as a whole is checked by isValid()
+    @NotNull
+    private static Name segment(@NotNull String name) {
+        return name.startsWith("<") ? Name.special(name) : Name.identifierNoValidate(name);
+    }
 
     private void validateFqName() {
         if (!isValid(fqName)) {
@@ -70,18 +122,6 @@ public class FqNameUnsafe extends FqNameBase {
         return qualifiedName != null && qualifiedName.indexOf('/') < 0 && qualifiedName.indexOf('*') < 0;
     }
 
-    private void compute() {
-        int lastDot = fqName.lastIndexOf('.');
-        if (lastDot >= 0) {
-            shortName = Name.guess(fqName.substring(lastDot + 1));
-            parent = new FqNameUnsafe(fqName.substring(0, lastDot));
-        }
-        else {
-            shortName = Name.guess(fqName);
-            parent = FqName.ROOT.toUnsafe();
-        }
-    }
-
 
 
     @NotNull
@@ -106,48 +146,53 @@ public class FqNameUnsafe extends FqNameBase {
     }
 
     public boolean isRoot() {
-        return fqName.equals("");
+        return parent == null;
     }
 
     @NotNull
     public FqNameUnsafe parent() {
-        if (parent != null) {
-            return parent;
-        }
-
-        if (isRoot()) {
+        if (parent == null) {
             throw new IllegalStateException("root");
         }
-
-        compute();
-
         return parent;
     }
 
     @NotNull
     public FqNameUnsafe child(@NotNull Name name) {
-        String childFqName;
-        if (isRoot()) {
-            childFqName = name.getName();
+        ConcurrentMap<Name, FqNameUnsafe> children = interned.getChildren();
+        FqNameUnsafe child = children.get(name);
+        if (child != null) {
+            return child;
         }
-        else {
-            childFqName = fqName + "." + name.getName();
+        FqNameUnsafe newChild = new FqNameUnsafe(interned, name);
+        child = children.putIfAbsent(name, newChild);
+        if (child != null) {
+            return child;
         }
-        return new FqNameUnsafe(childFqName, this, name);
+        INTERNED.putIfAbsent(newChild.fqName, newChild);
+        return newChild;
     }
 
     @NotNull
-    public Name shortName() {
-        if (shortName != null) {
-            return shortName;
+    private ConcurrentMap<Name, FqNameUnsafe> getChildren() {
+        ConcurrentMap<Name, FqNameUnsafe> result = children;
+        if (result == null) {
+            synchronized (this) {
+                result = children;
+                if (result == null) {
+                    result = new ConcurrentWeakValueHashMap<Name, FqNameUnsafe>();
+                    children = result;
+                }
+            }
         }
+        return result;
+    }
 
-        if (isRoot()) {
+    @NotNull
+    public Name shortName() {
+        if (shortName == null) {
             throw new IllegalStateException("root");
         }
-
-        compute();
-
         return shortName;
     }
 
@@ -161,86 +206,35 @@ public class FqNameUnsafe extends FqNameBase {
         }
     }
 
-    interface WalkCallback {
-        void segment(@NotNull Name shortName, @NotNull FqNameUnsafe fqName);
-    }
-
     @NotNull
     public List<FqNameUnsafe> path() {
-        final List<FqNameUnsafe> path = Lists.newArrayList();
-        path.add(FqName.ROOT.toUnsafe());
-        walk(new WalkCallback() {
-            @Override
-            public void segment(@NotNull Name shortName, @NotNull FqNameUnsafe fqName) {
-                path.add(fqName);
-            }
-        });
+        List<FqNameUnsafe> path = Lists.newArrayList();
+        for (FqNameUnsafe current = this; current != null; current = current.parent) {
+            path.add(current);
+        }
+        Collections.reverse(path);
         return path;
     }
 
     @NotNull
     public List<Name> pathSegments() {
-        final List<Name> path = Lists.newArrayList();
-        walk(new WalkCallback() {
-            @Override
-            public void segment(@NotNull Name shortName, @NotNull FqNameUnsafe fqName) {
-                path.add(shortName);
-            }
-        });
-        return path;
-    }
-
-
-    void walk(@NotNull WalkCallback callback) {
-        if (isRoot()) {
-            return;
-        }
-
-        int pos = fqName.indexOf('.');
-
-        if (pos < 0) {
-            if (this.parent == null) {
-                this.parent = FqName.ROOT.toUnsafe();
-            }
-            if (this.shortName == null) {
-                this.shortName = Name.guess(fqName);
-            }
-            callback.segment(shortName, this);
-            return;
-        }
-
-        Name firstSegment = Name.guess(fqName.substring(0, pos));
-        FqNameUnsafe last = new FqNameUnsafe(firstSegment.getName(), FqName.ROOT.toUnsafe(), firstSegment);
-        callback.segment(firstSegment, last);
-
-        while (true) {
-            int next = fqName.indexOf('.', pos + 1);
-            if (next < 0) {
-                if (this.parent == null) {
-                    this.parent = last;
-                }
-                Name shortName = Name.guess(fqName.substring(pos + 1));
-                if (this.shortName == null) {
-                    this.shortName = shortName;
-                }
-                callback.segment(shortName, this);
-                return;
-            }
-
-            Name shortName = Name.guess(fqName.substring(pos + 1, next));
-            last = new FqNameUnsafe(fqName.substring(0, next), last, shortName);
-            callback.segment(shortName, last);
-
-            pos = next;
+        List<Name> path = Lists.newArrayList();
+        for (FqNameUnsafe current = this; current.parent != null; current = current.parent) {
+            path.add(current.shortName);
         }
+        Collections.reverse(path);
+        return path;
     }
 
     public boolean firstSegmentIs(@NotNull Name segment) {
         if (isRoot()) {
             return false;
         }
-        List<Name> pathSegments = pathSegments();
-        return pathSegments.get(0).equals(segment);
+        FqNameUnsafe first = this;
+        while (!first.parent.isRoot()) {
+            first = first.parent;
+        }
+        return segment.equals(first.shortName);
     }
 
     public boolean lastSegmentIs(@NotNull Name segment) {
@@ -254,7 +248,7 @@ public class FqNameUnsafe extends FqNameBase {
 
     @NotNull
     public static FqNameUnsafe topLevel(@NotNull Name shortName) {
-        return new FqNameUnsafe(shortName.getName(), FqName.ROOT.toUnsafe(), shortName);
+        return INTERNED_ROOT.child(shortName);
     }
 
 
@@ -265,20 +259,14 @@ public class FqNameUnsafe extends FqNameBase {
 
     @Override
     public boolean equals(Object o) {
-        // generated by Idea
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
-        FqNameUnsafe that = (FqNameUnsafe) o;
-
-        if (fqName != null ? !fqName.equals(that.fqName) : that.fqName != null) return false;
-
-        return true;
+        return interned == ((FqNameUnsafe) o).interned;
     }
 
     @Override
     public int hashCode() {
-        // generated by Idea
-        return fqName != null ? fqName.hashCode() : 0;
+        return hashCode;
     }
 }
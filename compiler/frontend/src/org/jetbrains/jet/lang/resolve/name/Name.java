@@ -16,16 +16,28 @@
 
 package org.jetbrains.jet.lang.resolve.name;
 
+import com.intellij.util.containers.ConcurrentWeakValueHashMap;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Names are interned: there is at most one live instance for each name, so names are compared by reference.
+ * The intern tables hold names weakly.
+ */
 public class Name implements Comparable<Name> {
+    private static final ConcurrentMap<String, Name> IDENTIFIERS = new ConcurrentWeakValueHashMap<String, Name>();
+    private static final ConcurrentMap<String, Name> SPECIALS = new ConcurrentWeakValueHashMap<String, Name>();
+
     @NotNull
     private final String name;
     private final boolean special;
+    private final int hashCode;
 
     private Name(@NotNull String name, boolean special) {
         this.name = name;
         this.special = special;
+        this.hashCode = 31 * name.hashCode() + (special ? 1 : 0);
     }
 
     @NotNull
@@ -52,22 +64,36 @@ public class Name implements Comparable<Name> {
 
     @NotNull
     public static Name identifier(@NotNull String name) {
+        // Validated even if interned: names that are not identifiers may be interned by identifierNoValidate()
         NameUtils.requireIdentifier(name);
-        return new Name(name, false);
+        Name interned = IDENTIFIERS.get(name);
+        if (interned != null) return interned;
+        return intern(IDENTIFIERS, name, false);
     }
 
     /** Must be validated by caller */
     @NotNull
     public static Name identifierNoValidate(@NotNull String name) {
-        return new Name(name, false);
+        Name interned = IDENTIFIERS.get(name);
+        if (interned != null) return interned;
+        return intern(IDENTIFIERS, name, false);
     }
 
     @NotNull
     public static Name special(@NotNull String name) {
+        Name interned = SPECIALS.get(name);
+        if (interned != null) return interned;
         if (!name.startsWith("<")) {
             throw new IllegalArgumentException("special name must start with '<': " + name);
         }
-        return new Name(name, true);
+        return intern(SPECIALS, name, true);
+    }
+
+    @NotNull
+    private static Name intern(@NotNull ConcurrentMap<String, Name> names, @NotNull String name, boolean special) {
+        Name newName = new Name(name, special);
+        Name oldName = names.putIfAbsent(name, newName);
+        return oldName != null ? oldName : newName;
     }
 
     // TODO: wrong
@@ -88,21 +114,12 @@ public class Name implements Comparable<Name> {
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-
-        Name name1 = (Name) o;
-
-        if (special != name1.special) return false;
-        if (!name.equals(name1.name)) return false;
-
-        return true;
+        // names are interned
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        int result = name.hashCode();
-        result = 31 * result + (special ? 1 : 0);
-        return result;
+        return hashCode;
     }
 }
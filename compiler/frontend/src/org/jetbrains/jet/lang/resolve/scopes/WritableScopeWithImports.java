@@ -17,16 +17,21 @@
 package org.jetbrains.jet.lang.resolve.scopes;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.name.Name;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 public abstract class WritableScopeWithImports extends JetScopeAdapter implements WritableScope {
 
+    private static final Object NOT_FOUND = new Object();
+
     @NotNull
     private final String debugName;
 
@@ -36,6 +41,12 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
     protected final RedeclarationHandler redeclarationHandler;
     private List<ReceiverParameterDescriptor> implicitReceiverHierarchy;
 
+    private volatile boolean importedIntoOtherScope;
+    @Nullable
+    private volatile ImportIndex importIndex;
+    @Nullable
+    private ModuleDescriptor module;
+
     public WritableScopeWithImports(@NotNull JetScope scope, @NotNull RedeclarationHandler redeclarationHandler, @NotNull String debugName) {
         super(scope);
         this.redeclarationHandler = redeclarationHandler;
@@ -65,6 +76,25 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
         if (lockLevel != LockLevel.WRITING && lockLevel != LockLevel.BOTH) {
             throw new IllegalStateException("cannot write with lock level " + lockLevel + " at " + toString());
         }
+        if (importedIntoOtherScope || getContainingDeclaration() instanceof NamespaceDescriptor) {
+            ModuleDescriptor module = getModule();
+            if (module != null) {
+                module.visibleScopeModified();
+            }
+        }
+    }
+
+    /**
+     * Writes to a scope that may be seen through the imports of another scope (a scope that has been imported directly,
+     * or a namespace member scope, imported by files through filtering scopes) are counted by the module of the scope.
+     * Import indices built before the count changed are dropped, so the writes of one analysis don't affect the others.
+     */
+    @Nullable
+    private ModuleDescriptor getModule() {
+        if (module == null) {
+            module = DescriptorUtils.getParentOfType(getContainingDeclaration(), ModuleDescriptor.class, false);
+        }
+        return module;
     }
     
     protected void checkMayNotWrite() {
@@ -92,8 +122,12 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
 
         checkMayWrite();
 
+        if (imported instanceof WritableScopeWithImports) {
+            ((WritableScopeWithImports) imported).importedIntoOtherScope = true;
+        }
         getImports().add(0, imported);
         currentIndividualImportScope = null;
+        importIndex = null;
     }
 
     @NotNull
@@ -119,15 +153,82 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
         return implicitReceiverHierarchy;
     }
 
+    /**
+     * Descriptors found by name in the imported scopes, in the order of shadowing. Once a scope is only read from,
+     * each lookup is done once per name, and names not found are remembered as well.
+     */
+    private static class ImportIndex {
+        private final int modificationCount;
+        private final ConcurrentMap<Name, ImportedDescriptors> descriptorsByName = Maps.newConcurrentMap();
+
+        private ImportIndex(int modificationCount) {
+            this.modificationCount = modificationCount;
+        }
+    }
+
+    private static class ImportedDescriptors {
+        // null means not looked up yet, NOT_FOUND means there's no such descriptor
+        private volatile Object classifier;
+        private volatile Object objectDescriptor;
+        private volatile Object namespace;
+        private volatile Object localVariable;
+        private volatile Set<FunctionDescriptor> functions;
+        private volatile Set<VariableDescriptor> properties;
+    }
+
+    @Nullable
+    private ImportedDescriptors getImportedDescriptors(@NotNull Name name) {
+        if (lockLevel != LockLevel.READING) return null;
+
+        ModuleDescriptor module = getModule();
+        // Without a module there is nothing to track the writes to the imported scopes
+        if (module == null) return null;
+
+        int modificationCount = module.getVisibleScopesModificationCount();
+        ImportIndex index = importIndex;
+        if (index == null || index.modificationCount != modificationCount) {
+            index = new ImportIndex(modificationCount);
+            importIndex = index;
+        }
+        ImportedDescriptors descriptors = index.descriptorsByName.get(name);
+        if (descriptors == null) {
+            descriptors = new ImportedDescriptors();
+            ImportedDescriptors oldDescriptors = index.descriptorsByName.putIfAbsent(name, descriptors);
+            if (oldDescriptors != null) {
+                descriptors = oldDescriptors;
+            }
+        }
+        return descriptors;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static <D> D unwrap(@NotNull Object indexed) {
+        return indexed == NOT_FOUND ? null : (D) indexed;
+    }
+
+    @NotNull
+    private static Object wrap(@Nullable Object descriptor) {
+        return descriptor != null ? descriptor : NOT_FOUND;
+    }
+
     @NotNull
     @Override
     public Set<VariableDescriptor> getProperties(@NotNull Name name) {
         checkMayRead();
 
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.properties != null) {
+            return indexed.properties;
+        }
+
         Set<VariableDescriptor> properties = Sets.newLinkedHashSet();
         for (JetScope imported : getImports()) {
             properties.addAll(imported.getProperties(name));
         }
+        if (indexed != null) {
+            indexed.properties = Collections.unmodifiableSet(properties);
+        }
         return properties;
     }
 
@@ -135,14 +236,24 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
     public VariableDescriptor getLocalVariable(@NotNull Name name) {
         checkMayRead();
 
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.localVariable != null) {
+            return unwrap(indexed.localVariable);
+        }
+
         // Meaningful lookup goes here
+        VariableDescriptor result = null;
         for (JetScope imported : getImports()) {
             VariableDescriptor importedDescriptor = imported.getLocalVariable(name);
             if (importedDescriptor != null) {
-                return importedDescriptor;
+                result = importedDescriptor;
+                break;
             }
         }
-        return null;
+        if (indexed != null) {
+            indexed.localVariable = wrap(result);
+        }
+        return result;
     }
 
     @NotNull
@@ -153,10 +264,19 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
         if (getImports().isEmpty()) {
             return Collections.emptySet();
         }
+
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.functions != null) {
+            return indexed.functions;
+        }
+
         Set<FunctionDescriptor> result = Sets.newLinkedHashSet();
         for (JetScope imported : getImports()) {
             result.addAll(imported.getFunctions(name));
         }
+        if (indexed != null) {
+            indexed.functions = Collections.unmodifiableSet(result);
+        }
         return result;
     }
 
@@ -164,39 +284,69 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
     public ClassifierDescriptor getClassifier(@NotNull Name name) {
         checkMayRead();
 
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.classifier != null) {
+            return unwrap(indexed.classifier);
+        }
+
+        ClassifierDescriptor result = null;
         for (JetScope imported : getImports()) {
             ClassifierDescriptor importedClassifier = imported.getClassifier(name);
             if (importedClassifier != null) {
-                return importedClassifier;
+                result = importedClassifier;
+                break;
             }
         }
-        return null;
+        if (indexed != null) {
+            indexed.classifier = wrap(result);
+        }
+        return result;
     }
 
     @Override
     public ClassDescriptor getObjectDescriptor(@NotNull Name name) {
         checkMayRead();
 
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.objectDescriptor != null) {
+            return unwrap(indexed.objectDescriptor);
+        }
+
+        ClassDescriptor result = null;
         for (JetScope imported : getImports()) {
             ClassDescriptor objectDescriptor = imported.getObjectDescriptor(name);
             if (objectDescriptor != null) {
-                return objectDescriptor;
+                result = objectDescriptor;
+                break;
             }
         }
-        return null;
+        if (indexed != null) {
+            indexed.objectDescriptor = wrap(result);
+        }
+        return result;
     }
 
     @Override
     public NamespaceDescriptor getNamespace(@NotNull Name name) {
         checkMayRead();
 
+        ImportedDescriptors indexed = getImportedDescriptors(name);
+        if (indexed != null && indexed.namespace != null) {
+            return unwrap(indexed.namespace);
+        }
+
+        NamespaceDescriptor result = null;
         for (JetScope imported : getImports()) {
             NamespaceDescriptor importedDescriptor = imported.getNamespace(name);
             if (importedDescriptor != null) {
-                return importedDescriptor;
+                result = importedDescriptor;
+                break;
             }
         }
-        return null;
+        if (indexed != null) {
+            indexed.namespace = wrap(result);
+        }
+        return result;
     }
 
     private WritableScope getCurrentIndividualImportScope() {
@@ -242,6 +392,7 @@ public abstract class WritableScopeWithImports extends JetScopeAdapter implement
     public void clearImports() {
         currentIndividualImportScope = null;
         getImports().clear();
+        importIndex = null;
     }
 
     @Override
@@ -32,6 +32,10 @@ public class JetTypeChecker {
 
     public boolean isSubtypeOf(@NotNull JetType subtype, @NotNull JetType supertype) {
 //        return new TypeCheckingProcedure().run(subtype, supertype);
+        SubtypingCache cache = SubtypingCache.getCurrent();
+        if (cache != null) {
+            return cache.isSubtypeOf(subtype, supertype, TYPE_CHECKER);
+        }
         return TYPE_CHECKER.isSubtypeOf(subtype, supertype);
     }
 
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.types.checker;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.types.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of subtype checks and corresponding supertype lookups for the current thread
+ * while a cache session is open (see {@link #openSession(Statistics)}).
+ *
+ * Only types built from non-local classes are cached: their supertypes can not change once declarations
+ * are resolved, unlike those of type parameters and local classes that are still being resolved.
+ * Such types are keyed on their structure, so that equal types coming from different places share an entry.
+ */
+public final class SubtypingCache {
+    private static final int MAX_SIZE = 10000;
+
+    private static final ThreadLocal<SubtypingCache> CURRENT = new ThreadLocal<SubtypingCache>();
+
+    private static final Object NO_SUPERTYPE = new Object();
+
+    /**
+     * Hits and misses of all the sessions opened with this object. Sessions of different threads may share it.
+     */
+    public static final class Statistics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong missNanos = new AtomicLong();
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        @Override
+        public String toString() {
+            long hitCount = hits.get();
+            long missCount = misses.get();
+            long total = hitCount + missCount;
+            return "Subtyping cache: " + hitCount + " hits, " + missCount + " misses" +
+                   (total == 0 ? "" : " (" + (100 * hitCount / total) + "% hit rate)") +
+                   ", " + (missNanos.get() / 1000000) + " ms spent on misses";
+        }
+    }
+
+    /**
+     * @return the new session, or null if a session is already open on this thread (the outer one is reused then)
+     */
+    @Nullable
+    public static SubtypingCache openSession(@NotNull Statistics statistics) {
+        if (CURRENT.get() != null) return null;
+        SubtypingCache cache = new SubtypingCache(statistics);
+        CURRENT.set(cache);
+        return cache;
+    }
+
+    public static void closeSession(@Nullable SubtypingCache cache) {
+        if (cache == null) return;
+        assert CURRENT.get() == cache : "Closing a session which is not current: " + cache;
+        CURRENT.remove();
+    }
+
+    @Nullable
+    /*package*/ static SubtypingCache getCurrent() {
+        return CURRENT.get();
+    }
+
+    private final Map<Object, Boolean> subtypes = new BoundedMap<Boolean>();
+    private final Map<Object, Object> correspondingSupertypes = new BoundedMap<Object>();
+
+    private final Statistics statistics;
+
+    private int depth = 0;
+
+    private SubtypingCache(@NotNull Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /*package*/ boolean isSubtypeOf(@NotNull JetType subtype, @NotNull JetType supertype, @NotNull TypeCheckingProcedure procedure) {
+        TypeKey subtypeKey = TypeKey.create(subtype);
+        TypeKey supertypeKey = subtypeKey == null ? null : TypeKey.create(supertype);
+        if (supertypeKey == null) {
+            return procedure.isSubtypeOf(subtype, supertype);
+        }
+
+        KeyPair key = new KeyPair(subtypeKey, supertypeKey);
+        Boolean result = subtypes.get(key);
+        if (result != null) {
+            statistics.hits.incrementAndGet();
+            return result;
+        }
+
+        long start = startComputation();
+        try {
+            result = procedure.isSubtypeOf(subtype, supertype);
+        }
+        finally {
+            finishComputation(start);
+        }
+        subtypes.put(key, result);
+        return result;
+    }
+
+    @Nullable
+    /*package*/ JetType findCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype) {
+        TypeKey subtypeKey = TypeKey.create(subtype);
+        if (subtypeKey == null) {
+            return TypeCheckingProcedure.doFindCorrespondingSupertype(subtype, supertype);
+        }
+
+        KeyPair key = new KeyPair(subtypeKey, supertype.getConstructor());
+        Object cached = correspondingSupertypes.get(key);
+        if (cached != null) {
+            statistics.hits.incrementAndGet();
+            return cached == NO_SUPERTYPE ? null : (JetType) cached;
+        }
+
+        JetType result;
+        long start = startComputation();
+        try {
+            result = TypeCheckingProcedure.doFindCorrespondingSupertype(subtype, supertype);
+        }
+        finally {
+            finishComputation(start);
+        }
+        correspondingSupertypes.put(key, result == null ? NO_SUPERTYPE : result);
+        return result;
+    }
+
+    private long startComputation() {
+        statistics.misses.incrementAndGet();
+        return depth++ == 0 ? System.nanoTime() : 0;
+    }
+
+    // Only the outermost computation is timed, nested misses are a part of it
+    private void finishComputation(long start) {
+        if (--depth == 0) {
+            statistics.missNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private static final class BoundedMap<V> extends LinkedHashMap<Object, V> {
+        private BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, V> eldest) {
+            return size() > MAX_SIZE;
+        }
+    }
+
+    private static final class KeyPair {
+        private final Object first;
+        private final Object second;
+
+        private KeyPair(@NotNull Object first, @NotNull Object second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof KeyPair)) return false;
+
+            KeyPair pair = (KeyPair) o;
+            return first.equals(pair.first) && second.equals(pair.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+
+    // Structural key of a type: its constructor, nullability and the keys of its arguments with their projection kinds
+    private static final class TypeKey {
+        @Nullable
+        private static TypeKey create(@NotNull JetType type) {
+            TypeConstructor constructor = type.getConstructor();
+            if (!isNonLocalClass(constructor.getDeclarationDescriptor())) return null;
+
+            List<TypeProjection> arguments = type.getArguments();
+            Object[] argumentKeys = new Object[arguments.size() * 2];
+            for (int i = 0; i < arguments.size(); i++) {
+                TypeProjection argument = arguments.get(i);
+                TypeKey argumentKey = create(argument.getType());
+                if (argumentKey == null) return null;
+                argumentKeys[2 * i] = argument.getProjectionKind();
+                argumentKeys[2 * i + 1] = argumentKey;
+            }
+            return new TypeKey(constructor, type.isNullable(), argumentKeys);
+        }
+
+        private static boolean isNonLocalClass(@Nullable ClassifierDescriptor classifier) {
+            if (!(classifier instanceof ClassDescriptor)) return false;
+            DeclarationDescriptor container = classifier;
+            while (container instanceof ClassDescriptor) {
+                container = container.getContainingDeclaration();
+            }
+            return container instanceof NamespaceDescriptor;
+        }
+
+        private final TypeConstructor constructor;
+        private final boolean nullable;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        private TypeKey(@NotNull TypeConstructor constructor, boolean nullable, @NotNull Object[] arguments) {
+            this.constructor = constructor;
+            this.nullable = nullable;
+            this.arguments = arguments;
+            this.hashCode = 31 * (31 * constructor.hashCode() + (nullable ? 1 : 0)) + Arrays.hashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TypeKey)) return false;
+
+            TypeKey key = (TypeKey) o;
+            return hashCode == key.hashCode
+                   && nullable == key.nullable
+                   && constructor.equals(key.constructor)
+                   && Arrays.equals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -32,6 +32,15 @@ public class TypeCheckingProcedure {
     // as the second parameter, applying the substitution of type arguments to it
     @Nullable
     public static JetType findCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype) {
+        SubtypingCache cache = SubtypingCache.getCurrent();
+        if (cache != null) {
+            return cache.findCorrespondingSupertype(subtype, supertype);
+        }
+        return doFindCorrespondingSupertype(subtype, supertype);
+    }
+
+    @Nullable
+    /*package*/ static JetType doFindCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype) {
         TypeConstructor constructor = subtype.getConstructor();
         if (constructor.equals(supertype.getConstructor())) {
             return subtype;
@@ -499,7 +499,12 @@ public class ControlStructureTypingVisitor extends ExpressionTypingVisitor {
                         containingFunctionDescriptor = DescriptorUtils.getParentOfType(containingFunctionDescriptor, FunctionDescriptor.class);
                         containingFunction = containingFunctionDescriptor != null ? BindingContextUtils.callableDescriptorToDeclaration(context.trace.getBindingContext(), containingFunctionDescriptor) : null;
                     } while (containingFunction instanceof JetFunctionLiteralExpression);
-                    context.trace.report(RETURN_NOT_ALLOWED.on(expression));
+                    if (containingFunction instanceof JetNamedFunction) {
+                        context.trace.record(NON_LOCAL_RETURN, expression);
+                    }
+                    else {
+                        context.trace.report(RETURN_NOT_ALLOWED.on(expression));
+                    }
                 }
                 if (containingFunctionDescriptor != null) {
                     expectedType = DescriptorUtils.getFunctionExpectedReturnType(containingFunctionDescriptor, (JetElement) containingFunction);
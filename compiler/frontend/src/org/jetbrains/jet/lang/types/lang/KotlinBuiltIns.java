@@ -34,7 +34,10 @@ import org.jetbrains.jet.lang.ModuleConfiguration;
 import org.jetbrains.jet.lang.PlatformToKotlinClassMap;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorImpl;
 import org.jetbrains.jet.lang.descriptors.impl.ValueParameterDescriptorImpl;
+import org.jetbrains.jet.lang.descriptors.serialization.DeserializedPackageDescriptor;
+import org.jetbrains.jet.lang.descriptors.serialization.PackageData;
 import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.*;
 import org.jetbrains.jet.lang.resolve.lazy.declarations.FileBasedDeclarationProviderFactory;
@@ -45,14 +48,15 @@ import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.RedeclarationHandler;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
 import org.jetbrains.jet.lang.types.*;
 import org.jetbrains.jet.plugin.JetFileType;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.util.*;
+import java.util.zip.CRC32;
 
 import static org.jetbrains.jet.lang.types.lang.PrimitiveType.*;
 
@@ -86,6 +90,22 @@ public class KotlinBuiltIns {
             .put(new FqName("jet.Unit"), Name.identifier("Tuple0"))
             .build();
 
+    private static final Function<FqName, Name> CLASSIFIER_ALIASES = new Function<FqName, Name>() {
+        @Override
+        public Name fun(FqName name) {
+            return ALIASES.get(name);
+        }
+    };
+
+    /**
+     * Descriptors of {@link #LIBRARY_FILES} written by {@link org.jetbrains.jet.lang.descriptors.serialization.DescriptorSerializer}
+     * at build time, preceded by {@link #computeLibraryFilesHash()} of the sources they were built from
+     */
+    public static final String SERIALIZED_BUILT_INS_FILE = BUILT_INS_DIR + "/builtins.bin";
+
+    // Makes the compiler ignore SERIALIZED_BUILT_INS_FILE: needed to build that file and to compare the two ways of loading
+    public static final String LOAD_FROM_SOURCES_PROPERTY = "kotlin.builtins.from.sources";
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private static volatile KotlinBuiltIns instance = null;
@@ -135,6 +155,7 @@ public class KotlinBuiltIns {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    @Nullable // null when built-ins are deserialized
     private final KotlinCodeAnalyzer analyzer;
     private final ModuleDescriptor builtInsModule;
 
@@ -172,7 +193,14 @@ public class KotlinBuiltIns {
     private KotlinBuiltIns(@NotNull Project project) {
         try {
             this.builtInsModule = new ModuleDescriptor(Name.special("<built-ins lazy module>"));
-            this.analyzer = createLazyResolveSession(project);
+            PackageData serializedBuiltIns = Boolean.getBoolean(LOAD_FROM_SOURCES_PROPERTY) ? null : loadSerializedBuiltIns();
+            if (serializedBuiltIns != null) {
+                this.analyzer = null;
+                createDeserializedBuiltInsPackage(builtInsModule, serializedBuiltIns);
+            }
+            else {
+                this.analyzer = createLazyResolveSession(project, builtInsModule);
+            }
 
             this.functionClassesSet = computeIndexedClasses("Function", getFunctionTraitCount());
             this.extensionFunctionClassesSet = computeIndexedClasses("ExtensionFunction", getFunctionTraitCount());
@@ -215,31 +243,76 @@ public class KotlinBuiltIns {
 
         nonPhysicalClasses = computeNonPhysicalClasses();
 
-        analyzer.forceResolveAll();
+        if (analyzer != null) {
+            analyzer.forceResolveAll();
 
-        AnalyzingUtils.throwExceptionOnErrors(analyzer.getBindingContext());
+            AnalyzingUtils.throwExceptionOnErrors(analyzer.getBindingContext());
+        }
     }
 
     @NotNull
-    private KotlinCodeAnalyzer createLazyResolveSession(@NotNull Project project) throws IOException {
+    /*package*/ static KotlinCodeAnalyzer createLazyResolveSession(@NotNull Project project, @NotNull ModuleDescriptor module)
+            throws IOException {
         List<JetFile> files = loadResourcesAsJetFiles(project, LIBRARY_FILES);
         LockBasedStorageManager storageManager = new LockBasedStorageManager();
         return new ResolveSession(
                 project,
                 storageManager,
-                builtInsModule,
+                module,
                 new SpecialModuleConfiguration(),
                 new FileBasedDeclarationProviderFactory(storageManager, files),
-                new Function<FqName, Name>() {
-                    @Override
-                    public Name fun(FqName name) {
-                        return ALIASES.get(name);
-                    }
-                },
+                CLASSIFIER_ALIASES,
                 Predicates.in(Sets.newHashSet(new FqNameUnsafe("jet.Any"), new FqNameUnsafe("jet.Nothing"))),
                 new BindingTraceContext());
     }
 
+    @Nullable
+    private static PackageData loadSerializedBuiltIns() throws IOException {
+        InputStream stream = KotlinBuiltIns.class.getClassLoader().getResourceAsStream(SERIALIZED_BUILT_INS_FILE);
+        if (stream == null) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != computeLibraryFilesHash()) {
+                // Built from other sources, e.g. the .jet files were changed after the last build
+                return null;
+            }
+            return PackageData.read(in);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /*package*/ static void createDeserializedBuiltInsPackage(@NotNull ModuleDescriptor module, @NotNull PackageData data) {
+        NamespaceDescriptorImpl rootNamespace =
+                new NamespaceDescriptorImpl(module, Collections.<AnnotationDescriptor>emptyList(), FqNameUnsafe.ROOT_NAME);
+        WritableScopeImpl rootScope =
+                new WritableScopeImpl(JetScope.EMPTY, rootNamespace, RedeclarationHandler.DO_NOTHING, "Root scope of built-ins");
+        rootScope.changeLockLevel(WritableScope.LockLevel.BOTH);
+        rootNamespace.initialize(rootScope);
+        module.setRootNamespace(rootNamespace);
+
+        LockBasedStorageManager storageManager = new LockBasedStorageManager();
+        rootNamespace.addNamespace(new DeserializedPackageDescriptor(
+                rootNamespace, data, storageManager, null, CLASSIFIER_ALIASES, storageManager.createSafeTrace(new BindingTraceContext())));
+        rootScope.changeLockLevel(WritableScope.LockLevel.READING);
+    }
+
+    public static int computeLibraryFilesHash() throws IOException {
+        CRC32 crc = new CRC32();
+        for (String path : LIBRARY_FILES) {
+            InputStream stream = KotlinBuiltIns.class.getClassLoader().getResourceAsStream(path);
+            if (stream == null) {
+                throw new IllegalStateException("Resource not found in classpath: " + path);
+            }
+            crc.update(FileUtil.loadBytes(stream));
+            stream.close();
+        }
+        return (int) crc.getValue();
+    }
+
     @NotNull
     private static List<JetFile> loadResourcesAsJetFiles(@NotNull Project project, @NotNull List<String> libraryFiles)
             throws IOException, ProcessCanceledException
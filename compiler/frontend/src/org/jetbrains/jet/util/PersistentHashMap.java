@@ -0,0 +1,388 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable hash map (a hash array mapped trie): every modification returns a new map which shares all the untouched
+ * nodes with the original one, so lookups and updates take O(log32 n) and copying is free.
+ * <p/>
+ * Null keys and values are not supported.
+ */
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("unchecked")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap(null, 0);
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @Nullable
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentHashMap(@Nullable Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Nullable
+    public V get(@NotNull K key) {
+        return root == null ? null : root.get(key, key.hashCode(), 0);
+    }
+
+    public boolean containsKey(@NotNull K key) {
+        return get(key) != null;
+    }
+
+    @NotNull
+    public PersistentHashMap<K, V> plus(@NotNull K key, @NotNull V value) {
+        Leaf<K, V> leaf = new Leaf<K, V>(key, value, key.hashCode());
+        if (root == null) {
+            return new PersistentHashMap<K, V>(leaf, 1);
+        }
+        Node<K, V> newRoot = root.plus(leaf, 0);
+        if (newRoot == root) return this;
+        return new PersistentHashMap<K, V>(newRoot, containsKey(key) ? size : size + 1);
+    }
+
+    @NotNull
+    public PersistentHashMap<K, V> minus(@NotNull K key) {
+        if (root == null) return this;
+        Node<K, V> newRoot = root.minus(key, key.hashCode(), 0);
+        if (newRoot == root) return this;
+        return newRoot == null ? PersistentHashMap.<K, V>empty() : new PersistentHashMap<K, V>(newRoot, size - 1);
+    }
+
+    /**
+     * @return entries of this map which are absent in the given map or have a different (not the same) value there.
+     * Subtrees shared by both maps are skipped, so for a map derived from the given one this takes time proportional
+     * to the number of changes rather than to the size of the map
+     */
+    @NotNull
+    public List<Map.Entry<K, V>> entriesNotIn(@NotNull PersistentHashMap<K, V> base) {
+        if (root == null || root == base.root) return Collections.emptyList();
+        List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>();
+        if (base.root == null) {
+            root.collectEntries(result);
+        }
+        else {
+            root.collectEntriesNotIn(base.root, 0, result);
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        if (root == null) return Collections.<Map.Entry<K, V>>emptyList().iterator();
+        List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>(size);
+        root.collectEntries(result);
+        return Collections.unmodifiableList(result).iterator();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<K, V> entry : this) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        return sb.append("}").toString();
+    }
+
+    private static int index(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private abstract static class Node<K, V> {
+        @Nullable
+        abstract V get(@NotNull K key, int hash, int shift);
+
+        @NotNull
+        abstract Node<K, V> plus(@NotNull Leaf<K, V> leaf, int shift);
+
+        /**
+         * @return null if the node becomes empty
+         */
+        @Nullable
+        abstract Node<K, V> minus(@NotNull K key, int hash, int shift);
+
+        abstract void collectEntries(@NotNull List<Map.Entry<K, V>> result);
+
+        void collectEntriesNotIn(@NotNull Node<K, V> base, int shift, @NotNull List<Map.Entry<K, V>> result) {
+            if (base == this) return;
+            List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+            collectEntries(entries);
+            for (Map.Entry<K, V> entry : entries) {
+                if (base.get(entry.getKey(), ((Leaf<K, V>) entry).hash, shift) != entry.getValue()) {
+                    result.add(entry);
+                }
+            }
+        }
+    }
+
+    private static final class Leaf<K, V> extends Node<K, V> implements Map.Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final int hash;
+
+        private Leaf(@NotNull K key, @NotNull V value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        V get(@NotNull K key, int hash, int shift) {
+            return hash == this.hash && key.equals(this.key) ? value : null;
+        }
+
+        @NotNull
+        @Override
+        Node<K, V> plus(@NotNull Leaf<K, V> leaf, int shift) {
+            if (leaf.hash != hash) {
+                return BitmapNode.create(this, hash, leaf, leaf.hash, shift);
+            }
+            if (leaf.key.equals(key)) {
+                return leaf.value == value ? this : leaf;
+            }
+            //noinspection unchecked
+            return new CollisionNode<K, V>(hash, new Leaf[] {this, leaf});
+        }
+
+        @Override
+        Node<K, V> minus(@NotNull K key, int hash, int shift) {
+            return hash == this.hash && key.equals(this.key) ? null : this;
+        }
+
+        @Override
+        void collectEntries(@NotNull List<Map.Entry<K, V>> result) {
+            result.add(this);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+        private final int hash;
+        private final Leaf<K, V>[] leaves;
+
+        private CollisionNode(int hash, @NotNull Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(@NotNull K key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        V get(@NotNull K key, int hash, int shift) {
+            if (hash != this.hash) return null;
+            int i = indexOf(key);
+            return i < 0 ? null : leaves[i].value;
+        }
+
+        @NotNull
+        @Override
+        Node<K, V> plus(@NotNull Leaf<K, V> leaf, int shift) {
+            if (leaf.hash != hash) {
+                return BitmapNode.create(this, hash, leaf, leaf.hash, shift);
+            }
+            int i = indexOf(leaf.key);
+            if (i >= 0 && leaves[i].value == leaf.value) return this;
+
+            Leaf<K, V>[] newLeaves;
+            if (i >= 0) {
+                newLeaves = leaves.clone();
+                newLeaves[i] = leaf;
+            }
+            else {
+                //noinspection unchecked
+                newLeaves = new Leaf[leaves.length + 1];
+                System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+                newLeaves[leaves.length] = leaf;
+            }
+            return new CollisionNode<K, V>(hash, newLeaves);
+        }
+
+        @Override
+        Node<K, V> minus(@NotNull K key, int hash, int shift) {
+            if (hash != this.hash) return this;
+            int i = indexOf(key);
+            if (i < 0) return this;
+            if (leaves.length == 2) return leaves[1 - i];
+
+            //noinspection unchecked
+            Leaf<K, V>[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, i);
+            System.arraycopy(leaves, i + 1, newLeaves, i, leaves.length - i - 1);
+            return new CollisionNode<K, V>(hash, newLeaves);
+        }
+
+        @Override
+        void collectEntries(@NotNull List<Map.Entry<K, V>> result) {
+            Collections.addAll(result, leaves);
+        }
+    }
+
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+        private final int bitmap;
+        private final Node<K, V>[] children;
+
+        private BitmapNode(int bitmap, @NotNull Node<K, V>[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        @NotNull
+        private static <K, V> Node<K, V> create(@NotNull Node<K, V> first, int firstHash, @NotNull Node<K, V> second, int secondHash, int shift) {
+            int firstIndex = index(firstHash, shift);
+            int secondIndex = index(secondHash, shift);
+            if (firstIndex == secondIndex) {
+                //noinspection unchecked
+                return new BitmapNode<K, V>(1 << firstIndex, new Node[] {create(first, firstHash, second, secondHash, shift + BITS)});
+            }
+            //noinspection unchecked
+            Node<K, V>[] children = firstIndex < secondIndex ? new Node[] {first, second} : new Node[] {second, first};
+            return new BitmapNode<K, V>((1 << firstIndex) | (1 << secondIndex), children);
+        }
+
+        private int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        V get(@NotNull K key, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            return children[position(bit)].get(key, hash, shift + BITS);
+        }
+
+        @NotNull
+        @Override
+        Node<K, V> plus(@NotNull Leaf<K, V> leaf, int shift) {
+            int bit = 1 << index(leaf.hash, shift);
+            int position = position(bit);
+            if ((bitmap & bit) == 0) {
+                //noinspection unchecked
+                Node<K, V>[] newChildren = new Node[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, position);
+                newChildren[position] = leaf;
+                System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+                return new BitmapNode<K, V>(bitmap | bit, newChildren);
+            }
+
+            Node<K, V> child = children[position];
+            Node<K, V> newChild = child.plus(leaf, shift + BITS);
+            if (newChild == child) return this;
+            Node<K, V>[] newChildren = children.clone();
+            newChildren[position] = newChild;
+            return new BitmapNode<K, V>(bitmap, newChildren);
+        }
+
+        @Override
+        Node<K, V> minus(@NotNull K key, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+
+            int position = position(bit);
+            Node<K, V> child = children[position];
+            Node<K, V> newChild = child.minus(key, hash, shift + BITS);
+            if (newChild == child) return this;
+            if (newChild != null) {
+                Node<K, V>[] newChildren = children.clone();
+                newChildren[position] = newChild;
+                return new BitmapNode<K, V>(bitmap, newChildren);
+            }
+
+            if (children.length == 1) return null;
+            //noinspection unchecked
+            Node<K, V>[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            return new BitmapNode<K, V>(bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        void collectEntries(@NotNull List<Map.Entry<K, V>> result) {
+            for (Node<K, V> child : children) {
+                child.collectEntries(result);
+            }
+        }
+
+        @Override
+        void collectEntriesNotIn(@NotNull Node<K, V> base, int shift, @NotNull List<Map.Entry<K, V>> result) {
+            if (base == this) return;
+            if (!(base instanceof BitmapNode)) {
+                super.collectEntriesNotIn(base, shift, result);
+                return;
+            }
+
+            BitmapNode<K, V> baseNode = (BitmapNode<K, V>) base;
+            for (int i = 0, position = 0; i <= MASK; i++) {
+                int bit = 1 << i;
+                if ((bitmap & bit) == 0) continue;
+                Node<K, V> child = children[position++];
+                if ((baseNode.bitmap & bit) == 0) {
+                    child.collectEntries(result);
+                }
+                else {
+                    child.collectEntriesNotIn(baseNode.children[baseNode.position(bit)], shift + BITS, result);
+                }
+            }
+        }
+    }
+}
@@ -16,6 +16,10 @@
 
 package org.jetbrains.jet.util.lazy;
 
+/**
+ * The value may be requested from several threads: others wait while one of them computes it.
+ * A request from the thread that is computing the value is a recursion and fails.
+ */
 public abstract class RecursionIntolerantLazyValue<T> {
 
     private enum State {
@@ -25,7 +29,7 @@ public abstract class RecursionIntolerantLazyValue<T> {
         ERROR
     }
 
-    private State state = State.NOT_COMPUTED;
+    private volatile State state = State.NOT_COMPUTED;
     private T value;
 
     protected abstract T compute();
@@ -38,7 +42,7 @@ public abstract class RecursionIntolerantLazyValue<T> {
         return state == State.ERROR || state == State.COMPUTED;
     }
 
-    public final T get() {
+    public final synchronized T get() {
         switch (state) {
             case NOT_COMPUTED:
                 state = State.BEING_COMPUTED;
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.util.slicedmap;
+
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Keeps a separate map for every slice, keyed directly on the (normalized) keys of the slice.
+ * Unlike {@link SlicedMapImpl} it doesn't allocate a {@link SlicedMapKey} on every put and get,
+ * and enumerating the contents of a slice doesn't scan the entries of all the other slices.
+ *
+ * Iteration goes slice by slice, in the order of the first put into each slice.
+ */
+public class PartitionedSlicedMap implements MutableSlicedMap {
+
+    public static PartitionedSlicedMap create() {
+        return new PartitionedSlicedMap();
+    }
+
+    private final Map<WritableSlice<?, ?>, Map<Object, Object>> partitions = new LinkedHashMap<WritableSlice<?, ?>, Map<Object, Object>>();
+
+    private PartitionedSlicedMap() {
+    }
+
+    @Override
+    public <K, V> void put(WritableSlice<K, V> slice, K key, V value) {
+        if (!slice.check(key, value)) {
+            return;
+        }
+
+        WritableSlice<K, V> storageSlice = slice.getStorageSlice();
+        Map<Object, Object> partition = partitions.get(storageSlice);
+        if (partition == null) {
+            partition = new LinkedHashMap<Object, Object>();
+            partitions.put(storageSlice, partition);
+        }
+
+        K storageKey = slice.normalizeKey(key);
+        RewritePolicy rewritePolicy = slice.getRewritePolicy();
+        if (rewritePolicy.rewriteProcessingNeeded(key)) {
+            if (partition.containsKey(storageKey)) {
+                //noinspection unchecked
+                if (!rewritePolicy.processRewrite(slice, key, (V) partition.get(storageKey), value)) {
+                    return;
+                }
+            }
+        }
+
+        partition.put(storageKey, value);
+        slice.afterPut(this, key, value);
+    }
+
+    @Override
+    public void clear() {
+        partitions.clear();
+    }
+
+    @Override
+    public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        Map<Object, Object> partition = partitions.get(slice.getStorageSlice());
+        if (partition == null) {
+            return slice.computeValue(this, key, null, true);
+        }
+
+        K storageKey = slice.normalizeKey(key);
+        //noinspection unchecked
+        V value = (V) partition.get(storageKey);
+        return slice.computeValue(this, key, value, value == null && !partition.containsKey(storageKey));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+        assert slice.isCollective() : "Keys are not collected for slice " + slice;
+        Map<Object, Object> partition = partitions.get(slice.getStorageSlice());
+        if (partition == null) {
+            return Collections.emptySet();
+        }
+        return (Collection<K>) Collections.unmodifiableSet(partition.keySet());
+    }
+
+    @Override
+    public <K, V> V remove(RemovableSlice<K, V> slice, K key) {
+        Map<Object, Object> partition = partitions.get(slice.getStorageSlice());
+        if (partition == null) {
+            return null;
+        }
+        //noinspection unchecked
+        return (V) partition.remove(slice.normalizeKey(key));
+    }
+
+    @Override
+    public Iterator<Map.Entry<SlicedMapKey<?, ?>, ?>> iterator() {
+        final Iterator<Map.Entry<WritableSlice<?, ?>, Map<Object, Object>>> partitionIterator = partitions.entrySet().iterator();
+        return new Iterator<Map.Entry<SlicedMapKey<?, ?>, ?>>() {
+            private WritableSlice<?, ?> currentSlice = null;
+            private Iterator<Map.Entry<Object, Object>> currentIterator = Collections.<Map.Entry<Object, Object>>emptySet().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!currentIterator.hasNext()) {
+                    if (!partitionIterator.hasNext()) return false;
+
+                    Map.Entry<WritableSlice<?, ?>, Map<Object, Object>> partition = partitionIterator.next();
+                    currentSlice = partition.getKey();
+                    currentIterator = partition.getValue().entrySet().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<SlicedMapKey<?, ?>, ?> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Object, Object> entry = currentIterator.next();
+                SlicedMapKey<?, ?> key = new SlicedMapKey((WritableSlice) currentSlice, entry.getKey());
+                return new AbstractMap.SimpleImmutableEntry<SlicedMapKey<?, ?>, Object>(key, entry.getValue());
+            }
+
+            @Override
+            public void remove() {
+                currentIterator.remove();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+        Map<Object, Object> partition = partitions.get(slice.getStorageSlice());
+        if (partition == null) {
+            return ImmutableMap.of();
+        }
+        return ImmutableMap.copyOf((Map<K, V>) partition);
+    }
+}
@@ -19,6 +19,16 @@ package org.jetbrains.jet.util.slicedmap;
 public interface ReadOnlySlice<K, V> {
     SlicedMapKey<K, V> makeKey(K key);
 
+    /**
+     * @return the slice values of this slice are stored under, i.e. {@code makeKey(key).getSlice()} for any key
+     */
+    WritableSlice<K, V> getStorageSlice();
+
+    /**
+     * @return the key the value is stored under, i.e. {@code makeKey(key).getKey()}
+     */
+    K normalizeKey(K key);
+
     V computeValue(SlicedMap map, K key, V value, boolean valueNotFound);
 
     /**
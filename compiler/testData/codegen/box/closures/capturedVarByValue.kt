@@ -0,0 +1,60 @@
+fun apply(f: () -> Int) = f()
+
+fun readOnly(): Int {
+    var x = 1
+    x += 41
+    val f = { x }
+    return f()
+}
+
+fun writtenAfterCapture(): Int {
+    var x = 1
+    val f = { x }
+    x = 42
+    return f()
+}
+
+fun writtenInClosure(): Int {
+    var x = 1
+    apply { x = 42; 0 }
+    return x
+}
+
+fun loop(): Int {
+    val closures = java.util.ArrayList<() -> Int>()
+    for (i in 1..3) {
+        var x = i
+        x *= 10
+        closures.add({ x })
+    }
+    var sum = 0
+    for (c in closures) sum += c()
+    return sum
+}
+
+fun loopWrittenOnNextIteration(): Int {
+    var x = 0
+    var f = { x }
+    for (i in 1..3) {
+        f = { x }
+        x = i
+    }
+    return f()
+}
+
+fun localFunction(): Int {
+    var x = 20
+    x++
+    fun twice() = x * 2
+    return twice()
+}
+
+fun box(): String {
+    if (readOnly() != 42) return "fail 1"
+    if (writtenAfterCapture() != 42) return "fail 2"
+    if (writtenInClosure() != 42) return "fail 3"
+    if (loop() != 60) return "fail 4"
+    if (loopWrittenOnNextIteration() != 3) return "fail 5"
+    if (localFunction() != 42) return "fail 6"
+    return "OK"
+}
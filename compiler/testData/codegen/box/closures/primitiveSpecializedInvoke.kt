@@ -0,0 +1,23 @@
+fun applyInt(f: (Int) -> Int, x: Int) = f(x)
+fun testInt(f: (Int) -> Boolean, x: Int) = f(x)
+fun applyLong(f: (Long, Long) -> Long, x: Long, y: Long) = f(x, y)
+fun testDouble(f: (Double, Double) -> Boolean, x: Double, y: Double) = f(x, y)
+fun applyExtension(f: Int.(Int) -> Int, x: Int, y: Int) = x.f(y)
+fun applyBoxed(f: (Int?) -> Int, x: Int?) = f(x)
+
+fun <T> applyGeneric(f: (T) -> T, x: T) = f(x)
+
+fun box(): String {
+    if (applyInt({ it + 1 }, 41) != 42) return "fail 1"
+    if (!testInt({ it % 2 == 0 }, 42)) return "fail 2"
+    if (applyLong({ a, b -> a * b }, 6000000000, 2.toLong()) != 12000000000) return "fail 3"
+    if (testDouble({ a, b -> a < b }, 2.0, 1.5)) return "fail 4"
+    if (applyExtension({ this - it }, 50, 8) != 42) return "fail 5"
+    if (applyBoxed({ if (it == null) -1 else it }, null) != -1) return "fail 6"
+    if (applyGeneric({ (x: Int) -> x * 3 }, 14) != 42) return "fail 7"
+
+    fun square(x: Double) = x * x
+    if (square(3.0) != 9.0) return "fail 8"
+
+    return "OK"
+}
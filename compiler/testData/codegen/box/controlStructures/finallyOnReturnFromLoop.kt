@@ -0,0 +1,19 @@
+fun foo(log: StringBuilder): String {
+    try {
+        for (i in 1..3) {
+            log.append("$i;")
+            if (i == 2) return "returned;"
+        }
+    }
+    finally {
+        log.append("finally;")
+    }
+    return "fail;"
+}
+
+fun box(): String {
+    val log = StringBuilder()
+    log.append(foo(log))
+    val result = log.toString()
+    return if (result == "1;2;finally;returned;") "OK" else "fail: $result"
+}
@@ -0,0 +1,27 @@
+fun foo(log: StringBuilder): String {
+    try {
+        for (i in 1..3) {
+            try {
+                while (true) {
+                    log.append("$i;")
+                    if (i == 2) return "returned;"
+                    break
+                }
+            }
+            finally {
+                log.append("inner$i;")
+            }
+        }
+    }
+    finally {
+        log.append("outer;")
+    }
+    return "fail;"
+}
+
+fun box(): String {
+    val log = StringBuilder()
+    log.append(foo(log))
+    val result = log.toString()
+    return if (result == "1;inner1;2;inner2;outer;returned;") "OK" else "fail: $result"
+}
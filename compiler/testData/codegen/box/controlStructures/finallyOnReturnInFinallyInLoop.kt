@@ -0,0 +1,24 @@
+fun foo(log: StringBuilder): String {
+    try {
+        for (i in 1..3) {
+            try {
+                log.append("$i;")
+            }
+            finally {
+                log.append("finally$i;")
+                if (i == 2) return "returned;"
+            }
+        }
+    }
+    finally {
+        log.append("outer;")
+    }
+    return "fail;"
+}
+
+fun box(): String {
+    val log = StringBuilder()
+    log.append(foo(log))
+    val result = log.toString()
+    return if (result == "1;finally1;2;finally2;outer;returned;") "OK" else "fail: $result"
+}
@@ -0,0 +1,33 @@
+fun box() : String {
+    val ints = IntArray(5)
+    for (i in ints.indices) {
+        ints[i] = i * 2
+    }
+    var sum = 0
+    for (i in ints.indices) {
+        sum += ints[i]
+    }
+    if (sum != 20) return "Fail int array: $sum"
+
+    val longs = LongArray(3)
+    var count = 0
+    for (i in longs.indices) {
+        longs[i] = i.toLong()
+        count++
+    }
+    if (count != 3 || longs[2] != 2.toLong()) return "Fail long array: $count"
+
+    val empty = IntArray(0)
+    for (i in empty.indices) {
+        return "Fail empty array: $i"
+    }
+
+    val strings = array("a", "b", "c")
+    var result = ""
+    for (i in strings.indices) {
+        result += strings[i] + i
+    }
+    if (result != "a0b1c2") return "Fail object array: $result"
+
+    return "OK"
+}
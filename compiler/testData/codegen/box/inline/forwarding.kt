@@ -0,0 +1,14 @@
+inline fun <T> applyTo(x: T, f: (T) -> Unit) {
+    f(x)
+}
+
+inline fun <T> applyTwice(x: T, f: (T) -> Unit) {
+    applyTo(x, f)
+    applyTo(x, f)
+}
+
+fun box(): String {
+    var count = 0
+    applyTwice(21) { count += it }
+    return if (count == 42) "OK" else "fail: $count"
+}
@@ -0,0 +1,17 @@
+inline fun repeatTimes(n: Int, f: (Int) -> Unit) {
+    var i = 0
+    while (i < n) {
+        f(i)
+        i++
+    }
+}
+
+fun box(): String {
+    var sum = 0
+    repeatTimes(3) { i ->
+        repeatTimes(4) { j ->
+            sum += i * 10 + j
+        }
+    }
+    return if (sum == 138) "OK" else "fail: $sum"
+}
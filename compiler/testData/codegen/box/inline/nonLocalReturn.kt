@@ -0,0 +1,20 @@
+inline fun forEachIndex(n: Int, f: (Int) -> Unit) {
+    var i = 0
+    while (i < n) {
+        f(i)
+        i++
+    }
+}
+
+fun find(n: Int, target: Int): Int {
+    forEachIndex(n) {
+        if (it == target) return it * 10
+    }
+    return -1
+}
+
+fun box(): String {
+    if (find(10, 3) != 30) return "fail 1"
+    if (find(2, 3) != -1) return "fail 2"
+    return "OK"
+}
@@ -0,0 +1,16 @@
+inline fun <T> guarded(f: () -> T): T {
+    try {
+        return f()
+    }
+    catch (e: Exception) {
+        throw e
+    }
+}
+
+fun sum(a: Int, b: Int) = a + b
+
+fun box(): String {
+    // the call is evaluated with an argument already on the stack, so it's compiled as a regular invocation
+    val x = sum(40, guarded { 2 })
+    return if (x == 42) "OK" else "fail: $x"
+}
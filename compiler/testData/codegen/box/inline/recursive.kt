@@ -0,0 +1,12 @@
+inline fun countDown(n: Int, f: (Int) -> Unit) {
+    if (n > 0) {
+        f(n)
+        countDown(n - 1, f)
+    }
+}
+
+fun box(): String {
+    var sum = 0
+    countDown(4) { sum += it }
+    return if (sum == 10) "OK" else "fail: $sum"
+}
@@ -0,0 +1,13 @@
+inline fun <T> myRun(f: () -> T): T = f()
+
+inline fun Int.twice(f: (Int) -> Int): Int = f(f(this))
+
+fun box(): String {
+    val x = myRun { 40 + 2 }
+    if (x != 42) return "fail 1: $x"
+
+    val y = 5.twice { it * 3 }
+    if (y != 45) return "fail 2: $y"
+
+    return myRun { "OK" }
+}
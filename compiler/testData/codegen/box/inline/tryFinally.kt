@@ -0,0 +1,25 @@
+inline fun <T> guarded(log: StringBuilder, f: () -> T): T {
+    try {
+        return f()
+    }
+    finally {
+        log.append("finally;")
+    }
+}
+
+fun nonLocal(log: StringBuilder): String {
+    guarded(log) {
+        log.append("body;")
+        return "nonLocal;"
+    }
+    return "fail;"
+}
+
+fun box(): String {
+    val log = StringBuilder()
+    val x = guarded(log) { "value;" }
+    log.append(x)
+    log.append(nonLocal(log))
+    val result = log.toString()
+    return if (result == "finally;value;body;finally;nonLocal;") "OK" else "fail: $result"
+}
@@ -0,0 +1,43 @@
+// These whens are not compiled to switches
+
+fun mixed(x: Int): String = when (x) {
+    0 -> "zero"
+    in 1..9 -> "digit"
+    else -> "other"
+}
+
+fun nullableInt(x: Int?): String = when (x) {
+    1 -> "one"
+    null -> "null"
+    else -> "other"
+}
+
+fun duplicate(x: Int): String = when (x) {
+    1 -> "first"
+    1 -> "second"
+    else -> "other"
+}
+
+fun any(x: Any): String = when (x) {
+    1 -> "one"
+    "1" -> "string"
+    else -> "other"
+}
+
+fun box(): String {
+    if (mixed(0) != "zero") return "fail mixed 0"
+    if (mixed(5) != "digit") return "fail mixed 5"
+    if (mixed(10) != "other") return "fail mixed 10"
+
+    if (nullableInt(1) != "one") return "fail nullableInt 1"
+    if (nullableInt(null) != "null") return "fail nullableInt null"
+    if (nullableInt(2) != "other") return "fail nullableInt 2"
+
+    if (duplicate(1) != "first") return "fail duplicate"
+
+    if (any(1) != "one") return "fail any 1"
+    if (any("1") != "string") return "fail any string"
+    if (any(1.0) != "other") return "fail any double"
+
+    return "OK"
+}
@@ -0,0 +1,25 @@
+fun kind(c: Char): String = when (c) {
+    'a', 'e', 'i', 'o', 'u' -> "vowel"
+    ' ' -> "space"
+    '\n' -> "newline"
+    else -> "other"
+}
+
+fun box(): String {
+    var vowels = 0
+    var spaces = 0
+    var others = 0
+    val s = "quick brown fox"
+    for (i in 0..s.length - 1) {
+        when (kind(s[i])) {
+            "vowel" -> vowels++
+            "space" -> spaces++
+            else -> others++
+        }
+    }
+    if (vowels != 4) return "fail vowels: $vowels"
+    if (spaces != 2) return "fail spaces: $spaces"
+    if (others != 9) return "fail others: $others"
+    if (kind('\n') != "newline") return "fail newline"
+    return "OK"
+}
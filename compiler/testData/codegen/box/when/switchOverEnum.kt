@@ -0,0 +1,62 @@
+enum class Season {
+    WINTER
+    SPRING
+    SUMMER
+    AUTUMN
+}
+
+enum class Direction {
+    NORTH {
+        override fun opposite() = SOUTH
+    }
+    SOUTH {
+        override fun opposite() = NORTH
+    }
+
+    abstract fun opposite(): Direction
+}
+
+fun temperature(s: Season): String = when (s) {
+    Season.WINTER -> "cold"
+    Season.SUMMER -> "hot"
+    else -> "mild"
+}
+
+fun nullable(s: Season?): String = when (s) {
+    Season.AUTUMN, Season.SPRING -> "mild"
+    null -> "unknown"
+    else -> "extreme"
+}
+
+fun Direction.label(): String = when (this) {
+    Direction.NORTH -> "north"
+    Direction.SOUTH -> "south"
+    else -> "unknown"
+}
+
+fun exhaustive(s: Season): Int = when (s) {
+    Season.WINTER -> 0
+    Season.SPRING -> 1
+    Season.SUMMER -> 2
+    Season.AUTUMN -> 3
+}
+
+fun box(): String {
+    if (temperature(Season.WINTER) != "cold") return "fail WINTER"
+    if (temperature(Season.SPRING) != "mild") return "fail SPRING"
+    if (temperature(Season.SUMMER) != "hot") return "fail SUMMER"
+    if (temperature(Season.AUTUMN) != "mild") return "fail AUTUMN"
+
+    if (nullable(null) != "unknown") return "fail nullable null"
+    if (nullable(Season.SPRING) != "mild") return "fail nullable SPRING"
+    if (nullable(Season.WINTER) != "extreme") return "fail nullable WINTER"
+
+    if (Direction.NORTH.opposite().label() != "south") return "fail NORTH"
+    if (Direction.SOUTH.opposite().label() != "north") return "fail SOUTH"
+
+    for (season in Season.values()) {
+        if (exhaustive(season) != season.ordinal()) return "fail exhaustive $season"
+    }
+
+    return "OK"
+}
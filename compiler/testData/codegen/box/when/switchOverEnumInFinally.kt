@@ -0,0 +1,29 @@
+enum class Season {
+    WINTER
+    SPRING
+    SUMMER
+    AUTUMN
+}
+
+fun test(s: Season, fail: Boolean, log: StringBuilder): String {
+    try {
+        if (fail) return "early"
+        return "normal"
+    }
+    finally {
+        log.append(when (s) {
+            Season.WINTER -> "cold;"
+            Season.SUMMER -> "hot;"
+            else -> "mild;"
+        })
+    }
+}
+
+fun box(): String {
+    val log = StringBuilder()
+    test(Season.WINTER, true, log)
+    test(Season.SUMMER, false, log)
+    test(Season.SPRING, false, log)
+    val result = log.toString()
+    return if (result == "cold;hot;mild;") "OK" else "fail: $result"
+}
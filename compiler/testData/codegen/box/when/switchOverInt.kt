@@ -0,0 +1,52 @@
+fun dense(x: Int): String = when (x) {
+    -1 -> "minus one"
+    0 -> "zero"
+    1, 2 -> "small"
+    3 -> "three"
+    else -> "other"
+}
+
+fun sparse(x: Int): String = when (x) {
+    -2147483647 -> "min"
+    -100000 -> "minus many"
+    1000 -> "thousand"
+    2147483647 -> "max"
+    else -> "other"
+}
+
+fun short(x: Short): Int = when (x) {
+    1.toShort() -> 1
+    else -> 0
+}
+
+fun noElse(x: Int): String {
+    when (x) {
+        1 -> return "one"
+        2 -> return "two"
+    }
+    return "none"
+}
+
+fun box(): String {
+    if (dense(-1) != "minus one") return "fail -1"
+    if (dense(0) != "zero") return "fail 0"
+    if (dense(1) != "small") return "fail 1"
+    if (dense(2) != "small") return "fail 2"
+    if (dense(3) != "three") return "fail 3"
+    if (dense(4) != "other") return "fail 4"
+    if (dense(-2) != "other") return "fail -2"
+
+    if (sparse(-2147483647) != "min") return "fail min"
+    if (sparse(-100000) != "minus many") return "fail -100000"
+    if (sparse(1000) != "thousand") return "fail 1000"
+    if (sparse(2147483647) != "max") return "fail max"
+    if (sparse(0) != "other") return "fail sparse 0"
+
+    if (short(1.toShort()) != 1) return "fail short 1"
+    if (short(2.toShort()) != 0) return "fail short 2"
+
+    if (noElse(2) != "two") return "fail noElse 2"
+    if (noElse(3) != "none") return "fail noElse 3"
+
+    return "OK"
+}
@@ -0,0 +1,39 @@
+// "Aa" and "BB" have equal hash codes
+
+fun code(s: String): Int = when (s) {
+    "Aa" -> 1
+    "BB" -> 2
+    "" -> 3
+    "hello", "world" -> 4
+    else -> 0
+}
+
+fun nullable(s: String?): String = when (s) {
+    null -> "null"
+    "Aa" -> "Aa"
+    else -> "other"
+}
+
+fun nullableWithoutNullBranch(s: String?): String = when (s) {
+    "BB" -> "BB"
+    else -> "other"
+}
+
+fun box(): String {
+    if (code("Aa") != 1) return "fail Aa"
+    if (code("BB") != 2) return "fail BB"
+    if (code("") != 3) return "fail empty"
+    if (code("hello") != 4) return "fail hello"
+    if (code("world") != 4) return "fail world"
+    if (code("C#") != 0) return "fail C#"
+    if (code("AaAa") != 0) return "fail AaAa"
+
+    if (nullable(null) != "null") return "fail nullable null"
+    if (nullable("Aa") != "Aa") return "fail nullable Aa"
+    if (nullable("BB") != "other") return "fail nullable BB"
+
+    if (nullableWithoutNullBranch(null) != "other") return "fail nullableWithoutNullBranch null"
+    if (nullableWithoutNullBranch("BB") != "BB") return "fail nullableWithoutNullBranch BB"
+
+    return "OK"
+}
@@ -0,0 +1,23 @@
+import java.util.ArrayList
+
+fun box(): String {
+    val list = arrayList("a", "b", "c")
+    val indices = ArrayList<Int>()
+    for (i in list.indices) {
+        indices.add(i)
+    }
+    if (indices != arrayList(0, 1, 2)) return "Fail list: $indices"
+
+    val set: Collection<Int> = hashSet(42)
+    var count = 0
+    for (i in set.indices) {
+        count++
+    }
+    if (count != 1) return "Fail set: $count"
+
+    for (i in ArrayList<String>().indices) {
+        return "Fail empty list: $i"
+    }
+
+    return "OK"
+}
@@ -0,0 +1,26 @@
+import java.util.ArrayList
+
+fun high() = 5
+fun low() = 2
+
+fun box(): String {
+    val ints = ArrayList<Int>()
+    for (i in high() downTo low()) {
+        ints.add(i)
+    }
+    if (ints != arrayList(5, 4, 3, 2)) return "Fail int: $ints"
+
+    val longs = ArrayList<Long>()
+    for (i in high().toLong() downTo low().toLong()) {
+        longs.add(i)
+    }
+    if (longs != arrayList<Long>(5, 4, 3, 2)) return "Fail long: $longs"
+
+    var calls = 0
+    for (i in low() downTo high()) {
+        calls++
+    }
+    if (calls != 0) return "Fail empty: $calls"
+
+    return "OK"
+}
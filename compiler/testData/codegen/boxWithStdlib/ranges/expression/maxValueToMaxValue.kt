@@ -0,0 +1,52 @@
+// Auto-generated by org.jetbrains.jet.generators.tests.GenerateRangesCodegenTestData. DO NOT EDIT!
+import java.util.ArrayList
+import java.lang as j
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    val range1 = j.Integer.MAX_VALUE..j.Integer.MAX_VALUE
+    for (i in range1) {
+        list1.add(i)
+    }
+    if (list1 != listOf<Int>(j.Integer.MAX_VALUE)) {
+        return "Wrong elements for j.Integer.MAX_VALUE..j.Integer.MAX_VALUE: $list1"
+    }
+
+    val list2 = ArrayList<Byte>()
+    val range2 = j.Byte.MAX_VALUE.toByte()..j.Byte.MAX_VALUE.toByte()
+    for (i in range2) {
+        list2.add(i)
+    }
+    if (list2 != listOf<Byte>(j.Byte.MAX_VALUE.toByte())) {
+        return "Wrong elements for j.Byte.MAX_VALUE.toByte()..j.Byte.MAX_VALUE.toByte(): $list2"
+    }
+
+    val list3 = ArrayList<Short>()
+    val range3 = j.Short.MAX_VALUE.toShort()..j.Short.MAX_VALUE.toShort()
+    for (i in range3) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Short>(j.Short.MAX_VALUE.toShort())) {
+        return "Wrong elements for j.Short.MAX_VALUE.toShort()..j.Short.MAX_VALUE.toShort(): $list3"
+    }
+
+    val list4 = ArrayList<Long>()
+    val range4 = j.Long.MAX_VALUE.toLong()..j.Long.MAX_VALUE.toLong()
+    for (i in range4) {
+        list4.add(i)
+    }
+    if (list4 != listOf<Long>(j.Long.MAX_VALUE.toLong())) {
+        return "Wrong elements for j.Long.MAX_VALUE.toLong()..j.Long.MAX_VALUE.toLong(): $list4"
+    }
+
+    val list5 = ArrayList<Char>()
+    val range5 = j.Character.MAX_VALUE.toChar()..j.Character.MAX_VALUE.toChar()
+    for (i in range5) {
+        list5.add(i)
+    }
+    if (list5 != listOf<Char>(j.Character.MAX_VALUE.toChar())) {
+        return "Wrong elements for j.Character.MAX_VALUE.toChar()..j.Character.MAX_VALUE.toChar(): $list5"
+    }
+
+    return "OK"
+}
@@ -0,0 +1,52 @@
+// Auto-generated by org.jetbrains.jet.generators.tests.GenerateRangesCodegenTestData. DO NOT EDIT!
+import java.util.ArrayList
+import java.lang as j
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    val range1 = (j.Integer.MAX_VALUE - 5)..j.Integer.MAX_VALUE step 3
+    for (i in range1) {
+        list1.add(i)
+    }
+    if (list1 != listOf<Int>(j.Integer.MAX_VALUE - 5, j.Integer.MAX_VALUE - 2)) {
+        return "Wrong elements for (j.Integer.MAX_VALUE - 5)..j.Integer.MAX_VALUE step 3: $list1"
+    }
+
+    val list2 = ArrayList<Byte>()
+    val range2 = (j.Byte.MAX_VALUE - 5).toByte()..j.Byte.MAX_VALUE.toByte() step 3
+    for (i in range2) {
+        list2.add(i)
+    }
+    if (list2 != listOf<Byte>((j.Byte.MAX_VALUE - 5).toByte(), (j.Byte.MAX_VALUE - 2).toByte())) {
+        return "Wrong elements for (j.Byte.MAX_VALUE - 5).toByte()..j.Byte.MAX_VALUE.toByte() step 3: $list2"
+    }
+
+    val list3 = ArrayList<Short>()
+    val range3 = (j.Short.MAX_VALUE - 5).toShort()..j.Short.MAX_VALUE.toShort() step 3
+    for (i in range3) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Short>((j.Short.MAX_VALUE - 5).toShort(), (j.Short.MAX_VALUE - 2).toShort())) {
+        return "Wrong elements for (j.Short.MAX_VALUE - 5).toShort()..j.Short.MAX_VALUE.toShort() step 3: $list3"
+    }
+
+    val list4 = ArrayList<Long>()
+    val range4 = (j.Long.MAX_VALUE - 5).toLong()..j.Long.MAX_VALUE.toLong() step 3
+    for (i in range4) {
+        list4.add(i)
+    }
+    if (list4 != listOf<Long>((j.Long.MAX_VALUE - 5).toLong(), (j.Long.MAX_VALUE - 2).toLong())) {
+        return "Wrong elements for (j.Long.MAX_VALUE - 5).toLong()..j.Long.MAX_VALUE.toLong() step 3: $list4"
+    }
+
+    val list5 = ArrayList<Char>()
+    val range5 = (j.Character.MAX_VALUE - 5).toChar()..j.Character.MAX_VALUE.toChar() step 3
+    for (i in range5) {
+        list5.add(i)
+    }
+    if (list5 != listOf<Char>((j.Character.MAX_VALUE - 5).toChar(), (j.Character.MAX_VALUE - 2).toChar())) {
+        return "Wrong elements for (j.Character.MAX_VALUE - 5).toChar()..j.Character.MAX_VALUE.toChar() step 3: $list5"
+    }
+
+    return "OK"
+}
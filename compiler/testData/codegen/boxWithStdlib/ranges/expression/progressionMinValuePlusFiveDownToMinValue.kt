@@ -0,0 +1,52 @@
+// Auto-generated by org.jetbrains.jet.generators.tests.GenerateRangesCodegenTestData. DO NOT EDIT!
+import java.util.ArrayList
+import java.lang as j
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    val range1 = (j.Integer.MIN_VALUE + 5) downTo j.Integer.MIN_VALUE step 3
+    for (i in range1) {
+        list1.add(i)
+    }
+    if (list1 != listOf<Int>(j.Integer.MIN_VALUE + 5, j.Integer.MIN_VALUE + 2)) {
+        return "Wrong elements for (j.Integer.MIN_VALUE + 5) downTo j.Integer.MIN_VALUE step 3: $list1"
+    }
+
+    val list2 = ArrayList<Byte>()
+    val range2 = (j.Byte.MIN_VALUE + 5).toByte() downTo j.Byte.MIN_VALUE.toByte() step 3
+    for (i in range2) {
+        list2.add(i)
+    }
+    if (list2 != listOf<Byte>((j.Byte.MIN_VALUE + 5).toByte(), (j.Byte.MIN_VALUE + 2).toByte())) {
+        return "Wrong elements for (j.Byte.MIN_VALUE + 5).toByte() downTo j.Byte.MIN_VALUE.toByte() step 3: $list2"
+    }
+
+    val list3 = ArrayList<Short>()
+    val range3 = (j.Short.MIN_VALUE + 5).toShort() downTo j.Short.MIN_VALUE.toShort() step 3
+    for (i in range3) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Short>((j.Short.MIN_VALUE + 5).toShort(), (j.Short.MIN_VALUE + 2).toShort())) {
+        return "Wrong elements for (j.Short.MIN_VALUE + 5).toShort() downTo j.Short.MIN_VALUE.toShort() step 3: $list3"
+    }
+
+    val list4 = ArrayList<Long>()
+    val range4 = (j.Long.MIN_VALUE + 5).toLong() downTo j.Long.MIN_VALUE.toLong() step 3
+    for (i in range4) {
+        list4.add(i)
+    }
+    if (list4 != listOf<Long>((j.Long.MIN_VALUE + 5).toLong(), (j.Long.MIN_VALUE + 2).toLong())) {
+        return "Wrong elements for (j.Long.MIN_VALUE + 5).toLong() downTo j.Long.MIN_VALUE.toLong() step 3: $list4"
+    }
+
+    val list5 = ArrayList<Char>()
+    val range5 = (j.Character.MIN_VALUE + 5).toChar() downTo j.Character.MIN_VALUE.toChar() step 3
+    for (i in range5) {
+        list5.add(i)
+    }
+    if (list5 != listOf<Char>((j.Character.MIN_VALUE + 5).toChar(), (j.Character.MIN_VALUE + 2).toChar())) {
+        return "Wrong elements for (j.Character.MIN_VALUE + 5).toChar() downTo j.Character.MIN_VALUE.toChar() step 3: $list5"
+    }
+
+    return "OK"
+}
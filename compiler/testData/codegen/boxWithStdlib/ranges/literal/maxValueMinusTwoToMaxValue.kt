@@ -0,0 +1,47 @@
+// Auto-generated by org.jetbrains.jet.generators.tests.GenerateRangesCodegenTestData. DO NOT EDIT!
+import java.util.ArrayList
+import java.lang as j
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    for (i in (j.Integer.MAX_VALUE - 2)..j.Integer.MAX_VALUE) {
+        list1.add(i)
+    }
+    if (list1 != listOf<Int>(j.Integer.MAX_VALUE - 2, j.Integer.MAX_VALUE - 1, j.Integer.MAX_VALUE)) {
+        return "Wrong elements for (j.Integer.MAX_VALUE - 2)..j.Integer.MAX_VALUE: $list1"
+    }
+
+    val list2 = ArrayList<Byte>()
+    for (i in (j.Byte.MAX_VALUE - 2).toByte()..j.Byte.MAX_VALUE.toByte()) {
+        list2.add(i)
+    }
+    if (list2 != listOf<Byte>((j.Byte.MAX_VALUE - 2).toByte(), (j.Byte.MAX_VALUE - 1).toByte(), j.Byte.MAX_VALUE.toByte())) {
+        return "Wrong elements for (j.Byte.MAX_VALUE - 2).toByte()..j.Byte.MAX_VALUE.toByte(): $list2"
+    }
+
+    val list3 = ArrayList<Short>()
+    for (i in (j.Short.MAX_VALUE - 2).toShort()..j.Short.MAX_VALUE.toShort()) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Short>((j.Short.MAX_VALUE - 2).toShort(), (j.Short.MAX_VALUE - 1).toShort(), j.Short.MAX_VALUE.toShort())) {
+        return "Wrong elements for (j.Short.MAX_VALUE - 2).toShort()..j.Short.MAX_VALUE.toShort(): $list3"
+    }
+
+    val list4 = ArrayList<Long>()
+    for (i in (j.Long.MAX_VALUE - 2).toLong()..j.Long.MAX_VALUE.toLong()) {
+        list4.add(i)
+    }
+    if (list4 != listOf<Long>((j.Long.MAX_VALUE - 2).toLong(), (j.Long.MAX_VALUE - 1).toLong(), j.Long.MAX_VALUE.toLong())) {
+        return "Wrong elements for (j.Long.MAX_VALUE - 2).toLong()..j.Long.MAX_VALUE.toLong(): $list4"
+    }
+
+    val list5 = ArrayList<Char>()
+    for (i in (j.Character.MAX_VALUE - 2).toChar()..j.Character.MAX_VALUE.toChar()) {
+        list5.add(i)
+    }
+    if (list5 != listOf<Char>((j.Character.MAX_VALUE - 2).toChar(), (j.Character.MAX_VALUE - 1).toChar(), j.Character.MAX_VALUE.toChar())) {
+        return "Wrong elements for (j.Character.MAX_VALUE - 2).toChar()..j.Character.MAX_VALUE.toChar(): $list5"
+    }
+
+    return "OK"
+}
@@ -0,0 +1,47 @@
+// Auto-generated by org.jetbrains.jet.generators.tests.GenerateRangesCodegenTestData. DO NOT EDIT!
+import java.util.ArrayList
+import java.lang as j
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    for (i in j.Integer.MIN_VALUE downTo j.Integer.MIN_VALUE) {
+        list1.add(i)
+    }
+    if (list1 != listOf<Int>(j.Integer.MIN_VALUE)) {
+        return "Wrong elements for j.Integer.MIN_VALUE downTo j.Integer.MIN_VALUE: $list1"
+    }
+
+    val list2 = ArrayList<Byte>()
+    for (i in j.Byte.MIN_VALUE.toByte() downTo j.Byte.MIN_VALUE.toByte()) {
+        list2.add(i)
+    }
+    if (list2 != listOf<Byte>(j.Byte.MIN_VALUE.toByte())) {
+        return "Wrong elements for j.Byte.MIN_VALUE.toByte() downTo j.Byte.MIN_VALUE.toByte(): $list2"
+    }
+
+    val list3 = ArrayList<Short>()
+    for (i in j.Short.MIN_VALUE.toShort() downTo j.Short.MIN_VALUE.toShort()) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Short>(j.Short.MIN_VALUE.toShort())) {
+        return "Wrong elements for j.Short.MIN_VALUE.toShort() downTo j.Short.MIN_VALUE.toShort(): $list3"
+    }
+
+    val list4 = ArrayList<Long>()
+    for (i in j.Long.MIN_VALUE.toLong() downTo j.Long.MIN_VALUE.toLong()) {
+        list4.add(i)
+    }
+    if (list4 != listOf<Long>(j.Long.MIN_VALUE.toLong())) {
+        return "Wrong elements for j.Long.MIN_VALUE.toLong() downTo j.Long.MIN_VALUE.toLong(): $list4"
+    }
+
+    val list5 = ArrayList<Char>()
+    for (i in j.Character.MIN_VALUE.toChar() downTo j.Character.MIN_VALUE.toChar()) {
+        list5.add(i)
+    }
+    if (list5 != listOf<Char>(j.Character.MIN_VALUE.toChar())) {
+        return "Wrong elements for j.Character.MIN_VALUE.toChar() downTo j.Character.MIN_VALUE.toChar(): $list5"
+    }
+
+    return "OK"
+}
@@ -0,0 +1,26 @@
+fun readOnly(): Int {
+    var x = 1
+    x += 41
+    val f = { x }
+    return f()
+}
+
+fun loop(n: Int): Int {
+    var sum = 0
+    for (i in 1..n) {
+        var x = i
+        x *= 10
+        val f = { x }
+        sum += f()
+    }
+    return sum
+}
+
+fun writtenAfterCapture(): Int {
+    var y = 1
+    val f = { y }
+    y = 42
+    return f()
+}
+
+// 1 NEW jet/runtime/SharedVar$Int
@@ -0,0 +1,12 @@
+fun sum(a: IntArray): Int {
+    var result = 0
+    for (i in a.indices) {
+        result += a[i]
+    }
+    return result
+}
+
+// 0 getIndices
+// 0 iterator
+// 0 NEW
+// 1 ARRAYLENGTH
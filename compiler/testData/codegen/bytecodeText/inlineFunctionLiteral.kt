@@ -0,0 +1,17 @@
+inline fun repeatTimes(n: Int, f: (Int) -> Unit) {
+    var i = 0
+    while (i < n) {
+        f(i)
+        i++
+    }
+}
+
+fun sum(n: Int): Int {
+    var result = 0
+    repeatTimes(n) { result += it }
+    return result
+}
+
+// 0 SharedVar
+// 0 NEW
+// 1 invoke
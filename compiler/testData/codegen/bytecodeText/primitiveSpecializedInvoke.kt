@@ -0,0 +1,7 @@
+fun apply(f: (Int) -> Int, x: Int) = f(x)
+
+fun test() = apply({ it * 2 }, 21)
+
+fun applyBoxed(f: (Int?) -> Int?, x: Int?) = f(x)
+
+// 2 invokeAsInt
@@ -0,0 +1,17 @@
+enum class Color {
+    RED
+    GREEN
+    BLUE
+}
+
+fun foo(c: Color): Int {
+    return when (c) {
+        Color.RED -> 1
+        Color.GREEN -> 2
+        Color.BLUE -> 3
+    }
+}
+
+// 1 TABLESWITCH
+// 1 INVOKESTATIC Color.values
+// 3 java/lang/NoSuchFieldError
@@ -0,0 +1,12 @@
+fun foo(x: Int): String {
+    return when (x) {
+        1 -> "one"
+        1000 -> "thousand"
+        1000000 -> "million"
+        else -> "other"
+    }
+}
+
+// 0 TABLESWITCH
+// 1 LOOKUPSWITCH
+// 0 IF_ICMP
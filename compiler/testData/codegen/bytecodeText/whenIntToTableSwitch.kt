@@ -0,0 +1,13 @@
+fun foo(x: Int): String {
+    return when (x) {
+        1 -> "one"
+        2 -> "two"
+        3 -> "three"
+        5 -> "five"
+        else -> "other"
+    }
+}
+
+// 1 TABLESWITCH
+// 0 LOOKUPSWITCH
+// 0 IF_ICMP
@@ -0,0 +1,12 @@
+fun foo(s: String): Int {
+    return when (s) {
+        "Aa" -> 1
+        "BB" -> 2
+        "abc" -> 3
+        else -> 0
+    }
+}
+
+// 1 LOOKUPSWITCH
+// 1 INVOKEVIRTUAL java/lang/String.hashCode
+// 3 INVOKEVIRTUAL java/lang/String.equals
@@ -0,0 +1,9 @@
+package a
+
+import b.B
+
+class A(val b: B) {
+    fun twice(f: (Int) -> Int) = f(f(b.value))
+}
+
+fun makeA() = A(B(20))
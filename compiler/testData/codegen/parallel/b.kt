@@ -0,0 +1,11 @@
+package b
+
+import c.inc
+
+class B(val value: Int) {
+    fun incremented() = inc(value)
+}
+
+object Registry {
+    val names = array("x", "y", "z")
+}
@@ -0,0 +1,13 @@
+package c
+
+fun inc(x: Int) = x + 1
+
+fun sum(vararg xs: Int): Int {
+    var result = 0
+    for (x in xs) {
+        result += x
+    }
+    return result
+}
+
+val adder = { (x: Int, y: Int) -> x + y }
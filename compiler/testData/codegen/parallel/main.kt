@@ -0,0 +1,9 @@
+import a.makeA
+import c.sum
+
+fun box(): String {
+    val a = makeA()
+    var calls = 0
+    val result = a.twice { calls++; it + a.b.incremented() }
+    return if (result == 62 && calls == 2 && sum(1, 2, 3) == 6) "OK" else "Fail: $result"
+}
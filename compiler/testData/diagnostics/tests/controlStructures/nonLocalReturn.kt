@@ -0,0 +1,30 @@
+inline fun forEachIndex(n: Int, f: (Int) -> Unit) {
+    var i = 0
+    while (i < n) {
+        f(i)
+        i++
+    }
+}
+
+fun runNow(f: () -> Unit) {
+    f()
+}
+
+fun inlined(n: Int): Int {
+    forEachIndex(n) {
+        if (it > 2) return it
+    }
+    return 0
+}
+
+fun notInlined() {
+    runNow {
+        <!RETURN_NOT_ALLOWED!>return<!>
+    }
+}
+
+fun storedLiteral(n: Int): Int {
+    val f: (Int) -> Unit = { if (it > 0) <!RETURN_NOT_ALLOWED!>return it<!> }
+    forEachIndex(n, f)
+    return 0
+}
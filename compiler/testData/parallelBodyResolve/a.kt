@@ -0,0 +1,30 @@
+package a
+
+import java.util.ArrayList
+
+fun sum(list: List<Int>) = list.fold(0) { acc, x -> acc + x }
+
+fun twice(x: Int) = times(x, 2)
+
+fun times(x: Int, y: Int): Int = x * y
+
+fun mismatch(): String = sum(ArrayList<Int>())
+
+fun recursive() = recursive()
+
+fun local(): Int {
+    fun helper(s: String) = s.length
+    val l = { (x: Int) -> x + helper("abc") }
+    return l(twice(1))
+}
+
+class Counter {
+    var count = 0
+        set(value) {
+            $count = value
+        }
+
+    fun increment() {
+        count = twice(count) + undefined
+    }
+}
@@ -0,0 +1,25 @@
+package b
+
+import a.*
+
+val total = sum(arrayList(1, 2, 3)) + twice(4)
+
+val wrong: Boolean = total
+
+fun useCounter(c: Counter): String {
+    c.increment()
+    return c.count
+}
+
+object Holder {
+    val value: Int get() = local() + times(1, 2)
+
+    fun describe() = "value = $value, missing = ${missing()}"
+}
+
+fun branches(x: Any?) = when (x) {
+    is Int -> x + 1
+    is String -> x.length
+    null -> 0
+    else -> x.hashCode()
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures creating names and qualified names the way resolvers do (from strings, with {@code child()} and
+ * {@code parent()}) and looking them up in hash maps keyed by freshly created qualified names. Reports the time
+ * and the heap allocated per operation.
+ *
+ * Usage: FqNameBenchmark [number of classes]
+ */
+public class FqNameBenchmark {
+    private static final int ROUNDS = 10;
+    private static final int PACKAGES = 100;
+
+    public static void main(String[] args) {
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        String[] packages = new String[PACKAGES];
+        for (int i = 0; i < PACKAGES; i++) {
+            packages[i] = "org.jetbrains.benchmark.p" + i;
+        }
+        String[] classNames = new String[classes];
+        for (int i = 0; i < classes; i++) {
+            classNames[i] = "C" + i;
+        }
+
+        Map<FqName, Integer> cache = new HashMap<FqName, Integer>();
+        for (int i = 0; i < classes; i++) {
+            cache.put(new FqName(packages[i % PACKAGES] + "." + classNames[i]), i);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = usedMemory();
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < classes; i++) {
+                FqName packageName = new FqName(packages[i % PACKAGES]);
+                FqName className = packageName.child(Name.identifier(classNames[i]));
+                if (className.parent().equals(packageName) && cache.get(className) != null) {
+                    found++;
+                }
+            }
+            long time = System.nanoTime() - start;
+            allocated = usedMemory() - allocated;
+            report(round, "child/parent/lookup", time, allocated, classes, found);
+
+            allocated = usedMemory();
+            start = System.nanoTime();
+            int segments = 0;
+            for (int i = 0; i < classes; i++) {
+                segments += new FqName(packages[i % PACKAGES] + "." + classNames[i]).pathSegments().size();
+            }
+            time = System.nanoTime() - start;
+            allocated = usedMemory() - allocated;
+            report(round, "parse/pathSegments", time, allocated, classes, segments);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(int round, @NotNull String what, long time, long allocated, int operations, int result) {
+        System.out.println("Round " + round + ", " + what + ": " + time / operations + " ns/op, " +
+                           (allocated > 0 ? allocated / operations + " bytes/op" : "GC during measurement") +
+                           " (" + result + ")");
+    }
+}
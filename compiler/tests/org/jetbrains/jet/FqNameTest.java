@@ -100,4 +100,45 @@ public class FqNameTest {
         FqNameUnsafe fqName = new FqNameUnsafe("ru.yandex");
         Assert.assertSame(fqName, fqName.toSafe().toUnsafe());
     }
+
+    @Test
+    public void namesAreInterned() {
+        Assert.assertSame(Name.identifier("foo"), Name.identifier("foo"));
+        Assert.assertSame(Name.special("<foo>"), Name.guess("<foo>"));
+        Assert.assertNotSame(Name.identifier("foo"), Name.identifier("bar"));
+    }
+
+    @Test
+    public void childAndParentAreInterned() {
+        FqName fqName = new FqName("com.jetbrains.jet");
+        Name jet = Name.identifier("jet");
+        Assert.assertSame(fqName.parent().child(jet), fqName.parent().child(jet));
+        Assert.assertSame(fqName.parent(), new FqName("com.jetbrains.kotlin").parent());
+        Assert.assertSame(FqName.ROOT, new FqName("com").parent());
+    }
+
+    @Test
+    public void parsedEqualsBuilt() {
+        FqName parsed = new FqName("com.jetbrains.jet");
+        FqName built = FqName.topLevel(Name.identifier("com")).child(Name.identifier("jetbrains")).child(Name.identifier("jet"));
+        Assert.assertEquals(parsed, built);
+        Assert.assertEquals(parsed.hashCode(), built.hashCode());
+        Assert.assertEquals(parsed.getFqName(), built.getFqName());
+        Assert.assertFalse(parsed.equals(new FqName("com.jetbrains.kotlin")));
+        Assert.assertFalse(parsed.equals(new FqName("jetbrains.jet")));
+        Assert.assertEquals(new FqName(""), FqName.ROOT);
+    }
+
+    @Test
+    public void invalidIdentifiersAreRejectedAfterParsing() {
+        new FqNameUnsafe("a..b");
+        new FqNameUnsafe("a.");
+        try {
+            Name.identifier("");
+            Assert.fail("empty name is not an identifier");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cfg;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.cfg.PseudocodeVariablesData;
+import org.jetbrains.jet.lang.cfg.pseudocode.Pseudocode;
+import org.jetbrains.jet.lang.cfg.pseudocode.PseudocodeUtil;
+import org.jetbrains.jet.lang.psi.JetDeclaration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+
+import java.util.Collections;
+
+/**
+ * Measures the variable initialization and variable use analyses on a generated function with many local variables,
+ * branches and loops. The function is analyzed once; only the data flow over its pseudocode is timed.
+ *
+ * Usage: PseudocodeVariablesDataBenchmark [number of statements]
+ */
+public class PseudocodeVariablesDataBenchmark {
+    private static final int ROUNDS = 10;
+    private static final int VARIABLES = 200;
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        Disposable disposable = CompileEnvironmentUtil.createMockDisposable();
+        try {
+            JetCoreEnvironment environment = JetTestUtils.createEnvironmentWithMockJdkAndIdeaAnnotations(disposable, ConfigurationKind.JDK_ONLY);
+            JetFile file = JetTestUtils.createFile("benchmark.kt", generateSource(statements), environment.getProject());
+            BindingContext bindingContext = AnalyzerFacadeForJVM.analyzeOneFileWithJavaIntegrationAndCheckForErrors(
+                    file, Collections.<AnalyzerScriptParameter>emptyList()).getBindingContext();
+            JetDeclaration function = file.getDeclarations().get(0);
+
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                Pseudocode pseudocode = PseudocodeUtil.generatePseudocode(function, bindingContext);
+                long start = System.nanoTime();
+                PseudocodeVariablesData data = new PseudocodeVariablesData(pseudocode, bindingContext);
+                data.getVariableInitializers();
+                data.getVariableUseStatusData();
+                long time = System.nanoTime() - start;
+                best = Math.min(best, time);
+                System.out.println("Round " + round + ": " + time / 1000000 + " ms");
+            }
+            System.out.println(statements + " statements: best " + best / 1000000 + " ms");
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    @NotNull
+    private static String generateSource(int statements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package benchmark\n\n");
+        sb.append("fun test(n: Int): Int {\n");
+        for (int k = 0; k < VARIABLES; k++) {
+            sb.append("    var v").append(k).append(": Int\n");
+        }
+        for (int k = 0; k < VARIABLES; k++) {
+            sb.append("    v").append(k).append(" = n + ").append(k).append("\n");
+        }
+        for (int i = 0; i < statements; i++) {
+            int k = (i * 7) % VARIABLES;
+            int l = (i * 13 + 1) % VARIABLES;
+            switch (i % 3) {
+                case 0:
+                    sb.append("    if (v").append(k).append(" > n) v").append(l).append(" = v").append(k).append(" else v")
+                            .append(l).append("++\n");
+                    break;
+                case 1:
+                    sb.append("    for (i in 0..n) { v").append(k).append(" += v").append(l).append(" }\n");
+                    break;
+                default:
+                    sb.append("    while (v").append(k).append(" < n) { v").append(k).append("++; if (v").append(l)
+                            .append(" == 0) break }\n");
+                    break;
+            }
+        }
+        sb.append("    var result = 0\n");
+        for (int k = 0; k < VARIABLES; k++) {
+            sb.append("    result += v").append(k).append("\n");
+        }
+        sb.append("    return result\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -1040,6 +1040,11 @@ public class JetDiagnosticsTestGenerated extends AbstractDiagnosticsTestWithEage
                 doTest("compiler/testData/diagnostics/tests/controlStructures/kt799.kt");
             }
             
+            @TestMetadata("nonLocalReturn.kt")
+            public void testNonLocalReturn() throws Exception {
+                doTest("compiler/testData/diagnostics/tests/controlStructures/nonLocalReturn.kt");
+            }
+            
             @TestMetadata("tryReturnType.kt")
             public void testTryReturnType() throws Exception {
                 doTest("compiler/testData/diagnostics/tests/controlStructures/tryReturnType.kt");
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.common.daemon;
+
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.Arrays;
+
+public class CompileDaemonProtocolTest extends TestCase {
+    public void testArgumentsRoundTrip() throws IOException {
+        StringBuilder longClasspath = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longClasspath.append("/some/long/path/to/library").append(i).append(".jar:");
+        }
+        String[] arguments = {"-src", "файл.kt", "", "-classpath", longClasspath.toString()};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompileDaemonProtocol.writeArguments(new DataOutputStream(bytes), arguments);
+
+        String[] read = CompileDaemonProtocol.readArguments(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(Arrays.equals(arguments, read));
+    }
+
+    public void testOutputFrames() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(new CompileDaemonProtocol.FramingOutputStream(new DataOutputStream(bytes)), true, "UTF-8");
+        out.print("ERROR: ");
+        out.println("something went wrong");
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        while (in.available() > 0) {
+            assertEquals(CompileDaemonProtocol.FRAME_OUTPUT, in.readByte());
+            byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            text.write(frame);
+        }
+        assertEquals("ERROR: something went wrong" + System.getProperty("line.separator"), text.toString("UTF-8"));
+    }
+
+    public void testSecretIsChecked() throws IOException {
+        String secret = CompileDaemonProtocol.generateSecret();
+        assertTrue(checkSecret(secret, secret));
+        assertFalse(checkSecret(secret, CompileDaemonProtocol.generateSecret()));
+        assertFalse(checkSecret(secret, ""));
+        assertFalse(checkSecret(secret, secret + secret));
+    }
+
+    private static boolean checkSecret(String expected, String sent) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompileDaemonProtocol.writeString(new DataOutputStream(bytes), sent);
+        return CompileDaemonProtocol.readAndCheckSecret(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), expected);
+    }
+}
@@ -106,6 +106,30 @@ public class CliTest {
         Assert.assertTrue(new File(tmpdir.getTmpDir(), PackageClassUtils.getPackageClassName(FqName.ROOT) + ".class").isFile());
     }
 
+    @Test
+    public void moduleXml() throws Exception {
+        String[] args = {
+                "-module", "compiler/testData/cli/moduleXml.xml",
+                "-output", tmpdir.getTmpDir().getPath()};
+        executeCompilerCompareOutput(args);
+
+        Assert.assertTrue(new File(tmpdir.getTmpDir(), PackageClassUtils.getPackageClassName(FqName.ROOT) + ".class").isFile());
+    }
+
+    @Test
+    public void moduleThreads() throws Exception {
+        String[] args = {
+                "-module", "compiler/testData/cli/moduleThreads.xml",
+                "-moduleThreads", "2",
+                "-output", tmpdir.getTmpDir().getPath()};
+        executeCompilerCompareOutput(args);
+
+        for (String packageName : new String[] {"a", "b"}) {
+            FqName packageClass = PackageClassUtils.getPackageClassFqName(new FqName(packageName));
+            Assert.assertTrue(new File(tmpdir.getTmpDir(), packageClass.getFqName().replace('.', '/') + ".class").isFile());
+        }
+    }
+
     @Test
     public void diagnosticsOrder() throws Exception {
         String[] args = {
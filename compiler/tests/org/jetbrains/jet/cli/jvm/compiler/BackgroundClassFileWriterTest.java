@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+public class BackgroundClassFileWriterTest extends TestCase {
+    private static final int CLASS_COUNT = 1000;
+
+    private File tempDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tempDir = FileUtil.createTempDirectory("backgroundWriter", null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.delete(tempDir);
+        super.tearDown();
+    }
+
+    public void testDirectory() throws IOException {
+        File outputDir = new File(tempDir, "out");
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toDirectory(outputDir);
+        writeClasses(writer);
+        writer.close();
+
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            File file = new File(outputDir, classFileName(i));
+            assertTrue(file.getPath(), Arrays.equals(classBytes(i), FileUtil.loadFileBytes(file)));
+        }
+    }
+
+    public void testJar() throws IOException {
+        File jar = new File(tempDir, "out.jar");
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toJar(jar, new FqName("a.Main"), false);
+        writeClasses(writer);
+        writer.close();
+
+        JarFile jarFile = new JarFile(jar);
+        try {
+            assertEquals("a.Main", jarFile.getManifest().getMainAttributes().getValue("Main-Class"));
+
+            // Classes are written in the order they were passed to the writer
+            List<String> entries = new ArrayList<String>();
+            for (Enumeration<? extends ZipEntry> e = jarFile.entries(); e.hasMoreElements(); ) {
+                String name = e.nextElement().getName();
+                if (!name.startsWith("META-INF/")) {
+                    entries.add(name);
+                }
+            }
+            List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < CLASS_COUNT; i++) {
+                expected.add(classFileName(i));
+            }
+            assertEquals(expected, entries);
+
+            byte[] bytes = FileUtil.loadBytes(jarFile.getInputStream(jarFile.getEntry(classFileName(42))));
+            assertTrue(Arrays.equals(classBytes(42), bytes));
+        }
+        finally {
+            jarFile.close();
+        }
+    }
+
+    public void testDiscardedJarIsNotCreated() {
+        File jar = new File(tempDir, "out.jar");
+        BackgroundClassFileWriter.toJar(jar, null, false).discard();
+        assertFalse(jar.exists());
+
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toJar(jar, null, false);
+        writeClasses(writer);
+        writer.discard();
+        assertFalse(jar.exists());
+        assertEquals(0, tempDir.list().length);
+    }
+
+    public void testDiscardedJarKeepsPreviousJar() throws IOException {
+        File jar = new File(tempDir, "out.jar");
+        FileUtil.writeToFile(jar, "previous jar");
+
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toJar(jar, null, false);
+        writeClasses(writer);
+        writer.discard();
+        assertEquals("previous jar", FileUtil.loadFile(jar));
+        assertEquals(1, tempDir.list().length);
+    }
+
+    public void testDiscardedDirectoryHasNoClasses() {
+        File outputDir = new File(tempDir, "out");
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toDirectory(outputDir);
+        writeClasses(writer);
+        writer.discard();
+
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            File file = new File(outputDir, classFileName(i));
+            assertFalse(file.getPath(), file.exists());
+        }
+    }
+
+    public void testErrorIsReportedOnClose() throws IOException {
+        // A file in place of the output directory
+        File outputDir = new File(tempDir, "out");
+        FileUtil.writeToFile(outputDir, "not a directory");
+
+        BackgroundClassFileWriter writer = BackgroundClassFileWriter.toDirectory(outputDir);
+        try {
+            writeClasses(writer);
+            writer.close();
+            fail("The failure to write a class should be reported");
+        }
+        catch (CompileEnvironmentException expected) {
+        }
+        finally {
+            writer.discard();
+        }
+    }
+
+    private static void writeClasses(BackgroundClassFileWriter writer) {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            writer.write(classFileName(i), classBytes(i));
+        }
+    }
+
+    private static String classFileName(int i) {
+        return "a/C" + i + ".class";
+    }
+
+    private static byte[] classBytes(int i) {
+        return ("class " + i).getBytes();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class JarIndexTest extends TestCase {
+    private File tempDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tempDir = FileUtil.createTempDirectory("jarIndex", null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.delete(tempDir);
+        super.tearDown();
+    }
+
+    public void testEntryNamesSameAsZipFile() throws IOException {
+        // The archive comment must be skipped when looking for the central directory
+        File jar = createJar("lib.jar", "A comment", "META-INF/MANIFEST.MF", "a/", "a/b/", "a/b/C.class", "a/b/C$D.class", "Root.class");
+
+        assertEquals(readWithZipFile(jar), JarIndex.readEntryNames(jar));
+    }
+
+    public void testClassesAndPackages() throws IOException {
+        File jar = createJar("lib.jar", null, "META-INF/MANIFEST.MF", "a/b/C.class", "a/b/C$D.class", "Root.class", "a/b/c.txt");
+        JarIndex index = JarIndex.forJar(jar, new File(tempDir, "cache"));
+
+        assertTrue(index.containsClassFile("a/b/C"));
+        assertTrue(index.containsClassFile("a/b/C$D"));
+        assertTrue(index.containsClassFile("Root"));
+        assertFalse(index.containsClassFile("META-INF/MANIFEST"));
+        assertFalse(index.containsClassFile("a/b/c"));
+
+        assertTrue(index.containsPackage(""));
+        assertTrue(index.containsPackage("a"));
+        assertTrue(index.containsPackage("a/b"));
+        assertFalse(index.containsPackage("a/c"));
+        assertFalse(index.containsPackage("META-INF"));
+    }
+
+    public void testChangedJarIsReindexed() throws IOException {
+        File cacheDir = new File(tempDir, "cache");
+        File jar = createJar("lib.jar", null, "a/Old.class");
+        assertTrue(JarIndex.forJar(jar, cacheDir).containsClassFile("a/Old"));
+
+        File[] cacheFiles = cacheDir.listFiles();
+        assertNotNull(cacheFiles);
+        assertEquals(1, cacheFiles.length);
+
+        createJar("lib.jar", null, "a/New.class", "b/Other.class");
+        assertTrue(jar.setLastModified(jar.lastModified() + 10000));
+
+        JarIndex index = JarIndex.forJar(jar, cacheDir);
+        assertFalse(index.containsClassFile("a/Old"));
+        assertTrue(index.containsClassFile("a/New"));
+        assertTrue(index.containsPackage("b"));
+    }
+
+    private File createJar(String name, String comment, String... entries) throws IOException {
+        File jar = new File(tempDir, name);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                if (!entry.endsWith("/")) {
+                    out.write(entry.getBytes("UTF-8"));
+                }
+                out.closeEntry();
+            }
+            if (comment != null) {
+                out.setComment(comment);
+            }
+        }
+        finally {
+            out.close();
+        }
+        return jar;
+    }
+
+    private static List<String> readWithZipFile(File jar) throws IOException {
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            List<String> names = new ArrayList<String>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+            return names;
+        }
+        finally {
+            zipFile.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.google.common.collect.Lists;
+import com.intellij.psi.impl.DebugUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.KotlinTestWithEnvironmentManagement;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.cli.common.CLIConfigurationKeys;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.jet.cli.common.messages.MessageCollector;
+import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
+import org.jetbrains.jet.config.CommonConfigurationKeys;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+
+import java.util.List;
+
+public class ParallelParsingTest extends KotlinTestWithEnvironmentManagement {
+    private static final String PATH = "compiler/testData/codegen/parallel";
+
+    public void testSameTreesAndOrderAsSerial() {
+        List<String> serial = renderFiles(createEnvironment(1, null));
+        List<String> parallel = renderFiles(createEnvironment(4, null));
+
+        assertEquals(4, serial.size());
+        assertEquals(serial, parallel);
+    }
+
+    public void testStatisticsAreLogged() {
+        final List<String> logged = Lists.newArrayList();
+        createEnvironment(4, new MessageCollector() {
+            @Override
+            public void report(
+                    @NotNull CompilerMessageSeverity severity,
+                    @NotNull String message,
+                    @NotNull CompilerMessageLocation location
+            ) {
+                if (severity == CompilerMessageSeverity.LOGGING) {
+                    logged.add(message);
+                }
+            }
+        });
+
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0), logged.get(0).startsWith("Parsed 4 source files ("));
+    }
+
+    @NotNull
+    private JetCoreEnvironment createEnvironment(int parseThreads, @Nullable MessageCollector messageCollector) {
+        CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK);
+        configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, PATH);
+        configuration.put(JVMConfigurationKeys.PARSE_THREADS, parseThreads);
+        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
+        JetCoreEnvironment environment = new JetCoreEnvironment(getTestRootDisposable(), configuration);
+        environment.parseSources();
+        return environment;
+    }
+
+    @NotNull
+    private static List<String> renderFiles(@NotNull JetCoreEnvironment environment) {
+        List<String> result = Lists.newArrayList();
+        for (JetFile file : environment.getSourceFiles()) {
+            result.add(file.getName() + "\n" + DebugUtil.psiToString(file, false));
+        }
+        return result;
+    }
+}
@@ -37,11 +37,26 @@ public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
         JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/bytecodeText"), Pattern.compile("^(.+)\\.kt$"), true);
     }
     
+    @TestMetadata("capturedVarByValue.kt")
+    public void testCapturedVarByValue() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/capturedVarByValue.kt");
+    }
+    
     @TestMetadata("componentEvaluatesOnlyOnce.kt")
     public void testComponentEvaluatesOnlyOnce() throws Exception {
         doTest("compiler/testData/codegen/bytecodeText/componentEvaluatesOnlyOnce.kt");
     }
     
+    @TestMetadata("forInArrayIndices.kt")
+    public void testForInArrayIndices() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/forInArrayIndices.kt");
+    }
+    
+    @TestMetadata("inlineFunctionLiteral.kt")
+    public void testInlineFunctionLiteral() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/inlineFunctionLiteral.kt");
+    }
+    
     @TestMetadata("intConstantNotNull.kt")
     public void testIntConstantNotNull() throws Exception {
         doTest("compiler/testData/codegen/bytecodeText/intConstantNotNull.kt");
@@ -72,11 +87,36 @@ public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
         doTest("compiler/testData/codegen/bytecodeText/kt2887.kt");
     }
     
+    @TestMetadata("primitiveSpecializedInvoke.kt")
+    public void testPrimitiveSpecializedInvoke() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/primitiveSpecializedInvoke.kt");
+    }
+    
     @TestMetadata("privateDefaultArgs.kt")
     public void testPrivateDefaultArgs() throws Exception {
         doTest("compiler/testData/codegen/bytecodeText/privateDefaultArgs.kt");
     }
     
+    @TestMetadata("whenEnumToSwitch.kt")
+    public void testWhenEnumToSwitch() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/whenEnumToSwitch.kt");
+    }
+    
+    @TestMetadata("whenIntToLookupSwitch.kt")
+    public void testWhenIntToLookupSwitch() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/whenIntToLookupSwitch.kt");
+    }
+    
+    @TestMetadata("whenIntToTableSwitch.kt")
+    public void testWhenIntToTableSwitch() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/whenIntToTableSwitch.kt");
+    }
+    
+    @TestMetadata("whenStringToSwitch.kt")
+    public void testWhenStringToSwitch() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/whenStringToSwitch.kt");
+    }
+    
     @TestMetadata("compiler/testData/codegen/bytecodeText/statements")
     public static class Statements extends AbstractBytecodeTextTest {
         public void testAllFilesPresentInStatements() throws Exception {
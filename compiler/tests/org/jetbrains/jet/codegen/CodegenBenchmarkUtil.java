@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.lang.reflect.Method;
+
+import static org.jetbrains.jet.codegen.CodegenTestUtil.findDeclaredMethodByName;
+import static org.jetbrains.jet.codegen.CodegenTestUtil.generateFiles;
+import static org.jetbrains.jet.codegen.CodegenTestUtil.getClassPathURLs;
+
+/**
+ * Shared part of the benchmarks of generated code, which are started with main(): compiles a source of the
+ * {@code benchmark} namespace and measures the functions of its namespace class.
+ */
+public class CodegenBenchmarkUtil {
+    private CodegenBenchmarkUtil() {}
+
+    public interface Benchmark {
+        void run(@NotNull Class<?> namespaceClass) throws Exception;
+    }
+
+    public static void runWithNamespaceClass(@NotNull String source, @NotNull Benchmark benchmark) throws Exception {
+        Disposable disposable = CompileEnvironmentUtil.createMockDisposable();
+        try {
+            JetCoreEnvironment environment = JetTestUtils.createEnvironmentWithMockJdkAndIdeaAnnotations(disposable, ConfigurationKind.ALL);
+            ClassFileFactory factory = generateFiles(environment, CodegenTestFiles.create("benchmark.kt", source, environment.getProject()));
+            GeneratedClassLoader classLoader =
+                    new GeneratedClassLoader(factory, CodegenBenchmarkUtil.class.getClassLoader(), getClassPathURLs(environment.getConfiguration()));
+            try {
+                String namespaceClassName = NamespaceCodegen.getJVMClassNameForKotlinNs(new FqName("benchmark")).getFqName().getFqName();
+                benchmark.run(classLoader.loadClass(namespaceClassName));
+            }
+            finally {
+                classLoader.dispose();
+            }
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    /**
+     * Calls a function of the namespace class in each of the rounds and prints the best time per operation.
+     *
+     * @return the result of the last call
+     */
+    @Nullable
+    public static Object measure(
+            @NotNull Class<?> namespaceClass,
+            @NotNull String name,
+            int rounds,
+            int operations,
+            @NotNull String operation,
+            @NotNull Object... arguments
+    ) throws Exception {
+        Method method = findDeclaredMethodByName(namespaceClass, name);
+        assert method != null : name;
+
+        long best = Long.MAX_VALUE;
+        Object result = null;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            result = method.invoke(null, arguments);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(name + ": best " + best / 1000000 + " ms, " +
+                           String.format("%.2f", (double) best / operations) + " ns/" + operation + " (result " + result + ")");
+        return result;
+    }
+}
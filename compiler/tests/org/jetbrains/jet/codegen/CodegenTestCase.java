@@ -16,13 +16,11 @@
 
 package org.jetbrains.jet.codegen;
 
-import com.google.common.collect.Lists;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.testFramework.UsefulTestCase;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.ConfigurationKind;
 import org.jetbrains.jet.JetTestUtils;
-import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
 import org.jetbrains.jet.lang.psi.JetPsiUtil;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
@@ -32,9 +30,7 @@ import org.jetbrains.jet.utils.ExceptionUtils;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.List;
 
 import static org.jetbrains.jet.codegen.CodegenTestUtil.*;
 
@@ -114,16 +110,7 @@ public abstract class CodegenTestCase extends UsefulTestCase {
 
     @NotNull
     protected URL[] getClassPathURLs() {
-        List<URL> urls = Lists.newArrayList();
-        for (File file : myEnvironment.getConfiguration().getList(JVMConfigurationKeys.CLASSPATH_KEY)) {
-            try {
-                urls.add(file.toURI().toURL());
-            } catch (MalformedURLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        return urls.toArray(new URL[urls.size()]);
+        return CodegenTestUtil.getClassPathURLs(myEnvironment.getConfiguration());
     }
 
     @NotNull
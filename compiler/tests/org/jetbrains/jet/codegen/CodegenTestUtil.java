@@ -37,6 +37,9 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -67,6 +70,20 @@ public class CodegenTestUtil {
         return state.getFactory();
     }
 
+    @NotNull
+    public static URL[] getClassPathURLs(@NotNull CompilerConfiguration configuration) {
+        List<URL> urls = new ArrayList<URL>();
+        for (File file : configuration.getList(JVMConfigurationKeys.CLASSPATH_KEY)) {
+            try {
+                urls.add(file.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return urls.toArray(new URL[urls.size()]);
+    }
+
     public static void assertThrows(@NotNull Method foo, @NotNull Class<? extends Throwable> exceptionClass,
             @Nullable Object instance, @NotNull Object... args) throws IllegalAccessException {
         boolean caught = false;
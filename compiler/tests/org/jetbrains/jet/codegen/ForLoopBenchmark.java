@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.measure;
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.runWithNamespaceClass;
+
+/**
+ * Measures the throughput of for-loops over ranges, progressions and indices as they are compiled by the backend,
+ * and compares it with explicit iteration through the progression iterator. Every loop body is the same cheap
+ * accumulation, so the difference comes from the loop itself.
+ *
+ * Usage: ForLoopBenchmark [number of elements]
+ */
+public class ForLoopBenchmark {
+    private static final int ROUNDS = 20;
+
+    private static final String SOURCE =
+            "package benchmark\n" +
+            "\n" +
+            "fun rangeLiteral(n: Int): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    for (i in 0..n - 1) sum += i\n" +
+            "    return sum\n" +
+            "}\n" +
+            "\n" +
+            "fun downTo(n: Int): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    for (i in n - 1 downTo 0) sum += i\n" +
+            "    return sum\n" +
+            "}\n" +
+            "\n" +
+            "fun step(n: Int): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    for (i in 0..n - 1 step 2) sum += i\n" +
+            "    return sum\n" +
+            "}\n" +
+            "\n" +
+            "fun arrayIndices(a: IntArray): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    for (i in a.indices) sum += i\n" +
+            "    return sum\n" +
+            "}\n" +
+            "\n" +
+            "fun collectionIndices(c: Collection<Int>): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    for (i in c.indices) sum += i\n" +
+            "    return sum\n" +
+            "}\n" +
+            "\n" +
+            "fun iterator(n: Int): Long {\n" +
+            "    var sum = 0.toLong()\n" +
+            "    val iterator = (0..n - 1).iterator()\n" +
+            "    while (iterator.hasNext()) sum += iterator.next()\n" +
+            "    return sum\n" +
+            "}\n";
+
+    public static void main(String[] args) throws Exception {
+        final int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+        final List<Integer> collection = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; i++) {
+            collection.add(i);
+        }
+
+        runWithNamespaceClass(SOURCE, new CodegenBenchmarkUtil.Benchmark() {
+            @Override
+            public void run(@NotNull Class<?> namespaceClass) throws Exception {
+                measure(namespaceClass, "iterator", ROUNDS, n, "element", n);
+                measure(namespaceClass, "rangeLiteral", ROUNDS, n, "element", n);
+                measure(namespaceClass, "downTo", ROUNDS, n, "element", n);
+                measure(namespaceClass, "step", ROUNDS, (n + 1) / 2, "element", n);
+                measure(namespaceClass, "arrayIndices", ROUNDS, n, "element", new int[n]);
+                measure(namespaceClass, "collectionIndices", ROUNDS, n, "element", collection);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.google.common.base.Objects;
+import org.jetbrains.annotations.NotNull;
+
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.measure;
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.runWithNamespaceClass;
+
+/**
+ * Measures map/fold pipelines over an IntArray whose function literals are called through the unboxed
+ * entry points of jet.Function1 and jet.Function2, and compares them with the same pipelines over
+ * nullable function types, which are called through the generic boxing invoke.
+ *
+ * Usage: FunctionSpecializationBenchmark [array size]
+ */
+public class FunctionSpecializationBenchmark {
+    private static final int ROUNDS = 50;
+
+    private static final String SOURCE =
+            "package benchmark\n" +
+            "\n" +
+            "fun mapInts(a: IntArray, f: (Int) -> Int): IntArray {\n" +
+            "    val result = IntArray(a.size)\n" +
+            "    for (i in 0..a.size - 1) result[i] = f(a[i])\n" +
+            "    return result\n" +
+            "}\n" +
+            "\n" +
+            "fun foldInts(a: IntArray, initial: Int, f: (Int, Int) -> Int): Int {\n" +
+            "    var result = initial\n" +
+            "    for (x in a) result = f(result, x)\n" +
+            "    return result\n" +
+            "}\n" +
+            "\n" +
+            "fun mapBoxed(a: IntArray, f: (Int?) -> Int?): IntArray {\n" +
+            "    val result = IntArray(a.size)\n" +
+            "    for (i in 0..a.size - 1) result[i] = f(a[i])!!\n" +
+            "    return result\n" +
+            "}\n" +
+            "\n" +
+            "fun foldBoxed(a: IntArray, initial: Int, f: (Int?, Int?) -> Int?): Int {\n" +
+            "    var result = initial\n" +
+            "    for (x in a) result = f(result, x)!!\n" +
+            "    return result\n" +
+            "}\n" +
+            "\n" +
+            "fun specialized(a: IntArray): Int =\n" +
+            "    foldInts(mapInts(mapInts(a, { it * 3 }), { it + 1 }), 0, { acc, x -> acc + x })\n" +
+            "\n" +
+            "fun boxed(a: IntArray): Int =\n" +
+            "    foldBoxed(mapBoxed(mapBoxed(a, { it!! * 3 }), { it!! + 1 }), 0, { acc, x -> acc!! + x!! })\n";
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        final int[] array = new int[size];
+        for (int i = 0; i < size; i++) {
+            // Large enough values to fall out of the Integer cache
+            array[i] = i * 31 + 1000;
+        }
+
+        runWithNamespaceClass(SOURCE, new CodegenBenchmarkUtil.Benchmark() {
+            @Override
+            public void run(@NotNull Class<?> namespaceClass) throws Exception {
+                Object specializedResult = measure(namespaceClass, "specialized", ROUNDS, array.length, "element", array);
+                Object boxedResult = measure(namespaceClass, "boxed", ROUNDS, array.length, "element", array);
+                if (!Objects.equal(specializedResult, boxedResult)) {
+                    throw new AssertionError("Different results: " + specializedResult + " != " + boxedResult);
+                }
+            }
+        });
+    }
+}
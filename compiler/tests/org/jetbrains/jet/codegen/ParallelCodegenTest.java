@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.google.common.base.Predicates;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.analyzer.AnalyzeExhaust;
+import org.jetbrains.jet.codegen.state.GenerationState;
+import org.jetbrains.jet.codegen.state.Progress;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.AnalyzingUtils;
+import org.jetbrains.jet.lang.resolve.ThreadSafeBindingTraceContext;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+import org.jetbrains.jet.lang.resolve.java.PackageClassUtils;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ParallelCodegenTest extends CodegenTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testOutputIsTheSameAsSerial() {
+        loadFiles("parallel/a.kt", "parallel/b.kt", "parallel/c.kt", "parallel/main.kt");
+        List<JetFile> files = myFiles.getPsiFiles();
+
+        AnalyzeExhaust exhaust = analyze(files);
+
+        ClassFileFactory serial = generate(exhaust, files, 1);
+        ClassFileFactory parallel = generate(exhaust, files, 4);
+
+        List<String> serialFiles = serial.files();
+        assertEquals(serialFiles, parallel.files());
+        for (String file : serialFiles) {
+            assertTrue("Different bytecode for " + file, Arrays.equals(serial.asBytes(file), parallel.asBytes(file)));
+        }
+    }
+
+    public void testBox() throws Exception {
+        loadFiles("parallel/a.kt", "parallel/b.kt", "parallel/c.kt", "parallel/main.kt");
+        List<JetFile> files = myFiles.getPsiFiles();
+
+        AnalyzeExhaust exhaust = analyze(files);
+
+        ClassFileFactory factory = generate(exhaust, files, 4);
+        Class<?> namespaceClass = createClassLoader(factory).loadClass(PackageClassUtils.getPackageClassName(FqName.ROOT));
+        assertEquals("OK", namespaceClass.getMethod("box").invoke(null));
+    }
+
+    @NotNull
+    private AnalyzeExhaust analyze(@NotNull List<JetFile> files) {
+        // Java descriptors are resolved into the analysis trace while namespaces are generated in parallel
+        AnalyzeExhaust exhaust = AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
+                myEnvironment.getProject(), files, new ThreadSafeBindingTraceContext(), Collections.<AnalyzerScriptParameter>emptyList(),
+                Predicates.<PsiFile>alwaysTrue(), false);
+        AnalyzingUtils.throwExceptionOnErrors(exhaust.getBindingContext());
+        exhaust.throwIfError();
+        return exhaust;
+    }
+
+    @NotNull
+    private ClassFileFactory generate(@NotNull AnalyzeExhaust exhaust, @NotNull List<JetFile> files, int codegenThreads) {
+        GenerationState state = new GenerationState(
+                myEnvironment.getProject(), ClassBuilderFactories.binaries(false), Progress.DEAF, exhaust.getBindingContext(), files,
+                BuiltinToJavaTypesMapping.ENABLED, true, false, true, codegenThreads);
+        KotlinCodegenFacade.compileCorrectFiles(state, CompilationErrorHandler.THROW_EXCEPTION);
+        return state.getFactory();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.google.common.base.Predicates;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.analyzer.AnalyzeExhaust;
+import org.jetbrains.jet.codegen.state.GenerationState;
+import org.jetbrains.jet.codegen.state.Progress;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+
+import java.util.*;
+
+public class StreamingCodegenTest extends CodegenTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testSerial() {
+        doTest(1);
+    }
+
+    public void testParallel() {
+        doTest(4);
+    }
+
+    private void doTest(int codegenThreads) {
+        loadFiles("parallel/a.kt", "parallel/b.kt", "parallel/c.kt", "parallel/main.kt");
+        List<JetFile> files = myFiles.getPsiFiles();
+
+        AnalyzeExhaust exhaust = AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegrationAndCheckForErrors(
+                myEnvironment.getProject(), files, Collections.<AnalyzerScriptParameter>emptyList(), Predicates.<PsiFile>alwaysTrue());
+        exhaust.throwIfError();
+
+        ClassFileFactory inMemory = generate(exhaust, files, codegenThreads, null);
+
+        final Map<String, byte[]> written = Collections.synchronizedMap(new HashMap<String, byte[]>());
+        ClassFileFactory streamed = generate(exhaust, files, codegenThreads, new ClassFileSink() {
+            @Override
+            public void write(@NotNull String relativePath, @NotNull byte[] bytes) {
+                assertNull("Written twice: " + relativePath, written.put(relativePath, bytes));
+            }
+        });
+
+        List<String> expectedFiles = inMemory.files();
+        assertEquals(new HashSet<String>(expectedFiles), written.keySet());
+        assertEquals(new HashSet<String>(expectedFiles), new HashSet<String>(streamed.files()));
+        for (String file : expectedFiles) {
+            assertTrue("Different bytecode for " + file, Arrays.equals(inMemory.asBytes(file), written.get(file)));
+        }
+
+        try {
+            streamed.asBytes(expectedFiles.get(0));
+            fail("Bytes of a written class should not be kept");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    @NotNull
+    private ClassFileFactory generate(
+            @NotNull AnalyzeExhaust exhaust,
+            @NotNull List<JetFile> files,
+            int codegenThreads,
+            @Nullable ClassFileSink sink
+    ) {
+        GenerationState state = new GenerationState(
+                myEnvironment.getProject(), ClassBuilderFactories.binaries(false), Progress.DEAF, exhaust.getBindingContext(), files,
+                BuiltinToJavaTypesMapping.ENABLED, true, false, true, codegenThreads);
+        if (sink != null) {
+            state.getFactory().setSink(sink);
+        }
+        KotlinCodegenFacade.compileCorrectFiles(state, CompilationErrorHandler.THROW_EXCEPTION);
+        if (sink != null) {
+            state.getFactory().done();
+        }
+        return state.getFactory();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.google.common.base.Objects;
+import org.jetbrains.annotations.NotNull;
+
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.measure;
+import static org.jetbrains.jet.codegen.CodegenBenchmarkUtil.runWithNamespaceClass;
+
+/**
+ * Measures the dispatch cost of a {@code when} with many constant branches over Int, String and enum subjects,
+ * which the backend compiles to switches, and compares it with the same {@code when} written without a subject,
+ * which is compiled to a chain of comparisons.
+ *
+ * Usage: WhenDispatchBenchmark [number of iterations]
+ */
+public class WhenDispatchBenchmark {
+    private static final int ROUNDS = 20;
+    private static final int BRANCHES = 60;
+
+    public static void main(String[] args) throws Exception {
+        final int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+        runWithNamespaceClass(generateSource(), new CodegenBenchmarkUtil.Benchmark() {
+            @Override
+            public void run(@NotNull Class<?> namespaceClass) throws Exception {
+                for (String kind : new String[] {"int", "string", "enum"}) {
+                    Object switchResult = measure(namespaceClass, kind + "Switch", ROUNDS, n, "dispatch", n);
+                    Object chainResult = measure(namespaceClass, kind + "Chain", ROUNDS, n, "dispatch", n);
+                    if (!Objects.equal(switchResult, chainResult)) {
+                        throw new AssertionError("Different results for " + kind + ": " + switchResult + " != " + chainResult);
+                    }
+                }
+            }
+        });
+    }
+
+    @NotNull
+    private static String generateSource() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package benchmark\n\n");
+
+        sb.append("enum class E {\n");
+        for (int i = 0; i < BRANCHES; i++) {
+            sb.append("    E").append(i).append("\n");
+        }
+        sb.append("}\n\n");
+
+        sb.append("val strings = Array<String>(").append(BRANCHES).append(", { \"s\" + it })\n");
+        sb.append("val enums = E.values()\n\n");
+
+        appendFunction(sb, "int", "i % " + BRANCHES, "", "");
+        appendFunction(sb, "string", "strings[i % " + BRANCHES + "]", "\"s", "\"");
+        appendFunction(sb, "enum", "enums[i % " + BRANCHES + "]", "E.E", "");
+
+        return sb.toString();
+    }
+
+    private static void appendFunction(
+            @NotNull StringBuilder sb,
+            @NotNull String kind,
+            @NotNull String key,
+            @NotNull String prefix,
+            @NotNull String suffix
+    ) {
+        for (boolean withSubject : new boolean[] {true, false}) {
+            sb.append("fun ").append(kind).append(withSubject ? "Switch" : "Chain").append("(n: Int): Long {\n");
+            sb.append("    var sum = 0.toLong()\n");
+            sb.append("    for (i in 0..n - 1) {\n");
+            sb.append("        val k = ").append(key).append("\n");
+            sb.append("        sum += when").append(withSubject ? " (k)" : "").append(" {\n");
+            // Keys are distributed uniformly, so the chain makes BRANCHES / 2 comparisons on average
+            for (int i = 0; i < BRANCHES; i++) {
+                String constant = prefix + i + suffix;
+                sb.append("            ").append(withSubject ? constant : "k == " + constant).append(" -> ").append(i * 7 + 1).append("\n");
+            }
+            sb.append("            else -> 0\n");
+            sb.append("        }\n");
+            sb.append("    }\n");
+            sb.append("    return sum\n");
+            sb.append("}\n\n");
+        }
+    }
+}
@@ -31,7 +31,7 @@ import org.jetbrains.jet.codegen.generated.AbstractBlackBoxCodegenTest;
 /** This class is generated by {@link org.jetbrains.jet.generators.tests.GenerateTests}. DO NOT MODIFY MANUALLY */
 @SuppressWarnings("all")
 @TestMetadata("compiler/testData/codegen/box")
-@InnerTestClasses({BlackBoxCodegenTestGenerated.Arrays.class, BlackBoxCodegenTestGenerated.Bridges.class, BlackBoxCodegenTestGenerated.Casts.class, BlackBoxCodegenTestGenerated.Classes.class, BlackBoxCodegenTestGenerated.Closures.class, BlackBoxCodegenTestGenerated.ControlStructures.class, BlackBoxCodegenTestGenerated.DefaultArguments.class, BlackBoxCodegenTestGenerated.Elvis.class, BlackBoxCodegenTestGenerated.Enum.class, BlackBoxCodegenTestGenerated.ExclExcl.class, BlackBoxCodegenTestGenerated.ExtensionFunctions.class, BlackBoxCodegenTestGenerated.ExtensionProperties.class, BlackBoxCodegenTestGenerated.Functions.class, BlackBoxCodegenTestGenerated.InnerNested.class, BlackBoxCodegenTestGenerated.Instructions.class, BlackBoxCodegenTestGenerated.Intrinsics.class, BlackBoxCodegenTestGenerated.Labels.class, BlackBoxCodegenTestGenerated.LocalClasses.class, BlackBoxCodegenTestGenerated.MultiDecl.class, BlackBoxCodegenTestGenerated.Namespace.class, BlackBoxCodegenTestGenerated.Objects.class, BlackBoxCodegenTestGenerated.OperatorConventions.class, BlackBoxCodegenTestGenerated.PrimitiveTypes.class, BlackBoxCodegenTestGenerated.Properties.class, BlackBoxCodegenTestGenerated.SafeCall.class, BlackBoxCodegenTestGenerated.Strings.class, BlackBoxCodegenTestGenerated.Super.class, BlackBoxCodegenTestGenerated.Traits.class, BlackBoxCodegenTestGenerated.TypeInfo.class, BlackBoxCodegenTestGenerated.Unit.class, BlackBoxCodegenTestGenerated.Vararg.class, BlackBoxCodegenTestGenerated.When.class})
+@InnerTestClasses({BlackBoxCodegenTestGenerated.Arrays.class, BlackBoxCodegenTestGenerated.Bridges.class, BlackBoxCodegenTestGenerated.Casts.class, BlackBoxCodegenTestGenerated.Classes.class, BlackBoxCodegenTestGenerated.Closures.class, BlackBoxCodegenTestGenerated.ControlStructures.class, BlackBoxCodegenTestGenerated.DefaultArguments.class, BlackBoxCodegenTestGenerated.Elvis.class, BlackBoxCodegenTestGenerated.Enum.class, BlackBoxCodegenTestGenerated.ExclExcl.class, BlackBoxCodegenTestGenerated.ExtensionFunctions.class, BlackBoxCodegenTestGenerated.ExtensionProperties.class, BlackBoxCodegenTestGenerated.Functions.class, BlackBoxCodegenTestGenerated.Inline.class, BlackBoxCodegenTestGenerated.InnerNested.class, BlackBoxCodegenTestGenerated.Instructions.class, BlackBoxCodegenTestGenerated.Intrinsics.class, BlackBoxCodegenTestGenerated.Labels.class, BlackBoxCodegenTestGenerated.LocalClasses.class, BlackBoxCodegenTestGenerated.MultiDecl.class, BlackBoxCodegenTestGenerated.Namespace.class, BlackBoxCodegenTestGenerated.Objects.class, BlackBoxCodegenTestGenerated.OperatorConventions.class, BlackBoxCodegenTestGenerated.PrimitiveTypes.class, BlackBoxCodegenTestGenerated.Properties.class, BlackBoxCodegenTestGenerated.SafeCall.class, BlackBoxCodegenTestGenerated.Strings.class, BlackBoxCodegenTestGenerated.Super.class, BlackBoxCodegenTestGenerated.Traits.class, BlackBoxCodegenTestGenerated.TypeInfo.class, BlackBoxCodegenTestGenerated.Unit.class, BlackBoxCodegenTestGenerated.Vararg.class, BlackBoxCodegenTestGenerated.When.class})
 public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
     public void testAllFilesPresentInBox() throws Exception {
         JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box"), Pattern.compile("^(.+)\\.kt$"), true);
@@ -906,6 +906,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box/closures"), Pattern.compile("^(.+)\\.kt$"), true);
         }
         
+        @TestMetadata("capturedVarByValue.kt")
+        public void testCapturedVarByValue() throws Exception {
+            doTest("compiler/testData/codegen/box/closures/capturedVarByValue.kt");
+        }
+        
         @TestMetadata("closureWithParameter.kt")
         public void testClosureWithParameter() throws Exception {
             doTest("compiler/testData/codegen/box/closures/closureWithParameter.kt");
@@ -941,6 +946,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/closures/kt2151.kt");
         }
         
+        @TestMetadata("primitiveSpecializedInvoke.kt")
+        public void testPrimitiveSpecializedInvoke() throws Exception {
+            doTest("compiler/testData/codegen/box/closures/primitiveSpecializedInvoke.kt");
+        }
+        
         @TestMetadata("recursiveClosure.kt")
         public void testRecursiveClosure() throws Exception {
             doTest("compiler/testData/codegen/box/closures/recursiveClosure.kt");
@@ -1038,6 +1048,21 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/controlStructures/finallyOnEmptyReturn.kt");
         }
         
+        @TestMetadata("finallyOnReturnFromLoop.kt")
+        public void testFinallyOnReturnFromLoop() throws Exception {
+            doTest("compiler/testData/codegen/box/controlStructures/finallyOnReturnFromLoop.kt");
+        }
+        
+        @TestMetadata("finallyOnReturnFromNestedLoop.kt")
+        public void testFinallyOnReturnFromNestedLoop() throws Exception {
+            doTest("compiler/testData/codegen/box/controlStructures/finallyOnReturnFromNestedLoop.kt");
+        }
+        
+        @TestMetadata("finallyOnReturnInFinallyInLoop.kt")
+        public void testFinallyOnReturnInFinallyInLoop() throws Exception {
+            doTest("compiler/testData/codegen/box/controlStructures/finallyOnReturnInFinallyInLoop.kt");
+        }
+        
         @TestMetadata("forInSmartCastedToArray.kt")
         public void testForInSmartCastedToArray() throws Exception {
             doTest("compiler/testData/codegen/box/controlStructures/forInSmartCastedToArray.kt");
@@ -1073,6 +1098,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/controlStructures/forNullableIntArray.kt");
         }
         
+        @TestMetadata("forPrimitiveArrayIndices.kt")
+        public void testForPrimitiveArrayIndices() throws Exception {
+            doTest("compiler/testData/codegen/box/controlStructures/forPrimitiveArrayIndices.kt");
+        }
+        
         @TestMetadata("forPrimitiveIntArray.kt")
         public void testForPrimitiveIntArray() throws Exception {
             doTest("compiler/testData/codegen/box/controlStructures/forPrimitiveIntArray.kt");
@@ -1820,6 +1850,49 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
         
     }
     
+    @TestMetadata("compiler/testData/codegen/box/inline")
+    public static class Inline extends AbstractBlackBoxCodegenTest {
+        public void testAllFilesPresentInInline() throws Exception {
+            JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box/inline"), Pattern.compile("^(.+)\\.kt$"), true);
+        }
+        
+        @TestMetadata("forwarding.kt")
+        public void testForwarding() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/forwarding.kt");
+        }
+        
+        @TestMetadata("nestedSameFunction.kt")
+        public void testNestedSameFunction() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/nestedSameFunction.kt");
+        }
+        
+        @TestMetadata("nonLocalReturn.kt")
+        public void testNonLocalReturn() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/nonLocalReturn.kt");
+        }
+        
+        @TestMetadata("notInlinedInExpression.kt")
+        public void testNotInlinedInExpression() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/notInlinedInExpression.kt");
+        }
+        
+        @TestMetadata("recursive.kt")
+        public void testRecursive() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/recursive.kt");
+        }
+        
+        @TestMetadata("simple.kt")
+        public void testSimple() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/simple.kt");
+        }
+        
+        @TestMetadata("tryFinally.kt")
+        public void testTryFinally() throws Exception {
+            doTest("compiler/testData/codegen/box/inline/tryFinally.kt");
+        }
+        
+    }
+    
     @TestMetadata("compiler/testData/codegen/box/innerNested")
     public static class InnerNested extends AbstractBlackBoxCodegenTest {
         public void testAllFilesPresentInInnerNested() throws Exception {
@@ -3397,6 +3470,36 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/when/range.kt");
         }
         
+        @TestMetadata("switchFallback.kt")
+        public void testSwitchFallback() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchFallback.kt");
+        }
+        
+        @TestMetadata("switchOverChar.kt")
+        public void testSwitchOverChar() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOverChar.kt");
+        }
+        
+        @TestMetadata("switchOverEnum.kt")
+        public void testSwitchOverEnum() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOverEnum.kt");
+        }
+        
+        @TestMetadata("switchOverEnumInFinally.kt")
+        public void testSwitchOverEnumInFinally() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOverEnumInFinally.kt");
+        }
+        
+        @TestMetadata("switchOverInt.kt")
+        public void testSwitchOverInt() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOverInt.kt");
+        }
+        
+        @TestMetadata("switchOverString.kt")
+        public void testSwitchOverString() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOverString.kt");
+        }
+        
         @TestMetadata("whenArgumentIsEvaluatedOnlyOnce.kt")
         public void testWhenArgumentIsEvaluatedOnlyOnce() throws Exception {
             doTest("compiler/testData/codegen/box/when/whenArgumentIsEvaluatedOnlyOnce.kt");
@@ -3420,6 +3523,7 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
         suite.addTestSuite(ExtensionFunctions.class);
         suite.addTestSuite(ExtensionProperties.class);
         suite.addTestSuite(Functions.class);
+        suite.addTestSuite(Inline.class);
         suite.addTestSuite(InnerNested.class);
         suite.addTest(Instructions.innerSuite());
         suite.addTestSuite(Intrinsics.class);
@@ -31,12 +31,30 @@ import org.jetbrains.jet.codegen.generated.AbstractBlackBoxCodegenTest;
 /** This class is generated by {@link org.jetbrains.jet.generators.tests.GenerateTests}. DO NOT MODIFY MANUALLY */
 @SuppressWarnings("all")
 @TestMetadata("compiler/testData/codegen/boxWithStdlib")
-@InnerTestClasses({BlackBoxWithStdlibCodegenTestGenerated.DataClasses.class, BlackBoxWithStdlibCodegenTestGenerated.FullJdk.class, BlackBoxWithStdlibCodegenTestGenerated.JdkAnnotations.class, BlackBoxWithStdlibCodegenTestGenerated.Ranges.class, BlackBoxWithStdlibCodegenTestGenerated.Regressions.class, BlackBoxWithStdlibCodegenTestGenerated.Strings.class})
+@InnerTestClasses({BlackBoxWithStdlibCodegenTestGenerated.ControlStructures.class, BlackBoxWithStdlibCodegenTestGenerated.DataClasses.class, BlackBoxWithStdlibCodegenTestGenerated.FullJdk.class, BlackBoxWithStdlibCodegenTestGenerated.JdkAnnotations.class, BlackBoxWithStdlibCodegenTestGenerated.Ranges.class, BlackBoxWithStdlibCodegenTestGenerated.Regressions.class, BlackBoxWithStdlibCodegenTestGenerated.Strings.class})
 public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
     public void testAllFilesPresentInBoxWithStdlib() throws Exception {
         JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/boxWithStdlib"), Pattern.compile("^(.+)\\.kt$"), true);
     }
     
+    @TestMetadata("compiler/testData/codegen/boxWithStdlib/controlStructures")
+    public static class ControlStructures extends AbstractBlackBoxCodegenTest {
+        public void testAllFilesPresentInControlStructures() throws Exception {
+            JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/boxWithStdlib/controlStructures"), Pattern.compile("^(.+)\\.kt$"), true);
+        }
+        
+        @TestMetadata("forInCollectionIndices.kt")
+        public void testForInCollectionIndices() throws Exception {
+            doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/controlStructures/forInCollectionIndices.kt");
+        }
+        
+        @TestMetadata("forInDownToWithNonConstantEnds.kt")
+        public void testForInDownToWithNonConstantEnds() throws Exception {
+            doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/controlStructures/forInDownToWithNonConstantEnds.kt");
+        }
+        
+    }
+    
     @TestMetadata("compiler/testData/codegen/boxWithStdlib/dataClasses")
     @InnerTestClasses({DataClasses.Copy.class, DataClasses.Equals.class, DataClasses.Hashcode.class, DataClasses.Tostring.class})
     public static class DataClasses extends AbstractBlackBoxCodegenTest {
@@ -421,6 +439,21 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/infiniteSteps.kt");
             }
             
+            @TestMetadata("maxValueMinusTwoToMaxValue.kt")
+            public void testMaxValueMinusTwoToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/maxValueMinusTwoToMaxValue.kt");
+            }
+            
+            @TestMetadata("maxValueToMaxValue.kt")
+            public void testMaxValueToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/maxValueToMaxValue.kt");
+            }
+            
+            @TestMetadata("minValueDownToMinValue.kt")
+            public void testMinValueDownToMinValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/minValueDownToMinValue.kt");
+            }
+            
             @TestMetadata("nanEnds.kt")
             public void testNanEnds() throws Exception {
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/nanEnds.kt");
@@ -436,6 +469,16 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/oneElementRange.kt");
             }
             
+            @TestMetadata("progressionMaxValueMinusFiveToMaxValue.kt")
+            public void testProgressionMaxValueMinusFiveToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/progressionMaxValueMinusFiveToMaxValue.kt");
+            }
+            
+            @TestMetadata("progressionMinValuePlusFiveDownToMinValue.kt")
+            public void testProgressionMinValuePlusFiveDownToMinValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/progressionMinValuePlusFiveDownToMinValue.kt");
+            }
+            
             @TestMetadata("reversedBackSequence.kt")
             public void testReversedBackSequence() throws Exception {
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/expression/reversedBackSequence.kt");
@@ -524,6 +567,21 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/infiniteSteps.kt");
             }
             
+            @TestMetadata("maxValueMinusTwoToMaxValue.kt")
+            public void testMaxValueMinusTwoToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/maxValueMinusTwoToMaxValue.kt");
+            }
+            
+            @TestMetadata("maxValueToMaxValue.kt")
+            public void testMaxValueToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/maxValueToMaxValue.kt");
+            }
+            
+            @TestMetadata("minValueDownToMinValue.kt")
+            public void testMinValueDownToMinValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/minValueDownToMinValue.kt");
+            }
+            
             @TestMetadata("nanEnds.kt")
             public void testNanEnds() throws Exception {
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/nanEnds.kt");
@@ -539,6 +597,16 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/oneElementRange.kt");
             }
             
+            @TestMetadata("progressionMaxValueMinusFiveToMaxValue.kt")
+            public void testProgressionMaxValueMinusFiveToMaxValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/progressionMaxValueMinusFiveToMaxValue.kt");
+            }
+            
+            @TestMetadata("progressionMinValuePlusFiveDownToMinValue.kt")
+            public void testProgressionMinValuePlusFiveDownToMinValue() throws Exception {
+                doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/progressionMinValuePlusFiveDownToMinValue.kt");
+            }
+            
             @TestMetadata("reversedBackSequence.kt")
             public void testReversedBackSequence() throws Exception {
                 doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/literal/reversedBackSequence.kt");
@@ -739,6 +807,7 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
     public static Test suite() {
         TestSuite suite = new TestSuite("BlackBoxWithStdlibCodegenTestGenerated");
         suite.addTestSuite(BlackBoxWithStdlibCodegenTestGenerated.class);
+        suite.addTestSuite(ControlStructures.class);
         suite.addTest(DataClasses.innerSuite());
         suite.addTestSuite(FullJdk.class);
         suite.addTestSuite(JdkAnnotations.class);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.descriptors.serialization;
+
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorImpl;
+import org.jetbrains.jet.lang.resolve.BindingTraceContext;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.lazy.storage.LockBasedStorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.RedeclarationHandler;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jetbrains.jet.test.util.NamespaceComparator.RECURSIVE;
+import static org.jetbrains.jet.test.util.NamespaceComparator.compareNamespaces;
+
+public class BuiltInsSerializationTest extends KotlinTestWithEnvironment {
+    private static final Function<FqName, Name> NO_ALIASES = new Function<FqName, Name>() {
+        @Override
+        public Name fun(FqName name) {
+            return null;
+        }
+    };
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] bytes = serialize(KotlinBuiltIns.getInstance().getBuiltInsPackage());
+
+        // No resolver: every type used by the deserialized built-ins is loaded from the same data
+        NamespaceDescriptor deserialized = deserialize(bytes, null);
+
+        Assert.assertArrayEquals(bytes, serialize(deserialized));
+    }
+
+    @Test
+    public void testSameAsSources() throws Exception {
+        final NamespaceDescriptor builtInsPackage = KotlinBuiltIns.getInstance().getBuiltInsPackage();
+
+        // Types are resolved to the classes loaded from sources, because the renderer compares Unit and function types
+        // with KotlinBuiltIns by identity
+        NamespaceDescriptor deserialized = deserialize(serialize(builtInsPackage), new ClassResolver() {
+            @Nullable
+            @Override
+            public ClassDescriptor findClass(@NotNull FqName packageFqName, @NotNull List<Name> path) {
+                Assert.assertEquals(builtInsPackage.getFqName(), packageFqName);
+                return findSourceClass(builtInsPackage, path);
+            }
+        });
+
+        compareNamespaces(builtInsPackage, deserialized, RECURSIVE, new File("compiler/testData/builtin-classes.txt"));
+    }
+
+    @NotNull
+    private static byte[] serialize(@NotNull NamespaceDescriptor namespace) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DescriptorSerializer.serialize(namespace, out);
+        return out.toByteArray();
+    }
+
+    @NotNull
+    private static NamespaceDescriptor deserialize(@NotNull byte[] bytes, @Nullable ClassResolver classResolver) throws IOException {
+        ModuleDescriptor module = new ModuleDescriptor(Name.special("<deserialized built-ins>"));
+        NamespaceDescriptorImpl rootNamespace =
+                new NamespaceDescriptorImpl(module, Collections.<AnnotationDescriptor>emptyList(), FqNameUnsafe.ROOT_NAME);
+        WritableScopeImpl rootScope =
+                new WritableScopeImpl(JetScope.EMPTY, rootNamespace, RedeclarationHandler.DO_NOTHING, "Root scope");
+        rootScope.changeLockLevel(WritableScope.LockLevel.BOTH);
+        rootNamespace.initialize(rootScope);
+        module.setRootNamespace(rootNamespace);
+
+        PackageData data = PackageData.read(new ByteArrayInputStream(bytes));
+        return new DeserializedPackageDescriptor(rootNamespace, data, new LockBasedStorageManager(), classResolver, NO_ALIASES,
+                                                 new BindingTraceContext());
+    }
+
+    @NotNull
+    private static ClassDescriptor findSourceClass(@NotNull NamespaceDescriptor namespace, @NotNull List<Name> path) {
+        ClassifierDescriptor classifier = namespace.getMemberScope().getClassifier(path.get(0));
+        for (Name name : path.subList(1, path.size())) {
+            ClassDescriptor outer = (ClassDescriptor) classifier;
+            assert outer != null : "No class for " + path;
+            classifier = name.equals(DescriptorUtils.getClassObjectName(outer.getName()))
+                         ? outer.getClassObjectDescriptor()
+                         : outer.getUnsubstitutedInnerClassesScope().getClassifier(name);
+        }
+        assert classifier instanceof ClassDescriptor : "No class for " + path;
+        return (ClassDescriptor) classifier;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.calls.autocasts;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+
+import java.util.Collections;
+
+/**
+ * Measures the analysis of a generated function with many statements, each of them checking a stable value with
+ * {@code is} or {@code != null} and relying on the resulting auto-cast, so that the data flow info keeps growing
+ * along the function.
+ *
+ * Usage: DataFlowInfoBenchmark [number of statements]
+ */
+public class DataFlowInfoBenchmark {
+    private static final int ROUNDS = 10;
+    private static final int VALUES = 100;
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        Disposable disposable = CompileEnvironmentUtil.createMockDisposable();
+        try {
+            JetCoreEnvironment environment = JetTestUtils.createEnvironmentWithMockJdkAndIdeaAnnotations(disposable, ConfigurationKind.JDK_ONLY);
+            String source = generateSource(statements);
+
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                JetFile file = JetTestUtils.createFile("benchmark.kt", source, environment.getProject());
+                long start = System.nanoTime();
+                AnalyzerFacadeForJVM.analyzeOneFileWithJavaIntegrationAndCheckForErrors(
+                        file, Collections.<AnalyzerScriptParameter>emptyList());
+                long time = System.nanoTime() - start;
+                best = Math.min(best, time);
+                System.out.println("Round " + round + ": " + time / 1000000 + " ms");
+            }
+            System.out.println(statements + " statements: best " + best / 1000000 + " ms");
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    @NotNull
+    private static String generateSource(int statements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package benchmark\n\n");
+        sb.append("open class Base\n");
+        sb.append("class A : Base() { fun a() = 1 }\n");
+        sb.append("class B : Base() { fun b() = 2 }\n\n");
+        sb.append("fun base(i: Int): Base? = if (i % 3 == 0) null else if (i % 3 == 1) A() else B()\n");
+        sb.append("fun string(i: Int): String? = if (i % 2 == 0) null else \"s\" + i\n\n");
+
+        sb.append("fun test(): Int {\n");
+        sb.append("    var result = 0\n");
+        for (int k = 0; k < VALUES; k++) {
+            sb.append("    val p").append(k).append(" = base(").append(k).append(")\n");
+            sb.append("    val q").append(k).append(" = base(").append(k).append(")\n");
+            sb.append("    val s").append(k).append(" = string(").append(k).append(")\n");
+        }
+        for (int i = 0; i < statements; i++) {
+            int k = (i * 7) % VALUES;
+            switch (i % 4) {
+                case 0:
+                    sb.append("    if (p").append(k).append(" is A) result += p").append(k).append(".a()\n");
+                    break;
+                case 1:
+                    sb.append("    if (s").append(k).append(" != null) result += s").append(k).append(".length\n");
+                    break;
+                case 2:
+                    // Narrows q for the rest of the function
+                    sb.append("    if (q").append(k).append(" !is B) return result\n");
+                    sb.append("    result += q").append(k).append(".b()\n");
+                    break;
+                default:
+                    sb.append("    result += if (s").append(k).append(" == null || p").append(k).append(" !is A) 0 else s")
+                            .append(k).append(".length + p").append(k).append(".a()\n");
+                    break;
+            }
+        }
+        sb.append("    return result\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
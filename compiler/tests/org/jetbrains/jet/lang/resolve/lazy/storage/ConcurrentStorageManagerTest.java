@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.lazy.storage;
+
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.Function;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentStorageManagerTest {
+    private final StorageManager storageManager = new ConcurrentStorageManager();
+
+    @Test
+    public void lazyValueIsComputedOnce() {
+        final AtomicInteger counter = new AtomicInteger();
+        NotNullLazyValue<String> value = storageManager.createLazyValue(new Computable<String>() {
+            @Override
+            public String compute() {
+                counter.incrementAndGet();
+                return "value";
+            }
+        });
+
+        Assert.assertEquals("value", value.compute());
+        Assert.assertEquals("value", value.compute());
+        Assert.assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void nullValuesAreMemoized() {
+        final AtomicInteger counter = new AtomicInteger();
+        MemoizedFunctionToNullable<Integer, String> function = storageManager.createMemoizedFunctionWithNullableValues(
+                new Function<Integer, String>() {
+                    @Override
+                    public String fun(Integer integer) {
+                        counter.incrementAndGet();
+                        return null;
+                    }
+                }, StorageManager.ReferenceKind.STRONG);
+
+        Assert.assertNull(function.fun(1));
+        Assert.assertNull(function.fun(1));
+        Assert.assertEquals(1, counter.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void recursionIsDetected() {
+        final NotNullLazyValue<?>[] value = new NotNullLazyValue<?>[1];
+        value[0] = storageManager.createLazyValue(new Computable<Object>() {
+            @Override
+            public Object compute() {
+                return value[0].compute();
+            }
+        });
+        value[0].compute();
+    }
+
+    @Test
+    public void exceptionDoesNotPoisonTheValue() {
+        final AtomicInteger counter = new AtomicInteger();
+        NotNullLazyValue<String> value = storageManager.createLazyValue(new Computable<String>() {
+            @Override
+            public String compute() {
+                if (counter.incrementAndGet() == 1) {
+                    throw new IllegalArgumentException();
+                }
+                return "value";
+            }
+        });
+
+        try {
+            value.compute();
+            Assert.fail();
+        }
+        catch (IllegalArgumentException ignored) {
+        }
+        Assert.assertEquals("value", value.compute());
+    }
+
+    @Test(timeout = 10000)
+    public void crossDependentValuesFailInsteadOfDeadlocking() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final List<NotNullLazyValue<String>> values = new ArrayList<NotNullLazyValue<String>>();
+        for (int i = 0; i < 2; i++) {
+            final int index = i;
+            values.add(storageManager.createLazyValue(new Computable<String>() {
+                @Override
+                public String compute() {
+                    bothStarted.countDown();
+                    await(bothStarted);
+                    return "value" + index + values.get(1 - index).compute();
+                }
+            }));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (final NotNullLazyValue<String> value : values) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return value.compute();
+                    }
+                }));
+            }
+
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                    Assert.fail("Cyclic dependency must be reported");
+                }
+                catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void allThreadsSeeTheSameValue() throws Exception {
+        final MemoizedFunctionToNotNull<Integer, Object> function = storageManager.createMemoizedFunction(
+                new Function<Integer, Object>() {
+                    @Override
+                    public Object fun(Integer integer) {
+                        Thread.yield();
+                        return new Object();
+                    }
+                }, StorageManager.ReferenceKind.STRONG);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<Object[]>> results = new ArrayList<Future<Object[]>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Object[]>() {
+                    @Override
+                    public Object[] call() {
+                        await(start);
+                        Object[] result = new Object[100];
+                        for (int key = 0; key < result.length; key++) {
+                            result[key] = function.fun(key);
+                        }
+                        return result;
+                    }
+                }));
+            }
+
+            Object[] expected = results.get(0).get();
+            for (Future<Object[]> result : results) {
+                Assert.assertArrayEquals(expected, result.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
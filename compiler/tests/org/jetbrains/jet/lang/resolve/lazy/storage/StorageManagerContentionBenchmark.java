@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.lazy.storage;
+
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Models lazy resolve: every key is a "declaration" whose computation does some work and depends on a few other declarations.
+ * Several threads resolve disjoint sets of declarations through the same storage manager, and the wall-clock time is reported
+ * for each storage manager and number of threads.
+ */
+public class StorageManagerContentionBenchmark {
+    private static final int DECLARATIONS = 200000;
+    private static final int WORK_PER_DECLARATION = 2000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            report("LockBasedStorageManager", threads, run(new Factory() {
+                @NotNull
+                @Override
+                public StorageManager create() {
+                    return new LockBasedStorageManager();
+                }
+            }, threads));
+            report("ConcurrentStorageManager", threads, run(new Factory() {
+                @NotNull
+                @Override
+                public StorageManager create() {
+                    return new ConcurrentStorageManager();
+                }
+            }, threads));
+        }
+    }
+
+    private interface Factory {
+        @NotNull
+        StorageManager create();
+    }
+
+    private static void report(@NotNull String name, int threads, long millis) {
+        System.out.println(name + ", " + threads + " thread(s): " + TimeUtils.millisecondsToSecondsString(millis) + " s, " +
+                           (DECLARATIONS * 1000L / Math.max(millis, 1)) + " declarations/s");
+    }
+
+    private static long run(@NotNull Factory factory, int threads) throws Exception {
+        long best = Long.MAX_VALUE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                best = Math.min(best, runRound(factory.create(), executor, threads));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return best;
+    }
+
+    private static long runRound(@NotNull StorageManager storageManager, @NotNull ExecutorService executor, final int threads)
+            throws Exception {
+        final MemoizedFunctionToNotNull<Integer, Long>[] resolve = new MemoizedFunctionToNotNull[1];
+        resolve[0] = storageManager.createMemoizedFunction(new Function<Integer, Long>() {
+            @Override
+            public Long fun(Integer declaration) {
+                long result = work(declaration);
+                // Dependencies always have smaller numbers, so there are no cycles
+                if (declaration > 0) {
+                    result += resolve[0].fun(declaration / 2);
+                    result += resolve[0].fun(declaration - 1 - declaration % 7);
+                }
+                return result;
+            }
+        }, StorageManager.ReferenceKind.STRONG);
+
+        long start = System.currentTimeMillis();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int declaration = thread; declaration < DECLARATIONS; declaration += threads) {
+                        resolve[0].fun(declaration);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static long work(int seed) {
+        long x = seed;
+        for (int i = 0; i < WORK_PER_DECLARATION; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        return x & 0xFF;
+    }
+}
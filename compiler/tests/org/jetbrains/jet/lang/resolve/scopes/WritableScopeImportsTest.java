@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.scopes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.Modality;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
+import org.jetbrains.jet.lang.descriptors.impl.ClassDescriptorImpl;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.WritableScope.LockLevel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class WritableScopeImportsTest {
+    private final ModuleDescriptor module = new ModuleDescriptor(Name.special("<test module>"));
+    private final Name name = Name.identifier("A");
+
+    @Test
+    public void laterImportsShadowEarlierOnes() {
+        ClassDescriptor first = createClass();
+        ClassDescriptor second = createClass();
+        WritableScope scope = createScope(LockLevel.WRITING);
+        scope.importScope(createScopeWithClassifier(first));
+        scope.importScope(createScopeWithClassifier(second));
+        scope.changeLockLevel(LockLevel.READING);
+
+        Assert.assertSame(second, scope.getClassifier(name));
+        Assert.assertSame(second, scope.getClassifier(name));
+    }
+
+    @Test
+    public void notFoundNamesAreFoundAfterImportedScopeChanges() {
+        WritableScope imported = createScope(LockLevel.BOTH);
+        WritableScope scope = createScope(LockLevel.WRITING);
+        scope.importScope(imported);
+        scope.changeLockLevel(LockLevel.READING);
+
+        Assert.assertNull(scope.getClassifier(name));
+        Assert.assertNull(scope.getClassifier(name));
+
+        ClassDescriptor classDescriptor = createClass();
+        imported.addClassifierAlias(name, classDescriptor);
+        Assert.assertSame(classDescriptor, scope.getClassifier(name));
+    }
+
+    @Test
+    public void writesToScopesOfAnotherModuleKeepTheIndex() {
+        CountingScope counting = new CountingScope();
+        WritableScope scope = createScope(LockLevel.WRITING);
+        scope.importScope(counting);
+        scope.changeLockLevel(LockLevel.READING);
+
+        Assert.assertNull(scope.getClassifier(name));
+        Assert.assertNull(scope.getClassifier(name));
+        Assert.assertEquals(1, counting.classifierLookups);
+
+        ModuleDescriptor otherModule = new ModuleDescriptor(Name.special("<other test module>"));
+        WritableScope otherImported = new WritableScopeImpl(JetScope.EMPTY, otherModule, RedeclarationHandler.DO_NOTHING, "other")
+                .changeLockLevel(LockLevel.BOTH);
+        new WritableScopeImpl(JetScope.EMPTY, otherModule, RedeclarationHandler.DO_NOTHING, "other importing").importScope(otherImported);
+        otherImported.addClassifierAlias(name, createClass());
+
+        Assert.assertNull(scope.getClassifier(name));
+        Assert.assertEquals(1, counting.classifierLookups);
+    }
+
+    private class CountingScope extends JetScopeImpl {
+        private int classifierLookups;
+
+        @Override
+        public ClassifierDescriptor getClassifier(@NotNull Name name) {
+            classifierLookups++;
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public DeclarationDescriptor getContainingDeclaration() {
+            return module;
+        }
+    }
+
+    @NotNull
+    private WritableScope createScopeWithClassifier(@NotNull ClassDescriptor classDescriptor) {
+        WritableScope scope = createScope(LockLevel.BOTH);
+        scope.addClassifierAlias(name, classDescriptor);
+        return scope.changeLockLevel(LockLevel.READING);
+    }
+
+    @NotNull
+    private WritableScope createScope(@NotNull LockLevel lockLevel) {
+        WritableScopeImpl scope = new WritableScopeImpl(JetScope.EMPTY, module, RedeclarationHandler.DO_NOTHING, "test");
+        return scope.changeLockLevel(lockLevel);
+    }
+
+    @NotNull
+    private ClassDescriptor createClass() {
+        return new ClassDescriptorImpl(module, Collections.<AnnotationDescriptor>emptyList(), Modality.FINAL, name);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.types.lang;
+
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.TimeUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.descriptors.serialization.DescriptorSerializer;
+import org.jetbrains.jet.lang.descriptors.serialization.PackageData;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinCodeAnalyzer;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compares the two ways of loading built-ins: parsing and resolving the .jet files, and reading the serialized descriptors.
+ * A typical compiler run only touches a few built-in classes, so the serialized variant is measured both for that case
+ * and for loading everything. The first round approximates a cold start, the best one a warmed up JVM.
+ */
+public class BuiltInsStartupBenchmark {
+    private static final int ROUNDS = 20;
+    private static final String[] COMMONLY_USED_CLASSES = {"Any", "Int", "String", "Array", "Iterable"};
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty(KotlinBuiltIns.LOAD_FROM_SOURCES_PROPERTY, "true");
+        JetCoreEnvironment environment =
+                new JetCoreEnvironment(CompileEnvironmentUtil.createMockDisposable(), new CompilerConfiguration());
+        final Project project = environment.getProject();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DescriptorSerializer.serialize(KotlinBuiltIns.getInstance().getBuiltInsPackage(), out);
+        final byte[] bytes = out.toByteArray();
+        System.out.println("Serialized built-ins: " + bytes.length + " bytes");
+
+        measure("Sources", new Loader() {
+            @Override
+            public void load() throws Exception {
+                KotlinCodeAnalyzer analyzer = KotlinBuiltIns.createLazyResolveSession(project, createModule());
+                analyzer.forceResolveAll();
+            }
+        });
+        measure("Serialized, commonly used classes", new Loader() {
+            @Override
+            public void load() throws Exception {
+                NamespaceDescriptor builtIns = deserialize(bytes);
+                for (String name : COMMONLY_USED_CLASSES) {
+                    ClassDescriptor classDescriptor = (ClassDescriptor) builtIns.getMemberScope().getClassifier(Name.identifier(name));
+                    assert classDescriptor != null : name;
+                    classDescriptor.getDefaultType().getMemberScope().getAllDescriptors();
+                }
+            }
+        });
+        measure("Serialized, all classes", new Loader() {
+            @Override
+            public void load() throws Exception {
+                loadAll(deserialize(bytes).getMemberScope());
+            }
+        });
+    }
+
+    private interface Loader {
+        void load() throws Exception;
+    }
+
+    private static void measure(@NotNull String name, @NotNull Loader loader) throws Exception {
+        long first = -1;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.currentTimeMillis();
+            loader.load();
+            long time = System.currentTimeMillis() - start;
+            if (first < 0) {
+                first = time;
+            }
+            best = Math.min(best, time);
+        }
+        System.out.println(name + ": first " + TimeUtils.millisecondsToSecondsString(first) + " s, " +
+                           "best " + TimeUtils.millisecondsToSecondsString(best) + " s");
+    }
+
+    private static void loadAll(@NotNull JetScope scope) {
+        for (DeclarationDescriptor descriptor : scope.getAllDescriptors()) {
+            if (descriptor instanceof ClassDescriptor) {
+                ClassDescriptor classDescriptor = (ClassDescriptor) descriptor;
+                classDescriptor.getTypeConstructor().getSupertypes();
+                classDescriptor.getConstructors();
+                loadAll(classDescriptor.getDefaultType().getMemberScope());
+                loadAll(classDescriptor.getUnsubstitutedInnerClassesScope());
+            }
+        }
+    }
+
+    @NotNull
+    private static ModuleDescriptor createModule() {
+        return new ModuleDescriptor(Name.special("<built-ins benchmark module>"));
+    }
+
+    @NotNull
+    private static NamespaceDescriptor deserialize(@NotNull byte[] bytes) throws Exception {
+        ModuleDescriptor module = createModule();
+        KotlinBuiltIns.createDeserializedBuiltInsPackage(module, PackageData.read(new ByteArrayInputStream(bytes)));
+        NamespaceDescriptor builtIns =
+                module.getRootNamespace().getMemberScope().getNamespace(KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME.shortName());
+        assert builtIns != null;
+        return builtIns;
+    }
+}
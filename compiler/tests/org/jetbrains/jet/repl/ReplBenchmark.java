@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.repl;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.repl.ReplInterpreter;
+import org.jetbrains.jet.config.CompilerConfiguration;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Evaluates a long REPL session and reports how the latency of a line changes as the session grows.
+ * Every line declares a value or a function referring to declarations of the previous line and of the first one,
+ * so both analysis and code generation have to see earlier lines.
+ *
+ * Usage: ReplBenchmark [number of lines]
+ */
+public class ReplBenchmark {
+    private static final int BUCKETS = 10;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        System.setProperty("java.awt.headless", "true");
+        Disposable disposable = CompileEnvironmentUtil.createMockDisposable();
+        try {
+            CompilerConfiguration configuration =
+                    JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.FULL_JDK);
+            configuration.add(JVMConfigurationKeys.CLASSPATH_KEY, new File("out/production/runtime"));
+            ReplInterpreter repl = new ReplInterpreter(disposable, configuration);
+
+            long[] nanos = new long[lines];
+            for (int i = 0; i < lines; i++) {
+                String line = lineText(i);
+                long start = System.nanoTime();
+                ReplInterpreter.LineResult result = repl.eval(line);
+                nanos[i] = System.nanoTime() - start;
+                if (result.getType() != ReplInterpreter.LineResultType.SUCCESS) {
+                    throw new IllegalStateException("Line " + (i + 1) + " failed: " + line + "\n" + result.getErrorText());
+                }
+            }
+
+            int bucketSize = Math.max(lines / BUCKETS, 1);
+            for (int from = 0; from < lines; from += bucketSize) {
+                int to = Math.min(from + bucketSize, lines);
+                long[] bucket = Arrays.copyOfRange(nanos, from, to);
+                Arrays.sort(bucket);
+                long total = 0;
+                for (long time : bucket) {
+                    total += time;
+                }
+                System.out.println("lines " + (from + 1) + "-" + to + ": " +
+                                   "mean " + format(total / bucket.length) + ", " +
+                                   "median " + format(bucket[bucket.length / 2]) + ", " +
+                                   "p99 " + format(bucket[bucket.length * 99 / 100]));
+            }
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    private static String lineText(int i) {
+        if (i == 0) {
+            return "val v0 = 0";
+        }
+        if (i % 2 == 1) {
+            return "fun f" + i + "() = v" + (i - 1) + " + 1";
+        }
+        return "val v" + i + " = f" + (i - 1) + "() + v0";
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+}
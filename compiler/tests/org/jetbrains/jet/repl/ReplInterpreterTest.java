@@ -49,11 +49,16 @@ public class ReplInterpreterTest {
         Disposer.dispose(disposable);
     }
 
-    private void testFile(@NotNull String relativePath) {
+    @NotNull
+    private ReplInterpreter createInterpreter() {
         CompilerConfiguration configuration =
                 JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.FULL_JDK);
         configuration.add(JVMConfigurationKeys.CLASSPATH_KEY, new File("out/production/runtime"));
-        ReplInterpreter repl = new ReplInterpreter(disposable, configuration);
+        return new ReplInterpreter(disposable, configuration);
+    }
+
+    private void testFile(@NotNull String relativePath) {
+        ReplInterpreter repl = createInterpreter();
 
         ReplSessionTestFile file = ReplSessionTestFile.load(new File("compiler/testData/repl/" + relativePath));
         for (ReplSessionTestFile.OneLine t : file.getLines()) {
@@ -156,4 +161,26 @@ public class ReplInterpreterTest {
         testFile("multiline3.repl");
     }
 
+    @Test
+    public void valRedefinition() {
+        testFile("valRedefinition.repl");
+    }
+
+    @Test
+    public void importsAfterManyLines() {
+        testFile("importsAfterManyLines.repl");
+    }
+
+    @Test
+    public void longSession() {
+        // more earlier lines than a JVM method can take parameters
+        ReplInterpreter repl = createInterpreter();
+        Assert.assertEquals(ReplInterpreter.LineResultType.SUCCESS, repl.eval("val v0 = 0").getType());
+        for (int i = 1; i < 300; i++) {
+            ReplInterpreter.LineResult lineResult = repl.eval("val v" + i + " = v" + (i - 1) + " + v0 + 1");
+            Assert.assertEquals(lineResult.getErrorText(), ReplInterpreter.LineResultType.SUCCESS, lineResult.getType());
+        }
+        Assert.assertEquals(299, repl.eval("v299").getValue());
+    }
+
 }
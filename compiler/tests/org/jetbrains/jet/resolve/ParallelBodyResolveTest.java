@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.resolve;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.lang.diagnostics.rendering.DefaultErrorMessages;
+import org.jetbrains.jet.lang.psi.JetExpression;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.JetTreeVisitorVoid;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.ThreadSafeBindingTraceContext;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.types.JetType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class ParallelBodyResolveTest extends KotlinTestWithEnvironment {
+    private static final String PATH = "compiler/testData/parallelBodyResolve/";
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testSameResultsAsSerial() throws IOException {
+        List<JetFile> files = loadFiles();
+
+        BindingContext serial = analyze(files, 1);
+        BindingContext parallel = analyze(files, 4);
+
+        // The order of diagnostics may differ from the serial mode, but not their set
+        List<String> serialDiagnostics = renderDiagnostics(serial);
+        List<String> parallelDiagnostics = renderDiagnostics(parallel);
+        Collections.sort(serialDiagnostics);
+        Collections.sort(parallelDiagnostics);
+        assertFalse(serialDiagnostics.isEmpty());
+        assertEquals(serialDiagnostics, parallelDiagnostics);
+
+        assertEquals(renderExpressionTypes(files, serial), renderExpressionTypes(files, parallel));
+    }
+
+    public void testDiagnosticsOrderIsStable() throws IOException {
+        List<JetFile> files = loadFiles();
+
+        List<String> expected = renderDiagnostics(analyze(files, 4));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected, renderDiagnostics(analyze(files, 4)));
+        }
+    }
+
+    @NotNull
+    private List<JetFile> loadFiles() throws IOException {
+        return Lists.newArrayList(
+                JetTestUtils.loadJetFile(getProject(), new File(PATH + "a.kt")),
+                JetTestUtils.loadJetFile(getProject(), new File(PATH + "b.kt"))
+        );
+    }
+
+    @NotNull
+    private BindingContext analyze(@NotNull List<JetFile> files, int bodyResolveThreads) {
+        return AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
+                getProject(), files, new ThreadSafeBindingTraceContext(), Collections.<AnalyzerScriptParameter>emptyList(),
+                Predicates.<PsiFile>alwaysTrue(), false, bodyResolveThreads).getBindingContext();
+    }
+
+    @NotNull
+    private static List<String> renderDiagnostics(@NotNull BindingContext context) {
+        List<String> result = Lists.newArrayList();
+        for (Diagnostic diagnostic : context.getDiagnostics()) {
+            result.add(diagnostic.getPsiFile().getName() + ":" + diagnostic.getPsiElement().getTextOffset() + " " +
+                       DefaultErrorMessages.RENDERER.render(diagnostic));
+        }
+        return result;
+    }
+
+    @NotNull
+    private static List<String> renderExpressionTypes(@NotNull List<JetFile> files, @NotNull final BindingContext context) {
+        final List<String> result = Lists.newArrayList();
+        for (JetFile file : files) {
+            file.accept(new JetTreeVisitorVoid() {
+                @Override
+                public void visitExpression(JetExpression expression) {
+                    JetType type = context.get(BindingContext.EXPRESSION_TYPE, expression);
+                    result.add(expression.getTextOffset() + " " + expression.getText() + ": " + type);
+                    super.visitExpression(expression);
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -48,6 +48,7 @@ import org.jetbrains.jet.lang.types.ErrorUtils;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lang.types.TypeUtils;
 import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
+import org.jetbrains.jet.lang.types.checker.SubtypingCache;
 import org.jetbrains.jet.lang.types.expressions.ExpressionTypingServices;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
@@ -364,6 +365,32 @@ public class JetTypeCheckerTest extends JetLiteFixture {
         assertNotSubtype("Int?", "Any");
     }
 
+    public void testCachedSubtyping() throws Exception {
+        SubtypingCache.Statistics statistics = new SubtypingCache.Statistics();
+        SubtypingCache cache = SubtypingCache.openSession(statistics);
+        assertNotNull(cache);
+        try {
+            // Each check is made twice: the second answer comes from the cache
+            for (int i = 0; i < 2; i++) {
+                assertSubtype("Int", "Any");
+                assertNotSubtype("Int?", "Any");
+                assertSubtype("Int?", "Any?");
+                assertSubtype("Base_outT<Int>", "Base_outT<Any>");
+                assertNotSubtype("Base_outT<Any>", "Base_outT<Int>");
+                assertSubtype("Base_inT<Any>", "Base_inT<Int>");
+                assertNotSubtype("Base_T<Int>", "Base_T<Any>");
+                assertSubtype("Base_T<Int>", "Base_T<out Any>");
+                assertSubtype("Derived_T<Int>", "Base_T<Int>");
+                assertNotSubtype("Derived_T<Int>", "Base_T<Any>");
+            }
+        }
+        finally {
+            SubtypingCache.closeSession(cache);
+        }
+        assertTrue(statistics.getMisses() > 0);
+        assertTrue(statistics.getHits() > 0);
+    }
+
     public void testNothing() throws Exception {
         assertSubtype("Nothing", "Any");
         assertSubtype("Nothing?", "Any?");
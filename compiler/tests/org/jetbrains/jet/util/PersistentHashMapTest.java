@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.util;
+
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentHashMapTest {
+    private static class Key {
+        private final int id;
+
+        private Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            // Lots of collisions
+            return id % 16;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+
+    @Test
+    public void modificationsDoNotAffectOriginal() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> a = empty.plus("a", 1);
+        PersistentHashMap<String, Integer> ab = a.plus("b", 2);
+        PersistentHashMap<String, Integer> b = ab.minus("a");
+
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertEquals(1, a.size());
+        Assert.assertNull(a.get("b"));
+        Assert.assertEquals(2, ab.size());
+        Assert.assertEquals(Integer.valueOf(1), ab.get("a"));
+        Assert.assertEquals(1, b.size());
+        Assert.assertNull(b.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), b.get("b"));
+    }
+
+    @Test
+    public void sameValueKeepsMap() {
+        Integer value = 1;
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty().plus("a", value);
+        Assert.assertSame(map, map.plus("a", value));
+        Assert.assertSame(map, map.minus("b"));
+    }
+
+    @Test
+    public void collisions() {
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.plus(new Key(i), i);
+        }
+        Assert.assertEquals(100, map.size());
+        for (int i = 0; i < 100; i += 2) {
+            map = map.minus(new Key(i));
+        }
+        Assert.assertEquals(50, map.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(new Key(i)));
+        }
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(42);
+        PersistentHashMap<Object, Integer> map = PersistentHashMap.empty();
+        Map<Object, Integer> expected = new HashMap<Object, Integer>();
+        for (int i = 0; i < 10000; i++) {
+            int id = random.nextInt(1000);
+            Object key = i % 2 == 0 ? new Key(id) : Integer.valueOf(id * 7919);
+            if (random.nextInt(4) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            }
+            else {
+                Integer value = random.nextInt(1000);
+                map = map.plus(key, value);
+                expected.put(key, value);
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+
+        Map<Object, Integer> actual = new HashMap<Object, Integer>();
+        for (Map.Entry<Object, Integer> entry : map) {
+            actual.put(entry.getKey(), entry.getValue());
+        }
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void entriesNotIn() {
+        PersistentHashMap<Object, Integer> base = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            base = base.plus(i % 3 == 0 ? new Key(i) : Integer.valueOf(i), i);
+        }
+
+        PersistentHashMap<Object, Integer> derived = base.plus(new Key(3), -3).plus(5, -5).plus(new Key(2000), 2000).minus(7);
+
+        Assert.assertTrue(derived.entriesNotIn(derived).isEmpty());
+
+        Map<Object, Integer> difference = Maps.newHashMap();
+        List<Map.Entry<Object, Integer>> entries = derived.entriesNotIn(base);
+        for (Map.Entry<Object, Integer> entry : entries) {
+            difference.put(entry.getKey(), entry.getValue());
+        }
+        Map<Object, Integer> expected = Maps.newHashMap();
+        expected.put(new Key(3), -3);
+        expected.put(5, -5);
+        expected.put(new Key(2000), 2000);
+        Assert.assertEquals(expected, difference);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.util.slicedmap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class PartitionedSlicedMapTest {
+    private static final WritableSlice<String, Integer> FIRST = Slices.createSimpleSlice();
+    private static final WritableSlice<String, Integer> SECOND = Slices.createSimpleSlice();
+    private static final WritableSlice<String, Boolean> COLLECTIVE = Slices.createCollectiveSetSlice();
+    private static final WritableSlice<Integer, String> OPPOSITE = Slices.createSimpleSlice();
+    private static final WritableSlice<String, Integer> WITH_OPPOSITE =
+            Slices.<String, Integer>sliceBuilder().setOpposite(OPPOSITE).build();
+    private static final WritableSlice<String, Integer> NORMALIZED =
+            Slices.<String, Integer>sliceBuilder().setKeyNormalizer(new Slices.KeyNormalizer<String>() {
+                @Override
+                public String normalize(String key) {
+                    return key.toLowerCase();
+                }
+            }).build();
+    private static final WritableSlice<String, Integer> WITH_DEFAULT =
+            Slices.<String, Integer>sliceBuilder().setDefaultValue(-1).build();
+
+    private final MutableSlicedMap map = PartitionedSlicedMap.create();
+
+    @Test
+    public void slicesAreIndependent() {
+        map.put(FIRST, "a", 1);
+        map.put(SECOND, "a", 2);
+
+        Assert.assertEquals(Integer.valueOf(1), map.get(FIRST, "a"));
+        Assert.assertEquals(Integer.valueOf(2), map.get(SECOND, "a"));
+        Assert.assertNull(map.get(FIRST, "b"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rewriteToDifferentValueIsReported() {
+        map.put(FIRST, "a", 1);
+        map.put(FIRST, "a", 2);
+    }
+
+    @Test
+    public void defaultValueAndRawVersion() {
+        Assert.assertEquals(Integer.valueOf(-1), map.get(WITH_DEFAULT, "a"));
+        Assert.assertNull(map.get(WITH_DEFAULT.makeRawValueVersion(), "a"));
+
+        map.put(WITH_DEFAULT, "a", 1);
+        Assert.assertEquals(Integer.valueOf(1), map.get(WITH_DEFAULT.makeRawValueVersion(), "a"));
+    }
+
+    @Test
+    public void oppositeIsRecorded() {
+        map.put(WITH_OPPOSITE, "a", 1);
+        Assert.assertEquals("a", map.get(OPPOSITE, 1));
+    }
+
+    @Test
+    public void keysAreNormalized() {
+        map.put(NORMALIZED, "ABC", 1);
+        Assert.assertEquals(Integer.valueOf(1), map.get(NORMALIZED, "abc"));
+        Assert.assertEquals(ImmutableMap.of("abc", 1), map.getSliceContents(NORMALIZED));
+    }
+
+    @Test
+    public void collectiveKeys() {
+        Assert.assertTrue(map.getKeys(COLLECTIVE).isEmpty());
+
+        map.put(COLLECTIVE, "b", true);
+        map.put(COLLECTIVE, "a", true);
+        Assert.assertEquals(Arrays.asList("b", "a"), Lists.newArrayList(map.getKeys(COLLECTIVE)));
+        Assert.assertTrue(map.get(COLLECTIVE, "a"));
+        Assert.assertFalse(map.get(COLLECTIVE, "c"));
+    }
+
+    @Test
+    public void iterationGoesSliceBySlice() {
+        map.put(FIRST, "a", 1);
+        map.put(SECOND, "b", 2);
+        map.put(FIRST, "c", 3);
+
+        List<String> entries = Lists.newArrayList();
+        for (Map.Entry<SlicedMapKey<?, ?>, ?> entry : map) {
+            entries.add(entry.getKey().getKey() + "=" + entry.getValue());
+            Assert.assertTrue(entry.getKey().getSlice() == FIRST || entry.getKey().getSlice() == SECOND);
+        }
+        Assert.assertEquals(Arrays.asList("a=1", "c=3", "b=2"), entries);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.util.slicedmap;
+
+import com.google.common.base.Predicates;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.TimeUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CommonConfigurationKeys;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lang.resolve.DelegatingBindingTrace;
+import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Analyzes a real module (the Kotlin stdlib sources by default), records everything that was written into the binding trace
+ * and replays it into {@link SlicedMapImpl} and {@link PartitionedSlicedMap} to compare their footprint and put/get throughput.
+ *
+ * Usage: SlicedMapBenchmark [source root]
+ */
+public class SlicedMapBenchmark {
+    private static final int ROUNDS = 10;
+
+    private interface MapFactory {
+        @NotNull
+        MutableSlicedMap create();
+    }
+
+    private static class Entry {
+        private final WritableSlice<Object, Object> slice;
+        private final Object key;
+        private final Object value;
+
+        private Entry(@NotNull WritableSlice<Object, Object> slice, Object key, @NotNull Object value) {
+            this.slice = slice;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public static void main(String[] args) {
+        String sourceRoot = args.length > 0 ? args[0] : "libraries/stdlib/src";
+        List<Entry> entries = recordAnalysis(sourceRoot);
+        System.out.println(entries.size() + " entries recorded while analyzing " + sourceRoot);
+
+        for (int i = 0; i < 2; i++) {
+            // The first iteration is a warm-up
+            run("SlicedMapImpl", entries, new MapFactory() {
+                @NotNull
+                @Override
+                public MutableSlicedMap create() {
+                    return SlicedMapImpl.create();
+                }
+            });
+            run("PartitionedSlicedMap", entries, new MapFactory() {
+                @NotNull
+                @Override
+                public MutableSlicedMap create() {
+                    return PartitionedSlicedMap.create();
+                }
+            });
+        }
+    }
+
+    @NotNull
+    private static List<Entry> recordAnalysis(@NotNull String sourceRoot) {
+        Disposable disposable = CompileEnvironmentUtil.createMockDisposable();
+        try {
+            CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(ConfigurationKind.ALL, TestJdkKind.FULL_JDK);
+            configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, sourceRoot);
+            JetCoreEnvironment environment = new JetCoreEnvironment(disposable, configuration);
+
+            DelegatingBindingTrace trace = new DelegatingBindingTrace(BindingContext.EMPTY, "trace for SlicedMapBenchmark");
+            AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
+                    environment.getProject(), environment.getSourceFiles(), trace, Collections.<AnalyzerScriptParameter>emptyList(),
+                    Predicates.<PsiFile>alwaysTrue(), false);
+
+            final List<Entry> entries = new ArrayList<Entry>();
+            trace.addAllMyDataTo(new BindingTrace() {
+                @Override
+                public BindingContext getBindingContext() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> void record(WritableSlice<K, V> slice, K key, V value) {
+                    entries.add(new Entry((WritableSlice<Object, Object>) slice, key, value));
+                }
+
+                @Override
+                public <K> void record(WritableSlice<K, Boolean> slice, K key) {
+                    record(slice, key, true);
+                }
+
+                @Override
+                public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void report(@NotNull Diagnostic diagnostic) {
+                }
+            }, null, false);
+            return entries;
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    private static void run(@NotNull String name, @NotNull List<Entry> entries, @NotNull MapFactory factory) {
+        long usedBefore = usedMemory();
+        MutableSlicedMap retained = fill(factory.create(), entries);
+        long retainedBytes = usedMemory() - usedBefore;
+
+        long putStart = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; i++) {
+            fill(factory.create(), entries);
+        }
+        long putMillis = System.currentTimeMillis() - putStart;
+
+        long getStart = System.currentTimeMillis();
+        int found = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            for (Entry entry : entries) {
+                if (retained.get(entry.slice, entry.key) != null) found++;
+            }
+        }
+        long getMillis = System.currentTimeMillis() - getStart;
+
+        System.out.println(name + ": retained " + retainedBytes / 1024 + " KiB (" + retainedBytes / Math.max(entries.size(), 1) +
+                           " bytes/entry), " + ROUNDS + " x put: " + TimeUtils.millisecondsToSecondsString(putMillis) + " s, " +
+                           ROUNDS + " x get: " + TimeUtils.millisecondsToSecondsString(getMillis) + " s (" + found + " hits)");
+    }
+
+    @NotNull
+    private static MutableSlicedMap fill(@NotNull MutableSlicedMap map, @NotNull List<Entry> entries) {
+        for (Entry entry : entries) {
+            map.put(entry.slice, entry.key, entry.value);
+        }
+        return map;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.generators.builtins;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.descriptors.serialization.DescriptorSerializer;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.io.*;
+
+/**
+ * Writes {@link KotlinBuiltIns#SERIALIZED_BUILT_INS_FILE}, which the compiler loads instead of parsing and resolving
+ * the built-in .jet files on every start
+ */
+public class GenerateBuiltInsBinary {
+    private static final String DEFAULT_DESTINATION = "out/builtins/" + KotlinBuiltIns.SERIALIZED_BUILT_INS_FILE;
+
+    public static void main(String[] args) throws IOException {
+        File destination = new File(args.length > 0 ? args[0] : DEFAULT_DESTINATION);
+
+        // A stale binary must not be read while generating a new one
+        System.setProperty(KotlinBuiltIns.LOAD_FROM_SOURCES_PROPERTY, "true");
+        new JetCoreEnvironment(CompileEnvironmentUtil.createMockDisposable(), new CompilerConfiguration());
+
+        FileUtil.createParentDirs(destination);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(destination)));
+        try {
+            out.writeInt(KotlinBuiltIns.computeLibraryFilesHash());
+            DescriptorSerializer.serialize(KotlinBuiltIns.getInstance().getBuiltInsPackage(), out);
+        }
+        finally {
+            out.close();
+        }
+
+        System.out.println("Built-ins written to " + destination.getAbsolutePath());
+    }
+}
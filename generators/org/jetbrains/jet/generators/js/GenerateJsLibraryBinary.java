@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.generators.js;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.k2js.config.Config;
+import org.jetbrains.k2js.config.SerializedLibraryConfig;
+import org.jetbrains.k2js.utils.JetFileUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link SerializedLibraryConfig#SERIALIZED_LIBRARY_FILE}, which the JS compiler loads instead of analyzing
+ * the library sources on every run
+ */
+public class GenerateJsLibraryBinary {
+    private static final String DEFAULT_DESTINATION = "out/k2js-library/" + SerializedLibraryConfig.SERIALIZED_LIBRARY_FILE;
+
+    public static void main(String[] args) throws IOException {
+        File destination = new File(args.length > 0 ? args[0] : DEFAULT_DESTINATION);
+
+        JetCoreEnvironment environment = new JetCoreEnvironment(CompileEnvironmentUtil.createMockDisposable(), new CompilerConfiguration());
+        Project project = environment.getProject();
+        KotlinBuiltIns.initialize(project);
+
+        List<String> paths = new ArrayList<String>();
+        for (String fileName : Config.LIB_FILE_NAMES) {
+            paths.add(Config.LIBRARIES_LOCATION + fileName);
+        }
+        List<JetFile> libraryFiles = JetFileUtils.createPsiFileList(paths, project);
+
+        FileUtil.createParentDirs(destination);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(destination));
+        try {
+            SerializedLibraryConfig.writeLibrary(project, libraryFiles, out);
+        }
+        finally {
+            out.close();
+        }
+
+        System.out.println("JS library descriptors written to " + destination.getAbsolutePath());
+    }
+}
@@ -26,6 +26,7 @@ import com.intellij.openapi.projectRoots.SimpleJavaSdkType;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.Function;
 import com.intellij.util.SystemProperties;
+import org.jetbrains.jet.cli.common.daemon.CompileDaemonClient;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
 import org.jetbrains.jet.cli.common.messages.MessageCollector;
@@ -37,6 +38,11 @@ import java.io.PrintStream;
 import java.util.Arrays;
 
 public class KotlinCompilerRunner {
+    private static final String K2JVM_COMPILER_CLASS_NAME = "org.jetbrains.jet.cli.jvm.K2JVMCompiler";
+
+    // Compile in a long-running compiler process that keeps warm between builds
+    private static final boolean USE_COMPILE_DAEMON = Boolean.getBoolean("kotlin.compiler.daemon");
+
     public static void runCompiler(
             MessageCollector messageCollector,
             CompilerEnvironment environment,
@@ -44,7 +50,10 @@ public class KotlinCompilerRunner {
             OutputItemsCollector collector,
             boolean runOutOfProcess
     ) {
-        if (runOutOfProcess) {
+        if (USE_COMPILE_DAEMON) {
+            runInDaemon(messageCollector, collector, environment, scriptFile);
+        }
+        else if (runOutOfProcess) {
             runOutOfProcess(messageCollector, collector, environment, scriptFile);
         }
         else {
@@ -66,7 +75,7 @@ public class KotlinCompilerRunner {
 
     private static int execInProcess(CompilerEnvironment environment, File scriptFile, PrintStream out, MessageCollector messageCollector) {
         try {
-            String compilerClassName = "org.jetbrains.jet.cli.jvm.K2JVMCompiler";
+            String compilerClassName = K2JVM_COMPILER_CLASS_NAME;
             String[] arguments = commandLineArguments(environment.getOutput(), scriptFile);
             messageCollector.report(CompilerMessageSeverity.INFO,
                                     "Using kotlinHome=" + environment.getKotlinPaths().getHomePath(),
@@ -85,6 +94,38 @@ public class KotlinCompilerRunner {
         }
     }
 
+    private static void runInDaemon(
+            final MessageCollector messageCollector,
+            OutputItemsCollector collector,
+            final CompilerEnvironment environment,
+            final File scriptFile
+    ) {
+        CompilerRunnerUtil.outputCompilerMessagesAndHandleExitCode(messageCollector, collector, new Function<PrintStream, Integer>() {
+            @Override
+            public Integer fun(PrintStream stream) {
+                return execInDaemon(environment, scriptFile, stream, messageCollector);
+            }
+        });
+    }
+
+    private static int execInDaemon(CompilerEnvironment environment, File scriptFile, PrintStream out, MessageCollector messageCollector) {
+        try {
+            String[] arguments = commandLineArguments(environment.getOutput(), scriptFile);
+            CompileDaemonClient client = new CompileDaemonClient(
+                    CompileDaemonClient.getJavaExecutable(SystemProperties.getJavaHome()),
+                    CompilerRunnerUtil.kompilerClasspath(environment.getKotlinPaths(), messageCollector),
+                    Arrays.asList("-Djava.awt.headless=true", "-Xmx512m"));
+            messageCollector.report(CompilerMessageSeverity.INFO,
+                                    "Invoking compile daemon with arguments " + Arrays.asList(arguments),
+                                    CompilerMessageLocation.NO_LOCATION);
+            return client.compile(arguments, out);
+        }
+        catch (Throwable e) {
+            CompilerOutputParser.reportException(messageCollector, e);
+            return -1;
+        }
+    }
+
     private static String[] commandLineArguments(File outputDir, File scriptFile) {
         return new String[]{
                 "-module", scriptFile.getAbsolutePath(),
@@ -102,7 +143,7 @@ public class KotlinCompilerRunner {
     ) {
         final SimpleJavaParameters params = new SimpleJavaParameters();
         params.setJdk(new SimpleJavaSdkType().createJdk("tmp", SystemProperties.getJavaHome()));
-        params.setMainClass("org.jetbrains.jet.cli.jvm.K2JVMCompiler");
+        params.setMainClass(K2JVM_COMPILER_CLASS_NAME);
 
         for (String arg : commandLineArguments(environment.getOutput(), scriptFile)) {
             params.getProgramParametersList().add(arg);
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.compiler.runner;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static com.intellij.openapi.util.io.FileUtil.toSystemIndependentName;
+import static com.intellij.openapi.util.text.StringUtil.escapeXml;
+import static org.jetbrains.jet.compiler.runner.KotlinModuleScriptGenerator.DependencyProcessor;
+import static org.jetbrains.jet.compiler.runner.KotlinModuleScriptGenerator.DependencyProvider;
+
+/**
+ * Generates the same module description as {@link KotlinModuleScriptGenerator}, but in the XML form that the compiler reads directly,
+ * without compiling and running a module script first.
+ */
+public class KotlinModuleXmlGenerator {
+
+    public static CharSequence generateModuleDescription(String moduleName,
+            DependencyProvider dependencyProvider,
+            List<File> sourceFiles,
+            boolean tests,
+            final Set<File> directoriesToFilterOut) {
+        final StringBuilder xml = new StringBuilder();
+
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        if (tests) {
+            xml.append("<!-- Module description for tests -->\n");
+        }
+        else {
+            xml.append("<!-- Module description for production -->\n");
+        }
+
+        xml.append("<modules>\n");
+        xml.append("    <module name=\"").append(escapeXml(moduleName)).append("\">\n");
+
+        for (File sourceFile : sourceFiles) {
+            appendPath(xml, "sources", sourceFile);
+        }
+
+        dependencyProvider.processClassPath(new DependencyProcessor() {
+            @Override
+            public void processClassPathSection(@NotNull String sectionDescription, @NotNull Collection<File> files) {
+                appendComment(xml, sectionDescription);
+                for (File file : files) {
+                    if (directoriesToFilterOut.contains(file)) {
+                        // For IDEA's make (incremental compilation) purposes, output directories of the current module and its dependencies
+                        // appear on the class path, so we are at risk of seeing the results of the previous build, i.e. if some class was
+                        // removed in the sources, it may still be there in binaries. Thus, we delete these entries from the classpath.
+                        appendComment(xml, "Output directory, commented out: " + toSystemIndependentName(file.getPath()));
+                        continue;
+                    }
+                    appendPath(xml, "classpath", file);
+                }
+            }
+
+            @Override
+            public void processAnnotationRoots(@NotNull List<File> files) {
+                appendComment(xml, "External annotations");
+                for (File file : files) {
+                    appendPath(xml, "externalAnnotations", file);
+                }
+            }
+        });
+
+        xml.append("    </module>\n");
+        xml.append("</modules>\n");
+        return xml;
+    }
+
+    private static void appendPath(@NotNull StringBuilder xml, @NotNull String element, @NotNull File file) {
+        xml.append("        <").append(element).append(" path=\"").append(escapeXml(toSystemIndependentName(file.getPath()))).append("\"/>\n");
+    }
+
+    private static void appendComment(@NotNull StringBuilder xml, @NotNull String text) {
+        // "--" may not appear inside an XML comment
+        xml.append("        <!-- ").append(text.replace("--", "- -")).append(" -->\n");
+    }
+
+    private KotlinModuleXmlGenerator() {}
+}
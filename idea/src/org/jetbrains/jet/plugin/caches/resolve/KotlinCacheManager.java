@@ -16,25 +16,18 @@
 
 package org.jetbrains.jet.plugin.caches.resolve;
 
-import com.google.common.base.Predicates;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
-import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.util.CachedValue;
-import com.intellij.psi.util.CachedValueProvider;
-import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
-import org.jetbrains.jet.analyzer.AnalyzeExhaust;
-import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
+import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
 import org.jetbrains.jet.lang.resolve.java.JetFilesProvider;
+import org.jetbrains.jet.lang.resolve.lazy.ResolveSession;
 
-import java.util.Collections;
+import java.util.Collection;
 
 public class KotlinCacheManager {
 
@@ -42,45 +35,55 @@ public class KotlinCacheManager {
         return ServiceManager.getService(project, KotlinCacheManager.class);
     }
 
-    private final Key<CachedValue<KotlinDeclarationsCache>> KOTLIN_DECLARATIONS_CACHE = Key.create("KOTLIN_DECLARATIONS_CACHE");
-
     private final Project project;
-    private final Object declarationAnalysisLock = new Object();
+    private final Object declarationsCacheLock = new Object();
 
+    // Replaced as a whole, so that readers never see a cache for one modification count with another count
+    private volatile DeclarationsCacheSnapshot declarationsCache = null;
 
     public KotlinCacheManager(@NotNull Project project) {
         this.project = project;
     }
 
+    /**
+     * The cache is valid until the next out-of-code-block modification. Creating a new one is cheap: the declarations are
+     * resolved lazily, file by file, when they are asked for, and no lock of this manager is held meanwhile.
+     */
     @NotNull
     public KotlinDeclarationsCache getDeclarationsFromProject() {
         // To prevent dead locks, the lock below must be obtained only inside a read action
         ApplicationManager.getApplication().assertReadAccessAllowed();
-        synchronized (declarationAnalysisLock) {
-            return CachedValuesManager.getManager(project).getCachedValue(
-                    project,
-                    KOTLIN_DECLARATIONS_CACHE,
-                    new KotlinDeclarationsCacheProvider(),
-                    false
-            );
+
+        long modificationCount = PsiManager.getInstance(project).getModificationTracker().getOutOfCodeBlockModificationCount();
+        DeclarationsCacheSnapshot snapshot = declarationsCache;
+        if (snapshot != null && snapshot.modificationCount == modificationCount) {
+            return snapshot.cache;
         }
-    }
 
-    private class KotlinDeclarationsCacheProvider implements CachedValueProvider<KotlinDeclarationsCache> {
-        @Nullable
-        @Override
-        public Result<KotlinDeclarationsCache> compute() {
-            AnalyzeExhaust analyzeExhaust = AnalyzerFacadeForJVM.INSTANCE.analyzeFiles(
-                    project,
-                    JetFilesProvider.getInstance(project).allInScope(GlobalSearchScope.allScope(project)),
-                    Collections.<AnalyzerScriptParameter>emptyList(),
-                    Predicates.<PsiFile>alwaysFalse()
-            );
-            return Result.<KotlinDeclarationsCache>create(
-                    new AnalyzeExhaustAsKotlinDeclarationsCache(analyzeExhaust),
-                    PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT
-            );
+        synchronized (declarationsCacheLock) {
+            snapshot = declarationsCache;
+            if (snapshot == null || snapshot.modificationCount != modificationCount) {
+                snapshot = new DeclarationsCacheSnapshot(modificationCount, createDeclarationsCache());
+                declarationsCache = snapshot;
+            }
+            return snapshot.cache;
         }
+    }
 
+    @NotNull
+    private KotlinDeclarationsCache createDeclarationsCache() {
+        Collection<JetFile> files = JetFilesProvider.getInstance(project).allInScope(GlobalSearchScope.allScope(project));
+        ResolveSession resolveSession = AnalyzerFacadeForJVM.INSTANCE.getLazyResolveSession(project, files);
+        return new LazyKotlinDeclarationsCache(resolveSession, files);
+    }
+
+    private static class DeclarationsCacheSnapshot {
+        private final long modificationCount;
+        private final KotlinDeclarationsCache cache;
+
+        private DeclarationsCacheSnapshot(long modificationCount, @NotNull KotlinDeclarationsCache cache) {
+            this.modificationCount = modificationCount;
+            this.cache = cache;
+        }
     }
 }
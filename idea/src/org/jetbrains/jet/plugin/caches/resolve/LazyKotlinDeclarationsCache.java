@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.plugin.caches.resolve;
+
+import com.google.common.collect.ImmutableMap;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.jet.lang.ModuleConfiguration;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BodiesResolveContext;
+import org.jetbrains.jet.lang.resolve.lazy.ForceResolveUtil;
+import org.jetbrains.jet.lang.resolve.lazy.ResolveSession;
+import org.jetbrains.jet.util.slicedmap.ReadOnlySlice;
+import org.jetbrains.jet.util.slicedmap.WritableSlice;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Declarations of the project resolved by a {@link ResolveSession}. The declarations of a file are resolved when the binding
+ * context is first asked about an element of this file; declarations of other files are only resolved as far as they are
+ * needed for that. So after a change only the files somebody looks at are resolved again, not the whole project.
+ */
+public class LazyKotlinDeclarationsCache implements KotlinDeclarationsCache {
+    private final ResolveSession resolveSession;
+    private final Set<JetFile> files;
+    private final Set<JetFile> resolvedFiles = Collections.newSetFromMap(new ConcurrentHashMap<JetFile, Boolean>());
+    private volatile boolean allFilesResolved = false;
+
+    private final BindingContext bindingContext = new BindingContext() {
+        @Override
+        public Collection<Diagnostic> getDiagnostics() {
+            resolveAllFiles();
+            return getSessionContext().getDiagnostics();
+        }
+
+        @Nullable
+        @Override
+        public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+            if (key instanceof PsiElement) {
+                resolveContainingFile((PsiElement) key);
+            }
+            return getSessionContext().get(slice, key);
+        }
+
+        @NotNull
+        @Override
+        public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+            resolveAllFiles();
+            return getSessionContext().getKeys(slice);
+        }
+
+        @NotNull
+        @Override
+        public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+            resolveAllFiles();
+            return getSessionContext().getSliceContents(slice);
+        }
+    };
+
+    public LazyKotlinDeclarationsCache(@NotNull ResolveSession resolveSession, @NotNull Collection<JetFile> files) {
+        this.resolveSession = resolveSession;
+        this.files = new HashSet<JetFile>(files);
+    }
+
+    @NotNull
+    @Override
+    public BindingContext getBindingContext() {
+        return bindingContext;
+    }
+
+    @Nullable
+    @Override
+    public BodiesResolveContext getBodiesResolveContext() {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public ModuleConfiguration getModuleConfiguration() {
+        return resolveSession.getModuleConfiguration();
+    }
+
+    @TestOnly
+    public boolean isFileResolved(@NotNull JetFile file) {
+        return resolvedFiles.contains(file);
+    }
+
+    @NotNull
+    private BindingContext getSessionContext() {
+        return resolveSession.getBindingContext();
+    }
+
+    private void resolveContainingFile(@NotNull PsiElement element) {
+        if (allFilesResolved || !element.isValid()) return;
+
+        PsiFile file = element.getContainingFile();
+        if (file instanceof JetFile) {
+            resolveFile((JetFile) file);
+        }
+    }
+
+    private void resolveAllFiles() {
+        if (allFilesResolved) return;
+
+        for (JetFile file : files) {
+            resolveFile(file);
+        }
+        allFilesResolved = true;
+    }
+
+    private void resolveFile(@NotNull JetFile file) {
+        // Files outside of the session, e.g. copies made for completion, are not resolved here
+        if (resolvedFiles.contains(file) || !files.contains(file)) return;
+
+        for (JetDeclaration declaration : file.getDeclarations()) {
+            if (declaration instanceof JetClassOrObject || declaration instanceof JetNamedFunction || declaration instanceof JetProperty) {
+                DeclarationDescriptor descriptor = resolveSession.resolveToDescriptor(declaration);
+                ForceResolveUtil.forceResolveAllContents(descriptor);
+            }
+        }
+        resolvedFiles.add(file);
+    }
+}
@@ -156,7 +156,7 @@ public class JetCompiler implements TranslatingCompiler {
         if (!tests) {
             outputDirectoriesToFilter.add(moduleOutputDirectory);
         }
-        CharSequence script = KotlinModuleScriptGenerator.generateModuleScript(
+        CharSequence moduleDescription = KotlinModuleXmlGenerator.generateModuleDescription(
                 moduleName,
                 getDependencyProvider(chunk, tests, mainOutput),
                 sourceFiles,
@@ -164,9 +164,9 @@ public class JetCompiler implements TranslatingCompiler {
                 outputDirectoriesToFilter
         );
 
-        File scriptFile = new File(outputDir, "script.kts");
+        File scriptFile = new File(outputDir, "module.xml");
         try {
-            FileUtil.writeToFile(scriptFile, script.toString());
+            FileUtil.writeToFile(scriptFile, moduleDescription.toString());
         }
         catch (IOException e) {
             compileContext.addMessage(CompilerMessageCategory.ERROR, "[Internal Error] Cannot write script to " + scriptFile.getAbsolutePath(), "", -1, -1);
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.plugin.caches.resolve;
+
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.FunctionDescriptor;
+import org.jetbrains.jet.lang.psi.JetClass;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.JetNamedFunction;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.plugin.JetLightProjectDescriptor;
+
+public class KotlinCacheManagerTest extends LightCodeInsightFixtureTestCase {
+    @NotNull
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return JetLightProjectDescriptor.INSTANCE;
+    }
+
+    public void testDeclarationsAreResolvedOnDemand() {
+        myFixture.configureByText("b.kt", "package b\n\nopen class B\n");
+        JetFile file = (JetFile) myFixture.configureByText("a.kt", "package a\n\nclass A : b.B() {\n    fun foo(): Int = 1\n}\n\nfun bar(a: A) = a.foo()\n");
+
+        BindingContext context = KotlinCacheManager.getInstance(getProject()).getDeclarationsFromProject().getBindingContext();
+
+        JetClass classA = (JetClass) file.getDeclarations().get(0);
+        ClassDescriptor descriptorA = context.get(BindingContext.CLASS, classA);
+        assertNotNull(descriptorA);
+        assertEquals("B", descriptorA.getTypeConstructor().getSupertypes().iterator().next().toString());
+
+        DeclarationDescriptor bar = context.get(BindingContext.DECLARATION_TO_DESCRIPTOR, file.getDeclarations().get(1));
+        assertTrue(String.valueOf(bar), bar instanceof FunctionDescriptor);
+        assertEquals("Int", String.valueOf(((FunctionDescriptor) bar).getReturnType()));
+
+        JetNamedFunction foo = (JetNamedFunction) classA.getDeclarations().get(0);
+        assertNotNull(context.get(BindingContext.FUNCTION, foo));
+    }
+
+    public void testLightClassGenerationDoesNotResolveUnrelatedFiles() {
+        JetFile unrelatedFile = (JetFile) myFixture.configureByText("b.kt", "package b\n\nfun baz(): Int = 42\n");
+        myFixture.configureByText("a.kt", "package a\n\nclass A {\n    fun foo(): Int {\n        var x = 1\n        val f = { x }\n        return f()\n    }\n}\n");
+
+        LazyKotlinDeclarationsCache cache = (LazyKotlinDeclarationsCache) KotlinCacheManager.getInstance(getProject()).getDeclarationsFromProject();
+
+        // The closure makes codegen look for variables captured in closure classes
+        PsiClass lightClass = JavaPsiFacade.getInstance(getProject()).findClass("a.A", GlobalSearchScope.allScope(getProject()));
+        assertNotNull(lightClass);
+        assertEquals(1, lightClass.findMethodsByName("foo", false).length);
+
+        assertFalse(cache.isFileResolved(unrelatedFile));
+    }
+
+    public void testCacheIsKeptUntilOutOfCodeBlockModification() {
+        myFixture.configureByText("a.kt", "package a\n\nclass A\n");
+
+        KotlinCacheManager cacheManager = KotlinCacheManager.getInstance(getProject());
+        KotlinDeclarationsCache cache = cacheManager.getDeclarationsFromProject();
+        assertSame(cache, cacheManager.getDeclarationsFromProject());
+
+        ((PsiModificationTrackerImpl) PsiManager.getInstance(getProject()).getModificationTracker()).incOutOfCodeBlockModificationCounter();
+        assertNotSame(cache, cacheManager.getDeclarationsFromProject());
+    }
+}
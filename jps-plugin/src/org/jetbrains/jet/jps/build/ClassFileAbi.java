@@ -0,0 +1,248 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.jps.build;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.*;
+
+import java.util.*;
+
+/**
+ * The part of a class file that other classes may depend on: the class header and all the non-private, non-synthetic members,
+ * together with their annotations (Kotlin keeps the Kotlin-specific signatures, e.g. nullability, in annotations).
+ * Method bodies, debug information and private members are ignored.
+ *
+ * The ABI is represented as a map from a member key ("class", "field &lt;name&gt;", "method &lt;name&gt;&lt;descriptor&gt;")
+ * to the full description of that member, so that two versions of a class can be compared member by member.
+ */
+public class ClassFileAbi {
+    private static final String CLASS_KEY = "class";
+    private static final String FIELD_PREFIX = "field ";
+    private static final String METHOD_PREFIX = "method ";
+
+    private ClassFileAbi() {
+    }
+
+    @NotNull
+    public static SortedMap<String, String> compute(@NotNull byte[] classFile) {
+        final SortedMap<String, String> abi = new TreeMap<String, String>();
+
+        new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM4) {
+            private StringBuilder header;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                header = new StringBuilder();
+                header.append(access).append(' ').append(name).append(' ').append(signature).append(' ').append(superName);
+                if (interfaces != null) {
+                    header.append(' ').append(Arrays.toString(interfaces));
+                }
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return new AnnotationDescriber(header.append(" @").append(desc));
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                if (!isVisible(access)) return null;
+
+                final StringBuilder field = new StringBuilder();
+                field.append(access).append(' ').append(desc).append(' ').append(signature).append(' ').append(value);
+                final String key = FIELD_PREFIX + name;
+                abi.put(key, field.toString());
+
+                return new FieldVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return new AnnotationDescriber(field.append(" @").append(desc));
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        abi.put(key, field.toString());
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (!isVisible(access)) return null;
+
+                final StringBuilder method = new StringBuilder();
+                method.append(access).append(' ').append(signature);
+                if (exceptions != null) {
+                    method.append(' ').append(Arrays.toString(exceptions));
+                }
+                final String key = METHOD_PREFIX + name + desc;
+                abi.put(key, method.toString());
+
+                return new MethodVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return new AnnotationDescriber(method.append(" @").append(desc));
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                        return new AnnotationDescriber(method.append(" @").append(parameter).append(':').append(desc));
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitAnnotationDefault() {
+                        return new AnnotationDescriber(method.append(" default"));
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        abi.put(key, method.toString());
+                    }
+                };
+            }
+
+            @Override
+            public void visitEnd() {
+                abi.put(CLASS_KEY, header.toString());
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return abi;
+    }
+
+    /**
+     * Collects the names that a source file may use to refer to the members that differ between the two ABIs of a class
+     * @param oldAbi null if the class did not exist before
+     * @param newAbi null if the class does not exist anymore
+     */
+    public static void collectChangedNames(
+            @NotNull String classInternalName,
+            @Nullable Map<String, String> oldAbi,
+            @Nullable Map<String, String> newAbi,
+            @NotNull Set<String> result
+    ) {
+        Map<String, String> before = oldAbi != null ? oldAbi : Collections.<String, String>emptyMap();
+        Map<String, String> after = newAbi != null ? newAbi : Collections.<String, String>emptyMap();
+
+        Set<String> keys = new HashSet<String>(before.keySet());
+        keys.addAll(after.keySet());
+        for (String key : keys) {
+            String oldValue = before.get(key);
+            String newValue = after.get(key);
+            if (oldValue == null ? newValue == null : oldValue.equals(newValue)) continue;
+
+            if (key.equals(CLASS_KEY)) {
+                addClassNames(classInternalName, result);
+            }
+            else if (key.startsWith(FIELD_PREFIX)) {
+                result.add(key.substring(FIELD_PREFIX.length()));
+            }
+            else {
+                String name = key.substring(METHOD_PREFIX.length(), key.indexOf('('));
+                if (name.equals("<init>") || name.equals("<clinit>")) {
+                    addClassNames(classInternalName, result);
+                }
+                else {
+                    addMethodNames(name, result);
+                }
+            }
+        }
+    }
+
+    private static void addClassNames(@NotNull String classInternalName, @NotNull Set<String> result) {
+        String shortName = classInternalName.substring(classInternalName.lastIndexOf('/') + 1);
+        for (String part : shortName.split("\\$")) {
+            if (!part.isEmpty()) {
+                result.add(part);
+            }
+        }
+    }
+
+    private static void addMethodNames(@NotNull String methodName, @NotNull Set<String> result) {
+        // Synthetic-looking helpers such as foo$default are called for foo
+        int dollar = methodName.indexOf('$');
+        String name = dollar > 0 ? methodName.substring(0, dollar) : methodName;
+        result.add(name);
+
+        // Property accessors are referred to by the property name
+        for (String prefix : new String[] {"get", "set", "is"}) {
+            if (name.length() > prefix.length() && name.startsWith(prefix) && Character.isUpperCase(name.charAt(prefix.length()))) {
+                String propertyName = name.substring(prefix.length());
+                result.add(Character.toLowerCase(propertyName.charAt(0)) + propertyName.substring(1));
+            }
+        }
+    }
+
+    private static boolean isVisible(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) == 0;
+    }
+
+    private static class AnnotationDescriber extends AnnotationVisitor {
+        private final StringBuilder builder;
+
+        public AnnotationDescriber(@NotNull StringBuilder builder) {
+            super(Opcodes.ASM4);
+            this.builder = builder;
+            builder.append('(');
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            builder.append(name).append('=');
+            if (value.getClass().isArray()) {
+                builder.append(arrayToString(value));
+            }
+            else {
+                builder.append(value);
+            }
+            builder.append(',');
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            builder.append(name).append('=').append(desc).append('.').append(value).append(',');
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            return new AnnotationDescriber(builder.append(name).append("=@").append(desc));
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            return new AnnotationDescriber(builder.append(name).append("=[]"));
+        }
+
+        @Override
+        public void visitEnd() {
+            builder.append(')');
+        }
+
+        @NotNull
+        private static String arrayToString(@NotNull Object array) {
+            if (array instanceof byte[]) return Arrays.toString((byte[]) array);
+            if (array instanceof boolean[]) return Arrays.toString((boolean[]) array);
+            if (array instanceof short[]) return Arrays.toString((short[]) array);
+            if (array instanceof char[]) return Arrays.toString((char[]) array);
+            if (array instanceof int[]) return Arrays.toString((int[]) array);
+            if (array instanceof long[]) return Arrays.toString((long[]) array);
+            if (array instanceof float[]) return Arrays.toString((float[]) array);
+            if (array instanceof double[]) return Arrays.toString((double[]) array);
+            return Arrays.toString((Object[]) array);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * What the Kotlin builder remembers about the previous build of a module target:
+ * which class files were generated from each source file, and the ABI ({@link ClassFileAbi}) of each of those class files.
+ *
+ * A class file may be generated from several source files (e.g. the namespace class of a package),
+ * all of them have to be compiled together.
+ */
+public class IncrementalCache {
+    private static final int VERSION = 1;
+
+    private final Map<File, Set<File>> sourceToOutputs = new HashMap<File, Set<File>>();
+    private final Map<File, Set<File>> outputToSources = new HashMap<File, Set<File>>();
+    private final Map<File, SortedMap<String, String>> outputAbi = new HashMap<File, SortedMap<String, String>>();
+
+    /**
+     * @return null if there's no cache or it is unreadable, in this case everything must be recompiled
+     */
+    @Nullable
+    public static IncrementalCache load(@NotNull File file) {
+        if (!file.isFile()) return null;
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != VERSION) return null;
+
+                IncrementalCache cache = new IncrementalCache();
+                int outputCount = in.readInt();
+                for (int i = 0; i < outputCount; i++) {
+                    File output = new File(in.readUTF());
+
+                    int sourceCount = in.readInt();
+                    Set<File> sources = new HashSet<File>();
+                    for (int j = 0; j < sourceCount; j++) {
+                        sources.add(new File(in.readUTF()));
+                    }
+
+                    int entryCount = in.readInt();
+                    SortedMap<String, String> abi = new TreeMap<String, String>();
+                    for (int j = 0; j < entryCount; j++) {
+                        abi.put(in.readUTF(), in.readUTF());
+                    }
+
+                    cache.putOutput(output, sources, abi);
+                }
+                return cache;
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void save(@NotNull File file) throws IOException {
+        FileUtil.createParentDirs(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(outputAbi.size());
+            for (Map.Entry<File, SortedMap<String, String>> entry : outputAbi.entrySet()) {
+                out.writeUTF(entry.getKey().getPath());
+
+                Set<File> sources = outputToSources.get(entry.getKey());
+                out.writeInt(sources.size());
+                for (File source : sources) {
+                    out.writeUTF(source.getPath());
+                }
+
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<String, String> abiEntry : entry.getValue().entrySet()) {
+                    out.writeUTF(abiEntry.getKey());
+                    out.writeUTF(abiEntry.getValue());
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Adds all the source files that share an output with the given ones, transitively
+     */
+    @NotNull
+    public Set<File> withSourcesSharingOutputs(@NotNull Collection<File> sources) {
+        Set<File> result = new LinkedHashSet<File>(sources);
+        Deque<File> queue = new ArrayDeque<File>(sources);
+        while (!queue.isEmpty()) {
+            Set<File> outputs = sourceToOutputs.get(queue.poll());
+            if (outputs == null) continue;
+
+            for (File output : outputs) {
+                for (File source : outputToSources.get(output)) {
+                    if (result.add(source)) {
+                        queue.add(source);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the outputs of the given sources and deletes them from the disk
+     * @return ABIs of the removed outputs
+     */
+    @NotNull
+    public Map<File, SortedMap<String, String>> removeOutputsOf(@NotNull Collection<File> sources) {
+        Map<File, SortedMap<String, String>> removed = new HashMap<File, SortedMap<String, String>>();
+        for (File source : sources) {
+            Set<File> outputs = sourceToOutputs.remove(source);
+            if (outputs == null) continue;
+
+            for (File output : outputs) {
+                SortedMap<String, String> abi = outputAbi.remove(output);
+                if (abi == null) continue;
+
+                removed.put(output, abi);
+                for (File outputSource : outputToSources.remove(output)) {
+                    Set<File> sourceOutputs = sourceToOutputs.get(outputSource);
+                    if (sourceOutputs != null) {
+                        sourceOutputs.remove(output);
+                    }
+                }
+                FileUtil.delete(output);
+            }
+        }
+        return removed;
+    }
+
+    public void putOutput(@NotNull File output, @NotNull Collection<File> sources, @NotNull SortedMap<String, String> abi) {
+        outputAbi.put(output, abi);
+        outputToSources.put(output, new HashSet<File>(sources));
+        for (File source : sources) {
+            Set<File> outputs = sourceToOutputs.get(source);
+            if (outputs == null) {
+                outputs = new HashSet<File>();
+                sourceToOutputs.put(source, outputs);
+            }
+            outputs.add(output);
+        }
+    }
+}
@@ -16,8 +16,10 @@
 
 package org.jetbrains.jet.jps.build;
 
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
 import org.jetbrains.jet.cli.common.messages.MessageCollector;
@@ -25,15 +27,18 @@ import org.jetbrains.jet.compiler.runner.*;
 import org.jetbrains.jet.utils.PathUtil;
 import org.jetbrains.jps.ModuleChunk;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
+import org.jetbrains.jps.builders.java.JavaModuleBuildTargetType;
 import org.jetbrains.jps.builders.java.JavaSourceRootDescriptor;
 import org.jetbrains.jps.incremental.*;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
+import org.jetbrains.jps.model.java.JpsJavaClasspathKind;
+import org.jetbrains.jps.model.java.JpsJavaExtensionService;
+import org.jetbrains.jps.model.module.JpsModule;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.ERROR;
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.EXCEPTION;
@@ -71,46 +76,204 @@ public class KotlinBuilder extends ModuleLevelBuilder {
 
         ModuleBuildTarget representativeTarget = chunk.representativeTarget();
 
-        // For non-incremental build: take all sources
-        if (!KotlinSourceFileCollector.hasDirtyFiles(dirtyFilesHolder)) {
+        List<File> removedFiles = KotlinSourceFileCollector.getRemovedKotlinSourceFiles(dirtyFilesHolder, representativeTarget);
+        if (!KotlinSourceFileCollector.hasDirtyFiles(dirtyFilesHolder) && removedFiles.isEmpty()) {
             return ExitCode.NOTHING_DONE;
         }
-        List<File> sourceFiles = KotlinSourceFileCollector.getAllKotlinSourceFiles(representativeTarget);
-        //List<File> sourceFiles = KotlinSourceFileCollector.getDirtySourceFiles(dirtyFilesHolder);
 
-        if (sourceFiles.isEmpty()) {
-            return ExitCode.NOTHING_DONE;
+        CompilerEnvironment environment = CompilerEnvironment.getEnvironmentFor(
+                PathUtil.getKotlinPathsForJpsPluginOrJpsTests(), representativeTarget.getOutputDir());
+        if (!environment.success()) {
+            environment.reportErrorsTo(messageCollector);
+            return ExitCode.ABORT;
         }
 
-        File scriptFile = KotlinBuilderModuleScriptGenerator.generateModuleScript(context, representativeTarget, sourceFiles);
+        List<File> allSourceFiles = KotlinSourceFileCollector.getAllKotlinSourceFiles(representativeTarget);
 
-        File outputDir = representativeTarget.getOutputDir();
+        File cacheFile = getIncrementalCacheFile(context, representativeTarget);
+        IncrementalCache cache = context.getScope().isRecompilationForced(representativeTarget) ? null : IncrementalCache.load(cacheFile);
+        boolean incremental = cache != null;
 
-        CompilerEnvironment environment = CompilerEnvironment.getEnvironmentFor(PathUtil.getKotlinPathsForJpsPluginOrJpsTests(), outputDir);
-        if (!environment.success()) {
-            environment.reportErrorsTo(messageCollector);
-            return ExitCode.ABORT;
+        Collection<File> sourceFiles;
+        if (incremental) {
+            // Which Kotlin files use the declarations of Java sources is not tracked,
+            // so all the Kotlin sources are recompiled when a Java source has changed
+            List<File> changedFiles = KotlinSourceFileCollector.hasDirtyJavaFiles(dirtyFilesHolder, representativeTarget)
+                                      ? ContainerUtil.newArrayList(allSourceFiles)
+                                      : KotlinSourceFileCollector.getDirtySourceFiles(dirtyFilesHolder);
+            changedFiles.addAll(removedFiles);
+            sourceFiles = cache.withSourcesSharingOutputs(changedFiles);
+        }
+        else {
+            cache = new IncrementalCache();
+            sourceFiles = new LinkedHashSet<File>(allSourceFiles);
+        }
+
+        // Remove the outputs of deleted files, and the outputs that are going to be regenerated
+        Map<File, SortedMap<String, String>> oldAbi = cache.removeOutputsOf(sourceFiles);
+        sourceFiles.removeAll(removedFiles);
+
+        Set<File> compiledFiles = new HashSet<File>();
+        Set<String> changedNames = new HashSet<String>();
+        while (true) {
+            List<File> filesToCompile = ContainerUtil.newArrayList();
+            for (File file : sourceFiles) {
+                if (file.exists()) {
+                    filesToCompile.add(file);
+                }
+            }
+            if (filesToCompile.isEmpty()) break;
+            compiledFiles.addAll(filesToCompile);
+
+            Map<File, SortedMap<String, String>> newAbi = compile(
+                    context, representativeTarget, environment, filesToCompile, incremental, cache, outputConsumer, messageCollector);
+            if (newAbi == null) {
+                // The state of the output is unknown, next build has to start from scratch
+                FileUtil.delete(cacheFile);
+                return ExitCode.OK;
+            }
+
+            Set<String> namesChangedInThisRound = new HashSet<String>();
+            collectChangedNames(representativeTarget.getOutputDir(), oldAbi, newAbi, namesChangedInThisRound);
+            changedNames.addAll(namesChangedInThisRound);
+            if (!incremental) break;
+
+            // Recompile the files that might depend on the changed declarations. Every round compiles at least one new file,
+            // together with the files it shares outputs with
+            List<File> affectedFiles = new ReferencedNamesFilter(namesChangedInThisRound).filterAffected(
+                    ContainerUtil.subtract(allSourceFiles, compiledFiles));
+            sourceFiles = cache.withSourcesSharingOutputs(affectedFiles);
+            oldAbi = cache.removeOutputsOf(sourceFiles);
+        }
+
+        cache.save(cacheFile);
+
+        if (incremental) {
+            markAffectedFilesDirty(context, representativeTarget, new ReferencedNamesFilter(changedNames));
         }
 
+        return compiledFiles.isEmpty() ? ExitCode.NOTHING_DONE : ExitCode.OK;
+    }
+
+    /**
+     * @return the ABI of the generated class files, or null if the compilation failed
+     */
+    @Nullable
+    private static Map<File, SortedMap<String, String>> compile(
+            @NotNull CompileContext context,
+            @NotNull ModuleBuildTarget target,
+            @NotNull CompilerEnvironment environment,
+            @NotNull List<File> sourceFiles,
+            boolean incremental,
+            @NotNull IncrementalCache cache,
+            @NotNull OutputConsumer outputConsumer,
+            @NotNull MessageCollector messageCollector
+    ) throws IOException {
+        File scriptFile = KotlinBuilderModuleScriptGenerator.generateModuleScript(context, target, sourceFiles, incremental);
+
+        File outputDir = target.getOutputDir();
         assert outputDir != null : "CompilerEnvironment must have checked for outputDir to be not null, but it didn't";
 
         OutputItemsCollectorImpl outputItemCollector = new OutputItemsCollectorImpl(outputDir);
+        ErrorTrackingMessageCollector errorTracker = new ErrorTrackingMessageCollector(messageCollector);
 
         KotlinCompilerRunner.runCompiler(
-                messageCollector,
+                errorTracker,
                 environment,
                 scriptFile,
                 outputItemCollector,
                 /*runOutOfProcess = */false);
 
+        Map<File, SortedMap<String, String>> abi = new HashMap<File, SortedMap<String, String>>();
         for (SimpleOutputItem outputItem : outputItemCollector.getOutputs()) {
+            File outputFile = outputItem.getOutputFile();
             outputConsumer.registerOutputFile(
-                    representativeTarget,
-                    outputItem.getOutputFile(),
+                    target,
+                    outputFile,
                     paths(outputItem.getSourceFiles()));
+
+            if (outputFile.getName().endsWith(".class") && outputFile.isFile()) {
+                SortedMap<String, String> classAbi = ClassFileAbi.compute(FileUtil.loadFileBytes(outputFile));
+                abi.put(outputFile, classAbi);
+                cache.putOutput(outputFile, outputItem.getSourceFiles(), classAbi);
+            }
+        }
+
+        return errorTracker.hasErrors() ? null : abi;
+    }
+
+    private static void collectChangedNames(
+            @NotNull File outputDir,
+            @NotNull Map<File, SortedMap<String, String>> oldAbi,
+            @NotNull Map<File, SortedMap<String, String>> newAbi,
+            @NotNull Set<String> result
+    ) {
+        Set<File> classFiles = new HashSet<File>(oldAbi.keySet());
+        classFiles.addAll(newAbi.keySet());
+        for (File classFile : classFiles) {
+            String relativePath = FileUtil.getRelativePath(outputDir, classFile);
+            String internalName = FileUtil.toSystemIndependentName(relativePath != null ? relativePath : classFile.getName());
+            internalName = internalName.substring(0, internalName.length() - ".class".length());
+            ClassFileAbi.collectChangedNames(internalName, oldAbi.get(classFile), newAbi.get(classFile), result);
+        }
+    }
+
+    /**
+     * Java sources of this target and all the sources of the dependent targets are compiled by other builders or later,
+     * so they are only marked dirty
+     */
+    private static void markAffectedFilesDirty(
+            @NotNull CompileContext context,
+            @NotNull ModuleBuildTarget target,
+            @NotNull ReferencedNamesFilter filter
+    ) throws IOException {
+        if (filter.isEmpty()) return;
+
+        for (File file : filter.filterAffected(KotlinSourceFileCollector.getAllJavaSourceFiles(target))) {
+            FSOperations.markDirty(context, file);
+        }
+
+        for (ModuleBuildTarget dependentTarget : getDependentTargets(context, target)) {
+            List<File> files = ContainerUtil.concat(
+                    KotlinSourceFileCollector.getAllKotlinSourceFiles(dependentTarget),
+                    KotlinSourceFileCollector.getAllJavaSourceFiles(dependentTarget));
+            for (File file : filter.filterAffected(files)) {
+                FSOperations.markDirty(context, file);
+            }
         }
+    }
+
+    @NotNull
+    private static List<ModuleBuildTarget> getDependentTargets(@NotNull CompileContext context, @NotNull ModuleBuildTarget target) {
+        JpsModule module = target.getModule();
+        List<ModuleBuildTarget> result = ContainerUtil.newArrayList();
+        for (JpsModule candidate : context.getProjectDescriptor().getProject().getModules()) {
+            for (boolean tests : new boolean[] {false, true}) {
+                // Production code never sees tests
+                if (target.isTests() && !tests) continue;
 
-        return ExitCode.OK;
+                boolean dependsOnTarget;
+                if (candidate.equals(module)) {
+                    // Tests of a module see its production code
+                    dependsOnTarget = tests && !target.isTests();
+                }
+                else {
+                    dependsOnTarget = JpsJavaExtensionService.dependencies(candidate)
+                            .includedIn(JpsJavaClasspathKind.compile(tests)).recursively().getModules().contains(module);
+                }
+
+                if (dependsOnTarget) {
+                    result.add(new ModuleBuildTarget(candidate, tests ? JavaModuleBuildTargetType.TEST : JavaModuleBuildTargetType.PRODUCTION));
+                }
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private static File getIncrementalCacheFile(@NotNull CompileContext context, @NotNull ModuleBuildTarget target) {
+        File dataRoot = context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target);
+        return new File(dataRoot, "kotlin" + File.separator + "incremental-cache.bin");
     }
 
     private static Collection<String> paths(Collection<File> files) {
@@ -121,6 +284,31 @@ public class KotlinBuilder extends ModuleLevelBuilder {
         return result;
     }
 
+    private static class ErrorTrackingMessageCollector implements MessageCollector {
+        private final MessageCollector delegate;
+        private boolean hasErrors = false;
+
+        public ErrorTrackingMessageCollector(@NotNull MessageCollector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void report(
+                @NotNull CompilerMessageSeverity severity,
+                @NotNull String message,
+                @NotNull CompilerMessageLocation location
+        ) {
+            if (severity == ERROR || severity == EXCEPTION) {
+                hasErrors = true;
+            }
+            delegate.report(severity, message, location);
+        }
+
+        public boolean hasErrors() {
+            return hasErrors;
+        }
+    }
+
     public static class MessageCollectorAdapter implements MessageCollector {
 
         private final CompileContext context;
@@ -21,6 +21,7 @@ import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.compiler.runner.KotlinModuleScriptGenerator;
+import org.jetbrains.jet.compiler.runner.KotlinModuleXmlGenerator;
 import org.jetbrains.jps.builders.java.JavaSourceRootDescriptor;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.ModuleBuildTarget;
@@ -44,23 +45,26 @@ import java.util.List;
 import static org.jetbrains.jet.compiler.runner.KotlinModuleScriptGenerator.DependencyProvider;
 
 public class KotlinBuilderModuleScriptGenerator {
-    public static File generateModuleScript(CompileContext context, ModuleBuildTarget target, List<File> sourceFiles)
+    /**
+     * @param incremental true if only a part of the module is compiled, and the rest is taken from the output directory
+     */
+    public static File generateModuleScript(CompileContext context, ModuleBuildTarget target, List<File> sourceFiles, boolean incremental)
             throws IOException
     {
-        CharSequence moduleScriptText = KotlinModuleScriptGenerator.generateModuleScript(
+        CharSequence moduleDescription = KotlinModuleXmlGenerator.generateModuleDescription(
                 target.getId(),
                 getKotlinModuleDependencies(context, target),
                 sourceFiles,
                 target.isTests(),
-                // this excludes the output directory from the class path, to be removed for true incremental compilation
-                Collections.singleton(target.getOutputDir())
+                // On a full build the output directory may only contain the results of the previous build, which must not be seen
+                incremental ? Collections.<File>emptySet() : Collections.singleton(target.getOutputDir())
         );
 
-        File scriptFile = new File(target.getOutputDir(), "script.kts");
+        File moduleFile = new File(target.getOutputDir(), "module.xml");
 
-        writeScriptToFile(context, moduleScriptText, scriptFile);
+        writeModuleToFile(context, moduleDescription, moduleFile);
 
-        return scriptFile;
+        return moduleFile;
     }
 
     private static DependencyProvider getKotlinModuleDependencies(final CompileContext context, final ModuleBuildTarget target) {
@@ -74,12 +78,12 @@ public class KotlinBuilderModuleScriptGenerator {
         };
     }
 
-    private static void writeScriptToFile(CompileContext context, CharSequence moduleScriptText, File scriptFile) throws IOException {
-        FileUtil.writeToFile(scriptFile, moduleScriptText.toString());
+    private static void writeModuleToFile(CompileContext context, CharSequence moduleDescription, File moduleFile) throws IOException {
+        FileUtil.writeToFile(moduleFile, moduleDescription.toString());
         context.processMessage(new CompilerMessage(
                 "Kotlin",
                 BuildMessage.Kind.INFO,
-                "Created script file: " + scriptFile
+                "Created module description file: " + moduleFile
         ));
     }
 
@@ -66,14 +66,65 @@ public class KotlinSourceFileCollector {
         return result.get();
     }
 
+    // For incremental compilation
+    public static boolean hasDirtyJavaFiles(
+            @NotNull DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+            @NotNull ModuleBuildTarget target
+    ) throws IOException {
+        for (String path : dirtyFilesHolder.getRemovedFiles(target)) {
+            if (isJavaSourceFile(new File(path))) {
+                return true;
+            }
+        }
+
+        final Ref<Boolean> result = Ref.create(false);
+
+        dirtyFilesHolder.processDirtyFiles(new FileProcessor<JavaSourceRootDescriptor, ModuleBuildTarget>() {
+            @Override
+            public boolean apply(ModuleBuildTarget target, File file, JavaSourceRootDescriptor root) throws IOException {
+                if (isJavaSourceFile(file)) {
+                    result.set(true);
+                    return false;
+                }
+                return true;
+            }
+        });
+        return result.get();
+    }
+
+    @NotNull
+    public static List<File> getRemovedKotlinSourceFiles(
+            @NotNull DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+            @NotNull ModuleBuildTarget target
+    ) {
+        List<File> result = ContainerUtil.newArrayList();
+        for (String path : dirtyFilesHolder.getRemovedFiles(target)) {
+            File file = new File(path);
+            if (isKotlinSourceFile(file)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
     @NotNull
     public static List<File> getAllKotlinSourceFiles(@NotNull ModuleBuildTarget target) {
+        return getAllSourceFiles(target, false);
+    }
+
+    @NotNull
+    public static List<File> getAllJavaSourceFiles(@NotNull ModuleBuildTarget target) {
+        return getAllSourceFiles(target, true);
+    }
+
+    @NotNull
+    private static List<File> getAllSourceFiles(@NotNull ModuleBuildTarget target, final boolean java) {
         final List<File> result = ContainerUtil.newArrayList();
         for (JpsModuleSourceRoot sourceRoot : getRelevantSourceRoots(target)) {
             FileUtil.processFilesRecursively(sourceRoot.getFile(), new Processor<File>() {
                 @Override
                 public boolean process(File file) {
-                    if (file.isFile() && isKotlinSourceFile(file)) {
+                    if (file.isFile() && (java ? isJavaSourceFile(file) : isKotlinSourceFile(file))) {
                         result.add(file);
                     }
                     return true;
@@ -94,5 +145,9 @@ public class KotlinSourceFileCollector {
         return file.getPath().endsWith(".kt");
     }
 
+    private static boolean isJavaSourceFile(File file) {
+        return file.getPath().endsWith(".java");
+    }
+
     private KotlinSourceFileCollector() {}
 }
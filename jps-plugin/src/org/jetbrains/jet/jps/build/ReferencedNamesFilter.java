@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Decides which source files may be affected by a change of the given names.
+ * A file is considered affected if it mentions any of the names, so this is a conservative approximation of name resolution.
+ * Names that may be used implicitly (operator conventions, iteration, multi-declarations etc) affect every file.
+ */
+public class ReferencedNamesFilter {
+    private static final Set<String> IMPLICITLY_USED_NAMES = new HashSet<String>(Arrays.asList(
+            "plus", "minus", "times", "div", "mod", "rangeTo", "inc", "dec", "not",
+            "plusAssign", "minusAssign", "timesAssign", "divAssign", "modAssign",
+            "get", "set", "invoke", "iterator", "next", "hasNext", "contains", "equals", "compareTo", "toString",
+            "propertyDelegated"
+    ));
+
+    private final Set<String> changedNames;
+    private final boolean affectsEverything;
+
+    public ReferencedNamesFilter(@NotNull Set<String> changedNames) {
+        this.changedNames = changedNames;
+        this.affectsEverything = isImplicitlyUsed(changedNames);
+    }
+
+    public boolean isEmpty() {
+        return changedNames.isEmpty();
+    }
+
+    @NotNull
+    public List<File> filterAffected(@NotNull Collection<File> files) throws IOException {
+        List<File> result = new ArrayList<File>();
+        for (File file : files) {
+            if (affectsEverything || mentionsChangedName(file)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private boolean mentionsChangedName(@NotNull File file) throws IOException {
+        char[] text = FileUtil.loadFileText(file);
+        int i = 0;
+        while (i < text.length) {
+            if (Character.isJavaIdentifierStart(text[i])) {
+                int start = i;
+                while (i < text.length && Character.isJavaIdentifierPart(text[i])) i++;
+                if (changedNames.contains(new String(text, start, i - start))) return true;
+            }
+            else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isImplicitlyUsed(@NotNull Set<String> names) {
+        for (String name : names) {
+            if (IMPLICITLY_USED_NAMES.contains(name) || name.matches("component\\d+")) return true;
+            // Names in backticks can't be found by the identifier scan
+            if (!isIdentifier(name)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isIdentifier(@NotNull String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) return false;
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -90,4 +90,32 @@ public class KotlinJpsBuildTestCase extends AbstractKotlinJpsBuildTestCase {
         makeAll().assertFailed();
     }
 
+    public void testIncrementalProject() throws Throwable {
+        initProject();
+        makeAll().assertSuccessful();
+
+        File unrelatedClass = new File(workDir, "out/production/kotlinProject/c/CPackage.class");
+        assertTrue(unrelatedClass.exists());
+        assertTrue(unrelatedClass.setLastModified(0));
+
+        // A change of a function body doesn't affect other files
+        change(workDir + "/src/a/a.kt", "package a\n\nclass A {\n    fun foo(): Int = 2\n}\n");
+        makeAll().assertSuccessful();
+        assertEquals(0, unrelatedClass.lastModified());
+
+        // A change of a signature recompiles the files that use it
+        change(workDir + "/src/a/a.kt", "package a\n\nclass A {\n    fun foo(): String = \"\"\n}\n");
+        makeAll().assertFailed();
+        assertEquals(0, unrelatedClass.lastModified());
+    }
+
+    public void testIncrementalJavaProject() throws Throwable {
+        initProject();
+        makeAll().assertSuccessful();
+
+        // Kotlin files are recompiled when a Java file they might use has changed
+        change(workDir + "/src/j/J.java", "package j;\n\npublic class J {\n    public static String value() {\n        return \"\";\n    }\n}\n");
+        makeAll().assertFailed();
+    }
+
 }
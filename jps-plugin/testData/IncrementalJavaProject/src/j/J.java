@@ -0,0 +1,7 @@
+package j;
+
+public class J {
+    public static int value() {
+        return 1;
+    }
+}
@@ -0,0 +1,3 @@
+package k
+
+fun value(): Int = j.J.value()
@@ -0,0 +1,5 @@
+package a
+
+class A {
+    fun foo(): Int = 1
+}
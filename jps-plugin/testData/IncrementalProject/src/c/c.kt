@@ -0,0 +1,3 @@
+package c
+
+fun baz(): Int = 42
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.k2js.test;
+
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.TimeUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.k2js.config.Config;
+import org.jetbrains.k2js.config.EcmaVersion;
+import org.jetbrains.k2js.config.LibrarySourcesConfig;
+import org.jetbrains.k2js.config.SerializedLibraryConfig;
+import org.jetbrains.k2js.facade.K2JSTranslator;
+import org.jetbrains.k2js.facade.MainCallParameters;
+import org.jetbrains.k2js.test.config.TestConfig;
+import org.jetbrains.k2js.utils.JetFileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the time to compile a small program to JS when the library is analyzed from sources on every run, as the command line
+ * compiler used to do, and when its serialized descriptors are loaded. The first round approximates a cold start, the best one
+ * a warmed up JVM.
+ */
+public class SerializedLibraryBenchmark {
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        JetCoreEnvironment environment =
+                new JetCoreEnvironment(CompileEnvironmentUtil.createMockDisposable(), new CompilerConfiguration());
+        final Project project = environment.getProject();
+        final List<String> libraryPaths = SerializedLibraryTest.getLibraryFilePaths();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializedLibraryConfig.writeLibrary(project, JetFileUtils.createPsiFileList(libraryPaths, project), out);
+        final byte[] bytes = out.toByteArray();
+        System.out.println("Serialized library: " + bytes.length + " bytes");
+
+        measure("Library sources", new ConfigFactory() {
+            @NotNull
+            @Override
+            public Config create() {
+                return new LibrarySourcesConfig(project, Config.REWRITABLE_MODULE_NAME, libraryPaths, EcmaVersion.defaultVersion());
+            }
+        }, project);
+        measure("Serialized library", new ConfigFactory() {
+            @NotNull
+            @Override
+            public Config create() throws Exception {
+                BindingContext context = SerializedLibraryConfig.loadLibrary(new ByteArrayInputStream(bytes));
+                return new TestConfig(project, EcmaVersion.defaultVersion(), Collections.<JetFile>emptyList(), context);
+            }
+        }, project);
+    }
+
+    private interface ConfigFactory {
+        @NotNull
+        Config create() throws Exception;
+    }
+
+    private static void measure(@NotNull String name, @NotNull ConfigFactory configFactory, @NotNull Project project)
+            throws Exception {
+        long first = -1;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.currentTimeMillis();
+            JetFile file = JetFileUtils.createPsiFile("test", SerializedLibraryTest.PROGRAM, project);
+            new K2JSTranslator(configFactory.create()).generateProgramCode(file, MainCallParameters.noCall());
+            long time = System.currentTimeMillis() - start;
+            if (first < 0) {
+                first = time;
+            }
+            best = Math.min(best, time);
+        }
+        System.out.println(name + ": first " + TimeUtils.millisecondsToSecondsString(first) + " s, " +
+                           "best " + TimeUtils.millisecondsToSecondsString(best) + " s");
+    }
+}
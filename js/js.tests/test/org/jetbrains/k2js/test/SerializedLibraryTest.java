@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.k2js.test;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.k2js.config.Config;
+import org.jetbrains.k2js.config.EcmaVersion;
+import org.jetbrains.k2js.config.SerializedLibraryConfig;
+import org.jetbrains.k2js.facade.K2JSTranslator;
+import org.jetbrains.k2js.facade.MainCallParameters;
+import org.jetbrains.k2js.test.config.TestConfig;
+import org.jetbrains.k2js.test.utils.TranslationUtils;
+import org.jetbrains.k2js.utils.JetFileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class SerializedLibraryTest extends KotlinTestWithEnvironment {
+    // Uses annotations, an object, a class object and a constructor with a default value from the library
+    static final String PROGRAM = "package foo\n" +
+                                          "\n" +
+                                          "import java.io.IOException\n" +
+                                          "import java.util.ArrayList\n" +
+                                          "import java.util.Collections\n" +
+                                          "import org.w3c.dom.Node\n" +
+                                          "\n" +
+                                          "native fun nativeAlert(message: String): Unit = js.noImpl\n" +
+                                          "\n" +
+                                          "fun box(): String {\n" +
+                                          "    val list = ArrayList<Int>()\n" +
+                                          "    list.add(Node.ELEMENT_NODE.toInt())\n" +
+                                          "    println(Collections.emptyList.size() + list.size())\n" +
+                                          "    nativeAlert(IOException().getMessage() ?: \"\")\n" +
+                                          "    return \"OK\"\n" +
+                                          "}\n";
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return new JetCoreEnvironment(getTestRootDisposable(), new CompilerConfiguration());
+    }
+
+    public void testSameOutputAsLibrarySources() throws Exception {
+        Config sourcesConfig = TranslationUtils.getConfig(getProject(), EcmaVersion.defaultVersion(), TestConfig.FACTORY);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<JetFile> libraryFiles = JetFileUtils.createPsiFileList(getLibraryFilePaths(), getProject());
+        SerializedLibraryConfig.writeLibrary(getProject(), libraryFiles, out);
+        BindingContext deserializedContext = SerializedLibraryConfig.loadLibrary(new ByteArrayInputStream(out.toByteArray()));
+        Config serializedConfig = new TestConfig(getProject(), EcmaVersion.defaultVersion(), Collections.<JetFile>emptyList(),
+                                                 deserializedContext);
+
+        assertEquals(translate(sourcesConfig), translate(serializedConfig));
+    }
+
+    @NotNull
+    private String translate(@NotNull Config config) throws Exception {
+        JetFile file = JetFileUtils.createPsiFile("test", PROGRAM, getProject());
+        return new K2JSTranslator(config).generateProgramCode(file, MainCallParameters.noCall());
+    }
+
+    @NotNull
+    static List<String> getLibraryFilePaths() {
+        List<String> paths = new ArrayList<String>();
+        for (String fileName : Config.LIB_FILE_NAMES) {
+            paths.add(Config.LIBRARIES_LOCATION + fileName);
+        }
+        return paths;
+    }
+}
@@ -116,7 +116,7 @@ public final class AnalyzerFacadeForJS {
 
         return AnalyzerFacadeForEverything.analyzeBodiesInFilesWithJavaIntegration(
                 config.getProject(), Collections.<AnalyzerScriptParameter>emptyList(), completely, traceContext, bodiesResolveContext,
-                configuration);
+                configuration, false);
     }
 
     public static void checkForErrors(@NotNull Collection<JetFile> allFiles, @NotNull BindingContext bindingContext) {
@@ -46,7 +46,8 @@ public class JsConfiguration implements ModuleConfiguration {
             new ImportPath("kotlin.*"));
 
     /*
-     * Adds a possibility to inject some preanalyzed files to speed up tests.
+     * Adds a possibility to inject some preanalyzed files to speed up tests,
+     * or the library descriptors loaded from a serialized file (see SerializedLibraryConfig).
      */
     @Nullable
     private final BindingContext preanalyzedContext;
@@ -87,7 +88,10 @@ public class JsConfiguration implements ModuleConfiguration {
         if (isNamespaceImportedByDefault(namespaceDescriptor) || isRootNamespace(namespaceDescriptor)) {
             FqName descriptorName = DescriptorUtils.getFQName(namespaceDescriptor).toSafe();
             NamespaceDescriptor alreadyAnalyzedNamespace = preanalyzedContext.get(BindingContext.FQNAME_TO_NAMESPACE_DESCRIPTOR, descriptorName);
-            namespaceMemberScope.importScope(alreadyAnalyzedNamespace.getMemberScope());
+            // A serialized library has no packages which are imported by default but don't declare anything
+            if (alreadyAnalyzedNamespace != null) {
+                namespaceMemberScope.importScope(alreadyAnalyzedNamespace.getMemberScope());
+            }
         }
     }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.k2js.config;
+
+import com.google.common.base.Predicates;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.descriptors.serialization.DescriptorSerializer;
+import org.jetbrains.jet.lang.descriptors.serialization.DeserializedLibrary;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.*;
+import org.jetbrains.jet.lang.resolve.lazy.storage.LockBasedStorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.k2js.analyze.AnalyzerFacadeForJS;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * A Config implementation which loads the descriptors of the JS library files ({@link Config#LIB_FILE_NAMES}) serialized
+ * at build time, instead of analyzing their sources for every compilation
+ */
+public class SerializedLibraryConfig extends Config {
+    @NotNull
+    public static final String SERIALIZED_LIBRARY_FILE = "k2js/library.bin";
+
+    @NotNull
+    private final URL serializedLibrary;
+    @Nullable
+    private BindingContext libraryContext = null;
+
+    public SerializedLibraryConfig(@NotNull Project project, @NotNull String moduleId, @NotNull EcmaVersion version,
+            @NotNull URL serializedLibrary) {
+        super(project, moduleId, version);
+        this.serializedLibrary = serializedLibrary;
+    }
+
+    @Nullable
+    public static URL findSerializedLibrary() {
+        return SerializedLibraryConfig.class.getClassLoader().getResource(SERIALIZED_LIBRARY_FILE);
+    }
+
+    @NotNull
+    @Override
+    protected List<JetFile> generateLibFiles() {
+        return Collections.emptyList();
+    }
+
+    @NotNull
+    @Override
+    public BindingContext getLibraryBindingContext() {
+        if (libraryContext == null) {
+            try {
+                InputStream stream = serializedLibrary.openStream();
+                try {
+                    libraryContext = loadLibrary(new BufferedInputStream(stream));
+                }
+                finally {
+                    stream.close();
+                }
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Can't load the serialized JS library from " + serializedLibrary, e);
+            }
+        }
+        return libraryContext;
+    }
+
+    /**
+     * Analyzes the library files completely, so that constant default values of parameters are known, and writes the descriptors
+     * of all the packages they declare
+     */
+    public static void writeLibrary(@NotNull Project project, @NotNull List<JetFile> libraryFiles, @NotNull OutputStream stream)
+            throws IOException {
+        BindingContext context = AnalyzerFacadeForJS.analyzeFiles(
+                libraryFiles, Predicates.<PsiFile>alwaysTrue(), getEmptyConfig(project)).getBindingContext();
+        AnalyzerFacadeForJS.checkForErrors(libraryFiles, context);
+
+        Map<FqName, NamespaceDescriptor> packages = new TreeMap<FqName, NamespaceDescriptor>(new Comparator<FqName>() {
+            @Override
+            public int compare(FqName first, FqName second) {
+                // A package goes after its parent, because the name of the parent is a prefix of its name
+                return first.getFqName().compareTo(second.getFqName());
+            }
+        });
+        for (JetFile file : libraryFiles) {
+            NamespaceDescriptor namespace = context.get(BindingContext.FILE_TO_NAMESPACE, file);
+            assert namespace != null : "No namespace for " + file.getName();
+            while (!DescriptorUtils.isRootNamespace(namespace)) {
+                packages.put(namespace.getFqName(), namespace);
+                namespace = (NamespaceDescriptor) namespace.getContainingDeclaration();
+            }
+        }
+
+        DescriptorSerializer.serializeLibrary(new ArrayList<NamespaceDescriptor>(packages.values()), context, stream);
+    }
+
+    /**
+     * @return a context with every package of the library recorded under {@link BindingContext#FQNAME_TO_NAMESPACE_DESCRIPTOR}
+     */
+    @NotNull
+    public static BindingContext loadLibrary(@NotNull InputStream stream) throws IOException {
+        LockBasedStorageManager storageManager = new LockBasedStorageManager();
+        BindingTrace trace = storageManager.createSafeTrace(new BindingTraceContext());
+        ModuleDescriptor module = new ModuleDescriptor(Name.special("<serialized js library>"));
+        DeserializedLibrary.read(module, stream, storageManager, trace);
+        return trace.getBindingContext();
+    }
+}
@@ -23,7 +23,6 @@ import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
-import org.jetbrains.jet.lang.resolve.constants.NullValue;
 import org.jetbrains.k2js.translate.context.TemporaryVariable;
 import org.jetbrains.k2js.translate.context.TranslationContext;
 import org.jetbrains.k2js.translate.declaration.ClassTranslator;
@@ -54,29 +53,11 @@ public final class ExpressionVisitor extends TranslatorVisitor<JsNode> {
         CompileTimeConstant<?> compileTimeValue = context.bindingContext().get(BindingContext.COMPILE_TIME_VALUE, expression);
         assert compileTimeValue != null;
 
-        if (compileTimeValue instanceof NullValue) {
-            return JsLiteral.NULL;
+        JsExpression result = Translation.translateConstant(compileTimeValue, context);
+        if (result == null) {
+            throw new AssertionError(message(expression, "Unsupported constant expression"));
         }
-
-        Object value = compileTimeValue.getValue();
-        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
-            return context.program().getNumberLiteral(((Number) value).intValue());
-        }
-        else if (value instanceof Number) {
-            return context.program().getNumberLiteral(((Number) value).doubleValue());
-        }
-        else if (value instanceof Boolean) {
-            return JsLiteral.getBoolean((Boolean) value);
-        }
-
-        //TODO: test
-        if (value instanceof String) {
-            return context.program().getStringLiteral((String) value);
-        }
-        if (value instanceof Character) {
-            return context.program().getStringLiteral(value.toString());
-        }
-        throw new AssertionError(message(expression, "Unsupported constant expression"));
+        return result;
     }
 
     @Override
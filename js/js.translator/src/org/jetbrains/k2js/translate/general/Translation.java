@@ -22,6 +22,8 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.FunctionDescriptor;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
+import org.jetbrains.jet.lang.resolve.constants.NullValue;
 import org.jetbrains.k2js.config.Config;
 import org.jetbrains.k2js.facade.MainCallParameters;
 import org.jetbrains.k2js.facade.exceptions.MainFunctionNotFoundException;
@@ -112,6 +114,36 @@ public final class Translation {
         return convertToExpression(translateExpression(expression, context));
     }
 
+    /**
+     * @return null if the constant has a type which can't be represented in JavaScript
+     */
+    @Nullable
+    public static JsExpression translateConstant(@NotNull CompileTimeConstant<?> constant, @NotNull TranslationContext context) {
+        if (constant instanceof NullValue) {
+            return JsLiteral.NULL;
+        }
+
+        Object value = constant.getValue();
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return context.program().getNumberLiteral(((Number) value).intValue());
+        }
+        else if (value instanceof Number) {
+            return context.program().getNumberLiteral(((Number) value).doubleValue());
+        }
+        else if (value instanceof Boolean) {
+            return JsLiteral.getBoolean((Boolean) value);
+        }
+
+        //TODO: test
+        if (value instanceof String) {
+            return context.program().getStringLiteral((String) value);
+        }
+        if (value instanceof Character) {
+            return context.program().getStringLiteral(value.toString());
+        }
+        return null;
+    }
+
     @NotNull
     public static JsStatement translateAsStatement(@NotNull JetExpression expression,
             @NotNull TranslationContext context) {
@@ -26,6 +26,7 @@ import org.jetbrains.jet.lang.psi.JetCallExpression;
 import org.jetbrains.jet.lang.psi.JetExpression;
 import org.jetbrains.jet.lang.psi.ValueArgument;
 import org.jetbrains.jet.lang.resolve.calls.model.*;
+import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
 import org.jetbrains.k2js.translate.context.TranslationContext;
 import org.jetbrains.k2js.translate.general.AbstractTranslator;
 import org.jetbrains.k2js.translate.general.Translation;
@@ -35,6 +36,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.jetbrains.k2js.translate.utils.BindingUtils.getDefaultArgument;
+import static org.jetbrains.k2js.translate.utils.BindingUtils.getDeserializedDefaultValue;
 import static org.jetbrains.k2js.translate.utils.BindingUtils.getResolvedCallForCallExpression;
 
 public abstract class AbstractCallExpressionTranslator extends AbstractTranslator {
@@ -68,8 +70,7 @@ public abstract class AbstractCallExpressionTranslator extends AbstractTranslato
             return translateVarargArgument(valueArguments);
         }
         if (actualArgument instanceof DefaultValueArgument) {
-            JetExpression defaultArgument = getDefaultArgument(bindingContext(), parameterDescriptor);
-            return Arrays.asList(Translation.translateAsExpression(defaultArgument, context()));
+            return Arrays.asList(translateDefaultArgument(parameterDescriptor));
         }
         assert actualArgument instanceof ExpressionValueArgument;
         assert valueArguments.size() == 1;
@@ -78,6 +79,19 @@ public abstract class AbstractCallExpressionTranslator extends AbstractTranslato
         return Arrays.asList(Translation.translateAsExpression(argumentExpression, context()));
     }
 
+    @NotNull
+    private JsExpression translateDefaultArgument(@NotNull ValueParameterDescriptor parameterDescriptor) {
+        // Parameters of functions from a serialized library have no declarations, only the constant default values are known
+        CompileTimeConstant<?> deserializedDefaultValue = getDeserializedDefaultValue(bindingContext(), parameterDescriptor);
+        if (deserializedDefaultValue != null) {
+            JsExpression result = Translation.translateConstant(deserializedDefaultValue, context());
+            assert result != null : "Unsupported default value of a deserialized parameter: " + deserializedDefaultValue;
+            return result;
+        }
+        JetExpression defaultArgument = getDefaultArgument(bindingContext(), parameterDescriptor);
+        return Translation.translateAsExpression(defaultArgument, context());
+    }
+
     @NotNull
     private List<JsExpression> translateVarargArgument(@NotNull List<ValueArgument> arguments) {
         List<JsExpression> translatedArgs = Lists.newArrayList();
@@ -202,6 +202,17 @@ public final class BindingUtils {
         return null;
     }
 
+    /**
+     * @return the default value of a parameter deserialized from a library, null if the parameter has a declaration
+     */
+    @Nullable
+    public static CompileTimeConstant<?> getDeserializedDefaultValue(@NotNull BindingContext context,
+            @NotNull ValueParameterDescriptor parameterDescriptor) {
+        ValueParameterDescriptor descriptorWhichDeclaresDefaultValue =
+                getOriginalDescriptorWhichDeclaresDefaultValue(context, parameterDescriptor);
+        return context.get(BindingContext.DESERIALIZED_DEFAULT_VALUE, descriptorWhichDeclaresDefaultValue.getOriginal());
+    }
+
     @NotNull
     public static JetExpression getDefaultArgument(@NotNull BindingContext context,
             @NotNull ValueParameterDescriptor parameterDescriptor) {
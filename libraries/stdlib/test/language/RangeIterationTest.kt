@@ -280,4 +280,72 @@ public class RangeIterationTest {
         doTest(j.Double.NaN downTo j.Double.NaN, j.Double.NaN, j.Double.NaN, -1.0, listOf())
         doTest(j.Float.NaN downTo j.Float.NaN, j.Float.NaN, j.Float.NaN, -1.0.toFloat(), listOf())
     }
-}
\ No newline at end of file
+
+    test fun maxValueToMaxValue() {
+        doTest(j.Integer.MAX_VALUE..j.Integer.MAX_VALUE, j.Integer.MAX_VALUE, j.Integer.MAX_VALUE, 1, listOf(j.Integer.MAX_VALUE))
+        doTest(j.Byte.MAX_VALUE.toByte()..j.Byte.MAX_VALUE.toByte(), j.Byte.MAX_VALUE.toByte(), j.Byte.MAX_VALUE.toByte(), 1,
+                listOf(j.Byte.MAX_VALUE.toByte()))
+        doTest(j.Short.MAX_VALUE.toShort()..j.Short.MAX_VALUE.toShort(), j.Short.MAX_VALUE.toShort(), j.Short.MAX_VALUE.toShort(), 1,
+                listOf(j.Short.MAX_VALUE.toShort()))
+        doTest(j.Long.MAX_VALUE.toLong()..j.Long.MAX_VALUE.toLong(), j.Long.MAX_VALUE.toLong(), j.Long.MAX_VALUE.toLong(), 1.toLong(),
+                listOf(j.Long.MAX_VALUE.toLong()))
+
+        doTest(j.Character.MAX_VALUE.toChar()..j.Character.MAX_VALUE.toChar(), j.Character.MAX_VALUE.toChar(), j.Character.MAX_VALUE.toChar(), 1,
+                listOf(j.Character.MAX_VALUE.toChar()))
+    }
+
+    test fun maxValueMinusTwoToMaxValue() {
+        doTest((j.Integer.MAX_VALUE - 2)..j.Integer.MAX_VALUE, j.Integer.MAX_VALUE - 2, j.Integer.MAX_VALUE, 1,
+                listOf(j.Integer.MAX_VALUE - 2, j.Integer.MAX_VALUE - 1, j.Integer.MAX_VALUE))
+        doTest((j.Byte.MAX_VALUE - 2).toByte()..j.Byte.MAX_VALUE.toByte(), (j.Byte.MAX_VALUE - 2).toByte(), j.Byte.MAX_VALUE.toByte(), 1,
+                listOf((j.Byte.MAX_VALUE - 2).toByte(), (j.Byte.MAX_VALUE - 1).toByte(), j.Byte.MAX_VALUE.toByte()))
+        doTest((j.Short.MAX_VALUE - 2).toShort()..j.Short.MAX_VALUE.toShort(), (j.Short.MAX_VALUE - 2).toShort(), j.Short.MAX_VALUE.toShort(), 1,
+                listOf((j.Short.MAX_VALUE - 2).toShort(), (j.Short.MAX_VALUE - 1).toShort(), j.Short.MAX_VALUE.toShort()))
+        doTest((j.Long.MAX_VALUE - 2).toLong()..j.Long.MAX_VALUE.toLong(), (j.Long.MAX_VALUE - 2).toLong(), j.Long.MAX_VALUE.toLong(), 1.toLong(),
+                listOf((j.Long.MAX_VALUE - 2).toLong(), (j.Long.MAX_VALUE - 1).toLong(), j.Long.MAX_VALUE.toLong()))
+
+        doTest((j.Character.MAX_VALUE - 2).toChar()..j.Character.MAX_VALUE.toChar(), (j.Character.MAX_VALUE - 2).toChar(), j.Character.MAX_VALUE.toChar(), 1,
+                listOf((j.Character.MAX_VALUE - 2).toChar(), (j.Character.MAX_VALUE - 1).toChar(), j.Character.MAX_VALUE.toChar()))
+    }
+
+    test fun progressionMaxValueMinusFiveToMaxValue() {
+        doTest((j.Integer.MAX_VALUE - 5)..j.Integer.MAX_VALUE step 3, j.Integer.MAX_VALUE - 5, j.Integer.MAX_VALUE, 3,
+                listOf(j.Integer.MAX_VALUE - 5, j.Integer.MAX_VALUE - 2))
+        doTest((j.Byte.MAX_VALUE - 5).toByte()..j.Byte.MAX_VALUE.toByte() step 3, (j.Byte.MAX_VALUE - 5).toByte(), j.Byte.MAX_VALUE.toByte(), 3,
+                listOf((j.Byte.MAX_VALUE - 5).toByte(), (j.Byte.MAX_VALUE - 2).toByte()))
+        doTest((j.Short.MAX_VALUE - 5).toShort()..j.Short.MAX_VALUE.toShort() step 3, (j.Short.MAX_VALUE - 5).toShort(), j.Short.MAX_VALUE.toShort(), 3,
+                listOf((j.Short.MAX_VALUE - 5).toShort(), (j.Short.MAX_VALUE - 2).toShort()))
+        doTest((j.Long.MAX_VALUE - 5).toLong()..j.Long.MAX_VALUE.toLong() step 3, (j.Long.MAX_VALUE - 5).toLong(), j.Long.MAX_VALUE.toLong(), 3.toLong(),
+                listOf((j.Long.MAX_VALUE - 5).toLong(), (j.Long.MAX_VALUE - 2).toLong()))
+
+        doTest((j.Character.MAX_VALUE - 5).toChar()..j.Character.MAX_VALUE.toChar() step 3, (j.Character.MAX_VALUE - 5).toChar(), j.Character.MAX_VALUE.toChar(), 3,
+                listOf((j.Character.MAX_VALUE - 5).toChar(), (j.Character.MAX_VALUE - 2).toChar()))
+    }
+
+    test fun minValueDownToMinValue() {
+        doTest(j.Integer.MIN_VALUE downTo j.Integer.MIN_VALUE, j.Integer.MIN_VALUE, j.Integer.MIN_VALUE, -1, listOf(j.Integer.MIN_VALUE))
+        doTest(j.Byte.MIN_VALUE.toByte() downTo j.Byte.MIN_VALUE.toByte(), j.Byte.MIN_VALUE.toByte(), j.Byte.MIN_VALUE.toByte(), -1,
+                listOf(j.Byte.MIN_VALUE.toByte()))
+        doTest(j.Short.MIN_VALUE.toShort() downTo j.Short.MIN_VALUE.toShort(), j.Short.MIN_VALUE.toShort(), j.Short.MIN_VALUE.toShort(), -1,
+                listOf(j.Short.MIN_VALUE.toShort()))
+        doTest(j.Long.MIN_VALUE.toLong() downTo j.Long.MIN_VALUE.toLong(), j.Long.MIN_VALUE.toLong(), j.Long.MIN_VALUE.toLong(), -1.toLong(),
+                listOf(j.Long.MIN_VALUE.toLong()))
+
+        doTest(j.Character.MIN_VALUE.toChar() downTo j.Character.MIN_VALUE.toChar(), j.Character.MIN_VALUE.toChar(), j.Character.MIN_VALUE.toChar(), -1,
+                listOf(j.Character.MIN_VALUE.toChar()))
+    }
+
+    test fun progressionMinValuePlusFiveDownToMinValue() {
+        doTest((j.Integer.MIN_VALUE + 5) downTo j.Integer.MIN_VALUE step 3, j.Integer.MIN_VALUE + 5, j.Integer.MIN_VALUE, -3,
+                listOf(j.Integer.MIN_VALUE + 5, j.Integer.MIN_VALUE + 2))
+        doTest((j.Byte.MIN_VALUE + 5).toByte() downTo j.Byte.MIN_VALUE.toByte() step 3, (j.Byte.MIN_VALUE + 5).toByte(), j.Byte.MIN_VALUE.toByte(), -3,
+                listOf((j.Byte.MIN_VALUE + 5).toByte(), (j.Byte.MIN_VALUE + 2).toByte()))
+        doTest((j.Short.MIN_VALUE + 5).toShort() downTo j.Short.MIN_VALUE.toShort() step 3, (j.Short.MIN_VALUE + 5).toShort(), j.Short.MIN_VALUE.toShort(), -3,
+                listOf((j.Short.MIN_VALUE + 5).toShort(), (j.Short.MIN_VALUE + 2).toShort()))
+        doTest((j.Long.MIN_VALUE + 5).toLong() downTo j.Long.MIN_VALUE.toLong() step 3, (j.Long.MIN_VALUE + 5).toLong(), j.Long.MIN_VALUE.toLong(), -3.toLong(),
+                listOf((j.Long.MIN_VALUE + 5).toLong(), (j.Long.MIN_VALUE + 2).toLong()))
+
+        doTest((j.Character.MIN_VALUE + 5).toChar() downTo j.Character.MIN_VALUE.toChar() step 3, (j.Character.MIN_VALUE + 5).toChar(), j.Character.MIN_VALUE.toChar(), -3,
+                listOf((j.Character.MIN_VALUE + 5).toChar(), (j.Character.MIN_VALUE + 2).toChar()))
+    }
+}
@@ -26,6 +26,38 @@ public abstract  class ExtensionFunction0<E, R>  extends DefaultJetObject {
 
     public abstract R invoke(E receiver);
 
+    // Unboxed entry points, overridden by compiled function literals of a matching signature
+
+    @SuppressWarnings("unchecked")
+    public int invokeAsInt(int receiver) {
+        return (Integer) invoke((E) (Integer) receiver);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(int receiver) {
+        return (Boolean) invoke((E) (Integer) receiver);
+    }
+
+    @SuppressWarnings("unchecked")
+    public long invokeAsLong(long receiver) {
+        return (Long) invoke((E) (Long) receiver);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(long receiver) {
+        return (Boolean) invoke((E) (Long) receiver);
+    }
+
+    @SuppressWarnings("unchecked")
+    public double invokeAsDouble(double receiver) {
+        return (Double) invoke((E) (Double) receiver);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(double receiver) {
+        return (Boolean) invoke((E) (Double) receiver);
+    }
+
     @Override
     public String toString() {
         return "{E.() : R}";
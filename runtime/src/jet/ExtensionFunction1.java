@@ -26,6 +26,38 @@ public abstract class ExtensionFunction1<E, D1, R> extends DefaultJetObject {
 
     public abstract R invoke(E receiver, D1 d1);
 
+    // Unboxed entry points, overridden by compiled function literals of a matching signature
+
+    @SuppressWarnings("unchecked")
+    public int invokeAsInt(int receiver, int d1) {
+        return (Integer) invoke((E) (Integer) receiver, (D1) (Integer) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(int receiver, int d1) {
+        return (Boolean) invoke((E) (Integer) receiver, (D1) (Integer) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public long invokeAsLong(long receiver, long d1) {
+        return (Long) invoke((E) (Long) receiver, (D1) (Long) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(long receiver, long d1) {
+        return (Boolean) invoke((E) (Long) receiver, (D1) (Long) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public double invokeAsDouble(double receiver, double d1) {
+        return (Double) invoke((E) (Double) receiver, (D1) (Double) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(double receiver, double d1) {
+        return (Boolean) invoke((E) (Double) receiver, (D1) (Double) d1);
+    }
+
     @Override
     public String toString() {
       return "{E.(d1: D1) : R)}";
@@ -22,6 +22,38 @@ import org.jetbrains.jet.rt.annotation.AssertInvisibleInResolver;
 public abstract class Function1<D1, R> extends DefaultJetObject {
     public abstract R invoke(D1 d1);
 
+    // Unboxed entry points, overridden by compiled function literals of a matching signature
+
+    @SuppressWarnings("unchecked")
+    public int invokeAsInt(int d1) {
+        return (Integer) invoke((D1) (Integer) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(int d1) {
+        return (Boolean) invoke((D1) (Integer) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public long invokeAsLong(long d1) {
+        return (Long) invoke((D1) (Long) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(long d1) {
+        return (Boolean) invoke((D1) (Long) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public double invokeAsDouble(double d1) {
+        return (Double) invoke((D1) (Double) d1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean invokeAsBoolean(double d1) {
+        return (Boolean) invoke((D1) (Double) d1);
+    }
+
     @Override
     public String toString() {
       return "{(d1: D1) : R)}";
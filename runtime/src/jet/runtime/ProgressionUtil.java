@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jet.runtime;
+
+/**
+ * Progressions are iterated up to their final element, i.e. the last element actually reached from the start with the given
+ * increment, and never past it: this way iteration can't overflow, e.g. in {@code Int.MAX_VALUE - 1..Int.MAX_VALUE}.
+ * Used by progression iterators and by for-loops compiled to counted loops.
+ */
+@SuppressWarnings("unused")
+public class ProgressionUtil {
+    private ProgressionUtil() {
+    }
+
+    // a mod b (in arithmetical sense)
+    private static long mod(long a, long b) {
+        long mod = a % b;
+        return mod >= 0 ? mod : mod + b;
+    }
+
+    // (a - b) mod c, computed without overflow
+    private static long differenceModulo(long a, long b, long c) {
+        return mod(mod(a, c) - mod(b, c), c);
+    }
+
+    /**
+     * For an empty progression the result is {@code end}, which lies before {@code start} in the iteration direction
+     */
+    public static long getProgressionFinalElement(long start, long end, long increment) {
+        if (increment > 0) {
+            return start >= end ? end : end - differenceModulo(end, start, increment);
+        }
+        else if (increment < 0) {
+            return start <= end ? end : end + differenceModulo(start, end, -increment);
+        }
+        else {
+            throw new IllegalArgumentException("Increment must be non-zero: " + increment);
+        }
+    }
+
+    public static int getProgressionFinalElement(int start, int end, int increment) {
+        // Computed in longs, so that -increment doesn't overflow for Int.MIN_VALUE
+        return (int) getProgressionFinalElement((long) start, (long) end, (long) increment);
+    }
+}